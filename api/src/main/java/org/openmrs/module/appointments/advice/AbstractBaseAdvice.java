@@ -52,7 +52,11 @@ public abstract class AbstractBaseAdvice implements AfterReturningAdvice {
     @Override
     public void afterReturning(Object returnValue, Method method, Object[] arguments, Object target) throws Throwable {
         if (shouldRaiseEvent() && shouldRaiseEventForMethod(method.getName()))
-            raiseEvent(getContents(returnValue), getTitle(), getCategory());
+            raiseEventFor(returnValue);
+    }
+
+    protected void raiseEventFor(Object returnValue) {
+        raiseEvent(getContents(returnValue), getTitle(), getCategory());
     }
 
     protected String getUrlPattern(String urlPatternGlobalProperty, String defaultValue) {
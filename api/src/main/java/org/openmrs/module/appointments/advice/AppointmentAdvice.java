@@ -2,10 +2,12 @@ package org.openmrs.module.appointments.advice;
 
 import org.openmrs.api.context.Context;
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentBatchItem;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import static java.util.Objects.isNull;
 
@@ -14,6 +16,7 @@ public class AppointmentAdvice extends AbstractBaseAdvice {
     private static final String TITLE = "Appointment";
     private static final String CATEGORY = "appointments";
     private static final ArrayList<String> METHOD_NAMES = new ArrayList<>(Arrays.asList("validateAndSave", "changeStatus", "undoStatusChange"));
+    private static final ArrayList<String> BULK_METHOD_NAMES = new ArrayList<>(Arrays.asList("bulkValidateAndSave", "bulkChangeStatus"));
     private static final ArrayList<String> VOIDED_METHOD_NAMES = new ArrayList<>(Arrays.asList("changeStatus", "undoStatusChange"));
     private static final String DEFAULT_URL_PATTERN = "/openmrs/ws/rest/v1/appointment?uuid={uuid}";
     private static final String RAISE_EVENT_GLOBAL_PROPERTY = "atomfeed.publish.eventsForAppointments";
@@ -27,6 +30,11 @@ public class AppointmentAdvice extends AbstractBaseAdvice {
 
     @Override
     public void afterReturning(Object returnValue, Method method, Object[] arguments, Object target) throws Throwable {
+        if (BULK_METHOD_NAMES.contains(method.getName())) {
+            raiseEventsForBatch((List<AppointmentBatchItem>) returnValue);
+            return;
+        }
+
         // Hacky fix for void method
         Object processedReturnValue = returnValue;
 
@@ -36,6 +44,15 @@ public class AppointmentAdvice extends AbstractBaseAdvice {
         super.afterReturning(processedReturnValue, method, arguments, target);
     }
 
+    private void raiseEventsForBatch(List<AppointmentBatchItem> batchItems) {
+        if (isNull(batchItems) || !shouldRaiseEvent())
+            return;
+        for (AppointmentBatchItem batchItem : batchItems) {
+            if (batchItem.isSuccessful())
+                raiseEventFor(batchItem.getAppointment());
+        }
+    }
+
     @Override
     protected String getTitle() {
         return TITLE;
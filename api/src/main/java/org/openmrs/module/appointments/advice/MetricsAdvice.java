@@ -0,0 +1,52 @@
+package org.openmrs.module.appointments.advice;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.openmrs.module.appointments.metrics.MethodMetrics;
+import org.openmrs.module.appointments.metrics.MetricsRegistry;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+public class MetricsAdvice implements MethodInterceptor {
+
+    private final MetricsRegistry metricsRegistry;
+
+    private final ConcurrentMap<Method, MethodMetrics> metricsByMethod = new ConcurrentHashMap<>();
+
+    public MetricsAdvice() {
+        this(MetricsRegistry.getRegisteredRegistry());
+    }
+
+    public MetricsAdvice(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (metricsRegistry == null) {
+            return invocation.proceed();
+        }
+        MethodMetrics methodMetrics = metricsByMethod.computeIfAbsent(invocation.getMethod(), this::createMethodMetrics);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object returnValue = invocation.proceed();
+            failed = false;
+            return returnValue;
+        } finally {
+            methodMetrics.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    private MethodMetrics createMethodMetrics(Method method) {
+        String parameterTypes = Arrays.stream(method.getParameterTypes())
+                .map(Class::getSimpleName)
+                .collect(Collectors.joining(","));
+        return metricsRegistry.getMethodMetrics(
+                method.getDeclaringClass().getSimpleName() + "." + method.getName() + "(" + parameterTypes + ")");
+    }
+}
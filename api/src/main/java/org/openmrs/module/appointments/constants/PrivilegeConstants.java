@@ -4,4 +4,5 @@ public class PrivilegeConstants {
     public static final String MANAGE_APPOINTMENTS = "Manage Appointments";
     public static final String MANAGE_OWN_APPOINTMENTS = "Manage Own Appointments";
     public static final String VIEW_APPOINTMENTS = "View Appointments";
+    public static final String VIEW_APPOINTMENT_SERVICES = "View Appointment Services";
 }
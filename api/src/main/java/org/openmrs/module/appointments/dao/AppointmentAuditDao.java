@@ -9,6 +9,8 @@ public interface AppointmentAuditDao {
 
 	void save(AppointmentAudit appointmentAuditEvent);
 
+	void save(List<AppointmentAudit> appointmentAuditEvents);
+
 	List<AppointmentAudit> getAppointmentHistoryForAppointment(Appointment appointment);
 
 	AppointmentAudit getPriorStatusChangeEvent(Appointment appointment);
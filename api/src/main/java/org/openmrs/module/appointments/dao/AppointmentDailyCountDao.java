@@ -0,0 +1,42 @@
+package org.openmrs.module.appointments.dao;
+
+import org.openmrs.module.appointments.model.AppointmentDailyCount;
+import org.openmrs.module.appointments.model.AppointmentService;
+import org.openmrs.module.appointments.model.AppointmentStatus;
+
+import java.util.Date;
+import java.util.List;
+
+public interface AppointmentDailyCountDao {
+
+    /**
+     * Flushes the session and adds the count changes of the flushed appointments to appointment_daily_count.
+     */
+    void applyPendingChanges();
+
+    /**
+     * @return true when appointment changes were committed without being applied since the counts were last rebuilt
+     */
+    boolean isStale();
+
+    /**
+     * @param appointmentService the service to count, or null for all services
+     * @return the non zero counts of the days from startDate to endDate, ordered by day. Counts of voided service
+     * types are left out.
+     */
+    List<AppointmentDailyCount> getDailyCounts(AppointmentService appointmentService, Date startDate, Date endDate,
+                                               List<AppointmentStatus> statuses);
+
+    /**
+     * Computes the same counts as {@link #getDailyCounts} from patient_appointment, for when
+     * appointment_daily_count has not been built.
+     */
+    List<AppointmentDailyCount> countAppointments(AppointmentService appointmentService, Date startDate, Date endDate,
+                                                  List<AppointmentStatus> statuses);
+
+    /**
+     * Recomputes appointment_daily_count from patient_appointment. Appointments written while the rebuild runs
+     * may be counted wrongly, so it is meant to be run when the system is quiet.
+     */
+    void rebuild();
+}
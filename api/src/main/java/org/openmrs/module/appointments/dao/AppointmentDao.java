@@ -1,11 +1,15 @@
 package org.openmrs.module.appointments.dao;
 
+import java.util.Collection;
 import java.util.Date;
+import org.openmrs.Patient;
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentDayCounts;
 import org.openmrs.module.appointments.model.AppointmentSearch;
 import org.openmrs.module.appointments.model.AppointmentService;
 import org.openmrs.module.appointments.model.AppointmentServiceType;
 import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.model.AppointmentTimeline;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -13,9 +17,22 @@ import java.util.List;
 public interface AppointmentDao {
     List<Appointment> getAllAppointments(Date forDate);
 
+    /**
+     * Reads only the given properties of the appointments getAllAppointments would read, such as "status" or
+     * "location.uuid", leaving out appointments of voided services and service types.
+     *
+     * @return a row per appointment holding the values of the properties in their order
+     */
+    List<Object[]> getAllAppointmentProperties(Date forDate, List<String> properties);
+
     @Transactional
     void save(Appointment appointmentService);
 
+    @Transactional
+    void save(List<Appointment> appointments);
+
+    List<Patient> getPatientsByUuids(Collection<String> uuids);
+
     List<Appointment> search(Appointment appointment);
 
     List<Appointment> getAllFutureAppointmentsForService(AppointmentService appointmentService);
@@ -24,9 +41,32 @@ public interface AppointmentDao {
 
     List<Appointment> getAppointmentsForService(AppointmentService appointmentService, Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusFilterList);
 
+    AppointmentDayCounts getAppointmentDayCounts(AppointmentService appointmentService, Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusFilterList);
+
 	Appointment getAppointmentByUuid(String uuid);
 
+    List<Appointment> getAppointmentsByUuids(Collection<String> uuids);
+
     List<Appointment> getAllAppointmentsInDateRange(Date startDate, Date endDate);
 
     List<Appointment> search(AppointmentSearch appointmentSearch);
+
+    /**
+     * Reads only the given properties of the appointments search would find.
+     *
+     * @return a row per appointment holding the values of the properties in their order
+     */
+    List<Object[]> searchProperties(AppointmentSearch appointmentSearch, List<String> properties);
+
+    /**
+     * Reads at most pastLimit appointments of the patient that start before startOfToday and at most upcomingLimit
+     * that start from it, each with a range scan of the (patient_id, voided, start_date_time) index.
+     */
+    AppointmentTimeline getPatientTimeline(Patient patient, Date startOfToday, int pastLimit, int upcomingLimit);
+
+    /**
+     * Reads appointments, voided ones included, last created or changed after (since, afterAppointmentId) and before
+     * until, ordered by that time and id. The date_created and date_changed indexes narrow the scan.
+     */
+    List<Appointment> getAppointmentsChangedSince(Date since, Integer afterAppointmentId, Date until, int maxResults);
 }
@@ -0,0 +1,8 @@
+package org.openmrs.module.appointments.dao;
+
+import org.openmrs.module.appointments.model.Appointment;
+
+public interface AppointmentNumberGenerator {
+
+    String generateAppointmentNumber(Appointment appointment);
+}
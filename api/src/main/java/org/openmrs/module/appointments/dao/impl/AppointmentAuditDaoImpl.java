@@ -1,9 +1,12 @@
 package org.openmrs.module.appointments.dao.impl;
 
 import org.hibernate.Criteria;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
+import org.openmrs.User;
+import org.openmrs.api.context.Context;
 import org.openmrs.module.appointments.dao.AppointmentAuditDao;
 import org.openmrs.module.appointments.model.Appointment;
 import org.openmrs.module.appointments.model.AppointmentAudit;
@@ -11,10 +14,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.Date;
 import java.util.List;
 
 public class AppointmentAuditDaoImpl implements AppointmentAuditDao{
 
+	private static final int BATCH_SIZE = 50;
+	private static final String INSERT_AUDIT_SQL = "INSERT INTO patient_appointment_audit " +
+			"(appointment_id, uuid, date_created, creator, voided, status, notes) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
 	private SessionFactory sessionFactory;
 
 	public void setSessionFactory(SessionFactory sessionFactory) {
@@ -27,6 +37,47 @@ public class AppointmentAuditDaoImpl implements AppointmentAuditDao{
 		sessionFactory.getCurrentSession().saveOrUpdate(appointmentAuditEvent);
 	}
 
+	/**
+	 * Inserts the audit rows with a single JDBC batch instead of one Hibernate insert per row.
+	 * The appointments must already be flushed so that their ids are available.
+	 */
+	@Transactional
+	@Override
+	public void save(List<AppointmentAudit> appointmentAuditEvents) {
+		if (appointmentAuditEvents == null || appointmentAuditEvents.isEmpty()) {
+			return;
+		}
+		Session session = sessionFactory.getCurrentSession();
+		session.flush();
+		User creator = Context.getAuthenticatedUser();
+		Date dateCreated = new Date();
+		session.doWork(connection -> {
+			try (PreparedStatement statement = connection.prepareStatement(INSERT_AUDIT_SQL)) {
+				int pending = 0;
+				for (AppointmentAudit appointmentAuditEvent : appointmentAuditEvents) {
+					if (appointmentAuditEvent.getCreator() == null) {
+						appointmentAuditEvent.setCreator(creator);
+					}
+					if (appointmentAuditEvent.getDateCreated() == null) {
+						appointmentAuditEvent.setDateCreated(dateCreated);
+					}
+					statement.setInt(1, appointmentAuditEvent.getAppointment().getAppointmentId());
+					statement.setString(2, appointmentAuditEvent.getUuid());
+					statement.setTimestamp(3, new Timestamp(appointmentAuditEvent.getDateCreated().getTime()));
+					statement.setInt(4, appointmentAuditEvent.getCreator().getUserId());
+					statement.setBoolean(5, false);
+					statement.setString(6, appointmentAuditEvent.getStatus().name());
+					statement.setString(7, appointmentAuditEvent.getNotes());
+					statement.addBatch();
+					if (++pending % BATCH_SIZE == 0) {
+						statement.executeBatch();
+					}
+				}
+				statement.executeBatch();
+			}
+		});
+	}
+
 	@Override
 	public List<AppointmentAudit> getAppointmentHistoryForAppointment(Appointment appointment) {
 		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(AppointmentAudit.class, "appointmentAudit");
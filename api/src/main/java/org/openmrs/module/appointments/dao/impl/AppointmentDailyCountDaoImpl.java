@@ -0,0 +1,289 @@
+package org.openmrs.module.appointments.dao.impl;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.Criteria;
+import org.hibernate.LockMode;
+import org.hibernate.LockOptions;
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.criterion.Subqueries;
+import org.openmrs.module.appointments.dao.AppointmentDailyCountDao;
+import org.openmrs.module.appointments.model.AppointmentDailyCount;
+import org.openmrs.module.appointments.model.AppointmentDailyCountLock;
+import org.openmrs.module.appointments.model.AppointmentService;
+import org.openmrs.module.appointments.model.AppointmentServiceType;
+import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.openmrs.module.appointments.dao.impl.ReadOnlyQueries.readOnly;
+
+public class AppointmentDailyCountDaoImpl implements AppointmentDailyCountDao {
+
+    private static final Log log = LogFactory.getLog(AppointmentDailyCountDaoImpl.class);
+    private static final int BATCH_SIZE = 500;
+    private static final int LOCK_ID = 1;
+    private static final String INCREMENT_SQL = "UPDATE appointment_daily_count SET appointment_count = appointment_count + ? " +
+            "WHERE appointment_service_id = ? AND appointment_service_type_id = ? AND location_id = ? " +
+            "AND appointment_date = ? AND status = ?";
+    private static final String INSERT_SQL = "INSERT INTO appointment_daily_count (appointment_count, " +
+            "appointment_service_id, appointment_service_type_id, location_id, appointment_date, status) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_ALL_SQL = "DELETE FROM appointment_daily_count";
+    private static final String APPOINTMENTS_QUERY = "select service.appointmentServiceId, serviceType.id, " +
+            "location.locationId, appointment.startDateTime, appointment.status from Appointment appointment " +
+            "join appointment.service service left join appointment.serviceType serviceType " +
+            "left join appointment.location location " +
+            "where appointment.voided = false and appointment.startDateTime is not null and appointment.status is not null";
+
+    private SessionFactory sessionFactory;
+
+    private AppointmentDailyCountInterceptor appointmentDailyCountInterceptor;
+
+    private ReadReplica readReplica;
+
+    private QueryLimits queryLimits;
+
+    public void setSessionFactory(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    public void setAppointmentDailyCountInterceptor(AppointmentDailyCountInterceptor appointmentDailyCountInterceptor) {
+        this.appointmentDailyCountInterceptor = appointmentDailyCountInterceptor;
+    }
+
+    public void setReadReplica(ReadReplica readReplica) {
+        this.readReplica = readReplica;
+    }
+
+    public void setQueryLimits(QueryLimits queryLimits) {
+        this.queryLimits = queryLimits;
+    }
+
+    @Transactional
+    @Override
+    public void applyPendingChanges() {
+        Session session = sessionFactory.getCurrentSession();
+        session.flush();
+        Map<AppointmentDailyCountKey, Integer> changes = appointmentDailyCountInterceptor.drainPendingChanges();
+        if (!changes.isEmpty()) {
+            lock(session, LockMode.PESSIMISTIC_READ);
+            session.doWork(connection -> applyChanges(connection, changes));
+        }
+    }
+
+    @Override
+    public boolean isStale() {
+        return appointmentDailyCountInterceptor.isStale();
+    }
+
+    @Override
+    public List<AppointmentDailyCount> getDailyCounts(AppointmentService appointmentService, Date startDate, Date endDate,
+                                                      List<AppointmentStatus> statuses) {
+        return readReplica.read(session -> {
+            Criteria criteria = session.createCriteria(AppointmentDailyCount.class);
+            if (appointmentService != null) {
+                criteria.add(Restrictions.eq("serviceId", appointmentService.getAppointmentServiceId()));
+            }
+            criteria.add(Restrictions.ge("day", toSqlDate(startDate)));
+            criteria.add(Restrictions.le("day", toSqlDate(endDate)));
+            if (statuses != null && !statuses.isEmpty()) {
+                criteria.add(Restrictions.in("status", statuses));
+            }
+            criteria.add(Restrictions.gt("appointmentCount", 0));
+            DetachedCriteria activeServiceTypes = DetachedCriteria.forClass(AppointmentServiceType.class)
+                    .add(Restrictions.eq("voided", false))
+                    .setProjection(Projections.id());
+            criteria.add(Restrictions.or(Restrictions.eq("serviceTypeId", AppointmentDailyCountKey.NONE),
+                    Subqueries.propertyIn("serviceTypeId", activeServiceTypes)));
+            criteria.addOrder(Order.asc("day"));
+            return queryLimits.withTimeout(readOnly(criteria)).list();
+        });
+    }
+
+    @Override
+    public List<AppointmentDailyCount> countAppointments(AppointmentService appointmentService, Date startDate, Date endDate,
+                                                         List<AppointmentStatus> statuses) {
+        StringBuilder hql = new StringBuilder(APPOINTMENTS_QUERY).append(" and appointment.startDateTime >= :startDate " +
+                "and appointment.startDateTime < :endDate and (serviceType is null or serviceType.voided = false)");
+        if (appointmentService != null) {
+            hql.append(" and service = :service");
+        }
+        if (statuses != null && !statuses.isEmpty()) {
+            hql.append(" and appointment.status in (:statuses)");
+        }
+        Map<AppointmentDailyCountKey, Integer> counts = readReplica.read(session -> {
+            Query query = queryLimits.withTimeout(session.createQuery(hql.toString()))
+                    .setTimestamp("startDate", toStartOfDay(startDate, 0))
+                    .setTimestamp("endDate", toStartOfDay(endDate, 1));
+            if (appointmentService != null) {
+                query.setParameter("service", appointmentService);
+            }
+            if (statuses != null && !statuses.isEmpty()) {
+                query.setParameterList("statuses", statuses);
+            }
+            return countByKey(query);
+        });
+        List<AppointmentDailyCount> dailyCounts = new ArrayList<>();
+        counts.forEach((key, count) -> dailyCounts.add(toDailyCount(key, count)));
+        dailyCounts.sort(Comparator.comparing(AppointmentDailyCount::getDay));
+        return dailyCounts;
+    }
+
+    /**
+     * Waits for the transactions that added to the counts and keeps others from adding to them until the rebuilt
+     * counts are committed. Otherwise a transaction committing after the appointments were counted would lose its
+     * changes when the counts are replaced. The appointments are counted after the lock is taken, so the rebuild has
+     * to run first in its transaction for databases that take a snapshot at the first read, like MySQL.
+     */
+    @Transactional
+    @Override
+    public void rebuild() {
+        Session session = sessionFactory.getCurrentSession();
+        session.flush();
+        lock(session, LockMode.PESSIMISTIC_WRITE);
+        Map<AppointmentDailyCountKey, Integer> counts = countByKey(session.createQuery(APPOINTMENTS_QUERY));
+        appointmentDailyCountInterceptor.drainPendingChanges();
+        appointmentDailyCountInterceptor.markRebuilt();
+        session.doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate(DELETE_ALL_SQL);
+            }
+            insert(connection, counts);
+        });
+        log.info("Rebuilt " + counts.size() + " appointment daily counts");
+    }
+
+    /**
+     * Locks the row of appointment_daily_count_lock, shared for adding to the counts and exclusively for rebuilding
+     * them. The row is created by the first rebuild when it is missing, e.g. in a schema generated from the mappings.
+     */
+    private void lock(Session session, LockMode lockMode) {
+        Object lock = session.get(AppointmentDailyCountLock.class, LOCK_ID, new LockOptions(lockMode));
+        if (lock == null && lockMode == LockMode.PESSIMISTIC_WRITE) {
+            session.save(new AppointmentDailyCountLock(LOCK_ID));
+            session.flush();
+        }
+    }
+
+    private Map<AppointmentDailyCountKey, Integer> countByKey(Query appointmentsQuery) {
+        Map<AppointmentDailyCountKey, Integer> counts = new TreeMap<>();
+        ScrollableResults appointments = appointmentsQuery
+                .setReadOnly(true)
+                .setFetchSize(BATCH_SIZE)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (appointments.next()) {
+                AppointmentDailyCountKey key = new AppointmentDailyCountKey((Integer) appointments.get(0),
+                        (Integer) appointments.get(1), (Integer) appointments.get(2), (Date) appointments.get(3),
+                        (AppointmentStatus) appointments.get(4));
+                counts.merge(key, 1, Integer::sum);
+            }
+        } finally {
+            appointments.close();
+        }
+        return counts;
+    }
+
+    private AppointmentDailyCount toDailyCount(AppointmentDailyCountKey key, int count) {
+        AppointmentDailyCount dailyCount = new AppointmentDailyCount();
+        dailyCount.setServiceId(key.getServiceId());
+        dailyCount.setServiceTypeId(key.getServiceTypeId());
+        dailyCount.setLocationId(key.getLocationId());
+        dailyCount.setDay(java.sql.Date.valueOf(key.getDay()));
+        dailyCount.setStatus(key.getStatus());
+        dailyCount.setAppointmentCount(count);
+        return dailyCount;
+    }
+
+    private void applyChanges(Connection connection, Map<AppointmentDailyCountKey, Integer> changes) throws SQLException {
+        List<AppointmentDailyCountKey> keys = new ArrayList<>(changes.keySet());
+        Map<AppointmentDailyCountKey, Integer> missing = new TreeMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(INCREMENT_SQL)) {
+            for (int start = 0; start < keys.size(); start += BATCH_SIZE) {
+                List<AppointmentDailyCountKey> batch = keys.subList(start, Math.min(start + BATCH_SIZE, keys.size()));
+                for (AppointmentDailyCountKey key : batch) {
+                    setParameters(statement, changes.get(key), key);
+                    statement.addBatch();
+                }
+                int[] updated = statement.executeBatch();
+                for (int index = 0; index < updated.length; index++) {
+                    if (updated[index] == 0) {
+                        missing.put(batch.get(index), changes.get(batch.get(index)));
+                    }
+                }
+            }
+        }
+        for (Map.Entry<AppointmentDailyCountKey, Integer> change : missing.entrySet()) {
+            if (change.getValue() > 0) {
+                insertOrIncrement(connection, change.getKey(), change.getValue());
+            }
+        }
+    }
+
+    private void insertOrIncrement(Connection connection, AppointmentDailyCountKey key, int count) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            setParameters(statement, count, key);
+            statement.executeUpdate();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            log.debug("Appointment daily count " + key + " was created by another transaction, adding to it instead", e);
+            try (PreparedStatement statement = connection.prepareStatement(INCREMENT_SQL)) {
+                setParameters(statement, count, key);
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    private void insert(Connection connection, Map<AppointmentDailyCountKey, Integer> counts) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            int pending = 0;
+            for (Map.Entry<AppointmentDailyCountKey, Integer> count : counts.entrySet()) {
+                setParameters(statement, count.getValue(), count.getKey());
+                statement.addBatch();
+                if (++pending % BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private void setParameters(PreparedStatement statement, int count, AppointmentDailyCountKey key) throws SQLException {
+        statement.setInt(1, count);
+        statement.setInt(2, key.getServiceId());
+        statement.setInt(3, key.getServiceTypeId());
+        statement.setInt(4, key.getLocationId());
+        statement.setDate(5, java.sql.Date.valueOf(key.getDay()));
+        statement.setString(6, key.getStatus().name());
+    }
+
+    private Date toStartOfDay(Date date, int plusDays) {
+        LocalDate day = date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().plusDays(plusDays);
+        return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private java.sql.Date toSqlDate(Date date) {
+        LocalDate day = date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        return java.sql.Date.valueOf(day);
+    }
+}
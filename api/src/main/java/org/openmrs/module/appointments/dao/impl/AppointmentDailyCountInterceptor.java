@@ -0,0 +1,152 @@
+package org.openmrs.module.appointments.dao.impl;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.Transaction;
+import org.hibernate.type.Type;
+import org.openmrs.Location;
+import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentService;
+import org.openmrs.module.appointments.model.AppointmentServiceType;
+import org.openmrs.module.appointments.model.AppointmentStatus;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects how the appointments flushed by the current thread move between rows of appointment_daily_count.
+ * The collected deltas are written by {@link AppointmentDailyCountDaoImpl#applyPendingChanges()} and dropped when
+ * the transaction completes. A transaction that commits without applying them leaves the counts stale, which is
+ * logged and flagged until a rebuild of the counts is committed.
+ */
+public class AppointmentDailyCountInterceptor extends EmptyInterceptor {
+
+    private static final Log log = LogFactory.getLog(AppointmentDailyCountInterceptor.class);
+
+    private final ThreadLocal<Map<AppointmentDailyCountKey, Integer>> pendingChanges = ThreadLocal.withInitial(TreeMap::new);
+
+    private final ThreadLocal<Boolean> rebuilt = new ThreadLocal<>();
+
+    private volatile boolean stale;
+
+    @Override
+    public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+        if (entity instanceof Appointment) {
+            record(keyOf(state, propertyNames), 1);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+                                String[] propertyNames, Type[] types) {
+        if (entity instanceof Appointment) {
+            if (previousState == null) {
+                log.warn("Appointment " + id + " was updated without its previous state, appointment daily counts need a rebuild");
+                return false;
+            }
+            record(keyOf(previousState, propertyNames), -1);
+            record(keyOf(currentState, propertyNames), 1);
+        }
+        return false;
+    }
+
+    @Override
+    public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+        if (entity instanceof Appointment) {
+            record(keyOf(state, propertyNames), -1);
+        }
+    }
+
+    @Override
+    public void afterTransactionCompletion(Transaction tx) {
+        Map<AppointmentDailyCountKey, Integer> changes = pendingChanges.get();
+        pendingChanges.remove();
+        boolean rebuiltCounts = rebuilt.get() != null;
+        rebuilt.remove();
+        if (!tx.wasCommitted()) {
+            return;
+        }
+        if (rebuiltCounts) {
+            stale = false;
+        }
+        if (changes.values().stream().anyMatch(delta -> delta != 0)) {
+            log.warn("A transaction committed appointment changes without applying them to the appointment daily counts, " +
+                    "the counts are stale until they are rebuilt");
+            stale = true;
+        }
+    }
+
+    /**
+     * @return true when a transaction committed appointment changes without applying them since the last rebuild
+     */
+    boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * Clears the stale flag once the transaction of the current thread, which rebuilt the counts, is committed.
+     */
+    void markRebuilt() {
+        rebuilt.set(Boolean.TRUE);
+    }
+
+    /**
+     * @return the non zero deltas collected since the last call, in key order
+     */
+    Map<AppointmentDailyCountKey, Integer> drainPendingChanges() {
+        Map<AppointmentDailyCountKey, Integer> changes = pendingChanges.get();
+        pendingChanges.remove();
+        changes.values().removeIf(delta -> delta == 0);
+        return changes;
+    }
+
+    private void record(AppointmentDailyCountKey key, int delta) {
+        if (key != null) {
+            pendingChanges.get().merge(key, delta, Integer::sum);
+        }
+    }
+
+    private AppointmentDailyCountKey keyOf(Object[] state, String[] propertyNames) {
+        AppointmentService service = null;
+        AppointmentServiceType serviceType = null;
+        Location location = null;
+        Date startDateTime = null;
+        AppointmentStatus status = null;
+        for (int index = 0; index < propertyNames.length; index++) {
+            switch (propertyNames[index]) {
+                case "voided":
+                    if (Boolean.TRUE.equals(state[index])) {
+                        return null;
+                    }
+                    break;
+                case "service":
+                    service = (AppointmentService) state[index];
+                    break;
+                case "serviceType":
+                    serviceType = (AppointmentServiceType) state[index];
+                    break;
+                case "location":
+                    location = (Location) state[index];
+                    break;
+                case "startDateTime":
+                    startDateTime = (Date) state[index];
+                    break;
+                case "status":
+                    status = (AppointmentStatus) state[index];
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (service == null || startDateTime == null || status == null) {
+            return null;
+        }
+        return new AppointmentDailyCountKey(service.getAppointmentServiceId(),
+                serviceType != null ? serviceType.getId() : null,
+                location != null ? location.getLocationId() : null, startDateTime, status);
+    }
+}
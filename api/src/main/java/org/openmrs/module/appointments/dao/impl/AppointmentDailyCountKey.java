@@ -0,0 +1,89 @@
+package org.openmrs.module.appointments.dao.impl;
+
+import org.openmrs.module.appointments.model.AppointmentStatus;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Objects;
+
+import static java.util.Comparator.comparing;
+
+/**
+ * Row of appointment_daily_count an appointment is counted in. Keys are ordered so that the rows touched by
+ * concurrent transactions are always locked in the same order.
+ */
+class AppointmentDailyCountKey implements Comparable<AppointmentDailyCountKey> {
+
+    static final int NONE = 0;
+
+    private static final Comparator<AppointmentDailyCountKey> ORDER = comparing(AppointmentDailyCountKey::getServiceId)
+            .thenComparing(AppointmentDailyCountKey::getDay)
+            .thenComparing(AppointmentDailyCountKey::getServiceTypeId)
+            .thenComparing(AppointmentDailyCountKey::getLocationId)
+            .thenComparing(AppointmentDailyCountKey::getStatus);
+
+    private final int serviceId;
+    private final int serviceTypeId;
+    private final int locationId;
+    private final LocalDate day;
+    private final AppointmentStatus status;
+
+    AppointmentDailyCountKey(Integer serviceId, Integer serviceTypeId, Integer locationId, Date startDateTime,
+                             AppointmentStatus status) {
+        this.serviceId = serviceId;
+        this.serviceTypeId = serviceTypeId != null ? serviceTypeId : NONE;
+        this.locationId = locationId != null ? locationId : NONE;
+        this.day = startDateTime.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        this.status = status;
+    }
+
+    int getServiceId() {
+        return serviceId;
+    }
+
+    int getServiceTypeId() {
+        return serviceTypeId;
+    }
+
+    int getLocationId() {
+        return locationId;
+    }
+
+    LocalDate getDay() {
+        return day;
+    }
+
+    AppointmentStatus getStatus() {
+        return status;
+    }
+
+    @Override
+    public int compareTo(AppointmentDailyCountKey other) {
+        return ORDER.compare(this, other);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        AppointmentDailyCountKey that = (AppointmentDailyCountKey) o;
+        return serviceId == that.serviceId && serviceTypeId == that.serviceTypeId && locationId == that.locationId &&
+                day.equals(that.day) && status == that.status;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(serviceId, serviceTypeId, locationId, day, status);
+    }
+
+    @Override
+    public String toString() {
+        return serviceId + "/" + serviceTypeId + "/" + locationId + "/" + day + "/" + status;
+    }
+}
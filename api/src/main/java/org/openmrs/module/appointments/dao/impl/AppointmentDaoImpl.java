@@ -1,42 +1,144 @@
 package org.openmrs.module.appointments.dao.impl;
 
 import org.hibernate.Criteria;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Example;
+import org.hibernate.criterion.ProjectionList;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.sql.JoinType;
+import org.hibernate.transform.BasicTransformerAdapter;
+import org.openmrs.Patient;
 import org.openmrs.module.appointments.dao.AppointmentDao;
+import org.openmrs.module.appointments.dao.AppointmentNumberGenerator;
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentDayCounts;
 import org.openmrs.module.appointments.model.AppointmentSearch;
 import org.openmrs.module.appointments.model.AppointmentService;
 import org.openmrs.module.appointments.model.AppointmentServiceType;
 import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.model.AppointmentTimeline;
+import org.openmrs.module.appointments.model.AppointmentTimelineEntry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
+import static org.openmrs.module.appointments.dao.impl.ReadOnlyQueries.readOnly;
+
 public class AppointmentDaoImpl implements AppointmentDao {
 
+    private static final String PATIENT_TIMELINE_QUERY = "select new org.openmrs.module.appointments.model.AppointmentTimelineEntry(" +
+            "appointment.uuid, appointment.appointmentNumber, appointment.startDateTime, appointment.endDateTime, " +
+            "appointment.status, appointment.appointmentKind, service.uuid, service.name, serviceType.uuid, serviceType.name, " +
+            "provider.uuid, providerName.givenName, providerName.familyName, location.uuid, location.name, appointment.comments) " +
+            "from Appointment appointment join appointment.service service left join appointment.serviceType serviceType " +
+            "left join appointment.provider provider left join provider.person providerPerson " +
+            "left join providerPerson.names providerName with providerName.preferred = true and providerName.voided = false " +
+            "left join appointment.location location " +
+            "where appointment.patient = :patient and appointment.voided = false and service.voided = false " +
+            "and (appointment.serviceType is null or serviceType.voided = false) and appointment.startDateTime %s :startOfToday " +
+            "order by appointment.startDateTime %s";
+
+    private static final String CHANGED_APPOINTMENTS_QUERY = "from Appointment appointment " +
+            "where (appointment.dateCreated >= :since or appointment.dateChanged >= :since) " +
+            "and (coalesce(appointment.dateChanged, appointment.dateCreated) > :since " +
+            "or (coalesce(appointment.dateChanged, appointment.dateCreated) = :since and appointment.appointmentId > :afterAppointmentId)) " +
+            "and coalesce(appointment.dateChanged, appointment.dateCreated) < :until " +
+            "order by coalesce(appointment.dateChanged, appointment.dateCreated), appointment.appointmentId";
+
     private SessionFactory sessionFactory;
 
+    private AppointmentNumberGenerator appointmentNumberGenerator;
+
+    private ReadReplica readReplica;
+
+    private QueryLimits queryLimits;
+
     public void setSessionFactory(SessionFactory sessionFactory) {
         this.sessionFactory = sessionFactory;
     }
 
+    public void setAppointmentNumberGenerator(AppointmentNumberGenerator appointmentNumberGenerator) {
+        this.appointmentNumberGenerator = appointmentNumberGenerator;
+    }
+
+    public void setReadReplica(ReadReplica readReplica) {
+        this.readReplica = readReplica;
+    }
+
+    public void setQueryLimits(QueryLimits queryLimits) {
+        this.queryLimits = queryLimits;
+    }
+
     @Override
     public List<Appointment> getAllAppointments(Date forDate) {
+        return queryLimits.list(readOnly(createAllAppointmentsCriteria(forDate)));
+    }
+
+    @Override
+    public List<Object[]> getAllAppointmentProperties(Date forDate, List<String> properties) {
+        return queryLimits.list(readOnly(project(createAllAppointmentsCriteria(forDate), properties, "service", "serviceType")));
+    }
+
+    /**
+     * Non-voided appointments whose service and service type are not voided either, joining them as "service" and
+     * "serviceType".
+     */
+    private Criteria createAllAppointmentsCriteria(Date forDate) {
         Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Appointment.class);
         criteria.add(Restrictions.eq("voided", false));
+        criteria.createAlias("service", "service", JoinType.LEFT_OUTER_JOIN);
+        excludeVoidedServicesAndServiceTypes(criteria);
         if (forDate != null) {
             Date maxDate = new Date(forDate.getTime() + TimeUnit.DAYS.toMillis(1));
             criteria.add(Restrictions.ge("startDateTime", forDate));
             criteria.add(Restrictions.lt("endDateTime", maxDate));
         }
-        return criteria.list();
+        return criteria;
+    }
+
+    /**
+     * Leaves out the appointments of a voided service or service type. The criteria must have joined the service as
+     * "service"; the service type is joined here.
+     */
+    private void excludeVoidedServicesAndServiceTypes(Criteria criteria) {
+        criteria.createAlias("serviceType", "serviceType", JoinType.LEFT_OUTER_JOIN);
+        criteria.add(Restrictions.or(Restrictions.isNull("service"), Restrictions.eq("service.voided", false)));
+        criteria.add(Restrictions.or(Restrictions.isNull("serviceType"), Restrictions.eq("serviceType.voided", false)));
+    }
+
+    /**
+     * Selects only the given properties, joining the associations of properties like "location.uuid" unless the
+     * criteria already joined them, and returns every row as an array even when there is a single property.
+     */
+    private Criteria project(Criteria criteria, List<String> properties, String... joinedAssociations) {
+        Set<String> aliases = new HashSet<>(Arrays.asList(joinedAssociations));
+        ProjectionList projection = Projections.projectionList();
+        for (String property : properties) {
+            int dot = property.indexOf('.');
+            if (dot > 0 && aliases.add(property.substring(0, dot))) {
+                criteria.createAlias(property.substring(0, dot), property.substring(0, dot), JoinType.LEFT_OUTER_JOIN);
+            }
+            projection.add(Projections.property(property));
+        }
+        criteria.setProjection(projection);
+        criteria.setResultTransformer(new BasicTransformerAdapter() {
+            @Override
+            public Object transformTuple(Object[] tuple, String[] aliases) {
+                return tuple;
+            }
+        });
+        return criteria;
     }
 
     @Transactional
@@ -44,14 +146,32 @@ public class AppointmentDaoImpl implements AppointmentDao {
     public void save(Appointment appointment) {
 
         if(appointment.getAppointmentNumber() == null) {
-            appointment.setAppointmentNumber(generateAppointmentNumber());
+            appointment.setAppointmentNumber(appointmentNumberGenerator.generateAppointmentNumber(appointment));
         }
         sessionFactory.getCurrentSession().saveOrUpdate(appointment);
     }
 
-    private String generateAppointmentNumber() {
-        // placeholder for generating appointment numbers
-        return "0000";
+    @Transactional
+    @Override
+    public void save(List<Appointment> appointments) {
+        Session session = sessionFactory.getCurrentSession();
+        for (Appointment appointment : appointments) {
+            if (appointment.getAppointmentNumber() == null) {
+                appointment.setAppointmentNumber(appointmentNumberGenerator.generateAppointmentNumber(appointment));
+            }
+            session.saveOrUpdate(appointment);
+        }
+        session.flush();
+    }
+
+    @Override
+    public List<Patient> getPatientsByUuids(Collection<String> uuids) {
+        if (uuids == null || uuids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Patient.class);
+        criteria.add(Restrictions.in("uuid", uuids));
+        return queryLimits.withTimeout(criteria).list();
     }
 
     @Override
@@ -65,13 +185,17 @@ public class AppointmentDaoImpl implements AppointmentDao {
         if(appointment.getLocation()!=null) criteria.createCriteria("location").add(
                 Example.create(appointment.getLocation()));
 
-        if(appointment.getService()!=null) criteria.createCriteria("service").add(
-                Example.create(appointment.getService()));
+        if(appointment.getService()!=null) {
+            criteria.createCriteria("service", "service").add(Example.create(appointment.getService()));
+        } else {
+            criteria.createAlias("service", "service", JoinType.LEFT_OUTER_JOIN);
+        }
+        excludeVoidedServicesAndServiceTypes(criteria);
 
         if(appointment.getProvider()!=null) criteria.createCriteria("provider").add(
                 Example.create(appointment.getProvider()));
 
-        return criteria.list();
+        return queryLimits.list(readOnly(criteria));
     }
 
     @Override
@@ -81,7 +205,7 @@ public class AppointmentDaoImpl implements AppointmentDao {
         criteria.add(Restrictions.gt("endDateTime", new Date()));
         criteria.add(Restrictions.eq("voided", false));
         criteria.add(Restrictions.ne("status", AppointmentStatus.Cancelled));
-        return criteria.list();
+        return queryLimits.list(readOnly(criteria));
     }
 
     @Override
@@ -91,12 +215,36 @@ public class AppointmentDaoImpl implements AppointmentDao {
         criteria.add(Restrictions.gt("endDateTime", new Date()));
         criteria.add(Restrictions.eq("voided", false));
         criteria.add(Restrictions.ne("status", AppointmentStatus.Cancelled));
-        return criteria.list();
+        return queryLimits.list(readOnly(criteria));
     }
 
     @Override
     public List<Appointment> getAppointmentsForService(AppointmentService appointmentService, Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusFilterList) {
-        Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Appointment.class);
+        Criteria criteria = createAppointmentsForServiceCriteria(sessionFactory.getCurrentSession(), appointmentService,
+                startDate, endDate, appointmentStatusFilterList);
+        return queryLimits.withTimeout(readOnly(criteria)).list();
+
+    }
+
+    @Override
+    public AppointmentDayCounts getAppointmentDayCounts(AppointmentService appointmentService, Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusFilterList) {
+        List<Object[]> rows = readReplica.read(session -> {
+            Criteria criteria = createAppointmentsForServiceCriteria(session, appointmentService, startDate, endDate,
+                    appointmentStatusFilterList);
+            criteria.setProjection(Projections.projectionList()
+                    .add(Projections.property("startDateTime"))
+                    .add(Projections.property("status")));
+            return queryLimits.withTimeout(readOnly(criteria)).list();
+        });
+        AppointmentDayCounts dayCounts = new AppointmentDayCounts(startDate, endDate);
+        for (Object[] row : rows) {
+            dayCounts.add((Date) row[0], (AppointmentStatus) row[1]);
+        }
+        return dayCounts;
+    }
+
+    private Criteria createAppointmentsForServiceCriteria(Session session, AppointmentService appointmentService, Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusFilterList) {
+        Criteria criteria = session.createCriteria(Appointment.class);
         criteria.createAlias("serviceType", "serviceType", JoinType.LEFT_OUTER_JOIN);
         criteria.add(Restrictions.or(Restrictions.isNull("serviceType"), Restrictions.eq("serviceType.voided", false)));
         criteria.add(Restrictions.eq("voided", false));
@@ -106,15 +254,24 @@ public class AppointmentDaoImpl implements AppointmentDao {
         if (appointmentStatusFilterList != null && !appointmentStatusFilterList.isEmpty()) {
             criteria.add(Restrictions.in("status", appointmentStatusFilterList));
         }
-        return  criteria.list();
-
+        return criteria;
     }
 
     @Override
     public Appointment getAppointmentByUuid(String uuid) {
         Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Appointment.class, "appointment");
         criteria.add(Restrictions.eq("uuid", uuid));
-        return (Appointment) criteria.uniqueResult();
+        return (Appointment) queryLimits.withTimeout(criteria).uniqueResult();
+    }
+
+    @Override
+    public List<Appointment> getAppointmentsByUuids(Collection<String> uuids) {
+        if (uuids == null || uuids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Appointment.class);
+        criteria.add(Restrictions.in("uuid", uuids));
+        return queryLimits.withTimeout(criteria).list();
     }
 
     @Override
@@ -127,15 +284,55 @@ public class AppointmentDaoImpl implements AppointmentDao {
         if (endDate != null) {
             criteria.add(Restrictions.lt("endDateTime", endDate));
         }
-        return criteria.list();
+        return queryLimits.withTimeout(criteria).list();
     }
 
     @Override
     public List<Appointment> search(AppointmentSearch appointmentSearch) {
+        return queryLimits.list(readOnly(createSearchCriteria(appointmentSearch)));
+    }
+
+    @Override
+    public List<Object[]> searchProperties(AppointmentSearch appointmentSearch, List<String> properties) {
+        return queryLimits.list(readOnly(project(createSearchCriteria(appointmentSearch), properties)));
+    }
+
+    private Criteria createSearchCriteria(AppointmentSearch appointmentSearch) {
         Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Appointment.class);
         criteria.add(Restrictions.eq("voided", false));
         Date maxEndDate = new Date(appointmentSearch.getEndDate().getTime());
         criteria.add(Restrictions.between("startDateTime", appointmentSearch.getStartDate(), maxEndDate));
-        return criteria.list();
+        return criteria;
+    }
+
+    @Override
+    public AppointmentTimeline getPatientTimeline(Patient patient, Date startOfToday, int pastLimit, int upcomingLimit) {
+        List<AppointmentTimelineEntry> past = getPatientTimelineEntries(patient, "<", startOfToday, "desc", pastLimit);
+        List<AppointmentTimelineEntry> upcoming = getPatientTimelineEntries(patient, ">=", startOfToday, "asc", upcomingLimit);
+        return new AppointmentTimeline(past, upcoming);
+    }
+
+    private List<AppointmentTimelineEntry> getPatientTimelineEntries(Patient patient, String comparison, Date startOfToday,
+                                                                     String order, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        return readReplica.read(session -> queryLimits.withTimeout(readOnly(session
+                .createQuery(String.format(PATIENT_TIMELINE_QUERY, comparison, order))))
+                .setParameter("patient", patient)
+                .setTimestamp("startOfToday", startOfToday)
+                .setMaxResults(limit)
+                .list());
+    }
+
+    @Override
+    public List<Appointment> getAppointmentsChangedSince(Date since, Integer afterAppointmentId, Date until, int maxResults) {
+        return queryLimits.withTimeout(readOnly(sessionFactory.getCurrentSession()
+                .createQuery(CHANGED_APPOINTMENTS_QUERY)))
+                .setTimestamp("since", since)
+                .setInteger("afterAppointmentId", afterAppointmentId)
+                .setTimestamp("until", until)
+                .setMaxResults(maxResults)
+                .list();
     }
 }
@@ -11,21 +11,29 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
+import static org.openmrs.module.appointments.dao.impl.ReadOnlyQueries.readOnly;
+
 public class AppointmentServiceDaoImpl implements AppointmentServiceDao{
 
     private SessionFactory sessionFactory;
 
+    private QueryLimits queryLimits;
+
     public void setSessionFactory(SessionFactory sessionFactory) {
         this.sessionFactory = sessionFactory;
     }
 
+    public void setQueryLimits(QueryLimits queryLimits) {
+        this.queryLimits = queryLimits;
+    }
+
     @Override
     public List<AppointmentService> getAllAppointmentServices(boolean includeVoided) {
         Criteria criteria = sessionFactory.getCurrentSession().createCriteria(AppointmentService.class, "appointmentService");
         if(!includeVoided) {
             criteria.add(Restrictions.eq("voided", includeVoided));
         }
-        return criteria.list();
+        return queryLimits.withTimeout(readOnly(criteria)).list();
     }
 
     @Transactional
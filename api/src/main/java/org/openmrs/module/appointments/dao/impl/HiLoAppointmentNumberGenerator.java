@@ -0,0 +1,141 @@
+package org.openmrs.module.appointments.dao.impl;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.exception.ConstraintViolationException;
+import org.openmrs.api.APIException;
+import org.openmrs.module.appointments.dao.AppointmentNumberGenerator;
+import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentNumberSequence;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out appointment numbers of the form yyyyMMdd-NNNN, with one sequence per appointment day.
+ * Each node reserves a block of numbers from the appointment_number_sequence table and serves it from memory,
+ * so the database is only hit once every blockSize appointments of the same day. Blocks are reserved in their
+ * own transaction with a compare-and-set update, which keeps numbers unique across nodes. Numbers left in a
+ * block when the node stops are skipped, so the numbers of a day can have gaps.
+ */
+public class HiLoAppointmentNumberGenerator implements AppointmentNumberGenerator {
+
+    private static final Log log = LogFactory.getLog(HiLoAppointmentNumberGenerator.class);
+    private static final DateTimeFormatter SEQUENCE_KEY_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final int MAX_RESERVE_ATTEMPTS = 10;
+    private static final int MAX_CACHED_BLOCKS = 1000;
+    private static final String RESERVE_BLOCK_QUERY = "update AppointmentNumberSequence set nextValue = :newValue " +
+            "where sequenceKey = :sequenceKey and nextValue = :nextValue";
+
+    private final ConcurrentMap<String, NumberBlock> blocks = new ConcurrentHashMap<>();
+
+    private SessionFactory sessionFactory;
+
+    private PlatformTransactionManager transactionManager;
+
+    private int blockSize = 20;
+
+    public void setSessionFactory(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public String generateAppointmentNumber(Appointment appointment) {
+        String sequenceKey = getSequenceKey(appointment.getStartDateTime());
+        return String.format("%s-%04d", sequenceKey, nextValue(sequenceKey));
+    }
+
+    long nextValue(String sequenceKey) {
+        NumberBlock block = blocks.get(sequenceKey);
+        long value = block != null ? block.next() : -1;
+        if (value > 0) {
+            return value;
+        }
+        synchronized (this) {
+            block = blocks.get(sequenceKey);
+            value = block != null ? block.next() : -1;
+            while (value < 0) {
+                if (blocks.size() >= MAX_CACHED_BLOCKS) {
+                    blocks.clear();
+                }
+                block = reserveBlock(sequenceKey);
+                blocks.put(sequenceKey, block);
+                value = block.next();
+            }
+            return value;
+        }
+    }
+
+    private String getSequenceKey(Date startDateTime) {
+        LocalDate day = startDateTime != null ?
+                startDateTime.toInstant().atZone(ZoneId.systemDefault()).toLocalDate() : LocalDate.now();
+        return day.format(SEQUENCE_KEY_FORMAT);
+    }
+
+    private NumberBlock reserveBlock(String sequenceKey) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (int attempt = 0; attempt < MAX_RESERVE_ATTEMPTS; attempt++) {
+            try {
+                NumberBlock block = transactionTemplate.execute(status -> tryReserveBlock(sequenceKey));
+                if (block != null) {
+                    return block;
+                }
+            } catch (ConstraintViolationException | DataIntegrityViolationException e) {
+                log.debug("Sequence " + sequenceKey + " was created by another node, retrying", e);
+            }
+        }
+        throw new APIException("Could not reserve appointment numbers for " + sequenceKey);
+    }
+
+    private NumberBlock tryReserveBlock(String sequenceKey) {
+        Session session = sessionFactory.getCurrentSession();
+        AppointmentNumberSequence sequence = (AppointmentNumberSequence) session.get(AppointmentNumberSequence.class, sequenceKey);
+        if (sequence == null) {
+            session.save(new AppointmentNumberSequence(sequenceKey, 1L + blockSize));
+            session.flush();
+            return new NumberBlock(1, blockSize);
+        }
+        long first = sequence.getNextValue();
+        int updated = session.createQuery(RESERVE_BLOCK_QUERY)
+                .setLong("newValue", first + blockSize)
+                .setString("sequenceKey", sequenceKey)
+                .setLong("nextValue", first)
+                .executeUpdate();
+        return updated == 1 ? new NumberBlock(first, first + blockSize - 1) : null;
+    }
+
+    private static class NumberBlock {
+        private final AtomicLong next;
+        private final long last;
+
+        NumberBlock(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+
+        long next() {
+            long value = next.getAndIncrement();
+            return value <= last ? value : -1;
+        }
+    }
+}
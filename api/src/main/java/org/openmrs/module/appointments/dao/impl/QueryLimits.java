@@ -0,0 +1,47 @@
+package org.openmrs.module.appointments.dao.impl;
+
+import org.hibernate.Criteria;
+import org.hibernate.Query;
+import org.openmrs.module.appointments.model.ResultList;
+
+import java.util.List;
+
+/**
+ * Timeout of the DAO queries and row cap of the lists that are returned to clients. Lists read with
+ * {@link #list(Criteria)} hold at most maxResults rows and tell whether there were more. Reads whose callers need
+ * every row, such as counts and scheduled tasks, only get the timeout.
+ */
+public class QueryLimits {
+
+    private int queryTimeoutSeconds = 30;
+
+    private int maxResults = 10000;
+
+    public void setQueryTimeoutSeconds(int queryTimeoutSeconds) {
+        this.queryTimeoutSeconds = queryTimeoutSeconds;
+    }
+
+    public void setMaxResults(int maxResults) {
+        this.maxResults = maxResults;
+    }
+
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    public <T> List<T> list(Criteria criteria) {
+        List<T> results = withTimeout(criteria).setMaxResults(maxResults + 1).list();
+        if (results.size() > maxResults) {
+            return new ResultList<>(results.subList(0, maxResults), true);
+        }
+        return new ResultList<>(results, false);
+    }
+
+    public Criteria withTimeout(Criteria criteria) {
+        return criteria.setTimeout(queryTimeoutSeconds);
+    }
+
+    public Query withTimeout(Query query) {
+        return query.setTimeout(queryTimeoutSeconds);
+    }
+}
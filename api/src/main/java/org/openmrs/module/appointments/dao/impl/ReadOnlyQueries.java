@@ -0,0 +1,33 @@
+package org.openmrs.module.appointments.dao.impl;
+
+import org.hibernate.Criteria;
+import org.hibernate.FlushMode;
+import org.hibernate.Query;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Runs queries of read-only transactions without the auto flush before them and marks the entities they load
+ * read-only, so that the session keeps no snapshots of them for dirty checking. Spring only does this for sessions
+ * that it opens for the transaction, not for the session that is open for the whole web request.
+ */
+final class ReadOnlyQueries {
+
+    private ReadOnlyQueries() {
+    }
+
+    static Criteria readOnly(Criteria criteria) {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            criteria.setReadOnly(true);
+            criteria.setFlushMode(FlushMode.MANUAL);
+        }
+        return criteria;
+    }
+
+    static Query readOnly(Query query) {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            query.setReadOnly(true);
+            query.setFlushMode(FlushMode.MANUAL);
+        }
+        return query;
+    }
+}
@@ -0,0 +1,224 @@
+package org.openmrs.module.appointments.dao.impl;
+
+import com.mchange.v2.c3p0.ComboPooledDataSource;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.FlushMode;
+import org.hibernate.JDBCException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.openmrs.api.context.Context;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.function.Function;
+
+/**
+ * Runs the reads of read-only transactions on a replica of the database, when one is configured by the
+ * appointments.replica.* runtime properties and the lag query reports it at most maxLagSeconds behind. Reads run on
+ * the primary otherwise, and for RETRY_MILLIS after the replica failed. Connections to the replica come from a c3p0
+ * pool of at most appointments.replica.maxPoolSize connections, which is closed with the Spring context.
+ * <p>
+ * The replica session is closed when the read returns, so only reads whose results need no lazy loading are routed
+ * here: getDailyCounts, whether it reads the daily counts or counts the appointments, getAppointmentDayCounts,
+ * getPatientTimeline and getAllSpecialities, whose specialities are mapped by name and uuid only. The other
+ * read-only service methods read on the primary:
+ * <ul>
+ * <li>getAllAppointmentServices, because its services are mapped with their speciality, location, service types and
+ * weekly availability, which are loaded lazily;</li>
+ * <li>calculateCurrentLoad over part of a day, because it loads the appointments through getAppointmentsForService;
+ * over whole days it reads the daily counts on the replica;</li>
+ * <li>the appointment lists and searches, because their appointments, or rows with the patient, service and location
+ * of appointments, are mapped with associations loaded lazily;</li>
+ * <li>isDailyCountsEnabled, because it reads a global property through the OpenMRS core services.</li>
+ * </ul>
+ */
+public class ReadReplica {
+
+    public static final String URL_PROPERTY = "appointments.replica.connection.url";
+    public static final String USERNAME_PROPERTY = "appointments.replica.connection.username";
+    public static final String PASSWORD_PROPERTY = "appointments.replica.connection.password";
+    public static final String MAX_LAG_SECONDS_PROPERTY = "appointments.replica.maxLagSeconds";
+    public static final String LAG_QUERY_PROPERTY = "appointments.replica.lagQuery";
+    public static final String MAX_POOL_SIZE_PROPERTY = "appointments.replica.maxPoolSize";
+
+    private static final Log log = LogFactory.getLog(ReadReplica.class);
+    private static final String MYSQL_LAG_COLUMN = "Seconds_Behind_Master";
+    private static final long LAG_CHECK_INTERVAL_MILLIS = 5000;
+    private static final long RETRY_MILLIS = 60000;
+    private static final int DEFAULT_MAX_POOL_SIZE = 20;
+    private static final int CHECKOUT_TIMEOUT_MILLIS = 5000;
+    private static final int MAX_IDLE_SECONDS = 300;
+
+    private SessionFactory sessionFactory;
+
+    private DataSource dataSource;
+
+    private ComboPooledDataSource pooledDataSource;
+
+    private int maxLagSeconds = 30;
+
+    private String lagQuery = "SHOW SLAVE STATUS";
+
+    private boolean configured;
+
+    private volatile long unavailableUntil;
+
+    private volatile long lagCheckedAt;
+
+    public void setSessionFactory(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    public void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public void setMaxLagSeconds(int maxLagSeconds) {
+        this.maxLagSeconds = maxLagSeconds;
+    }
+
+    /**
+     * @param lagQuery a query returning the replica lag in seconds in its first column, or in a
+     * Seconds_Behind_Master column as MySQL's SHOW SLAVE STATUS does. No row or a null lag means that the
+     * replica is not replicating.
+     */
+    public void setLagQuery(String lagQuery) {
+        this.lagQuery = lagQuery;
+    }
+
+    public <T> T read(Function<Session, T> work) {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return work.apply(sessionFactory.getCurrentSession());
+        }
+        Connection connection = getReplicaConnection();
+        if (connection == null) {
+            return work.apply(sessionFactory.getCurrentSession());
+        }
+        Session session = sessionFactory.withOptions().connection(connection).openSession();
+        try {
+            session.setDefaultReadOnly(true);
+            session.setFlushMode(FlushMode.MANUAL);
+            return work.apply(session);
+        } catch (JDBCException e) {
+            markUnavailable(e);
+        } finally {
+            session.close();
+            close(connection);
+        }
+        return work.apply(sessionFactory.getCurrentSession());
+    }
+
+    private Connection getReplicaConnection() {
+        DataSource replicaDataSource = getDataSource();
+        if (replicaDataSource == null || System.currentTimeMillis() < unavailableUntil) {
+            return null;
+        }
+        Connection connection = null;
+        try {
+            connection = replicaDataSource.getConnection();
+            connection.setReadOnly(true);
+            if (System.currentTimeMillis() - lagCheckedAt > LAG_CHECK_INTERVAL_MILLIS) {
+                Long lag = getLagSeconds(connection);
+                if (lag == null || lag > maxLagSeconds) {
+                    log.warn("Reading from the primary database, the replica is " + (lag == null ? "not replicating"
+                            : lag + " seconds behind"));
+                    unavailableUntil = System.currentTimeMillis() + LAG_CHECK_INTERVAL_MILLIS;
+                    close(connection);
+                    return null;
+                }
+                lagCheckedAt = System.currentTimeMillis();
+            }
+            return connection;
+        } catch (SQLException e) {
+            markUnavailable(e);
+            close(connection);
+            return null;
+        }
+    }
+
+    private Long getLagSeconds(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(lagQuery)) {
+            if (!resultSet.next()) {
+                return null;
+            }
+            long lag = resultSet.getLong(getLagColumn(resultSet.getMetaData()));
+            return resultSet.wasNull() ? null : lag;
+        }
+    }
+
+    private int getLagColumn(ResultSetMetaData metaData) throws SQLException {
+        for (int column = 1; column <= metaData.getColumnCount(); column++) {
+            if (MYSQL_LAG_COLUMN.equalsIgnoreCase(metaData.getColumnLabel(column))) {
+                return column;
+            }
+        }
+        return 1;
+    }
+
+    private void markUnavailable(Exception e) {
+        log.warn("Reading from the primary database for " + RETRY_MILLIS / 1000 + " seconds, the replica failed", e);
+        unavailableUntil = System.currentTimeMillis() + RETRY_MILLIS;
+    }
+
+    private synchronized DataSource getDataSource() {
+        if (!configured) {
+            Properties properties = Context.getRuntimeProperties();
+            String url = properties.getProperty(URL_PROPERTY);
+            if (dataSource == null && StringUtils.isNotBlank(url)) {
+                pooledDataSource = createPooledDataSource(properties);
+                dataSource = pooledDataSource;
+            }
+            maxLagSeconds = NumberUtils.toInt(properties.getProperty(MAX_LAG_SECONDS_PROPERTY), maxLagSeconds);
+            lagQuery = properties.getProperty(LAG_QUERY_PROPERTY, lagQuery);
+            configured = true;
+        }
+        return dataSource;
+    }
+
+    static ComboPooledDataSource createPooledDataSource(Properties properties) {
+        ComboPooledDataSource pooledDataSource = new ComboPooledDataSource();
+        pooledDataSource.setJdbcUrl(properties.getProperty(URL_PROPERTY));
+        pooledDataSource.setUser(properties.getProperty(USERNAME_PROPERTY));
+        pooledDataSource.setPassword(properties.getProperty(PASSWORD_PROPERTY));
+        pooledDataSource.setMinPoolSize(0);
+        pooledDataSource.setInitialPoolSize(0);
+        pooledDataSource.setMaxPoolSize(NumberUtils.toInt(properties.getProperty(MAX_POOL_SIZE_PROPERTY), DEFAULT_MAX_POOL_SIZE));
+        // waits at most this long for a connection before reading from the primary
+        pooledDataSource.setCheckoutTimeout(CHECKOUT_TIMEOUT_MILLIS);
+        pooledDataSource.setMaxIdleTime(MAX_IDLE_SECONDS);
+        return pooledDataSource;
+    }
+
+    /**
+     * Closes the replica connection pool when the Spring context is refreshed or closed. Reads run on the primary
+     * afterwards.
+     */
+    public synchronized void close() {
+        if (pooledDataSource != null) {
+            pooledDataSource.close();
+            pooledDataSource = null;
+        }
+        dataSource = null;
+        configured = true;
+    }
+
+    private void close(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.warn("Could not close the replica connection", e);
+        }
+    }
+}
@@ -9,13 +9,27 @@ import org.openmrs.module.appointments.model.Speciality;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import static org.openmrs.module.appointments.dao.impl.ReadOnlyQueries.readOnly;
+
 public class SpecialityDaoImpl implements SpecialityDao{
     private SessionFactory sessionFactory;
 
+    private QueryLimits queryLimits;
+
+    private ReadReplica readReplica;
+
     public void setSessionFactory(SessionFactory sessionFactory) {
         this.sessionFactory = sessionFactory;
     }
 
+    public void setQueryLimits(QueryLimits queryLimits) {
+        this.queryLimits = queryLimits;
+    }
+
+    public void setReadReplica(ReadReplica readReplica) {
+        this.readReplica = readReplica;
+    }
+
     @Override
     public Speciality getSpecialityByUuid(String uuid) {
         Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Speciality.class, "Speciality");
@@ -24,8 +38,12 @@ public class SpecialityDaoImpl implements SpecialityDao{
         return list.size() > 0? (Speciality) list.get(0) : null;
     }
 
+    /**
+     * Reads on the replica in a read-only transaction. The specialities are then detached, so only their own
+     * columns can be read, not their creator or changedBy.
+     */
     public List<Speciality> getAllSpecialities() {
-        Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Speciality.class, "Speciality");
-        return criteria.list();
+        return readReplica.read(session -> queryLimits.withTimeout(readOnly(
+                session.createCriteria(Speciality.class, "Speciality"))).list());
     }
 }
@@ -0,0 +1,51 @@
+package org.openmrs.module.appointments.event;
+
+import org.openmrs.module.appointments.model.AppointmentStatus;
+
+/**
+ * An appointment that was created, changed or deleted by a committed transaction, with its state as flushed.
+ * Deleted appointments are reported as voided.
+ */
+public class AppointmentChange {
+
+    private final String appointmentUuid;
+    private final Integer patientId;
+    private final AppointmentStatus status;
+    private final String serviceUuid;
+    private final String locationUuid;
+    private final boolean voided;
+
+    public AppointmentChange(String appointmentUuid, Integer patientId, AppointmentStatus status, String serviceUuid,
+                             String locationUuid, boolean voided) {
+        this.appointmentUuid = appointmentUuid;
+        this.patientId = patientId;
+        this.status = status;
+        this.serviceUuid = serviceUuid;
+        this.locationUuid = locationUuid;
+        this.voided = voided;
+    }
+
+    public String getAppointmentUuid() {
+        return appointmentUuid;
+    }
+
+    public Integer getPatientId() {
+        return patientId;
+    }
+
+    public AppointmentStatus getStatus() {
+        return status;
+    }
+
+    public String getServiceUuid() {
+        return serviceUuid;
+    }
+
+    public String getLocationUuid() {
+        return locationUuid;
+    }
+
+    public boolean isVoided() {
+        return voided;
+    }
+}
@@ -0,0 +1,113 @@
+package org.openmrs.module.appointments.event;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Pushes committed appointment changes, numbered by sequence, into the ring buffers of its subscriptions. Publishing
+ * never waits for subscribers: a subscriber that reads slower than changes come in loses the oldest of them, see
+ * {@link AppointmentChangeSubscription}. The latest changes are also kept in a ring buffer of their own, to replay
+ * them to subscribers that reconnect after some sequence.
+ */
+public class AppointmentChangeBroadcaster implements AppointmentChangeListener {
+
+    private static final Log log = LogFactory.getLog(AppointmentChangeBroadcaster.class);
+
+    private static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    private final List<AppointmentChangeSubscription> subscriptions = new ArrayList<>();
+
+    private AppointmentChange[] buffer = new AppointmentChange[DEFAULT_BUFFER_SIZE];
+
+    private long lastSequence;
+
+    public synchronized void setBufferSize(int bufferSize) {
+        this.buffer = new AppointmentChange[bufferSize];
+        this.lastSequence = 0;
+    }
+
+    @Override
+    public void appointmentsChanged(Collection<AppointmentChange> changes) {
+        List<AppointmentChangeSubscription> notifiedSubscriptions = new ArrayList<>();
+        synchronized (this) {
+            for (AppointmentChange change : changes) {
+                lastSequence++;
+                buffer[(int) (lastSequence % buffer.length)] = change;
+                for (AppointmentChangeSubscription subscription : subscriptions) {
+                    if (subscription.offer(lastSequence, change)) {
+                        notifiedSubscriptions.add(subscription);
+                    }
+                }
+            }
+        }
+        for (AppointmentChangeSubscription subscription : notifiedSubscriptions) {
+            try {
+                subscription.notifyListener();
+            } catch (RuntimeException e) {
+                log.error("Appointment change subscriber could not be notified", e);
+            }
+        }
+    }
+
+    /**
+     * Subscribes to the changes of a location and service, each of them all when null. The changes after
+     * afterSequence are replayed to the subscription; it is marked as having lost changes when some of them were
+     * already overwritten.
+     *
+     * @param afterSequence the sequence of the latest change the subscriber has seen, null for changes from now on
+     * @param bufferSize the number of changes the subscription keeps until its subscriber reads them
+     * @param listener told about new changes; it must not block, as it runs on the thread publishing them
+     */
+    public synchronized AppointmentChangeSubscription subscribe(Long afterSequence, String locationUuid, String serviceUuid,
+                                                                int bufferSize, Runnable listener) {
+        long firstSequence = afterSequence != null ? afterSequence : lastSequence;
+        AppointmentChangeSubscription subscription = new AppointmentChangeSubscription(firstSequence, locationUuid,
+                serviceUuid, bufferSize, listener);
+        List<AppointmentChange> missedChanges = getChangesAfter(firstSequence);
+        if (missedChanges == null) {
+            subscription.markLostChanges(lastSequence);
+        } else {
+            long sequence = firstSequence;
+            for (AppointmentChange change : missedChanges) {
+                subscription.offer(++sequence, change);
+            }
+        }
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    public synchronized void unsubscribe(AppointmentChangeSubscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    public synchronized int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * @return the sequence of the latest change, 0 before any change
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * @return the changes with sequences afterSequence + 1 to {@link #getLastSequence()}, or null when some of them
+     * were already overwritten or afterSequence is not a sequence of this buffer, e.g. after a restart
+     */
+    public synchronized List<AppointmentChange> getChangesAfter(long afterSequence) {
+        long firstSequence = Math.max(afterSequence, 0) + 1;
+        if (afterSequence > lastSequence || lastSequence - firstSequence >= buffer.length) {
+            return null;
+        }
+        List<AppointmentChange> changes = new ArrayList<>();
+        for (long sequence = firstSequence; sequence <= lastSequence; sequence++) {
+            changes.add(buffer[(int) (sequence % buffer.length)]);
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,119 @@
+package org.openmrs.module.appointments.event;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.Transaction;
+import org.hibernate.type.Type;
+import org.openmrs.Location;
+import org.openmrs.Patient;
+import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentService;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Collects the appointments flushed by the current thread and reports them to the {@link AppointmentChangeListener}s
+ * once the transaction is committed. Nothing is reported for rolled back transactions.
+ */
+public class AppointmentChangeInterceptor extends EmptyInterceptor {
+
+    private static final Log log = LogFactory.getLog(AppointmentChangeInterceptor.class);
+
+    private final ThreadLocal<Map<String, AppointmentChange>> pendingChanges = ThreadLocal.withInitial(LinkedHashMap::new);
+
+    private List<AppointmentChangeListener> listeners = new ArrayList<>();
+
+    public void setListeners(List<AppointmentChangeListener> listeners) {
+        this.listeners = listeners;
+    }
+
+    @Override
+    public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+        if (entity instanceof Appointment) {
+            record((Appointment) entity, state, propertyNames, false);
+        }
+        return false;
+    }
+
+    /**
+     * Also reports the appointment with its previous patient, service and location when any of them changed, so that
+     * whoever follows the ones it was moved away from hears of it too.
+     */
+    @Override
+    public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+                                String[] propertyNames, Type[] types) {
+        if (entity instanceof Appointment) {
+            AppointmentChange change = record((Appointment) entity, currentState, propertyNames, false);
+            if (previousState != null) {
+                AppointmentChange previousChange = createChange((Appointment) entity, previousState, propertyNames, false);
+                if (!Objects.equals(previousChange.getPatientId(), change.getPatientId())
+                        || !Objects.equals(previousChange.getServiceUuid(), change.getServiceUuid())
+                        || !Objects.equals(previousChange.getLocationUuid(), change.getLocationUuid())) {
+                    record(previousChange);
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+        if (entity instanceof Appointment) {
+            record((Appointment) entity, state, propertyNames, true);
+        }
+    }
+
+    @Override
+    public void afterTransactionCompletion(Transaction tx) {
+        Map<String, AppointmentChange> changes = pendingChanges.get();
+        pendingChanges.remove();
+        if (changes.isEmpty() || !tx.wasCommitted()) {
+            return;
+        }
+        Collection<AppointmentChange> committedChanges = changes.values();
+        for (AppointmentChangeListener listener : listeners) {
+            try {
+                listener.appointmentsChanged(committedChanges);
+            } catch (RuntimeException e) {
+                log.error("Appointment change listener " + listener.getClass().getName() + " failed", e);
+            }
+        }
+    }
+
+    private AppointmentChange record(Appointment appointment, Object[] state, String[] propertyNames, boolean deleted) {
+        AppointmentChange change = createChange(appointment, state, propertyNames, deleted);
+        record(change);
+        return change;
+    }
+
+    private void record(AppointmentChange change) {
+        pendingChanges.get().put(change.getAppointmentUuid() + "/" + change.getPatientId() + "/" + change.getServiceUuid()
+                + "/" + change.getLocationUuid(), change);
+    }
+
+    private AppointmentChange createChange(Appointment appointment, Object[] state, String[] propertyNames, boolean deleted) {
+        Patient patient = (Patient) getProperty(state, propertyNames, "patient");
+        AppointmentService service = (AppointmentService) getProperty(state, propertyNames, "service");
+        Location location = (Location) getProperty(state, propertyNames, "location");
+        boolean voided = deleted || Boolean.TRUE.equals(appointment.getVoided());
+        return new AppointmentChange(appointment.getUuid(), patient != null ? patient.getPatientId() : null,
+                appointment.getStatus(), service != null ? service.getUuid() : null,
+                location != null ? location.getUuid() : null, voided);
+    }
+
+    private Object getProperty(Object[] state, String[] propertyNames, String propertyName) {
+        for (int index = 0; index < propertyNames.length; index++) {
+            if (propertyName.equals(propertyNames[index])) {
+                return state[index];
+            }
+        }
+        return null;
+    }
+}
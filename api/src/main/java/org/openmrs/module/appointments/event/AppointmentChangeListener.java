@@ -0,0 +1,12 @@
+package org.openmrs.module.appointments.event;
+
+import java.util.Collection;
+
+public interface AppointmentChangeListener {
+
+    /**
+     * Called on the committing thread after a transaction that wrote appointments has been committed. An appointment
+     * that moved to another patient, service or location is also reported with the ones it moved away from.
+     */
+    void appointmentsChanged(Collection<AppointmentChange> changes);
+}
@@ -0,0 +1,138 @@
+package org.openmrs.module.appointments.event;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The changes of one subscriber of {@link AppointmentChangeBroadcaster}, kept in a ring buffer of its own. When the
+ * subscriber reads slower than changes come in, the oldest changes are dropped and the subscription is marked as
+ * having lost changes.
+ * <p>
+ * The listener is told when a change arrives for a subscription whose changes were all read, so that at most one
+ * reader is busy with a subscription at a time. A new subscription counts as unread until its first {@link #poll()}
+ * returns null, so its subscriber reads the changes replayed to it without being told.
+ */
+public class AppointmentChangeSubscription {
+
+    private final String locationUuid;
+    private final String serviceUuid;
+    private final Runnable listener;
+    private final long[] sequences;
+    private final AppointmentChange[] changes;
+
+    private int first;
+    private int size;
+    private long lastSequence;
+    private boolean lostChanges;
+    private boolean unread = true;
+
+    AppointmentChangeSubscription(long lastSequence, String locationUuid, String serviceUuid, int bufferSize,
+                                  Runnable listener) {
+        this.lastSequence = lastSequence;
+        this.locationUuid = locationUuid;
+        this.serviceUuid = serviceUuid;
+        this.listener = listener;
+        this.sequences = new long[bufferSize];
+        this.changes = new AppointmentChange[bufferSize];
+    }
+
+    /**
+     * @return whether the listener has to be told, because the change was buffered and all earlier ones were read
+     */
+    synchronized boolean offer(long sequence, AppointmentChange change) {
+        lastSequence = sequence;
+        if (!matches(change.getLocationUuid(), locationUuid) || !matches(change.getServiceUuid(), serviceUuid)) {
+            return false;
+        }
+        if (size == changes.length) {
+            changes[first] = null;
+            first = (first + 1) % changes.length;
+            size--;
+            lostChanges = true;
+        }
+        int index = (first + size) % changes.length;
+        sequences[index] = sequence;
+        changes[index] = change;
+        size++;
+        if (unread) {
+            return false;
+        }
+        unread = true;
+        return true;
+    }
+
+    synchronized void markLostChanges(long lastSequence) {
+        this.lastSequence = lastSequence;
+        this.lostChanges = true;
+    }
+
+    void notifyListener() {
+        listener.run();
+    }
+
+    /**
+     * @return the sequence of the latest change offered to this subscription, including those filtered out
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Takes the buffered changes.
+     *
+     * @return null when all changes were read, the listener is then told about the next one
+     */
+    public synchronized Changes poll() {
+        if (size == 0 && !lostChanges) {
+            unread = false;
+            return null;
+        }
+        Map<Long, AppointmentChange> bufferedChanges = new LinkedHashMap<>();
+        for (int offset = 0; offset < size; offset++) {
+            int index = (first + offset) % changes.length;
+            bufferedChanges.put(sequences[index], changes[index]);
+            changes[index] = null;
+        }
+        Changes polled = new Changes(bufferedChanges, lastSequence, lostChanges);
+        first = 0;
+        size = 0;
+        lostChanges = false;
+        return polled;
+    }
+
+    private boolean matches(String uuid, String filterUuid) {
+        return filterUuid == null || filterUuid.equals(uuid);
+    }
+
+    public static class Changes {
+
+        private final Map<Long, AppointmentChange> changesBySequence;
+        private final long lastSequence;
+        private final boolean lostChanges;
+
+        Changes(Map<Long, AppointmentChange> changesBySequence, long lastSequence, boolean lostChanges) {
+            this.changesBySequence = Collections.unmodifiableMap(changesBySequence);
+            this.lastSequence = lastSequence;
+            this.lostChanges = lostChanges;
+        }
+
+        /**
+         * @return the changes by sequence, in the order they were published
+         */
+        public Map<Long, AppointmentChange> getChangesBySequence() {
+            return changesBySequence;
+        }
+
+        public long getLastSequence() {
+            return lastSequence;
+        }
+
+        /**
+         * @return whether changes were dropped before these, because the subscriber read too slowly
+         */
+        public boolean isLostChanges() {
+            return lostChanges;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.openmrs.module.appointments.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call count, error count and latency histogram of one instrumented operation. Recording is wait-free: counters are
+ * {@link LongAdder}s and latencies go to an HdrHistogram {@link Recorder}, whose interval histograms are only folded
+ * into the cumulative histogram when a snapshot is taken.
+ */
+public class MethodMetrics {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final String name;
+
+    private final LongAdder calls = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+
+    private final Histogram cumulative = new Histogram(SIGNIFICANT_DIGITS);
+
+    private Histogram interval;
+
+    public MethodMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long durationNanos, boolean failed) {
+        calls.increment();
+        if (failed) {
+            errors.increment();
+        }
+        recorder.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(durationNanos)));
+    }
+
+    public synchronized MethodMetricsSnapshot snapshot() {
+        interval = recorder.getIntervalHistogram(interval);
+        cumulative.add(interval);
+        return new MethodMetricsSnapshot(name, calls.sum(), errors.sum(), cumulative);
+    }
+
+    public synchronized void reset() {
+        interval = recorder.getIntervalHistogram(interval);
+        cumulative.reset();
+        calls.reset();
+        errors.reset();
+    }
+}
@@ -0,0 +1,74 @@
+package org.openmrs.module.appointments.metrics;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Point-in-time view of a {@link MethodMetrics}. Latencies are in milliseconds.
+ */
+public class MethodMetricsSnapshot {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private String name;
+    private long calls;
+    private long errors;
+    private double mean;
+    private double p50;
+    private double p90;
+    private double p99;
+    private double p999;
+    private double max;
+
+    public MethodMetricsSnapshot() {
+    }
+
+    MethodMetricsSnapshot(String name, long calls, long errors, Histogram histogram) {
+        this.name = name;
+        this.calls = calls;
+        this.errors = errors;
+        if (histogram.getTotalCount() > 0) {
+            this.mean = histogram.getMean() / MICROS_PER_MILLI;
+            this.p50 = histogram.getValueAtPercentile(50) / MICROS_PER_MILLI;
+            this.p90 = histogram.getValueAtPercentile(90) / MICROS_PER_MILLI;
+            this.p99 = histogram.getValueAtPercentile(99) / MICROS_PER_MILLI;
+            this.p999 = histogram.getValueAtPercentile(99.9) / MICROS_PER_MILLI;
+            this.max = histogram.getMaxValue() / MICROS_PER_MILLI;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getP50() {
+        return p50;
+    }
+
+    public double getP90() {
+        return p90;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    public double getP999() {
+        return p999;
+    }
+
+    public double getMax() {
+        return max;
+    }
+}
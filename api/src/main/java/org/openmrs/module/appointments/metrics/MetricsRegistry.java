@@ -0,0 +1,55 @@
+package org.openmrs.module.appointments.metrics;
+
+import org.openmrs.api.context.Context;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Holds the {@link MethodMetrics} of every instrumented service method and scheduler task of the module.
+ */
+public class MetricsRegistry {
+
+    private final ConcurrentMap<String, MethodMetrics> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * @return the registry bean, or null when it is not registered (e.g. in unit tests)
+     */
+    public static MetricsRegistry getRegisteredRegistry() {
+        List<MetricsRegistry> registries = Context.getRegisteredComponents(MetricsRegistry.class);
+        return registries == null || registries.isEmpty() ? null : registries.get(0);
+    }
+
+    public MethodMetrics getMethodMetrics(String name) {
+        return metrics.computeIfAbsent(name, MethodMetrics::new);
+    }
+
+    public void record(String name, long durationNanos, boolean failed) {
+        getMethodMetrics(name).record(durationNanos, failed);
+    }
+
+    public void time(String name, Runnable operation) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            operation.run();
+            failed = false;
+        } finally {
+            record(name, System.nanoTime() - start, failed);
+        }
+    }
+
+    public List<MethodMetricsSnapshot> snapshot() {
+        return metrics.values().stream()
+                .map(MethodMetrics::snapshot)
+                .sorted(Comparator.comparing(MethodMetricsSnapshot::getName))
+                .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        metrics.values().forEach(MethodMetrics::reset);
+    }
+}
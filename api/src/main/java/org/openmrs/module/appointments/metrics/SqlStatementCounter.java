@@ -0,0 +1,52 @@
+package org.openmrs.module.appointments.metrics;
+
+/**
+ * Thread-bound scope for counting the SQL statements issued while serving a request or running a test. Statements
+ * are reported by {@link SqlStatementInterceptor} and timed by {@link SqlStatementTimer}; both are no-ops on threads
+ * without an open scope.
+ */
+public final class SqlStatementCounter {
+
+    private static final ThreadLocal<SqlStatementStatistics> CURRENT = new ThreadLocal<>();
+
+    private SqlStatementCounter() {
+    }
+
+    public static SqlStatementStatistics start() {
+        SqlStatementStatistics statistics = new SqlStatementStatistics();
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    /**
+     * Binds a scope started on another thread to this one, for a request handed over to it. Close it with
+     * {@link #stop()}.
+     */
+    public static void resume(SqlStatementStatistics statistics) {
+        CURRENT.set(statistics);
+    }
+
+    public static SqlStatementStatistics stop() {
+        SqlStatementStatistics statistics = CURRENT.get();
+        CURRENT.remove();
+        return statistics;
+    }
+
+    public static SqlStatementStatistics current() {
+        return CURRENT.get();
+    }
+
+    static void statementPrepared(String sql) {
+        SqlStatementStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.statementPrepared(sql);
+        }
+    }
+
+    static void statementExecuted(long nanos) {
+        SqlStatementStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.statementExecuted(nanos);
+        }
+    }
+}
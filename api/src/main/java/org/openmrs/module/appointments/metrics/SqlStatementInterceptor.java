@@ -0,0 +1,16 @@
+package org.openmrs.module.appointments.metrics;
+
+import org.hibernate.EmptyInterceptor;
+
+/**
+ * Reports every statement Hibernate prepares to the {@link SqlStatementCounter} of the current thread. Registered as
+ * a bean so that OpenMRS chains it into the session factory's interceptors.
+ */
+public class SqlStatementInterceptor extends EmptyInterceptor {
+
+    @Override
+    public String onPrepareStatement(String sql) {
+        SqlStatementCounter.statementPrepared(sql);
+        return sql;
+    }
+}
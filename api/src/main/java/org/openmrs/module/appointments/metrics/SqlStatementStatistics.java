@@ -0,0 +1,58 @@
+package org.openmrs.module.appointments.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * SQL statements issued while a {@link SqlStatementCounter} scope is open, grouped by query shape. The scope of a
+ * request that is handed over to another thread is open on both threads for a while.
+ */
+public class SqlStatementStatistics {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+
+    private final Map<String, Integer> countsByShape = new LinkedHashMap<>();
+
+    private int statementCount;
+
+    private long executionNanos;
+
+    synchronized void statementPrepared(String sql) {
+        statementCount++;
+        countsByShape.merge(shapeOf(sql), 1, Integer::sum);
+    }
+
+    synchronized void statementExecuted(long nanos) {
+        executionNanos += nanos;
+    }
+
+    public synchronized int getStatementCount() {
+        return statementCount;
+    }
+
+    public synchronized long getExecutionMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(executionNanos);
+    }
+
+    public synchronized Map<String, Integer> getCountsByShape() {
+        return new LinkedHashMap<>(countsByShape);
+    }
+
+    /**
+     * @return the query shapes issued more than {@code threshold} times, which usually point at an N+1 access pattern
+     */
+    public synchronized Map<String, Integer> getRepeatedStatements(int threshold) {
+        return countsByShape.entrySet().stream()
+                .filter(entry -> entry.getValue() > threshold)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    static String shapeOf(String sql) {
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        return IN_LIST.matcher(shape).replaceAll("in (?...)");
+    }
+}
@@ -0,0 +1,63 @@
+package org.openmrs.module.appointments.metrics;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+import org.openmrs.api.context.Context;
+
+import java.util.List;
+
+/**
+ * Session event listener that adds the JDBC execution time of each statement and batch to the
+ * {@link SqlStatementCounter} of the current thread. One instance is attached to a single session.
+ */
+public class SqlStatementTimer extends BaseSessionEventListener {
+
+    private static final Log log = LogFactory.getLog(SqlStatementTimer.class);
+
+    private static volatile SessionFactory sessionFactory;
+
+    private long statementStart;
+
+    private long batchStart;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statementStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        SqlStatementCounter.statementExecuted(System.nanoTime() - statementStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        SqlStatementCounter.statementExecuted(System.nanoTime() - batchStart);
+    }
+
+    /**
+     * Times the statements of the session bound to the current thread, if there is one.
+     */
+    public static void attachToCurrentSession() {
+        try {
+            if (sessionFactory == null) {
+                List<SessionFactory> sessionFactories = Context.getRegisteredComponents(SessionFactory.class);
+                if (sessionFactories.isEmpty()) {
+                    return;
+                }
+                sessionFactory = sessionFactories.get(0);
+            }
+            sessionFactory.getCurrentSession().addEventListeners(new SqlStatementTimer());
+        } catch (HibernateException e) {
+            log.debug("No Hibernate session bound to the thread, SQL time will not be recorded", e);
+        }
+    }
+}
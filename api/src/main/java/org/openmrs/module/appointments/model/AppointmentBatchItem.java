@@ -0,0 +1,34 @@
+package org.openmrs.module.appointments.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class AppointmentBatchItem {
+
+    private Appointment appointment;
+    private List<String> errors = new ArrayList<>();
+
+    public AppointmentBatchItem(Appointment appointment) {
+        this.appointment = appointment;
+    }
+
+    public Appointment getAppointment() {
+        return appointment;
+    }
+
+    public void setAppointment(Appointment appointment) {
+        this.appointment = appointment;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<String> errors) {
+        this.errors = errors;
+    }
+
+    public boolean isSuccessful() {
+        return appointment != null && errors.isEmpty();
+    }
+}
@@ -0,0 +1,74 @@
+package org.openmrs.module.appointments.model;
+
+import java.util.Date;
+
+/**
+ * Number of non voided appointments of a service, service type and location that start on a day with a status.
+ * A service type or location of 0 stands for appointments without one.
+ */
+public class AppointmentDailyCount {
+
+    private Integer appointmentDailyCountId;
+    private Integer serviceId;
+    private Integer serviceTypeId;
+    private Integer locationId;
+    private Date day;
+    private AppointmentStatus status;
+    private Integer appointmentCount;
+
+    public Integer getAppointmentDailyCountId() {
+        return appointmentDailyCountId;
+    }
+
+    public void setAppointmentDailyCountId(Integer appointmentDailyCountId) {
+        this.appointmentDailyCountId = appointmentDailyCountId;
+    }
+
+    public Integer getServiceId() {
+        return serviceId;
+    }
+
+    public void setServiceId(Integer serviceId) {
+        this.serviceId = serviceId;
+    }
+
+    public Integer getServiceTypeId() {
+        return serviceTypeId;
+    }
+
+    public void setServiceTypeId(Integer serviceTypeId) {
+        this.serviceTypeId = serviceTypeId;
+    }
+
+    public Integer getLocationId() {
+        return locationId;
+    }
+
+    public void setLocationId(Integer locationId) {
+        this.locationId = locationId;
+    }
+
+    public Date getDay() {
+        return day;
+    }
+
+    public void setDay(Date day) {
+        this.day = day;
+    }
+
+    public AppointmentStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(AppointmentStatus status) {
+        this.status = status;
+    }
+
+    public Integer getAppointmentCount() {
+        return appointmentCount;
+    }
+
+    public void setAppointmentCount(Integer appointmentCount) {
+        this.appointmentCount = appointmentCount;
+    }
+}
@@ -0,0 +1,25 @@
+package org.openmrs.module.appointments.model;
+
+/**
+ * The row that changes of the appointment daily counts lock: shared by the transactions that add to the counts and
+ * exclusively by the one that rebuilds them.
+ */
+public class AppointmentDailyCountLock {
+
+    private Integer lockId;
+
+    public AppointmentDailyCountLock() {
+    }
+
+    public AppointmentDailyCountLock(Integer lockId) {
+        this.lockId = lockId;
+    }
+
+    public Integer getLockId() {
+        return lockId;
+    }
+
+    public void setLockId(Integer lockId) {
+        this.lockId = lockId;
+    }
+}
@@ -0,0 +1,64 @@
+package org.openmrs.module.appointments.model;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+/**
+ * Number of appointments, and of missed ones, on each day from the day of a start date to the day of an end date.
+ * Appointments are counted on the day of their start in the default time zone.
+ */
+public class AppointmentDayCounts {
+
+    private final LocalDate firstDay;
+
+    private final int[] appointmentCounts;
+
+    private final int[] missedAppointmentCounts;
+
+    public AppointmentDayCounts(Date startDate, Date endDate) {
+        firstDay = toLocalDate(startDate);
+        int days = (int) Math.max(ChronoUnit.DAYS.between(firstDay, toLocalDate(endDate)) + 1, 0);
+        appointmentCounts = new int[days];
+        missedAppointmentCounts = new int[days];
+    }
+
+    /**
+     * Counts an appointment starting at startDateTime, unless it starts outside of the days counted.
+     */
+    public void add(Date startDateTime, AppointmentStatus status) {
+        long day = ChronoUnit.DAYS.between(firstDay, toLocalDate(startDateTime));
+        if (day < 0 || day >= appointmentCounts.length) {
+            return;
+        }
+        appointmentCounts[(int) day]++;
+        if (status == AppointmentStatus.Missed) {
+            missedAppointmentCounts[(int) day]++;
+        }
+    }
+
+    public int getDays() {
+        return appointmentCounts.length;
+    }
+
+    /**
+     * @return the start of the given day, 0 being the day of the start date
+     */
+    public Date getDay(int day) {
+        return Date.from(firstDay.plusDays(day).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    public int getAppointmentCount(int day) {
+        return appointmentCounts[day];
+    }
+
+    public int getMissedAppointmentCount(int day) {
+        return missedAppointmentCounts[day];
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
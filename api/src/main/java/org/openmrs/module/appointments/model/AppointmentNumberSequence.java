@@ -0,0 +1,31 @@
+package org.openmrs.module.appointments.model;
+
+public class AppointmentNumberSequence {
+
+    private String sequenceKey;
+    private Long nextValue;
+
+    public AppointmentNumberSequence() {
+    }
+
+    public AppointmentNumberSequence(String sequenceKey, Long nextValue) {
+        this.sequenceKey = sequenceKey;
+        this.nextValue = nextValue;
+    }
+
+    public String getSequenceKey() {
+        return sequenceKey;
+    }
+
+    public void setSequenceKey(String sequenceKey) {
+        this.sequenceKey = sequenceKey;
+    }
+
+    public Long getNextValue() {
+        return nextValue;
+    }
+
+    public void setNextValue(Long nextValue) {
+        this.nextValue = nextValue;
+    }
+}
@@ -0,0 +1,43 @@
+package org.openmrs.module.appointments.model;
+
+import java.util.Date;
+
+public class AppointmentStatusChange {
+
+    private String appointmentUuid;
+    private String toStatus;
+    private Date onDate;
+
+    public AppointmentStatusChange() {
+    }
+
+    public AppointmentStatusChange(String appointmentUuid, String toStatus, Date onDate) {
+        this.appointmentUuid = appointmentUuid;
+        this.toStatus = toStatus;
+        this.onDate = onDate;
+    }
+
+    public String getAppointmentUuid() {
+        return appointmentUuid;
+    }
+
+    public void setAppointmentUuid(String appointmentUuid) {
+        this.appointmentUuid = appointmentUuid;
+    }
+
+    public String getToStatus() {
+        return toStatus;
+    }
+
+    public void setToStatus(String toStatus) {
+        this.toStatus = toStatus;
+    }
+
+    public Date getOnDate() {
+        return onDate;
+    }
+
+    public void setOnDate(Date onDate) {
+        this.onDate = onDate;
+    }
+}
@@ -0,0 +1,30 @@
+package org.openmrs.module.appointments.model;
+
+import java.util.List;
+
+/**
+ * Appointments of a patient before today, latest first, and from today on, earliest first.
+ */
+public class AppointmentTimeline {
+
+    private final List<AppointmentTimelineEntry> past;
+    private final List<AppointmentTimelineEntry> upcoming;
+
+    public AppointmentTimeline(List<AppointmentTimelineEntry> past, List<AppointmentTimelineEntry> upcoming) {
+        this.past = past;
+        this.upcoming = upcoming;
+    }
+
+    public List<AppointmentTimelineEntry> getPast() {
+        return past;
+    }
+
+    public List<AppointmentTimelineEntry> getUpcoming() {
+        return upcoming;
+    }
+
+    public AppointmentTimeline limit(int pastLimit, int upcomingLimit) {
+        return new AppointmentTimeline(past.subList(0, Math.min(pastLimit, past.size())),
+                upcoming.subList(0, Math.min(upcomingLimit, upcoming.size())));
+    }
+}
@@ -0,0 +1,111 @@
+package org.openmrs.module.appointments.model;
+
+import java.util.Date;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Read only view of an appointment on a patient's timeline, detached from the Hibernate session so that it can be
+ * cached.
+ */
+public class AppointmentTimelineEntry {
+
+    private final String uuid;
+    private final String appointmentNumber;
+    private final Date startDateTime;
+    private final Date endDateTime;
+    private final AppointmentStatus status;
+    private final AppointmentKind appointmentKind;
+    private final String serviceUuid;
+    private final String serviceName;
+    private final String serviceTypeUuid;
+    private final String serviceTypeName;
+    private final String providerUuid;
+    private final String providerName;
+    private final String locationUuid;
+    private final String locationName;
+    private final String comments;
+
+    public AppointmentTimelineEntry(String uuid, String appointmentNumber, Date startDateTime, Date endDateTime,
+                                    AppointmentStatus status, AppointmentKind appointmentKind, String serviceUuid,
+                                    String serviceName, String serviceTypeUuid, String serviceTypeName,
+                                    String providerUuid, String providerGivenName, String providerFamilyName,
+                                    String locationUuid, String locationName, String comments) {
+        this.uuid = uuid;
+        this.appointmentNumber = appointmentNumber;
+        this.startDateTime = startDateTime;
+        this.endDateTime = endDateTime;
+        this.status = status;
+        this.appointmentKind = appointmentKind;
+        this.serviceUuid = serviceUuid;
+        this.serviceName = serviceName;
+        this.serviceTypeUuid = serviceTypeUuid;
+        this.serviceTypeName = serviceTypeName;
+        this.providerUuid = providerUuid;
+        this.providerName = Stream.of(providerGivenName, providerFamilyName).filter(Objects::nonNull)
+                .reduce((givenName, familyName) -> givenName + " " + familyName).orElse(null);
+        this.locationUuid = locationUuid;
+        this.locationName = locationName;
+        this.comments = comments;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getAppointmentNumber() {
+        return appointmentNumber;
+    }
+
+    public Date getStartDateTime() {
+        return startDateTime;
+    }
+
+    public Date getEndDateTime() {
+        return endDateTime;
+    }
+
+    public AppointmentStatus getStatus() {
+        return status;
+    }
+
+    public AppointmentKind getAppointmentKind() {
+        return appointmentKind;
+    }
+
+    public String getServiceUuid() {
+        return serviceUuid;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    public String getServiceTypeUuid() {
+        return serviceTypeUuid;
+    }
+
+    public String getServiceTypeName() {
+        return serviceTypeName;
+    }
+
+    public String getProviderUuid() {
+        return providerUuid;
+    }
+
+    public String getProviderName() {
+        return providerName;
+    }
+
+    public String getLocationUuid() {
+        return locationUuid;
+    }
+
+    public String getLocationName() {
+        return locationName;
+    }
+
+    public String getComments() {
+        return comments;
+    }
+}
@@ -0,0 +1,27 @@
+package org.openmrs.module.appointments.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Results of a query that may have been cut at its row cap, in which case {@link #isTruncated()} is true and the
+ * caller should narrow the query.
+ */
+public class ResultList<T> extends ArrayList<T> {
+
+    private final boolean truncated;
+
+    public ResultList(Collection<? extends T> results, boolean truncated) {
+        super(results);
+        this.truncated = truncated;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public static boolean isTruncated(List<?> results) {
+        return results instanceof ResultList && ((ResultList<?>) results).isTruncated();
+    }
+}
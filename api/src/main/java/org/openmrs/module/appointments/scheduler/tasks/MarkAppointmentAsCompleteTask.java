@@ -3,6 +3,7 @@ package org.openmrs.module.appointments.scheduler.tasks;
 import org.openmrs.GlobalProperty;
 import org.openmrs.api.AdministrationService;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.appointments.metrics.MetricsRegistry;
 import org.openmrs.module.appointments.model.Appointment;
 import org.openmrs.module.appointments.model.AppointmentStatus;
 import org.openmrs.module.appointments.service.AppointmentsService;
@@ -16,6 +17,15 @@ public class MarkAppointmentAsCompleteTask extends AbstractTask {
 
     @Override
     public void execute() {
+        MetricsRegistry metricsRegistry = MetricsRegistry.getRegisteredRegistry();
+        if (metricsRegistry == null) {
+            markAppointmentsAsComplete();
+            return;
+        }
+        metricsRegistry.time(getClass().getSimpleName() + ".execute", this::markAppointmentsAsComplete);
+    }
+
+    private void markAppointmentsAsComplete() {
         AppointmentsService appointmentsService = Context.getService(AppointmentsService.class);
         AdministrationService administrationService = Context.getService(AdministrationService.class);
         GlobalProperty schedulerMarksCompleteProperty = administrationService.getGlobalPropertyObject("SchedulerMarksComplete");
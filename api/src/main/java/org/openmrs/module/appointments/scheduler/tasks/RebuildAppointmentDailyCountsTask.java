@@ -0,0 +1,23 @@
+package org.openmrs.module.appointments.scheduler.tasks;
+
+import org.openmrs.api.context.Context;
+import org.openmrs.module.appointments.metrics.MetricsRegistry;
+import org.openmrs.module.appointments.service.AppointmentsService;
+import org.openmrs.scheduler.tasks.AbstractTask;
+
+public class RebuildAppointmentDailyCountsTask extends AbstractTask {
+
+    @Override
+    public void execute() {
+        MetricsRegistry metricsRegistry = MetricsRegistry.getRegisteredRegistry();
+        if (metricsRegistry == null) {
+            rebuildDailyCounts();
+            return;
+        }
+        metricsRegistry.time(getClass().getSimpleName() + ".execute", this::rebuildDailyCounts);
+    }
+
+    private void rebuildDailyCounts() {
+        Context.getService(AppointmentsService.class).rebuildDailyCounts();
+    }
+}
@@ -17,7 +17,7 @@ public interface AppointmentServiceService {
     @Authorized({"Manage Appointment Services"})
     AppointmentService save(AppointmentService appointmentService);
 
-    @Transactional
+    @Transactional(readOnly = true)
     @Authorized({"View Appointment Services"})
     List<AppointmentService> getAllAppointmentServices(boolean includeVoided);
 
@@ -33,7 +33,7 @@ public interface AppointmentServiceService {
     @Authorized({"View Appointment Services"})
     AppointmentServiceType getAppointmentServiceTypeByUuid(String serviceTypeUuid);
 
-    @Transactional
+    @Transactional(readOnly = true)
     @Authorized({"View Appointment Services"})
 	Integer calculateCurrentLoad(AppointmentService appointmentService, Date startDateTime, Date endDateTime);
 }
@@ -0,0 +1,21 @@
+package org.openmrs.module.appointments.service;
+
+import org.openmrs.module.appointments.model.AppointmentDayCounts;
+import org.openmrs.module.appointments.model.AppointmentService;
+import org.openmrs.module.appointments.model.AppointmentStatus;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+public interface AppointmentSummaryService {
+
+    /**
+     * Counts the appointments of each service per day, like AppointmentsService#getAppointmentDayCounts does for one
+     * service, with the services spread over a pool of threads.
+     *
+     * @return the counts by appointment service id, in the order of the services
+     */
+    Map<Integer, AppointmentDayCounts> getDayCountsByService(List<AppointmentService> appointmentServices, Date startDate,
+                                                             Date endDate, List<AppointmentStatus> appointmentStatusList);
+}
@@ -1,14 +1,22 @@
 package org.openmrs.module.appointments.service;
 
 
+import org.openmrs.Patient;
 import org.openmrs.annotation.Authorized;
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentBatchItem;
+import org.openmrs.module.appointments.model.AppointmentDailyCount;
+import org.openmrs.module.appointments.model.AppointmentDayCounts;
 import org.openmrs.module.appointments.model.AppointmentSearch;
 import org.openmrs.module.appointments.model.AppointmentService;
 import org.openmrs.module.appointments.model.AppointmentServiceType;
 import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.model.AppointmentStatusChange;
+import org.openmrs.module.appointments.model.AppointmentTimeline;
+import org.openmrs.module.appointments.model.ResultList;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -22,26 +30,79 @@ public interface AppointmentsService {
     @Authorized({MANAGE_APPOINTMENTS, MANAGE_OWN_APPOINTMENTS})
     Appointment validateAndSave(Appointment appointment);
 
+    /**
+     * Validates and saves the given appointments in one transaction. Validation and privilege failures are
+     * reported per appointment instead of failing the whole batch, the result is in the same order as the input.
+     */
     @Transactional
+    @Authorized({MANAGE_APPOINTMENTS, MANAGE_OWN_APPOINTMENTS})
+    List<AppointmentBatchItem> bulkValidateAndSave(List<Appointment> appointments);
+
+    /**
+     * @return the patients with the given uuids, read with a single query
+     */
+    @Transactional(readOnly = true)
+    @Authorized({"Get Patients"})
+    List<Patient> getPatientsByUuids(Collection<String> uuids);
+
+    /**
+     * @return the non-voided appointments of non-voided services and service types, at most the configured maximum
+     * of them in a list telling whether there were more, see {@link ResultList#isTruncated(List)}
+     */
+    @Transactional(readOnly = true)
     @Authorized({VIEW_APPOINTMENTS})
     List<Appointment> getAllAppointments(Date forDate);
 
+    /**
+     * Reads only the given properties, such as "status" or "location.uuid", of the appointments getAllAppointments
+     * returns.
+     *
+     * @return a row per appointment holding the values of the properties in their order, at most the configured
+     * maximum of rows in a list telling whether there were more
+     */
+    @Transactional(readOnly = true)
+    @Authorized({VIEW_APPOINTMENTS})
+    List<Object[]> getAllAppointmentProperties(Date forDate, List<String> properties);
+
+    /**
+     * @return the appointments with the given uuids, voided ones included. They are loaded in a read-write
+     * transaction, as callers may change and save them.
+     */
     @Transactional
     @Authorized({VIEW_APPOINTMENTS})
+    List<Appointment> getAppointmentsByUuids(Collection<String> uuids);
+
+    /**
+     * @return at most the configured maximum of results, in a list telling whether there were more, see
+     * {@link ResultList#isTruncated(List)}
+     */
+    @Transactional(readOnly = true)
+    @Authorized({VIEW_APPOINTMENTS})
     List<Appointment> search(Appointment appointment);
 
-    @Transactional
+    @Transactional(readOnly = true)
     @Authorized({VIEW_APPOINTMENTS})
     List<Appointment> getAllFutureAppointmentsForService(AppointmentService appointmentService);
 
-    @Transactional
+    /**
+     * @return at most the configured maximum of results, in a list telling whether there were more, see
+     * {@link ResultList#isTruncated(List)}
+     */
+    @Transactional(readOnly = true)
     @Authorized({VIEW_APPOINTMENTS})
     List<Appointment> getAllFutureAppointmentsForServiceType(AppointmentServiceType appointmentServiceType);
 
-    @Transactional
+    @Transactional(readOnly = true)
     @Authorized({VIEW_APPOINTMENTS})
     List<Appointment> getAppointmentsForService(AppointmentService appointmentService, Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusList);
 
+    /**
+     * Counts the appointments that getAppointmentsForService would return per day, without loading them.
+     */
+    @Transactional(readOnly = true)
+    @Authorized({VIEW_APPOINTMENTS})
+    AppointmentDayCounts getAppointmentDayCounts(AppointmentService appointmentService, Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusList);
+
     @Transactional
     @Authorized({VIEW_APPOINTMENTS})
     Appointment getAppointmentByUuid(String uuid);
@@ -50,6 +111,14 @@ public interface AppointmentsService {
     @Authorized({MANAGE_APPOINTMENTS, MANAGE_OWN_APPOINTMENTS})
     void changeStatus(Appointment appointment, String status, Date onDate);
 
+    /**
+     * Applies the given status changes in one transaction. Appointments are loaded with a single query and
+     * failures are reported per status change, the result is in the same order as the input.
+     */
+    @Transactional
+    @Authorized({MANAGE_APPOINTMENTS, MANAGE_OWN_APPOINTMENTS})
+    List<AppointmentBatchItem> bulkChangeStatus(List<AppointmentStatusChange> statusChanges);
+
     @Transactional
     @Authorized({VIEW_APPOINTMENTS})
     List<Appointment> getAllAppointmentsInDateRange(Date startDate, Date endDate);
@@ -58,8 +127,60 @@ public interface AppointmentsService {
     @Authorized({MANAGE_APPOINTMENTS, MANAGE_OWN_APPOINTMENTS})
     void undoStatusChange(Appointment appointment);
 
-    @Transactional
+    /**
+     * @return at most the configured maximum of results, in a list telling whether there were more, see
+     * {@link ResultList#isTruncated(List)}
+     */
+    @Transactional(readOnly = true)
     @Authorized({"View Appointments"})
     List<Appointment> search(AppointmentSearch appointmentSearch);
+
+    /**
+     * Reads only the given properties of the appointments search(AppointmentSearch) returns.
+     *
+     * @return a row per appointment holding the values of the properties in their order, at most the configured
+     * maximum of rows in a list telling whether there were more
+     */
+    @Transactional(readOnly = true)
+    @Authorized({VIEW_APPOINTMENTS})
+    List<Object[]> searchProperties(AppointmentSearch appointmentSearch, List<String> properties);
+
+    /**
+     * @return the patient's latest pastLimit appointments before today and first upcomingLimit appointments from
+     * today on, excluding voided appointments, services and service types. Limits above 100 are treated as 100.
+     */
+    @Transactional(readOnly = true)
+    @Authorized({VIEW_APPOINTMENTS})
+    AppointmentTimeline getPatientTimeline(Patient patient, int pastLimit, int upcomingLimit);
+
+    /**
+     * @return at most maxResults appointments, voided ones included, created or changed after since, or at since with
+     * an id above afterAppointmentId, and before until, oldest change first
+     */
+    @Transactional(readOnly = true)
+    @Authorized({VIEW_APPOINTMENTS})
+    List<Appointment> getAppointmentsChangedSince(Date since, Integer afterAppointmentId, Date until, int maxResults);
+
+    /**
+     * @return true when summaries should be read from the daily appointment counts, which is switched on by the
+     * appointments.useDailyCounts global property once the counts have been built, and false while they are stale
+     */
+    @Transactional(readOnly = true)
+    boolean isDailyCountsEnabled();
+
+    /**
+     * @param appointmentService the service to count, or null for all services
+     * @return the non zero appointment counts per service, service type, location, day and status of the days
+     * from startDate to endDate, ordered by day. They are read from the daily counts when enabled and computed from
+     * the appointments otherwise.
+     */
+    @Transactional(readOnly = true)
+    @Authorized({VIEW_APPOINTMENTS})
+    List<AppointmentDailyCount> getDailyCounts(AppointmentService appointmentService, Date startDate, Date endDate,
+                                               List<AppointmentStatus> statuses);
+
+    @Transactional
+    @Authorized({MANAGE_APPOINTMENTS})
+    void rebuildDailyCounts();
 }
 
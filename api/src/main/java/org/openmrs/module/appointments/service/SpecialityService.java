@@ -12,7 +12,7 @@ public interface SpecialityService {
     @Authorized({"View Appointments"})
     Speciality getSpecialityByUuid(String uuid);
 
-    @Transactional
+    @Transactional(readOnly = true)
     @Authorized({"View Appointments"})
     List<Speciality> getAllSpecialities();
 }
@@ -9,10 +9,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
 import java.util.*;
 @Transactional
 public class AppointmentServiceServiceImpl implements AppointmentServiceService {
 
+    private static final LocalTime LAST_SECOND_OF_DAY = LocalTime.of(23, 59, 59);
+
     AppointmentServiceDao appointmentServiceDao;
 
     AppointmentsService appointmentsService;
@@ -64,11 +69,24 @@ public class AppointmentServiceServiceImpl implements AppointmentServiceService
     @Override
     public Integer calculateCurrentLoad(AppointmentService appointmentService, Date startDateTime, Date endDateTime) {
         AppointmentStatus[] includeStatus = new AppointmentStatus[]{AppointmentStatus.CheckedIn, AppointmentStatus.Completed, AppointmentStatus.Scheduled};
+        if (isWholeDays(startDateTime, endDateTime) && appointmentsService.isDailyCountsEnabled()) {
+            return appointmentsService.getDailyCounts(appointmentService, startDateTime, endDateTime, Arrays.asList(includeStatus))
+                    .stream().mapToInt(AppointmentDailyCount::getAppointmentCount).sum();
+        }
         List<Appointment> appointmentsForService = appointmentsService
                 .getAppointmentsForService(appointmentService, startDateTime, endDateTime, Arrays.asList(includeStatus));
         return appointmentsForService.size();
     }
 
+    private boolean isWholeDays(Date startDateTime, Date endDateTime) {
+        if (startDateTime == null || endDateTime == null) {
+            return false;
+        }
+        LocalDateTime start = LocalDateTime.ofInstant(startDateTime.toInstant(), ZoneId.systemDefault());
+        LocalDateTime end = LocalDateTime.ofInstant(endDateTime.toInstant(), ZoneId.systemDefault());
+        return start.toLocalTime().equals(LocalTime.MIDNIGHT) && !end.toLocalTime().isBefore(LAST_SECOND_OF_DAY);
+    }
+
     private void setVoidInfoForAppointmentService(AppointmentService appointmentService, String voidReason) {
         setVoidInfoForService(appointmentService, voidReason);
         setVoidInfoForWeeklyAvailability(appointmentService, voidReason);
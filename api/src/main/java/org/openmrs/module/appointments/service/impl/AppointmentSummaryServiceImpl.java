@@ -0,0 +1,128 @@
+package org.openmrs.module.appointments.service.impl;
+
+import org.openmrs.api.APIException;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.UserContext;
+import org.openmrs.module.appointments.model.AppointmentDayCounts;
+import org.openmrs.module.appointments.model.AppointmentService;
+import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.service.AppointmentSummaryService;
+import org.openmrs.module.appointments.service.AppointmentsService;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts services on up to {@code threads} pool threads, each taking the next service not counted yet until all
+ * are, so that a large service does not hold up the others. The pool threads work with their own OpenMRS session as
+ * the calling user. Callers inside a transaction get their services counted on their own thread, so that the counts
+ * include what the transaction wrote.
+ */
+public class AppointmentSummaryServiceImpl implements AppointmentSummaryService {
+
+    private AppointmentsService appointmentsService;
+
+    private int threads = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+
+    private ExecutorService executor;
+
+    public void setAppointmentsService(AppointmentsService appointmentsService) {
+        this.appointmentsService = appointmentsService;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    @Override
+    public Map<Integer, AppointmentDayCounts> getDayCountsByService(List<AppointmentService> appointmentServices, Date startDate,
+                                                                    Date endDate, List<AppointmentStatus> appointmentStatusList) {
+        Map<Integer, AppointmentDayCounts> dayCountsByService = new ConcurrentHashMap<>();
+        int workers = Math.min(threads, appointmentServices.size());
+        if (workers <= 1 || TransactionSynchronizationManager.isActualTransactionActive()) {
+            for (AppointmentService appointmentService : appointmentServices) {
+                dayCountsByService.put(appointmentService.getAppointmentServiceId(),
+                        appointmentsService.getAppointmentDayCounts(appointmentService, startDate, endDate, appointmentStatusList));
+            }
+        } else {
+            UserContext userContext = Context.getUserContext();
+            AtomicInteger nextService = new AtomicInteger();
+            List<Callable<Void>> tasks = new ArrayList<>(workers);
+            for (int worker = 0; worker < workers; worker++) {
+                tasks.add(() -> {
+                    Context.openSession();
+                    Context.setUserContext(userContext);
+                    try {
+                        int index;
+                        while ((index = nextService.getAndIncrement()) < appointmentServices.size()) {
+                            AppointmentService appointmentService = appointmentServices.get(index);
+                            dayCountsByService.put(appointmentService.getAppointmentServiceId(), appointmentsService
+                                    .getAppointmentDayCounts(appointmentService, startDate, endDate, appointmentStatusList));
+                        }
+                    } finally {
+                        Context.clearUserContext();
+                        Context.closeSession();
+                    }
+                    return null;
+                });
+            }
+            awaitAll(tasks);
+        }
+        Map<Integer, AppointmentDayCounts> orderedDayCounts = new LinkedHashMap<>();
+        for (AppointmentService appointmentService : appointmentServices) {
+            orderedDayCounts.put(appointmentService.getAppointmentServiceId(),
+                    dayCountsByService.get(appointmentService.getAppointmentServiceId()));
+        }
+        return orderedDayCounts;
+    }
+
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private void awaitAll(List<Callable<Void>> tasks) {
+        try {
+            for (Future<Void> future : getExecutor().invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new APIException("Interrupted while counting appointments", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new APIException("Could not count appointments", e.getCause());
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "appointments-summary-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            threadPoolExecutor.allowCoreThreadTimeOut(true);
+            executor = threadPoolExecutor;
+        }
+        return executor;
+    }
+}
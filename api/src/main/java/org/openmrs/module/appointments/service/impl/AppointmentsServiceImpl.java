@@ -3,28 +3,40 @@ package org.openmrs.module.appointments.service.impl;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.openmrs.Patient;
 import org.openmrs.api.APIAuthenticationException;
 import org.openmrs.api.APIException;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.appointments.dao.AppointmentAuditDao;
+import org.openmrs.module.appointments.dao.AppointmentDailyCountDao;
 import org.openmrs.module.appointments.dao.AppointmentDao;
 import org.openmrs.module.appointments.model.Appointment;
 import org.openmrs.module.appointments.model.AppointmentAudit;
+import org.openmrs.module.appointments.model.AppointmentBatchItem;
+import org.openmrs.module.appointments.model.AppointmentDailyCount;
+import org.openmrs.module.appointments.model.AppointmentDayCounts;
 import org.openmrs.module.appointments.model.AppointmentSearch;
 import org.openmrs.module.appointments.model.AppointmentService;
 import org.openmrs.module.appointments.model.AppointmentServiceType;
 import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.model.AppointmentStatusChange;
+import org.openmrs.module.appointments.model.AppointmentTimeline;
 import org.openmrs.module.appointments.service.AppointmentsService;
 import org.openmrs.module.appointments.validator.AppointmentStatusChangeValidator;
 import org.openmrs.module.appointments.validator.AppointmentValidator;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static java.util.Objects.isNull;
@@ -37,6 +49,9 @@ public class AppointmentsServiceImpl implements AppointmentsService {
 
     private static final String RESET_APPOINTMENT_STATUS_PRIVILEGE = "Reset Appointment Status";
     private static final String PRIVILEGES_EXCEPTION_CODE = "error.privilegesRequired";
+    private static final String USE_DAILY_COUNTS_GLOBAL_PROPERTY = "appointments.useDailyCounts";
+    static final int MAX_TIMELINE_LIMIT = 100;
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
     AppointmentDao appointmentDao;
 
@@ -46,6 +61,10 @@ public class AppointmentsServiceImpl implements AppointmentsService {
 
     AppointmentAuditDao appointmentAuditDao;
 
+    AppointmentDailyCountDao appointmentDailyCountDao;
+
+    PatientTimelineCache patientTimelineCache;
+
     public void setAppointmentDao(AppointmentDao appointmentDao) {
         this.appointmentDao = appointmentDao;
     }
@@ -62,6 +81,14 @@ public class AppointmentsServiceImpl implements AppointmentsService {
         this.appointmentAuditDao = appointmentAuditDao;
     }
 
+    public void setAppointmentDailyCountDao(AppointmentDailyCountDao appointmentDailyCountDao) {
+        this.appointmentDailyCountDao = appointmentDailyCountDao;
+    }
+
+    public void setPatientTimelineCache(PatientTimelineCache patientTimelineCache) {
+        this.patientTimelineCache = patientTimelineCache;
+    }
+
     private boolean validateIfUserHasSelfOrAllAppointmentsAccess(Appointment appointment) {
         return Context.hasPrivilege(MANAGE_APPOINTMENTS) ||
                 isAppointmentForNoProvider(appointment) ||
@@ -83,15 +110,11 @@ public class AppointmentsServiceImpl implements AppointmentsService {
             throw new APIAuthenticationException(Context.getMessageSourceService().getMessage("error.privilegesRequired",
                     new Object[] { MANAGE_APPOINTMENTS }, null));
         }
-        if (!CollectionUtils.isEmpty(appointmentValidators)) {
-            List<String> errors = new ArrayList<>();
-            for (AppointmentValidator validator : appointmentValidators) {
-                validator.validate(appointment, errors);
-            }
-            if (!errors.isEmpty()) {
-                String message = StringUtils.join(errors, "\n");
-                throw new APIException(message);
-            }
+        List<String> errors = new ArrayList<>();
+        validate(appointment, errors);
+        if (!errors.isEmpty()) {
+            String message = StringUtils.join(errors, "\n");
+            throw new APIException(message);
         }
         appointmentDao.save(appointment);
         try {
@@ -99,9 +122,88 @@ public class AppointmentsServiceImpl implements AppointmentsService {
         } catch (IOException e) {
             throw new APIException(e);
         }
+        appointmentDailyCountDao.applyPendingChanges();
         return appointment;
     }
 
+    @Override
+    public List<AppointmentBatchItem> bulkValidateAndSave(List<Appointment> appointments) throws APIException {
+        List<AppointmentBatchItem> batchItems = new ArrayList<>();
+        List<Appointment> validAppointments = new ArrayList<>();
+        boolean canManageAllAppointments = Context.hasPrivilege(MANAGE_APPOINTMENTS);
+        for (Appointment appointment : appointments) {
+            AppointmentBatchItem batchItem = new AppointmentBatchItem(appointment);
+            if (!canManageAllAppointments && !isAppointmentForNoProvider(appointment) &&
+                    !isCurrentUserSamePersonAsAppointmentProvider(appointment)) {
+                batchItem.getErrors().add(getPrivilegesRequiredMessage(MANAGE_APPOINTMENTS));
+            } else {
+                validateRequiredFields(appointment, batchItem.getErrors());
+                if (batchItem.isSuccessful()) {
+                    validate(appointment, batchItem.getErrors());
+                }
+            }
+            if (batchItem.isSuccessful()) {
+                validAppointments.add(appointment);
+            }
+            batchItems.add(batchItem);
+        }
+        if (validAppointments.isEmpty()) {
+            return batchItems;
+        }
+        appointmentDao.save(validAppointments);
+        List<AppointmentAudit> appointmentAuditEvents = new ArrayList<>();
+        try {
+            for (Appointment appointment : validAppointments) {
+                appointmentAuditEvents.add(createAppointmentAudit(appointment, getAppointmentAsJsonString(appointment)));
+            }
+        } catch (IOException e) {
+            throw new APIException(e);
+        }
+        appointmentAuditDao.save(appointmentAuditEvents);
+        appointmentDailyCountDao.applyPendingChanges();
+        return batchItems;
+    }
+
+    @Override
+    public List<Patient> getPatientsByUuids(Collection<String> uuids) {
+        return appointmentDao.getPatientsByUuids(uuids);
+    }
+
+    private void validate(Appointment appointment, List<String> errors) {
+        if (!CollectionUtils.isEmpty(appointmentValidators)) {
+            for (AppointmentValidator validator : appointmentValidators) {
+                validator.validate(appointment, errors);
+            }
+        }
+    }
+
+    /**
+     * Checks the fields that a bulk save needs, whatever validators are configured, so that an incomplete
+     * appointment fails on its own rather than failing its batch on a NOT NULL column or on its audit event. The
+     * configured validators only run on appointments that have them.
+     */
+    private void validateRequiredFields(Appointment appointment, List<String> errors) {
+        if (appointment.getPatient() == null) {
+            errors.add("Appointment cannot be created without Patient");
+        }
+        if (appointment.getService() == null) {
+            errors.add("Appointment cannot be created without Service");
+        }
+        if (appointment.getStartDateTime() == null) {
+            errors.add("Appointment cannot be created without Start Date Time");
+        }
+        if (appointment.getEndDateTime() == null) {
+            errors.add("Appointment cannot be created without End Date Time");
+        }
+        if (appointment.getAppointmentKind() == null) {
+            errors.add("Appointment cannot be created without Appointment Kind");
+        }
+        if (appointment.getStartDateTime() != null && appointment.getEndDateTime() != null
+                && appointment.getEndDateTime().before(appointment.getStartDateTime())) {
+            errors.add("Appointment cannot be created with End Date Time before Start Date Time");
+        }
+    }
+
     private String getAppointmentAsJsonString(Appointment appointment) throws IOException {
         Map appointmentJson = new HashMap<String, String>();
         String serviceUuid = appointment.getService().getUuid();
@@ -116,14 +218,22 @@ public class AppointmentsServiceImpl implements AppointmentsService {
         appointmentJson.put("endDateTime", appointment.getEndDateTime().toInstant().toString());
         appointmentJson.put("appointmentKind", appointment.getAppointmentKind().name());
         appointmentJson.put("appointmentNotes", appointment.getComments());
-        ObjectMapper mapperObj = new ObjectMapper();
-        return String.format("%s", mapperObj.writeValueAsString(appointmentJson));
+        return String.format("%s", OBJECT_MAPPER.writeValueAsString(appointmentJson));
     }
 
     @Override
     public List<Appointment> getAllAppointments(Date forDate) {
-        List<Appointment> appointments = appointmentDao.getAllAppointments(forDate);
-        return appointments.stream().filter(appointment -> !isServiceOrServiceTypeVoided(appointment)).collect(Collectors.toList());
+        return appointmentDao.getAllAppointments(forDate);
+    }
+
+    @Override
+    public List<Object[]> getAllAppointmentProperties(Date forDate, List<String> properties) {
+        return appointmentDao.getAllAppointmentProperties(forDate, properties);
+    }
+
+    @Override
+    public List<Appointment> getAppointmentsByUuids(Collection<String> uuids) {
+        return appointmentDao.getAppointmentsByUuids(uuids);
     }
 
     private boolean isServiceOrServiceTypeVoided(Appointment appointment) {
@@ -133,8 +243,7 @@ public class AppointmentsServiceImpl implements AppointmentsService {
 
     @Override
     public List<Appointment> search(Appointment appointment) {
-        List<Appointment> appointments = appointmentDao.search(appointment);
-        return appointments.stream().filter(searchedAppointment -> !isServiceOrServiceTypeVoided(searchedAppointment)).collect(Collectors.toList());
+        return appointmentDao.search(appointment);
     }
 
     @Override
@@ -152,6 +261,11 @@ public class AppointmentsServiceImpl implements AppointmentsService {
         return appointmentDao.getAppointmentsForService(appointmentService, startDate, endDate, appointmentStatusList);
     }
 
+    @Override
+    public AppointmentDayCounts getAppointmentDayCounts(AppointmentService appointmentService, Date startDate, Date endDate, List<AppointmentStatus> appointmentStatusList) {
+        return appointmentDao.getAppointmentDayCounts(appointmentService, startDate, endDate, appointmentStatusList);
+    }
+
     @Override
     public Appointment getAppointmentByUuid(String uuid) {
         Appointment appointment = appointmentDao.getAppointmentByUuid(uuid);
@@ -173,6 +287,7 @@ public class AppointmentsServiceImpl implements AppointmentsService {
             appointmentDao.save(appointment);
             String notes = onDate != null ? onDate.toInstant().toString() : null;
             createEventInAppointmentAudit(appointment, notes);
+            appointmentDailyCountDao.applyPendingChanges();
         }
         else {
             String message = StringUtils.join(errors, "\n");
@@ -180,6 +295,61 @@ public class AppointmentsServiceImpl implements AppointmentsService {
         }
     }
 
+    @Override
+    public List<AppointmentBatchItem> bulkChangeStatus(List<AppointmentStatusChange> statusChanges) throws APIException {
+        Map<String, Appointment> appointments = appointmentDao.getAppointmentsByUuids(statusChanges.stream()
+                .map(AppointmentStatusChange::getAppointmentUuid).filter(Objects::nonNull).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(Appointment::getUuid, Function.identity()));
+        boolean canManageAllAppointments = Context.hasPrivilege(MANAGE_APPOINTMENTS);
+        boolean canResetStatus = Context.hasPrivilege(RESET_APPOINTMENT_STATUS_PRIVILEGE);
+        List<AppointmentBatchItem> batchItems = new ArrayList<>();
+        List<Appointment> changedAppointments = new ArrayList<>();
+        List<AppointmentAudit> appointmentAuditEvents = new ArrayList<>();
+        for (AppointmentStatusChange statusChange : statusChanges) {
+            Appointment appointment = appointments.get(statusChange.getAppointmentUuid());
+            AppointmentBatchItem batchItem = new AppointmentBatchItem(appointment);
+            batchItems.add(batchItem);
+            if (appointment == null) {
+                batchItem.getErrors().add("Appointment does not exist");
+                continue;
+            }
+            AppointmentStatus appointmentStatus;
+            try {
+                appointmentStatus = AppointmentStatus.valueOf(statusChange.getToStatus());
+            } catch (IllegalArgumentException | NullPointerException e) {
+                batchItem.getErrors().add("Invalid appointment status " + statusChange.getToStatus());
+                continue;
+            }
+            if (!canManageAllAppointments && !isAppointmentForNoProvider(appointment) &&
+                    !isCurrentUserSamePersonAsAppointmentProvider(appointment)) {
+                batchItem.getErrors().add(getPrivilegesRequiredMessage(MANAGE_APPOINTMENTS));
+                continue;
+            }
+            if (appointmentStatus == AppointmentStatus.Scheduled && !canResetStatus) {
+                batchItem.getErrors().add(getPrivilegesRequiredMessage(RESET_APPOINTMENT_STATUS_PRIVILEGE));
+                continue;
+            }
+            validateStatusChange(appointment, appointmentStatus, batchItem.getErrors());
+            if (!batchItem.getErrors().isEmpty()) {
+                continue;
+            }
+            appointment.setStatus(appointmentStatus);
+            changedAppointments.add(appointment);
+            String notes = statusChange.getOnDate() != null ? statusChange.getOnDate().toInstant().toString() : null;
+            appointmentAuditEvents.add(createAppointmentAudit(appointment, notes));
+        }
+        if (!changedAppointments.isEmpty()) {
+            appointmentDao.save(changedAppointments);
+            appointmentAuditDao.save(appointmentAuditEvents);
+            appointmentDailyCountDao.applyPendingChanges();
+        }
+        return batchItems;
+    }
+
+    private String getPrivilegesRequiredMessage(String privilege) {
+        return Context.getMessageSourceService().getMessage(PRIVILEGES_EXCEPTION_CODE, new Object[] { privilege }, null);
+    }
+
     private void throwExceptionIfNoProperPrivileges(Appointment appointment, AppointmentStatus appointmentStatus) {
         if (!validateIfUserHasSelfOrAllAppointmentsAccess(appointment)) {
             throw new APIAuthenticationException(Context.getMessageSourceService().getMessage(PRIVILEGES_EXCEPTION_CODE,
@@ -212,6 +382,7 @@ public class AppointmentsServiceImpl implements AppointmentsService {
             appointment.setStatus(statusChangeEvent.getStatus());
             appointmentDao.save(appointment);
             createEventInAppointmentAudit(appointment, statusChangeEvent.getNotes());
+            appointmentDailyCountDao.applyPendingChanges();
         } else
             throw new APIException("No status change actions to undo");
     }
@@ -224,13 +395,63 @@ public class AppointmentsServiceImpl implements AppointmentsService {
         return appointmentDao.search(appointmentSearch);
     }
 
+    @Override
+    public List<Object[]> searchProperties(AppointmentSearch appointmentSearch, List<String> properties) {
+        if (isNull(appointmentSearch.getStartDate()) || isNull(appointmentSearch.getEndDate())) {
+            return null;
+        }
+        return appointmentDao.searchProperties(appointmentSearch, properties);
+    }
+
+    @Override
+    public AppointmentTimeline getPatientTimeline(Patient patient, int pastLimit, int upcomingLimit) {
+        LocalDate today = LocalDate.now();
+        AppointmentTimeline timeline = patientTimelineCache.get(patient.getPatientId(), today);
+        if (timeline == null) {
+            long version = patientTimelineCache.getVersion();
+            Date startOfToday = Date.from(today.atStartOfDay(ZoneId.systemDefault()).toInstant());
+            timeline = appointmentDao.getPatientTimeline(patient, startOfToday, MAX_TIMELINE_LIMIT, MAX_TIMELINE_LIMIT);
+            patientTimelineCache.put(patient.getPatientId(), today, timeline, version);
+        }
+        return timeline.limit(Math.max(pastLimit, 0), Math.max(upcomingLimit, 0));
+    }
+
+    @Override
+    public List<Appointment> getAppointmentsChangedSince(Date since, Integer afterAppointmentId, Date until, int maxResults) {
+        return appointmentDao.getAppointmentsChangedSince(since, afterAppointmentId, until, maxResults);
+    }
+
+    @Override
+    public boolean isDailyCountsEnabled() {
+        return Boolean.parseBoolean(Context.getAdministrationService().getGlobalProperty(USE_DAILY_COUNTS_GLOBAL_PROPERTY, "false"))
+                && !appointmentDailyCountDao.isStale();
+    }
+
+    @Override
+    public List<AppointmentDailyCount> getDailyCounts(AppointmentService appointmentService, Date startDate, Date endDate,
+                                                      List<AppointmentStatus> statuses) {
+        if (isDailyCountsEnabled()) {
+            return appointmentDailyCountDao.getDailyCounts(appointmentService, startDate, endDate, statuses);
+        }
+        return appointmentDailyCountDao.countAppointments(appointmentService, startDate, endDate, statuses);
+    }
+
+    @Override
+    public void rebuildDailyCounts() {
+        appointmentDailyCountDao.rebuild();
+    }
+
     private void createEventInAppointmentAudit(Appointment appointment,
                                                String notes) {
+        appointmentAuditDao.save(createAppointmentAudit(appointment, notes));
+    }
+
+    private AppointmentAudit createAppointmentAudit(Appointment appointment, String notes) {
         AppointmentAudit appointmentAuditEvent = new AppointmentAudit();
         appointmentAuditEvent.setAppointment(appointment);
         appointmentAuditEvent.setStatus(appointment.getStatus());
         appointmentAuditEvent.setNotes(notes);
-        appointmentAuditDao.save(appointmentAuditEvent);
+        return appointmentAuditEvent;
     }
 
 
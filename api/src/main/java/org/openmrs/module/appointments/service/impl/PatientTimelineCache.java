@@ -0,0 +1,82 @@
+package org.openmrs.module.appointments.service.impl;
+
+import org.openmrs.module.appointments.event.AppointmentChange;
+import org.openmrs.module.appointments.event.AppointmentChangeListener;
+import org.openmrs.module.appointments.model.AppointmentTimeline;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Appointment timelines by patient id. An entry is dropped when an appointment of its patient is committed, when the
+ * day it was read on is over, and after timeToLiveSeconds as a bound on changes made outside of Hibernate.
+ * Timelines read while a change was being committed are not cached, as they may not include the change.
+ */
+public class PatientTimelineCache implements AppointmentChangeListener {
+
+    private static final int MAX_CACHED_PATIENTS = 10000;
+
+    private final ConcurrentMap<Integer, CachedTimeline> timelines = new ConcurrentHashMap<>();
+
+    private final AtomicLong version = new AtomicLong();
+
+    private long timeToLiveMillis = TimeUnit.MINUTES.toMillis(5);
+
+    public void setTimeToLiveSeconds(int timeToLiveSeconds) {
+        this.timeToLiveMillis = TimeUnit.SECONDS.toMillis(timeToLiveSeconds);
+    }
+
+    /**
+     * @return the version to pass to {@link #put} for a timeline that is about to be read
+     */
+    long getVersion() {
+        return version.get();
+    }
+
+    AppointmentTimeline get(Integer patientId, LocalDate today) {
+        CachedTimeline cachedTimeline = timelines.get(patientId);
+        if (cachedTimeline == null) {
+            return null;
+        }
+        if (!cachedTimeline.day.equals(today) || System.currentTimeMillis() - cachedTimeline.cachedAt > timeToLiveMillis) {
+            timelines.remove(patientId, cachedTimeline);
+            return null;
+        }
+        return cachedTimeline.timeline;
+    }
+
+    void put(Integer patientId, LocalDate today, AppointmentTimeline timeline, long readVersion) {
+        if (readVersion != version.get()) {
+            return;
+        }
+        if (timelines.size() >= MAX_CACHED_PATIENTS) {
+            timelines.clear();
+        }
+        timelines.put(patientId, new CachedTimeline(today, timeline));
+    }
+
+    @Override
+    public void appointmentsChanged(Collection<AppointmentChange> changes) {
+        version.incrementAndGet();
+        for (AppointmentChange change : changes) {
+            if (change.getPatientId() != null) {
+                timelines.remove(change.getPatientId());
+            }
+        }
+    }
+
+    private static class CachedTimeline {
+        private final LocalDate day;
+        private final AppointmentTimeline timeline;
+        private final long cachedAt = System.currentTimeMillis();
+
+        CachedTimeline(LocalDate day, AppointmentTimeline timeline) {
+            this.day = day;
+            this.timeline = timeline;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package org.openmrs.module.appointments.service.impl;
+
+import org.openmrs.api.APIException;
+import org.openmrs.module.appointments.event.AppointmentChange;
+import org.openmrs.module.appointments.event.AppointmentChangeListener;
+import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.ResultList;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
+
+/**
+ * Today's appointments as listed by AppointmentsService#getAllAppointments and mapped by the reader, with the uuids of their service and location.
+ * Committed changes only mark appointments as changed; readers call {@link #takeChangedUuids} before reading, re-read
+ * the returned appointments and pass them to {@link #update}, which replaces them in place. The whole window is
+ * loaded again at day rollover, and not kept at all for days with more than MAX_CACHED_APPOINTMENTS appointments.
+ * {@link #getAppointments(LocalDate, String, String, Source)} does all of this for a reader.
+ */
+public class TodayAppointmentsCache<T> implements AppointmentChangeListener {
+
+    private static final int MAX_CACHED_APPOINTMENTS = 20000;
+
+    private LocalDate day;
+
+    private Map<String, CachedAppointment<T>> appointments;
+
+    private Set<String> changedUuids = new HashSet<>();
+
+    // the running load of today's appointments, shared by the readers that need it
+    private FutureTask<List<Appointment>> loading;
+
+    // keeps changed appointments from being re-read and replaced out of order
+    private final Object refreshLock = new Object();
+
+    /**
+     * Where the appointments of the cache are read and mapped from.
+     */
+    public interface Source<T> {
+
+        /**
+         * @return the appointments listed on the day, in a list telling whether there were more, see
+         * {@link ResultList#isTruncated(List)}
+         */
+        List<Appointment> getAppointments(LocalDate day);
+
+        List<Appointment> getAppointmentsByUuids(Collection<String> uuids);
+
+        /**
+         * @return the mapping of the given appointments, which can map them together
+         */
+        Function<Appointment, T> mapperOf(List<Appointment> appointments);
+    }
+
+    @Override
+    public synchronized void appointmentsChanged(Collection<AppointmentChange> changes) {
+        if (day == null) {
+            return;
+        }
+        for (AppointmentChange change : changes) {
+            changedUuids.add(change.getAppointmentUuid());
+        }
+        if (changedUuids.size() > MAX_CACHED_APPOINTMENTS) {
+            appointments = null;
+        }
+    }
+
+    /**
+     * @return the uuids of the appointments changed since the last call, or null when the appointments of today have
+     * to be loaded with {@link #load}
+     */
+    public synchronized Collection<String> takeChangedUuids(LocalDate today) {
+        if (!today.equals(day) || appointments == null) {
+            day = today;
+            appointments = null;
+            changedUuids = new HashSet<>();
+            return null;
+        }
+        Collection<String> uuids = changedUuids;
+        changedUuids = new HashSet<>();
+        return uuids;
+    }
+
+    public void load(LocalDate today, List<Appointment> todaysAppointments, Function<Appointment, T> mapper) {
+        if (todaysAppointments.size() > MAX_CACHED_APPOINTMENTS) {
+            return;
+        }
+        Map<String, CachedAppointment<T>> loadedAppointments = new LinkedHashMap<>();
+        for (Appointment appointment : todaysAppointments) {
+            loadedAppointments.put(appointment.getUuid(), new CachedAppointment<>(appointment, mapper.apply(appointment)));
+        }
+        synchronized (this) {
+            if (today.equals(day) && appointments == null) {
+                appointments = loadedAppointments;
+            }
+        }
+    }
+
+    /**
+     * Replaces the appointments with the given uuids by their current state, dropping those that were voided or moved
+     * to another day.
+     */
+    public void update(LocalDate today, Collection<String> uuids, List<Appointment> currentAppointments,
+                       Function<Appointment, T> mapper) {
+        Map<String, CachedAppointment<T>> updatedAppointments = new HashMap<>();
+        for (Appointment appointment : currentAppointments) {
+            if (isListedOn(appointment, today)) {
+                updatedAppointments.put(appointment.getUuid(), new CachedAppointment<>(appointment, mapper.apply(appointment)));
+            }
+        }
+        synchronized (this) {
+            if (!today.equals(day) || appointments == null) {
+                return;
+            }
+            for (String uuid : uuids) {
+                CachedAppointment<T> updatedAppointment = updatedAppointments.get(uuid);
+                if (updatedAppointment == null) {
+                    appointments.remove(uuid);
+                } else {
+                    appointments.put(uuid, updatedAppointment);
+                }
+            }
+            if (appointments.size() > MAX_CACHED_APPOINTMENTS) {
+                appointments = null;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        day = null;
+        appointments = null;
+        changedUuids = new HashSet<>();
+        loading = null;
+    }
+
+    /**
+     * Returns today's appointments of the location and service, either of which may be null for all, after
+     * re-reading the appointments changed since the last read. When today's appointments are not cached, a single
+     * reader loads them from the source, without holding a lock, and the readers coming meanwhile wait for its load.
+     * Days with too many appointments to cache are loaded for every read this way.
+     *
+     * @return the appointments, in a list telling whether there were more when they were not cached
+     */
+    public List<T> getAppointments(LocalDate today, String locationUuid, String serviceUuid, Source<T> source) {
+        FutureTask<List<Appointment>> load = null;
+        boolean runLoad = false;
+        synchronized (refreshLock) {
+            Collection<String> uuids = null;
+            synchronized (this) {
+                if (today.equals(day) && appointments == null && loading != null) {
+                    load = loading;
+                } else {
+                    uuids = takeChangedUuids(today);
+                    if (uuids == null) {
+                        loading = new FutureTask<>(() -> loadAll(today, source));
+                        load = loading;
+                        runLoad = true;
+                    }
+                }
+            }
+            if (uuids != null && !uuids.isEmpty()) {
+                try {
+                    List<Appointment> changedAppointments = source.getAppointmentsByUuids(uuids);
+                    update(today, uuids, changedAppointments, source.mapperOf(changedAppointments));
+                } catch (RuntimeException e) {
+                    clear();
+                    throw e;
+                }
+            }
+        }
+        if (load == null) {
+            List<T> cachedAppointments = getAppointments(today, locationUuid, serviceUuid);
+            return cachedAppointments != null ? cachedAppointments : getAppointments(today, locationUuid, serviceUuid, source);
+        }
+        if (runLoad) {
+            load.run();
+        }
+        List<Appointment> loadedAppointments = awaitLoad(load);
+        List<T> cachedAppointments = getAppointments(today, locationUuid, serviceUuid);
+        if (cachedAppointments != null) {
+            return cachedAppointments;
+        }
+        List<Appointment> appointmentsOf = new ArrayList<>();
+        for (Appointment appointment : loadedAppointments) {
+            if (isOf(appointment, locationUuid, serviceUuid)) {
+                appointmentsOf.add(appointment);
+            }
+        }
+        Function<Appointment, T> mapper = source.mapperOf(appointmentsOf);
+        List<T> values = new ArrayList<>();
+        for (Appointment appointment : appointmentsOf) {
+            values.add(mapper.apply(appointment));
+        }
+        return new ResultList<>(values, ResultList.isTruncated(loadedAppointments));
+    }
+
+    private List<Appointment> loadAll(LocalDate today, Source<T> source) {
+        List<Appointment> loadedAppointments = source.getAppointments(today);
+        if (!ResultList.isTruncated(loadedAppointments)) {
+            load(today, loadedAppointments, source.mapperOf(loadedAppointments));
+        }
+        return loadedAppointments;
+    }
+
+    private List<Appointment> awaitLoad(FutureTask<List<Appointment>> load) {
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new APIException("Interrupted while loading today's appointments", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new APIException(e.getCause());
+        } finally {
+            synchronized (this) {
+                if (loading == load) {
+                    loading = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return today's appointments of the location and service, either of which may be null for all, or null when
+     * they are not cached
+     */
+    public synchronized List<T> getAppointments(LocalDate today, String locationUuid, String serviceUuid) {
+        if (!today.equals(day) || appointments == null) {
+            return null;
+        }
+        List<T> values = new ArrayList<>();
+        for (CachedAppointment<T> appointment : appointments.values()) {
+            if ((locationUuid == null || locationUuid.equals(appointment.locationUuid))
+                    && (serviceUuid == null || serviceUuid.equals(appointment.serviceUuid))) {
+                values.add(appointment.value);
+            }
+        }
+        return values;
+    }
+
+    private static boolean isOf(Appointment appointment, String locationUuid, String serviceUuid) {
+        return (locationUuid == null || (appointment.getLocation() != null && locationUuid.equals(appointment.getLocation().getUuid())))
+                && (serviceUuid == null || (appointment.getService() != null && serviceUuid.equals(appointment.getService().getUuid())));
+    }
+
+    private boolean isListedOn(Appointment appointment, LocalDate today) {
+        if (Boolean.TRUE.equals(appointment.getVoided()) || appointment.getStartDateTime() == null) {
+            return false;
+        }
+        if ((appointment.getService() != null && Boolean.TRUE.equals(appointment.getService().getVoided()))
+                || (appointment.getServiceType() != null && Boolean.TRUE.equals(appointment.getServiceType().getVoided()))) {
+            return false;
+        }
+        return today.equals(appointment.getStartDateTime().toInstant().atZone(ZoneId.systemDefault()).toLocalDate());
+    }
+
+    private static class CachedAppointment<T> {
+        private final String locationUuid;
+        private final String serviceUuid;
+        private final T value;
+
+        CachedAppointment(Appointment appointment, T value) {
+            this.locationUuid = appointment.getLocation() != null ? appointment.getLocation().getUuid() : null;
+            this.serviceUuid = appointment.getService() != null ? appointment.getService().getUuid() : null;
+            this.value = value;
+        }
+    }
+}
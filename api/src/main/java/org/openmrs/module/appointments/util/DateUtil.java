@@ -1,43 +1,164 @@
 package org.openmrs.module.appointments.util;
 
 import java.text.ParseException;
+import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
 import java.util.Date;
+import java.util.Locale;
 import java.util.TimeZone;
 import org.apache.commons.lang3.StringUtils;
 
+/**
+ * Date parsing and formatting for the REST contracts. The formatters are immutable and shared between threads,
+ * and the fixed UTC layout is parsed by hand so that the common case does not allocate a formatter or calendar.
+ * Fractions of a second longer than three digits are still read as milliseconds by a SimpleDateFormat, as before.
+ */
 public class DateUtil {
     
     public enum DateFormatType {
-        UTC("yyyy-MM-dd'T'HH:mm:ss.SSS");
+        UTC("yyyy-MM-dd'T'HH:mm:ss.SSS", new DateTimeFormatterBuilder()
+                .appendValue(ChronoField.YEAR, 4, 9, SignStyle.NORMAL)
+                .appendLiteral('-')
+                .appendValue(ChronoField.MONTH_OF_YEAR, 1, 2, SignStyle.NOT_NEGATIVE)
+                .appendLiteral('-')
+                .appendValue(ChronoField.DAY_OF_MONTH, 1, 2, SignStyle.NOT_NEGATIVE)
+                .appendLiteral('T')
+                .appendValue(ChronoField.HOUR_OF_DAY, 1, 2, SignStyle.NOT_NEGATIVE)
+                .appendLiteral(':')
+                .appendValue(ChronoField.MINUTE_OF_HOUR, 1, 2, SignStyle.NOT_NEGATIVE)
+                .appendLiteral(':')
+                .appendValue(ChronoField.SECOND_OF_MINUTE, 1, 2, SignStyle.NOT_NEGATIVE)
+                .optionalStart()
+                .appendLiteral('.')
+                .appendValue(ChronoField.MILLI_OF_SECOND, 1, 3, SignStyle.NOT_NEGATIVE)
+                .optionalEnd()
+                .toFormatter(Locale.ROOT)
+                .withResolverStyle(ResolverStyle.STRICT));
         
         private final String dateFormat;
+
+        private final DateTimeFormatter formatter;
         
-        DateFormatType(String dateFormat) {
+        DateFormatType(String dateFormat, DateTimeFormatter formatter) {
             this.dateFormat = dateFormat;
+            this.formatter = formatter;
         }
         
         public String getDateFormat() {
             return dateFormat;
         }
+
+        public DateTimeFormatter getFormatter() {
+            return formatter;
+        }
     }
+
+    private static final DateTimeFormatter LOCAL_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd", Locale.ROOT);
     
     public static Date convertToDate(String dateString, DateFormatType dateFormat) throws ParseException {
         if (StringUtils.isEmpty(dateString) || dateFormat == null) {
             return null;
         }
-        SimpleDateFormat simpleDateFormat = new SimpleDateFormat(dateFormat.getDateFormat());
-        return simpleDateFormat.parse(dateString);
+        return parse(dateString, dateFormat, ZoneId.systemDefault());
     }
     
     public static Date convertToLocalDateFromUTC(String dateString) throws ParseException {
         if (StringUtils.isEmpty(dateString)) {
             return null;
         }
-        SimpleDateFormat simpleDateFormat = new SimpleDateFormat(DateUtil.DateFormatType.UTC.dateFormat);
-        simpleDateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-        return simpleDateFormat.parse(dateString);
+        return parse(dateString, DateFormatType.UTC, ZoneOffset.UTC);
+    }
+
+    public static String convertToLocalDateString(Date date) {
+        if (date == null) {
+            return null;
+        }
+        return LOCAL_DATE_FORMAT.format(date.toInstant().atZone(ZoneId.systemDefault()));
     }
-}
 
+    private static Date parse(String dateString, DateFormatType dateFormat, ZoneId zone) throws ParseException {
+        int fraction = dateString.indexOf('.');
+        int fractionDigits = fraction < 0 ? -1 : countDigits(dateString, fraction + 1);
+        if (fractionDigits == 0) {
+            throw new ParseException("Unparseable date: \"" + dateString + "\"", fraction + 1);
+        }
+        if (fractionDigits > 3) {
+            SimpleDateFormat simpleDateFormat = new SimpleDateFormat(dateFormat.getDateFormat());
+            simpleDateFormat.setTimeZone(TimeZone.getTimeZone(zone));
+            return simpleDateFormat.parse(dateString);
+        }
+        LocalDateTime dateTime = dateFormat == DateFormatType.UTC ? parseUTCLayout(dateString) : null;
+        if (dateTime == null) {
+            ParsePosition position = new ParsePosition(0);
+            try {
+                dateTime = LocalDateTime.from(dateFormat.getFormatter().parse(dateString, position));
+            } catch (DateTimeException e) {
+                throw new ParseException("Unparseable date: \"" + dateString + "\"", Math.max(position.getErrorIndex(), 0));
+            }
+        }
+        return Date.from(dateTime.atZone(zone).toInstant());
+    }
 
+    /**
+     * Parses yyyy-MM-ddTHH:mm:ss with an optional fraction of one to three digits, ignoring any trailing text
+     * such as a zone designator. Returns null when the text does not have exactly this layout.
+     */
+    private static LocalDateTime parseUTCLayout(String text) {
+        if (text.length() < 19 || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T'
+                || text.charAt(13) != ':' || text.charAt(16) != ':') {
+            return null;
+        }
+        int year = parseDigits(text, 0, 4);
+        int month = parseDigits(text, 5, 7);
+        int day = parseDigits(text, 8, 10);
+        int hour = parseDigits(text, 11, 13);
+        int minute = parseDigits(text, 14, 16);
+        int second = parseDigits(text, 17, 19);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+        int millis = 0;
+        if (text.length() > 19 && text.charAt(19) == '.') {
+            millis = parseDigits(text, 20, 20 + countDigits(text, 20));
+            if (millis < 0) {
+                return null;
+            }
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second, millis * 1_000_000);
+    }
+
+    private static int countDigits(String text, int start) {
+        int end = start;
+        while (end < text.length() && text.charAt(end) >= '0' && text.charAt(end) <= '9') {
+            end++;
+        }
+        return end - start;
+    }
+
+    private static int parseDigits(String text, int start, int end) {
+        if (start == end) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
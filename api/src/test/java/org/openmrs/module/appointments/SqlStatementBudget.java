@@ -0,0 +1,63 @@
+package org.openmrs.module.appointments;
+
+import org.junit.rules.ExternalResource;
+import org.openmrs.module.appointments.metrics.SqlStatementCounter;
+import org.openmrs.module.appointments.metrics.SqlStatementStatistics;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Counts the SQL statements Hibernate issues on the test thread so integration tests can pin statement budgets:
+ * <pre>
+ * &#64;Rule
+ * public SqlStatementBudget sqlStatementBudget = new SqlStatementBudget();
+ *
+ * sqlStatementBudget.expectAtMost(3, () -&gt; handle(newGetRequest("/rest/v1/appointment/all")));
+ * </pre>
+ */
+public class SqlStatementBudget extends ExternalResource {
+
+    @Override
+    protected void before() {
+        SqlStatementCounter.start();
+    }
+
+    @Override
+    protected void after() {
+        SqlStatementCounter.stop();
+    }
+
+    /**
+     * Runs the work with a fresh count and returns the number of statements it issued.
+     */
+    public int measure(Callable<?> work) throws Exception {
+        return run(work).getStatementCount();
+    }
+
+    /**
+     * Runs the work with a fresh count and fails, listing the statements issued, when it issues more than
+     * {@code maxStatements}.
+     */
+    public <T> T expectAtMost(int maxStatements, Callable<T> work) throws Exception {
+        SqlStatementStatistics statistics = SqlStatementCounter.start();
+        T result = work.call();
+        if (statistics.getStatementCount() > maxStatements) {
+            StringBuilder message = new StringBuilder(String.format("Expected at most %d SQL statements but %d were issued:",
+                    maxStatements, statistics.getStatementCount()));
+            for (Map.Entry<String, Integer> statement : statistics.getCountsByShape().entrySet()) {
+                message.append(String.format("%n  %dx %s", statement.getValue(), statement.getKey()));
+            }
+            fail(message.toString());
+        }
+        return result;
+    }
+
+    private SqlStatementStatistics run(Callable<?> work) throws Exception {
+        SqlStatementStatistics statistics = SqlStatementCounter.start();
+        work.call();
+        return statistics;
+    }
+}
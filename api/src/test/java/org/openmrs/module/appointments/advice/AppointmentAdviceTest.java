@@ -11,12 +11,14 @@ import org.mockito.Mock;
 import org.openmrs.api.AdministrationService;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentBatchItem;
 import org.openmrs.module.atomfeed.transaction.support.AtomFeedSpringTransactionManager;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.springframework.transaction.PlatformTransactionManager;
 
 import java.net.URI;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 
@@ -145,6 +147,12 @@ public class AppointmentAdviceTest {
     public void dummy() {
     }
 
+    public void bulkValidateAndSave() {
+    }
+
+    public void bulkChangeStatus() {
+    }
+
     @Test
     public void shouldCreateEventForStatusChange() throws Throwable {
         appointmentAdvice.afterReturning(null, this.getClass().getMethod("changeStatus"), Collections.singletonList(appointment).toArray(), null);
@@ -166,4 +174,26 @@ public class AppointmentAdviceTest {
         verify(administrationService, times(1)).getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY);
         verify(administrationService, times(1)).getGlobalProperty(URL_PATTERN_GLOBAL_PROPERTY, DEFAULT_URL_PATTERN);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldCreateEventForEachSuccessfullySavedAppointmentInBatch() throws Throwable {
+        AppointmentBatchItem failedBatchItem = new AppointmentBatchItem(new Appointment());
+        failedBatchItem.getErrors().add("error");
+
+        appointmentAdvice.afterReturning(Arrays.asList(new AppointmentBatchItem(appointment), failedBatchItem, new AppointmentBatchItem(appointment)),
+                this.getClass().getMethod("bulkValidateAndSave"), null, null);
+
+        verify(eventService, times(2)).notify(any(Event.class));
+        verifyNew(Event.class, times(2)).withArguments(anyString(), eq("Appointment"), any(Date.class), any(URI.class), eq(String.format("/openmrs/ws/rest/v1/appointment?uuid=%s", UUID)), eq("appointments"));
+        verify(administrationService, times(1)).getGlobalProperty(RAISE_EVENT_GLOBAL_PROPERTY);
+    }
+
+    @Test
+    public void shouldCreateEventForEachSuccessfulStatusChangeInBatch() throws Throwable {
+        appointmentAdvice.afterReturning(Collections.singletonList(new AppointmentBatchItem(appointment)),
+                this.getClass().getMethod("bulkChangeStatus"), null, null);
+
+        verify(eventService, times(1)).notify(any(Event.class));
+        verifyNew(Event.class, times(1)).withArguments(anyString(), eq("Appointment"), any(Date.class), any(URI.class), eq(String.format("/openmrs/ws/rest/v1/appointment?uuid=%s", UUID)), eq("appointments"));
+    }
+}
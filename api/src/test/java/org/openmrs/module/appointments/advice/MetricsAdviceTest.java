@@ -0,0 +1,72 @@
+package org.openmrs.module.appointments.advice;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.openmrs.module.appointments.metrics.MethodMetricsSnapshot;
+import org.openmrs.module.appointments.metrics.MetricsRegistry;
+import org.openmrs.module.appointments.model.AppointmentSearch;
+import org.openmrs.module.appointments.service.AppointmentsService;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+@RunWith(PowerMockRunner.class)
+public class MetricsAdviceTest {
+
+    @Mock
+    private MethodInvocation methodInvocation;
+
+    private MetricsRegistry metricsRegistry;
+
+    private MetricsAdvice metricsAdvice;
+
+    @Before
+    public void setUp() throws Exception {
+        metricsRegistry = new MetricsRegistry();
+        metricsAdvice = new MetricsAdvice(metricsRegistry);
+        when(methodInvocation.getMethod()).thenReturn(AppointmentsService.class.getMethod("search", AppointmentSearch.class));
+    }
+
+    @Test
+    public void shouldRecordCallAndReturnResultOfInvocation() throws Throwable {
+        when(methodInvocation.proceed()).thenReturn("result");
+
+        assertEquals("result", metricsAdvice.invoke(methodInvocation));
+        metricsAdvice.invoke(methodInvocation);
+
+        List<MethodMetricsSnapshot> snapshots = metricsRegistry.snapshot();
+        assertEquals(1, snapshots.size());
+        assertEquals("AppointmentsService.search(AppointmentSearch)", snapshots.get(0).getName());
+        assertEquals(2, snapshots.get(0).getCalls());
+        assertEquals(0, snapshots.get(0).getErrors());
+    }
+
+    @Test
+    public void shouldRecordErrorAndRethrowWhenInvocationFails() throws Throwable {
+        when(methodInvocation.proceed()).thenThrow(new IllegalArgumentException());
+
+        try {
+            metricsAdvice.invoke(methodInvocation);
+            fail("Expected the exception to be rethrown");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        MethodMetricsSnapshot snapshot = metricsRegistry.snapshot().get(0);
+        assertEquals(1, snapshot.getCalls());
+        assertEquals(1, snapshot.getErrors());
+    }
+
+    @Test
+    public void shouldOnlyProceedWhenNoRegistryIsAvailable() throws Throwable {
+        when(methodInvocation.proceed()).thenReturn("result");
+
+        assertEquals("result", new MetricsAdvice(null).invoke(methodInvocation));
+    }
+}
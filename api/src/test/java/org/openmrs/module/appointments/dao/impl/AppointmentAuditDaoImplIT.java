@@ -10,6 +10,7 @@ import org.openmrs.module.appointments.model.AppointmentAudit;
 import org.openmrs.module.appointments.model.AppointmentStatus;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
@@ -44,6 +45,25 @@ public class AppointmentAuditDaoImplIT extends BaseIntegrationTest {
         assertEquals(2, allAuditEvents.size());
     }
 
+    @Test
+    public void shouldSaveAppointmentAuditsInBulk() throws Exception {
+        Appointment appointment = appointmentDao.getAppointmentByUuid("75504r42-3ca8-11e3-bf2b-0800271c1111");
+        AppointmentAudit checkedInAudit = new AppointmentAudit();
+        checkedInAudit.setAppointment(appointment);
+        checkedInAudit.setStatus(AppointmentStatus.CheckedIn);
+        AppointmentAudit completedAudit = new AppointmentAudit();
+        completedAudit.setAppointment(appointment);
+        completedAudit.setStatus(AppointmentStatus.Completed);
+        completedAudit.setNotes("notes");
+
+        appointmentAuditDao.save(Arrays.asList(checkedInAudit, completedAudit));
+
+        List<AppointmentAudit> allAuditEvents = appointmentAuditDao.getAppointmentHistoryForAppointment(appointment);
+        assertEquals(3, allAuditEvents.size());
+        assertNotNull(checkedInAudit.getCreator());
+        assertNotNull(checkedInAudit.getDateCreated());
+    }
+
     @Test
     public void shouldGetAppointmentAuditForAppointment() throws Exception {
         Appointment appointment = appointmentDao.getAppointmentByUuid("75504r42-3ca8-11e3-bf2b-0800271c1111");
@@ -0,0 +1,150 @@
+package org.openmrs.module.appointments.dao.impl;
+
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.appointments.BaseIntegrationTest;
+import org.openmrs.module.appointments.dao.AppointmentDailyCountDao;
+import org.openmrs.module.appointments.dao.AppointmentDao;
+import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentDailyCount;
+import org.openmrs.module.appointments.model.AppointmentDailyCountLock;
+import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class AppointmentDailyCountDaoImplIT extends BaseIntegrationTest {
+
+    @Autowired
+    AppointmentDailyCountDao appointmentDailyCountDao;
+
+    @Autowired
+    AppointmentDao appointmentDao;
+
+    @Autowired
+    SessionFactory sessionFactory;
+
+    private SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+
+    @Before
+    public void setUp() throws Exception {
+        executeDataSet("appointmentTestData.xml");
+    }
+
+    @Test
+    public void shouldRebuildCountsFromNonVoidedAppointments() throws Exception {
+        appointmentDailyCountDao.rebuild();
+
+        Date day = dateFormat.parse("2108-08-15 00:00");
+        List<AppointmentDailyCount> dailyCounts = appointmentDailyCountDao.getDailyCounts(null, day, day, null);
+
+        assertEquals(3, dailyCounts.size());
+        assertEquals(1, getCount(dailyCounts, AppointmentStatus.Scheduled));
+        assertEquals(1, getCount(dailyCounts, AppointmentStatus.CheckedIn));
+        assertEquals(1, getCount(dailyCounts, AppointmentStatus.Cancelled));
+    }
+
+    @Test
+    public void shouldCreateLockRowOnFirstRebuildAndLockItOnLaterOnes() throws Exception {
+        appointmentDailyCountDao.rebuild();
+        assertNotNull(sessionFactory.getCurrentSession().get(AppointmentDailyCountLock.class, 1));
+
+        appointmentDailyCountDao.rebuild();
+
+        Date day = dateFormat.parse("2108-08-15 00:00");
+        assertEquals(3, appointmentDailyCountDao.getDailyCounts(null, day, day, null).size());
+    }
+
+    @Test
+    public void shouldLeaveOutCountsOfVoidedServiceTypes() throws Exception {
+        appointmentDailyCountDao.rebuild();
+
+        Date day = dateFormat.parse("2017-08-08 00:00");
+        List<AppointmentDailyCount> dailyCounts = appointmentDailyCountDao.getDailyCounts(null, day, day, null);
+
+        assertEquals(2, dailyCounts.size());
+        assertEquals(1, getCount(dailyCounts, AppointmentStatus.Scheduled));
+        assertEquals(1, getCount(dailyCounts, AppointmentStatus.Completed));
+    }
+
+    @Test
+    public void shouldMoveCountBetweenStatusesWhenStatusChanges() throws Exception {
+        appointmentDailyCountDao.rebuild();
+        Appointment appointment = appointmentDao.getAppointmentByUuid("75504r42-3ca8-11e3-bf2b-0800271c1111");
+
+        appointment.setStatus(AppointmentStatus.CheckedIn);
+        appointmentDao.save(appointment);
+        appointmentDailyCountDao.applyPendingChanges();
+
+        Date day = dateFormat.parse("2108-08-15 00:00");
+        List<AppointmentDailyCount> dailyCounts = appointmentDailyCountDao.getDailyCounts(null, day, day,
+                Arrays.asList(AppointmentStatus.Scheduled, AppointmentStatus.CheckedIn));
+        assertEquals(1, dailyCounts.size());
+        assertEquals(2, getCount(dailyCounts, AppointmentStatus.CheckedIn));
+    }
+
+    @Test
+    public void shouldMoveCountBetweenDaysWhenAppointmentIsRescheduled() throws Exception {
+        appointmentDailyCountDao.rebuild();
+        Appointment appointment = appointmentDao.getAppointmentByUuid("75504r42-3ca8-11e3-bf2b-0800271c1111");
+
+        appointment.setStartDateTime(dateFormat.parse("2108-08-20 10:00"));
+        appointment.setEndDateTime(dateFormat.parse("2108-08-20 11:00"));
+        appointmentDao.save(appointment);
+        appointmentDailyCountDao.applyPendingChanges();
+
+        List<AppointmentDailyCount> dailyCounts = appointmentDailyCountDao.getDailyCounts(null,
+                dateFormat.parse("2108-08-15 00:00"), dateFormat.parse("2108-08-20 00:00"),
+                Arrays.asList(AppointmentStatus.Scheduled));
+        assertEquals(1, dailyCounts.size());
+        assertEquals(dateFormat.parse("2108-08-20 00:00"), new Date(dailyCounts.get(0).getDay().getTime()));
+        assertEquals(1, getCount(dailyCounts, AppointmentStatus.Scheduled));
+    }
+
+    @Test
+    public void shouldCountNewAppointments() throws Exception {
+        Appointment existingAppointment = appointmentDao.getAppointmentByUuid("75504r42-3ca8-11e3-bf2b-0800271c1111");
+        Appointment appointment = new Appointment();
+        appointment.setPatient(existingAppointment.getPatient());
+        appointment.setService(existingAppointment.getService());
+        appointment.setStartDateTime(dateFormat.parse("2108-09-01 10:00"));
+        appointment.setEndDateTime(dateFormat.parse("2108-09-01 11:00"));
+        appointment.setStatus(AppointmentStatus.Scheduled);
+
+        appointmentDao.save(appointment);
+        appointmentDailyCountDao.applyPendingChanges();
+
+        Date day = dateFormat.parse("2108-09-01 00:00");
+        List<AppointmentDailyCount> dailyCounts = appointmentDailyCountDao.getDailyCounts(
+                existingAppointment.getService(), day, day, null);
+        assertEquals(1, dailyCounts.size());
+        assertEquals(1, getCount(dailyCounts, AppointmentStatus.Scheduled));
+    }
+
+    @Test
+    public void shouldCountAppointmentsWithoutTheDailyCountTable() throws Exception {
+        Appointment appointment = appointmentDao.getAppointmentByUuid("75504r42-3ca8-11e3-bf2b-0800271c1111");
+
+        List<AppointmentDailyCount> dailyCounts = appointmentDailyCountDao.countAppointments(appointment.getService(),
+                dateFormat.parse("2017-08-08 00:00"), dateFormat.parse("2108-08-15 00:00"),
+                Arrays.asList(AppointmentStatus.Scheduled, AppointmentStatus.CheckedIn, AppointmentStatus.Completed));
+
+        assertEquals(4, dailyCounts.size());
+        assertEquals(dateFormat.parse("2017-08-08 00:00"), new Date(dailyCounts.get(0).getDay().getTime()));
+        assertEquals(1, getCount(dailyCounts, AppointmentStatus.Completed));
+        assertEquals(2, getCount(dailyCounts, AppointmentStatus.Scheduled));
+        assertEquals(1, getCount(dailyCounts, AppointmentStatus.CheckedIn));
+    }
+
+    private int getCount(List<AppointmentDailyCount> dailyCounts, AppointmentStatus status) {
+        return dailyCounts.stream().filter(dailyCount -> dailyCount.getStatus() == status)
+                .mapToInt(AppointmentDailyCount::getAppointmentCount).sum();
+    }
+}
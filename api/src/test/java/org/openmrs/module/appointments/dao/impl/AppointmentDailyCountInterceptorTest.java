@@ -0,0 +1,75 @@
+package org.openmrs.module.appointments.dao.impl;
+
+import org.hibernate.Transaction;
+import org.junit.Test;
+import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentService;
+import org.openmrs.module.appointments.model.AppointmentStatus;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AppointmentDailyCountInterceptorTest {
+
+    private static final String[] PROPERTY_NAMES = {"service", "startDateTime", "status", "voided"};
+
+    private final AppointmentDailyCountInterceptor appointmentDailyCountInterceptor = new AppointmentDailyCountInterceptor();
+
+    @Test
+    public void shouldFlagCountsAsStaleWhenChangesAreCommittedWithoutBeingApplied() {
+        appointmentDailyCountInterceptor.onSave(new Appointment(), 1, createState(), PROPERTY_NAMES, null);
+
+        appointmentDailyCountInterceptor.afterTransactionCompletion(createTransaction(true));
+
+        assertTrue(appointmentDailyCountInterceptor.isStale());
+    }
+
+    @Test
+    public void shouldNotFlagCountsAsStaleWhenChangesAreApplied() {
+        appointmentDailyCountInterceptor.onSave(new Appointment(), 1, createState(), PROPERTY_NAMES, null);
+        appointmentDailyCountInterceptor.drainPendingChanges();
+
+        appointmentDailyCountInterceptor.afterTransactionCompletion(createTransaction(true));
+
+        assertFalse(appointmentDailyCountInterceptor.isStale());
+    }
+
+    @Test
+    public void shouldNotFlagCountsAsStaleWhenChangesAreRolledBack() {
+        appointmentDailyCountInterceptor.onSave(new Appointment(), 1, createState(), PROPERTY_NAMES, null);
+
+        appointmentDailyCountInterceptor.afterTransactionCompletion(createTransaction(false));
+
+        assertFalse(appointmentDailyCountInterceptor.isStale());
+    }
+
+    @Test
+    public void shouldClearStaleFlagOnlyWhenRebuildIsCommitted() {
+        appointmentDailyCountInterceptor.onSave(new Appointment(), 1, createState(), PROPERTY_NAMES, null);
+        appointmentDailyCountInterceptor.afterTransactionCompletion(createTransaction(true));
+
+        appointmentDailyCountInterceptor.markRebuilt();
+        appointmentDailyCountInterceptor.afterTransactionCompletion(createTransaction(false));
+        assertTrue(appointmentDailyCountInterceptor.isStale());
+
+        appointmentDailyCountInterceptor.markRebuilt();
+        appointmentDailyCountInterceptor.afterTransactionCompletion(createTransaction(true));
+        assertFalse(appointmentDailyCountInterceptor.isStale());
+    }
+
+    private Object[] createState() {
+        AppointmentService service = new AppointmentService();
+        service.setAppointmentServiceId(1);
+        return new Object[]{service, new Date(), AppointmentStatus.Scheduled, false};
+    }
+
+    private Transaction createTransaction(boolean committed) {
+        Transaction transaction = mock(Transaction.class);
+        when(transaction.wasCommitted()).thenReturn(committed);
+        return transaction;
+    }
+}
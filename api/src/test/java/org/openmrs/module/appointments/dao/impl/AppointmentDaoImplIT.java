@@ -1,25 +1,36 @@
 package org.openmrs.module.appointments.dao.impl;
 
+import org.hibernate.SessionFactory;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.openmrs.Patient;
 import org.openmrs.module.appointments.BaseIntegrationTest;
+import org.openmrs.module.appointments.SqlStatementBudget;
 import org.openmrs.module.appointments.dao.AppointmentDao;
 import org.openmrs.module.appointments.dao.AppointmentServiceDao;
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentDayCounts;
 import org.openmrs.module.appointments.model.AppointmentSearch;
 import org.openmrs.module.appointments.model.AppointmentService;
 import org.openmrs.module.appointments.model.AppointmentServiceType;
 import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.model.AppointmentTimeline;
+import org.openmrs.module.appointments.model.AppointmentTimelineEntry;
+import org.openmrs.module.appointments.model.ResultList;
 import org.openmrs.module.appointments.util.DateUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class AppointmentDaoImplIT extends BaseIntegrationTest {
 
@@ -29,15 +40,25 @@ public class AppointmentDaoImplIT extends BaseIntegrationTest {
     @Autowired
     AppointmentServiceDao appointmentServiceDao;
 
+    @Autowired
+    SessionFactory sessionFactory;
+
+    @Autowired
+    QueryLimits queryLimits;
+
+    @Rule
+    public SqlStatementBudget sqlStatementBudget = new SqlStatementBudget();
+
     @Before
     public void setUp() throws Exception {
         executeDataSet("appointmentTestData.xml");
     }
 
     @Test
-    public void shouldGetAllNonVoidedAppointments() throws Exception {
-        List<Appointment> allAppointmentServices = appointmentDao.getAllAppointments(null);
-        assertEquals(9, allAppointmentServices.size());
+    public void shouldGetAllNonVoidedAppointmentsOfNonVoidedServiceTypes() throws Exception {
+        List<Appointment> allAppointments = appointmentDao.getAllAppointments(null);
+        assertEquals(8, allAppointments.size());
+        assertFalse(allAppointments.stream().anyMatch(appointment -> "75504r42-3ca8-11e3-bf2b-0800271c13222".equals(appointment.getUuid())));
     }
     
     @Test
@@ -47,6 +68,45 @@ public class AppointmentDaoImplIT extends BaseIntegrationTest {
         assertEquals(3, allAppointments.size());
     }
 
+    @Test
+    public void shouldGetPropertiesOfAllNonVoidedAppointmentsOfNonVoidedServiceTypes() throws Exception {
+        List<Object[]> rows = appointmentDao.getAllAppointmentProperties(null, Arrays.asList("uuid", "status", "service.uuid"));
+
+        assertEquals(8, rows.size());
+        assertFalse(rows.stream().anyMatch(row -> "75504r42-3ca8-11e3-bf2b-0800271c13222".equals(row[0])));
+        assertFalse(ResultList.isTruncated(rows));
+    }
+
+    @Test
+    public void shouldGetPropertiesOfTheSameAppointmentsAsAllAppointmentsWhenServiceIsVoided() throws Exception {
+        AppointmentService appointmentService = appointmentServiceDao.getAppointmentServiceByUuid("c36006e5-9fbb-4f20-866b-0ece245615a6");
+        appointmentService.setVoided(true);
+        sessionFactory.getCurrentSession().flush();
+
+        Set<String> uuids = new HashSet<>();
+        for (Appointment appointment : appointmentDao.getAllAppointments(null)) {
+            uuids.add(appointment.getUuid());
+        }
+        Set<String> projectedUuids = new HashSet<>();
+        for (Object[] row : appointmentDao.getAllAppointmentProperties(null, Collections.singletonList("uuid"))) {
+            projectedUuids.add((String) row[0]);
+        }
+
+        assertEquals(new HashSet<>(Arrays.asList("75504r42-3ca8-11e3-bf2b-0800271c13346", "75504r42-3ca8-11e3-bf2b-0800271c13348")), uuids);
+        assertEquals(uuids, projectedUuids);
+    }
+
+    @Test
+    public void shouldGetPropertiesOfAppointmentsForDate() throws Exception {
+        Date forDate = DateUtil.convertToDate("2108-08-15T00:00:00.0Z", DateUtil.DateFormatType.UTC);
+
+        List<Object[]> rows = appointmentDao.getAllAppointmentProperties(forDate, Collections.singletonList("status"));
+
+        assertEquals(3, rows.size());
+        assertEquals(1, rows.get(0).length);
+        assertTrue(rows.get(0)[0] instanceof AppointmentStatus);
+    }
+
     @Test
     public void shouldSaveAppointmentService() throws Exception {
         List<Appointment> allAppointments = appointmentDao.getAllAppointments(null);
@@ -58,6 +118,67 @@ public class AppointmentDaoImplIT extends BaseIntegrationTest {
         assertEquals(10, allAppointments.size());
     }
 
+    @Test
+    public void shouldSaveAppointmentsInBulk() throws Exception {
+        List<Appointment> allAppointments = appointmentDao.getAllAppointments(null);
+        Appointment firstAppointment = new Appointment();
+        firstAppointment.setPatient(allAppointments.get(0).getPatient());
+        Appointment secondAppointment = new Appointment();
+        secondAppointment.setPatient(allAppointments.get(0).getPatient());
+
+        appointmentDao.save(Arrays.asList(firstAppointment, secondAppointment));
+
+        assertNotNull(firstAppointment.getAppointmentId());
+        assertNotNull(secondAppointment.getAppointmentId());
+        assertEquals(11, appointmentDao.getAllAppointments(null).size());
+    }
+
+    @Test
+    public void shouldGetAppointmentsByUuids() throws Exception {
+        List<Appointment> appointments = appointmentDao.getAppointmentsByUuids(Arrays.asList(
+                "75504r42-3ca8-11e3-bf2b-0800271c1111", "75504r42-3ca8-11e3-bf2b-0800271c12222", "unknownUuid"));
+
+        assertEquals(2, appointments.size());
+        assertEquals(0, appointmentDao.getAppointmentsByUuids(Collections.emptyList()).size());
+    }
+
+    @Test
+    public void shouldGetAppointmentsByUuidsWithASingleStatement() throws Exception {
+        int statementCount = sqlStatementBudget.measure(() -> appointmentDao.getAppointmentsByUuids(Arrays.asList(
+                "75504r42-3ca8-11e3-bf2b-0800271c1111", "75504r42-3ca8-11e3-bf2b-0800271c12222")));
+
+        assertEquals(1, statementCount);
+    }
+
+    @Test
+    public void shouldSaveStatusChangeOfAppointmentsLoadedByUuids() throws Exception {
+        String appointmentUuid = "75504r42-3ca8-11e3-bf2b-0800271c1111";
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        Appointment appointment;
+        try {
+            appointment = appointmentDao.getAppointmentsByUuids(Collections.singletonList(appointmentUuid)).get(0);
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+
+        appointment.setStatus(AppointmentStatus.CheckedIn);
+        sessionFactory.getCurrentSession().flush();
+        sessionFactory.getCurrentSession().clear();
+
+        assertEquals(AppointmentStatus.CheckedIn, appointmentDao.getAppointmentByUuid(appointmentUuid).getStatus());
+    }
+
+    @Test
+    public void shouldGetPatientsByUuids() throws Exception {
+        String patientUuid = appointmentDao.getAllAppointments(null).get(0).getPatient().getUuid();
+
+        List<Patient> patients = appointmentDao.getPatientsByUuids(Arrays.asList(patientUuid, "unknownPatientUuid"));
+
+        assertEquals(1, patients.size());
+        assertEquals(patientUuid, patients.get(0).getUuid());
+        assertEquals(0, appointmentDao.getPatientsByUuids(Collections.emptyList()).size());
+    }
+
     @Test
     public void shouldGetAllFutureAppointmentForTheGivenService() throws Exception {
         AppointmentService appointmentService = appointmentServiceDao.getAppointmentServiceByUuid("c36006e5-9fbb-4f20-866b-0ece245615a6");
@@ -96,6 +217,23 @@ public class AppointmentDaoImplIT extends BaseIntegrationTest {
         assertEquals(false, appointmentWithoutServiceType.getVoided());
     }
 
+    @Test
+    public void shouldCountAppointmentsOfServiceInADateRangePerDay() throws ParseException {
+        SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        Date startDate = simpleDateFormat.parse("2017-08-07");
+        Date endDate = simpleDateFormat.parse("2017-08-09");
+        AppointmentService appointmentService = appointmentServiceDao.getAppointmentServiceByUuid("c36006e5-9fbb-4f20-866b-0ece245615a6");
+
+        AppointmentDayCounts dayCounts = appointmentDao.getAppointmentDayCounts(appointmentService, startDate, endDate, null);
+
+        assertEquals(3, dayCounts.getDays());
+        assertEquals(simpleDateFormat.parse("2017-08-08"), dayCounts.getDay(1));
+        assertEquals(0, dayCounts.getAppointmentCount(0));
+        assertEquals(2, dayCounts.getAppointmentCount(1));
+        assertEquals(0, dayCounts.getMissedAppointmentCount(1));
+        assertEquals(0, dayCounts.getAppointmentCount(2));
+    }
+
     @Test
     public void shouldFilterAppointmentsByStatus() throws ParseException {
         SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd");
@@ -162,6 +300,17 @@ public class AppointmentDaoImplIT extends BaseIntegrationTest {
         assertEquals(1, searchedAppointmentList.size());
     }
 
+    @Test
+    public void shouldNotSearchAppointmentsOfVoidedServiceTypes() {
+        Appointment appointment = new Appointment();
+        appointment.setStatus(AppointmentStatus.Cancelled);
+
+        List<Appointment> searchedAppointmentList = appointmentDao.search(appointment);
+
+        assertEquals(2, searchedAppointmentList.size());
+        assertFalse(searchedAppointmentList.stream().anyMatch(searched -> "75504r42-3ca8-11e3-bf2b-0800271c13222".equals(searched.getUuid())));
+    }
+
     @Test
     public void shouldReturnAllAppointmentsBetweenGivenDates() throws ParseException {
         AppointmentSearch appointmentSearch = new AppointmentSearch();
@@ -174,4 +323,135 @@ public class AppointmentDaoImplIT extends BaseIntegrationTest {
 
         assertEquals(5, appointments.size());
     }
+
+    @Test
+    public void shouldSearchPropertiesOfAppointmentsInDateRange() throws Exception {
+        AppointmentSearch appointmentSearch = new AppointmentSearch();
+        appointmentSearch.setStartDate(DateUtil.convertToDate("2108-08-13T18:30:00.0Z", DateUtil.DateFormatType.UTC));
+        appointmentSearch.setEndDate(DateUtil.convertToDate("2108-08-16T18:29:59.0Z", DateUtil.DateFormatType.UTC));
+
+        List<Object[]> rows = appointmentDao.searchProperties(appointmentSearch, Arrays.asList("uuid", "patient"));
+
+        assertEquals(5, rows.size());
+        assertTrue(rows.get(0)[1] instanceof Patient);
+    }
+
+    @Test
+    public void shouldGetPatientTimelineSplitAtStartOfToday() throws ParseException {
+        Patient patient = appointmentDao.getAllAppointments(null).get(0).getPatient();
+        Date startOfToday = DateUtil.convertToDate("2050-01-01T00:00:00.0Z", DateUtil.DateFormatType.UTC);
+
+        AppointmentTimeline timeline = appointmentDao.getPatientTimeline(patient, startOfToday, 10, 10);
+
+        assertEquals(2, timeline.getPast().size());
+        assertEquals(3, timeline.getUpcoming().size());
+        AppointmentTimelineEntry firstUpcoming = timeline.getUpcoming().get(0);
+        assertEquals("75504r42-3ca8-11e3-bf2b-0800271c1111", firstUpcoming.getUuid());
+        assertEquals("Consultation", firstUpcoming.getServiceName());
+        assertEquals(AppointmentStatus.Scheduled, firstUpcoming.getStatus());
+    }
+
+    @Test
+    public void shouldLimitPatientTimeline() throws ParseException {
+        Patient patient = appointmentDao.getAllAppointments(null).get(0).getPatient();
+        Date startOfToday = DateUtil.convertToDate("2050-01-01T00:00:00.0Z", DateUtil.DateFormatType.UTC);
+
+        AppointmentTimeline timeline = appointmentDao.getPatientTimeline(patient, startOfToday, 1, 2);
+
+        assertEquals(1, timeline.getPast().size());
+        assertEquals(2, timeline.getUpcoming().size());
+        assertEquals("75504r42-3ca8-11e3-bf2b-0800271c1111", timeline.getUpcoming().get(0).getUuid());
+    }
+
+    @Test
+    public void shouldGetAppointmentsChangedSinceIncludingVoidedOnes() throws ParseException {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        List<Appointment> appointments = appointmentDao.getAppointmentsChangedSince(dateFormat.parse("2100-01-01 00:00:00"), 0,
+                dateFormat.parse("2200-01-01 00:00:00"), 100);
+
+        assertEquals(11, appointments.size());
+        assertEquals(2, appointments.get(0).getAppointmentId().intValue());
+        assertEquals(13, appointments.get(10).getAppointmentId().intValue());
+    }
+
+    @Test
+    public void shouldGetAppointmentsChangedAtWatermarkAfterItsAppointment() throws ParseException {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        List<Appointment> appointments = appointmentDao.getAppointmentsChangedSince(dateFormat.parse("2108-08-10 15:57:09"), 7,
+                dateFormat.parse("2200-01-01 00:00:00"), 3);
+
+        assertEquals(3, appointments.size());
+        assertEquals(8, appointments.get(0).getAppointmentId().intValue());
+        assertEquals(10, appointments.get(2).getAppointmentId().intValue());
+    }
+
+    @Test
+    public void shouldNotGetAppointmentsChangedFromUntil() throws ParseException {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        List<Appointment> appointments = appointmentDao.getAppointmentsChangedSince(dateFormat.parse("2000-01-01 00:00:00"), 0,
+                dateFormat.parse("2108-08-10 15:57:09"), 100);
+
+        assertEquals(1, appointments.size());
+        assertEquals(1, appointments.get(0).getAppointmentId().intValue());
+    }
+
+    @Test
+    public void shouldLoadAppointmentsReadOnlyInReadOnlyTransaction() throws Exception {
+        Date forDate = DateUtil.convertToDate("2108-08-15T00:00:00.0Z", DateUtil.DateFormatType.UTC);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        List<Appointment> appointments;
+        try {
+            appointments = appointmentDao.getAllAppointments(forDate);
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+
+        assertEquals(3, appointments.size());
+        for (Appointment appointment : appointments) {
+            assertTrue(sessionFactory.getCurrentSession().isReadOnly(appointment));
+        }
+    }
+
+    @Test
+    public void shouldLoadModifiableAppointmentsOutsideReadOnlyTransaction() throws Exception {
+        Date forDate = DateUtil.convertToDate("2108-08-15T00:00:00.0Z", DateUtil.DateFormatType.UTC);
+
+        List<Appointment> appointments = appointmentDao.getAllAppointments(forDate);
+
+        assertEquals(3, appointments.size());
+        for (Appointment appointment : appointments) {
+            assertFalse(sessionFactory.getCurrentSession().isReadOnly(appointment));
+        }
+    }
+
+    @Test
+    public void shouldCutAppointmentsAtMaxResultsAndTellSo() {
+        int maxResults = queryLimits.getMaxResults();
+        queryLimits.setMaxResults(5);
+        try {
+            List<Appointment> appointments = appointmentDao.getAllAppointments(null);
+
+            assertEquals(5, appointments.size());
+            assertTrue(ResultList.isTruncated(appointments));
+        } finally {
+            queryLimits.setMaxResults(maxResults);
+        }
+    }
+
+    @Test
+    public void shouldNotTellThatAppointmentsUpToMaxResultsAreTruncated() {
+        int maxResults = queryLimits.getMaxResults();
+        queryLimits.setMaxResults(9);
+        try {
+            List<Appointment> appointments = appointmentDao.getAllAppointments(null);
+
+            assertEquals(9, appointments.size());
+            assertFalse(ResultList.isTruncated(appointments));
+        } finally {
+            queryLimits.setMaxResults(maxResults);
+        }
+    }
 }
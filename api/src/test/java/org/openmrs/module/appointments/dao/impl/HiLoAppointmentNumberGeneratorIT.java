@@ -0,0 +1,81 @@
+package org.openmrs.module.appointments.dao.impl;
+
+import org.hibernate.SessionFactory;
+import org.junit.Test;
+import org.openmrs.module.appointments.BaseIntegrationTest;
+import org.openmrs.module.appointments.model.Appointment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+public class HiLoAppointmentNumberGeneratorIT extends BaseIntegrationTest {
+
+    @Autowired
+    SessionFactory sessionFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    public void shouldHandOutSequentialNumbersPerDayAcrossBlocks() throws Exception {
+        HiLoAppointmentNumberGenerator generator = createGenerator(3);
+        Appointment appointment = createAppointment(LocalDate.of(2201, 1, 15));
+
+        assertEquals("22010115-0001", generator.generateAppointmentNumber(appointment));
+        assertEquals("22010115-0002", generator.generateAppointmentNumber(appointment));
+        assertEquals("22010115-0003", generator.generateAppointmentNumber(appointment));
+        assertEquals("22010115-0004", generator.generateAppointmentNumber(appointment));
+        assertEquals("22010116-0001", generator.generateAppointmentNumber(createAppointment(LocalDate.of(2201, 1, 16))));
+    }
+
+    @Test
+    public void shouldNotHandOutTheSameNumberFromDifferentNodes() throws Exception {
+        List<HiLoAppointmentNumberGenerator> generators = new ArrayList<>();
+        generators.add(createGenerator(2));
+        generators.add(createGenerator(2));
+        Appointment appointment = createAppointment(LocalDate.of(2202, 2, 20));
+        Set<String> numbers = ConcurrentHashMap.newKeySet();
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            HiLoAppointmentNumberGenerator generator = generators.get(thread % 2);
+            futures.add(executorService.submit(() -> {
+                for (int i = 0; i < 25; i++) {
+                    numbers.add(generator.generateAppointmentNumber(appointment));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+
+        assertEquals(100, numbers.size());
+    }
+
+    private HiLoAppointmentNumberGenerator createGenerator(int blockSize) {
+        HiLoAppointmentNumberGenerator generator = new HiLoAppointmentNumberGenerator();
+        generator.setSessionFactory(sessionFactory);
+        generator.setTransactionManager(transactionManager);
+        generator.setBlockSize(blockSize);
+        return generator;
+    }
+
+    private Appointment createAppointment(LocalDate day) {
+        Appointment appointment = new Appointment();
+        appointment.setStartDateTime(Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        return appointment;
+    }
+}
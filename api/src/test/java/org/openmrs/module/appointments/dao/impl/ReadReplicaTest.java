@@ -0,0 +1,167 @@
+package org.openmrs.module.appointments.dao.impl;
+
+import com.mchange.v2.c3p0.ComboPooledDataSource;
+import org.hibernate.Session;
+import org.hibernate.SessionBuilder;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class ReadReplicaTest {
+
+    @Mock
+    private SessionFactory sessionFactory;
+
+    @Mock
+    private SessionBuilder sessionBuilder;
+
+    @Mock
+    private Session primarySession;
+
+    @Mock
+    private Session replicaSession;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Statement statement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @Mock
+    private ResultSetMetaData metaData;
+
+    private ReadReplica readReplica;
+
+    @Before
+    public void setUp() throws SQLException {
+        initMocks(this);
+        when(sessionFactory.getCurrentSession()).thenReturn(primarySession);
+        when(sessionFactory.withOptions()).thenReturn(sessionBuilder);
+        when(sessionBuilder.connection(connection)).thenReturn(sessionBuilder);
+        when(sessionBuilder.openSession()).thenReturn(replicaSession);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(metaData.getColumnLabel(1)).thenReturn("lag");
+        when(resultSet.next()).thenReturn(true);
+
+        readReplica = new ReadReplica();
+        readReplica.setSessionFactory(sessionFactory);
+        readReplica.setDataSource(dataSource);
+        readReplica.setMaxLagSeconds(30);
+        readReplica.setLagQuery("select lag from replica_status");
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    }
+
+    @After
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    public void shouldReadFromReplicaWhenWithinMaxLag() throws SQLException {
+        when(resultSet.getLong(1)).thenReturn(5L);
+
+        assertSame(replicaSession, readReplica.read(session -> session));
+
+        verify(replicaSession).setDefaultReadOnly(true);
+        verify(replicaSession).close();
+        verify(connection).close();
+    }
+
+    @Test
+    public void shouldReadFromPrimaryWhenReplicaLagsTooFarBehind() throws SQLException {
+        when(resultSet.getLong(1)).thenReturn(60L);
+
+        assertSame(primarySession, readReplica.read(session -> session));
+
+        verify(sessionFactory, never()).withOptions();
+        verify(connection).close();
+    }
+
+    @Test
+    public void shouldReadFromPrimaryWhenReplicaIsNotReplicating() throws SQLException {
+        when(resultSet.next()).thenReturn(false);
+
+        assertSame(primarySession, readReplica.read(session -> session));
+    }
+
+    @Test
+    public void shouldReadFromPrimaryWhenReplicaIsUnreachable() throws SQLException {
+        when(dataSource.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        assertSame(primarySession, readReplica.read(session -> session));
+        assertSame(primarySession, readReplica.read(session -> session));
+
+        verify(dataSource).getConnection();
+    }
+
+    @Test
+    public void shouldReadFromPrimaryOutsideReadOnlyTransaction() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+
+        assertSame(primarySession, readReplica.read(session -> session));
+
+        verify(dataSource, never()).getConnection();
+    }
+
+    @Test
+    public void shouldReadFromPrimaryWhenNoReplicaIsConfigured() {
+        readReplica.setDataSource(null);
+
+        assertSame(primarySession, readReplica.read(session -> session));
+    }
+
+    @Test
+    public void shouldPoolReplicaConnectionsUpToMaxPoolSize() {
+        Properties properties = new Properties();
+        properties.setProperty(ReadReplica.URL_PROPERTY, "jdbc:mysql://replica:3306/openmrs");
+        properties.setProperty(ReadReplica.USERNAME_PROPERTY, "openmrs");
+        properties.setProperty(ReadReplica.MAX_POOL_SIZE_PROPERTY, "5");
+
+        ComboPooledDataSource pooledDataSource = ReadReplica.createPooledDataSource(properties);
+        try {
+            assertEquals("jdbc:mysql://replica:3306/openmrs", pooledDataSource.getJdbcUrl());
+            assertEquals("openmrs", pooledDataSource.getUser());
+            assertEquals(5, pooledDataSource.getMaxPoolSize());
+            assertEquals(0, pooledDataSource.getMinPoolSize());
+        } finally {
+            pooledDataSource.close();
+        }
+    }
+
+    @Test
+    public void shouldReadFromPrimaryAfterClose() throws SQLException {
+        readReplica.close();
+
+        assertSame(primarySession, readReplica.read(session -> session));
+        verify(dataSource, never()).getConnection();
+    }
+}
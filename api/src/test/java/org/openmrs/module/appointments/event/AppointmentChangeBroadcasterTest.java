@@ -0,0 +1,130 @@
+package org.openmrs.module.appointments.event;
+
+import org.junit.Test;
+import org.openmrs.module.appointments.model.AppointmentStatus;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AppointmentChangeBroadcasterTest {
+
+    private final AppointmentChangeBroadcaster appointmentChangeBroadcaster = new AppointmentChangeBroadcaster();
+
+    @Test
+    public void shouldReturnChangesAfterSequence() {
+        AppointmentChange firstChange = createChange("firstUuid");
+        AppointmentChange secondChange = createChange("secondUuid");
+        appointmentChangeBroadcaster.appointmentsChanged(Arrays.asList(firstChange, secondChange));
+
+        assertEquals(2, appointmentChangeBroadcaster.getLastSequence());
+        assertEquals(Arrays.asList(firstChange, secondChange), appointmentChangeBroadcaster.getChangesAfter(0));
+        assertEquals(Collections.singletonList(secondChange), appointmentChangeBroadcaster.getChangesAfter(1));
+        assertTrue(appointmentChangeBroadcaster.getChangesAfter(2).isEmpty());
+    }
+
+    @Test
+    public void shouldDropOldestChangesWhenBufferIsFull() {
+        appointmentChangeBroadcaster.setBufferSize(2);
+        AppointmentChange thirdChange = createChange("thirdUuid");
+        appointmentChangeBroadcaster.appointmentsChanged(Arrays.asList(createChange("firstUuid"), createChange("secondUuid"), thirdChange));
+
+        assertNull(appointmentChangeBroadcaster.getChangesAfter(0));
+        List<AppointmentChange> changes = appointmentChangeBroadcaster.getChangesAfter(2);
+        assertEquals(Collections.singletonList(thirdChange), changes);
+    }
+
+    @Test
+    public void shouldNotReturnChangesAfterUnknownSequence() {
+        appointmentChangeBroadcaster.appointmentsChanged(Collections.singletonList(createChange("firstUuid")));
+
+        assertNull(appointmentChangeBroadcaster.getChangesAfter(5));
+    }
+
+    @Test
+    public void shouldReplayChangesAfterSequenceToNewSubscription() {
+        AppointmentChange secondChange = createChange("secondUuid");
+        appointmentChangeBroadcaster.appointmentsChanged(Arrays.asList(createChange("firstUuid"), secondChange));
+
+        AppointmentChangeSubscription subscription = appointmentChangeBroadcaster.subscribe(1L, null, null, 10, () -> {});
+
+        AppointmentChangeSubscription.Changes changes = subscription.poll();
+        assertEquals(Collections.singletonMap(2L, secondChange), changes.getChangesBySequence());
+        assertFalse(changes.isLostChanges());
+        assertNull(subscription.poll());
+    }
+
+    @Test
+    public void shouldMarkNewSubscriptionAsHavingLostChangesWhenTheyWereOverwritten() {
+        appointmentChangeBroadcaster.setBufferSize(2);
+        appointmentChangeBroadcaster.appointmentsChanged(Arrays.asList(createChange("firstUuid"), createChange("secondUuid"), createChange("thirdUuid")));
+
+        AppointmentChangeSubscription.Changes changes = appointmentChangeBroadcaster.subscribe(0L, null, null, 10, () -> {}).poll();
+
+        assertTrue(changes.isLostChanges());
+        assertEquals(3, changes.getLastSequence());
+    }
+
+    @Test
+    public void shouldPushOnlyChangesOfSubscribedLocationAndService() {
+        AppointmentChangeSubscription subscription = appointmentChangeBroadcaster.subscribe(null, "locationUuid", "serviceUuid", 10, () -> {});
+        AppointmentChange change = createChange("firstUuid");
+
+        appointmentChangeBroadcaster.appointmentsChanged(Arrays.asList(change,
+                new AppointmentChange("secondUuid", 1, AppointmentStatus.Scheduled, "serviceUuid", "otherLocationUuid", false)));
+
+        AppointmentChangeSubscription.Changes changes = subscription.poll();
+        assertEquals(Collections.singletonMap(1L, change), changes.getChangesBySequence());
+        assertEquals(2, changes.getLastSequence());
+    }
+
+    @Test
+    public void shouldTellSubscriberOnceUntilItReadAllChanges() {
+        AtomicInteger notifications = new AtomicInteger();
+        AppointmentChangeSubscription subscription = appointmentChangeBroadcaster.subscribe(null, null, null, 10, notifications::incrementAndGet);
+        assertNull(subscription.poll());
+
+        appointmentChangeBroadcaster.appointmentsChanged(Collections.singletonList(createChange("firstUuid")));
+        appointmentChangeBroadcaster.appointmentsChanged(Collections.singletonList(createChange("secondUuid")));
+        assertEquals(1, notifications.get());
+
+        assertEquals(2, subscription.poll().getChangesBySequence().size());
+        assertNull(subscription.poll());
+        appointmentChangeBroadcaster.appointmentsChanged(Collections.singletonList(createChange("thirdUuid")));
+        assertEquals(2, notifications.get());
+    }
+
+    @Test
+    public void shouldDropOldestChangesOfSlowSubscriberWithoutWaitingForIt() {
+        AppointmentChangeSubscription subscription = appointmentChangeBroadcaster.subscribe(null, null, null, 2, () -> {});
+        AppointmentChange secondChange = createChange("secondUuid");
+        AppointmentChange thirdChange = createChange("thirdUuid");
+
+        appointmentChangeBroadcaster.appointmentsChanged(Arrays.asList(createChange("firstUuid"), secondChange, thirdChange));
+
+        AppointmentChangeSubscription.Changes changes = subscription.poll();
+        assertTrue(changes.isLostChanges());
+        assertEquals(Arrays.asList(secondChange, thirdChange), Arrays.asList(changes.getChangesBySequence().values().toArray()));
+    }
+
+    @Test
+    public void shouldNotPushChangesAfterUnsubscribing() {
+        AppointmentChangeSubscription subscription = appointmentChangeBroadcaster.subscribe(null, null, null, 10, () -> {});
+        appointmentChangeBroadcaster.unsubscribe(subscription);
+
+        appointmentChangeBroadcaster.appointmentsChanged(Collections.singletonList(createChange("firstUuid")));
+
+        assertNull(subscription.poll());
+        assertEquals(0, appointmentChangeBroadcaster.getSubscriptionCount());
+    }
+
+    private AppointmentChange createChange(String appointmentUuid) {
+        return new AppointmentChange(appointmentUuid, 1, AppointmentStatus.Scheduled, "serviceUuid", "locationUuid", false);
+    }
+}
@@ -0,0 +1,102 @@
+package org.openmrs.module.appointments.event;
+
+import org.hibernate.Transaction;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Location;
+import org.openmrs.Patient;
+import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AppointmentChangeInterceptorTest {
+
+    private static final String[] PROPERTY_NAMES = {"patient", "service", "location"};
+
+    private final AppointmentChangeInterceptor appointmentChangeInterceptor = new AppointmentChangeInterceptor();
+
+    private final List<AppointmentChange> reportedChanges = new ArrayList<>();
+
+    private Transaction transaction;
+
+    @Before
+    public void setUp() {
+        appointmentChangeInterceptor.setListeners(Collections.singletonList(reportedChanges::addAll));
+        transaction = mock(Transaction.class);
+        when(transaction.wasCommitted()).thenReturn(true);
+    }
+
+    @Test
+    public void shouldReportAppointmentOnceWhenPatientServiceAndLocationAreUnchanged() {
+        Object[] state = {createPatient(1), createService("serviceUuid"), createLocation("locationUuid")};
+
+        appointmentChangeInterceptor.onFlushDirty(createAppointment(), 1, state, state.clone(), PROPERTY_NAMES, null);
+        appointmentChangeInterceptor.afterTransactionCompletion(transaction);
+
+        assertEquals(1, reportedChanges.size());
+    }
+
+    @Test
+    public void shouldAlsoReportAppointmentWithPreviousServiceAndLocationWhenMoved() {
+        Patient patient = createPatient(1);
+        Object[] currentState = {patient, createService("newServiceUuid"), createLocation("newLocationUuid")};
+        Object[] previousState = {patient, createService("oldServiceUuid"), createLocation("oldLocationUuid")};
+
+        appointmentChangeInterceptor.onFlushDirty(createAppointment(), 1, currentState, previousState, PROPERTY_NAMES, null);
+        appointmentChangeInterceptor.afterTransactionCompletion(transaction);
+
+        assertEquals(2, reportedChanges.size());
+        assertEquals("newServiceUuid", reportedChanges.get(0).getServiceUuid());
+        assertEquals("newLocationUuid", reportedChanges.get(0).getLocationUuid());
+        assertEquals("oldServiceUuid", reportedChanges.get(1).getServiceUuid());
+        assertEquals("oldLocationUuid", reportedChanges.get(1).getLocationUuid());
+        assertEquals(Integer.valueOf(1), reportedChanges.get(1).getPatientId());
+    }
+
+    @Test
+    public void shouldAlsoReportAppointmentWithPreviousPatientWhenMoved() {
+        AppointmentService service = createService("serviceUuid");
+        Location location = createLocation("locationUuid");
+        Object[] currentState = {createPatient(2), service, location};
+        Object[] previousState = {createPatient(1), service, location};
+
+        appointmentChangeInterceptor.onFlushDirty(createAppointment(), 1, currentState, previousState, PROPERTY_NAMES, null);
+        appointmentChangeInterceptor.afterTransactionCompletion(transaction);
+
+        assertEquals(2, reportedChanges.size());
+        assertEquals(Integer.valueOf(2), reportedChanges.get(0).getPatientId());
+        assertEquals(Integer.valueOf(1), reportedChanges.get(1).getPatientId());
+        assertEquals("serviceUuid", reportedChanges.get(1).getServiceUuid());
+    }
+
+    private Appointment createAppointment() {
+        Appointment appointment = new Appointment();
+        appointment.setUuid("appointmentUuid");
+        return appointment;
+    }
+
+    private Patient createPatient(int patientId) {
+        Patient patient = new Patient();
+        patient.setPatientId(patientId);
+        return patient;
+    }
+
+    private AppointmentService createService(String uuid) {
+        AppointmentService service = new AppointmentService();
+        service.setUuid(uuid);
+        return service;
+    }
+
+    private Location createLocation(String uuid) {
+        Location location = new Location();
+        location.setUuid(uuid);
+        return location;
+    }
+}
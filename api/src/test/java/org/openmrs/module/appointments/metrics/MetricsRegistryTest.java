@@ -0,0 +1,89 @@
+package org.openmrs.module.appointments.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MetricsRegistryTest {
+
+    private MetricsRegistry metricsRegistry;
+
+    @Before
+    public void setUp() {
+        metricsRegistry = new MetricsRegistry();
+    }
+
+    @Test
+    public void shouldReturnSameMetricsForSameName() {
+        assertSame(metricsRegistry.getMethodMetrics("a"), metricsRegistry.getMethodMetrics("a"));
+    }
+
+    @Test
+    public void shouldReportCallsErrorsAndLatenciesSortedByName() {
+        for (int i = 1; i <= 100; i++) {
+            metricsRegistry.record("b", TimeUnit.MILLISECONDS.toNanos(i), i % 10 == 0);
+        }
+        metricsRegistry.record("a", TimeUnit.MILLISECONDS.toNanos(5), false);
+
+        List<MethodMetricsSnapshot> snapshots = metricsRegistry.snapshot();
+
+        assertEquals(2, snapshots.size());
+        assertEquals("a", snapshots.get(0).getName());
+        MethodMetricsSnapshot snapshot = snapshots.get(1);
+        assertEquals("b", snapshot.getName());
+        assertEquals(100, snapshot.getCalls());
+        assertEquals(10, snapshot.getErrors());
+        assertEquals(50, snapshot.getP50(), 0.1);
+        assertEquals(99, snapshot.getP99(), 0.1);
+        assertEquals(100, snapshot.getMax(), 0.1);
+        assertEquals(50.5, snapshot.getMean(), 0.1);
+    }
+
+    @Test
+    public void shouldKeepEarlierIntervalsAcrossSnapshots() {
+        metricsRegistry.record("a", TimeUnit.MILLISECONDS.toNanos(1), false);
+        metricsRegistry.snapshot();
+        metricsRegistry.record("a", TimeUnit.MILLISECONDS.toNanos(3), false);
+
+        MethodMetricsSnapshot snapshot = metricsRegistry.snapshot().get(0);
+
+        assertEquals(2, snapshot.getCalls());
+        assertEquals(3, snapshot.getMax(), 0.01);
+        assertEquals(2, snapshot.getMean(), 0.01);
+    }
+
+    @Test
+    public void shouldRecordFailureAndRethrowWhenTimedOperationThrows() {
+        try {
+            metricsRegistry.time("task", () -> {
+                throw new IllegalStateException("failed");
+            });
+            fail("Expected the exception to be rethrown");
+        } catch (IllegalStateException expected) {
+        }
+        metricsRegistry.time("task", () -> {
+        });
+
+        MethodMetricsSnapshot snapshot = metricsRegistry.snapshot().get(0);
+        assertEquals(2, snapshot.getCalls());
+        assertEquals(1, snapshot.getErrors());
+    }
+
+    @Test
+    public void shouldClearMetricsOnReset() {
+        metricsRegistry.record("a", TimeUnit.MILLISECONDS.toNanos(1), true);
+        metricsRegistry.reset();
+
+        MethodMetricsSnapshot snapshot = metricsRegistry.snapshot().get(0);
+        assertEquals(0, snapshot.getCalls());
+        assertEquals(0, snapshot.getErrors());
+        assertTrue(snapshot.getMax() == 0);
+    }
+}
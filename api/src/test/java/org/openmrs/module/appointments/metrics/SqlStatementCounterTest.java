@@ -0,0 +1,67 @@
+package org.openmrs.module.appointments.metrics;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SqlStatementCounterTest {
+
+    private final SqlStatementInterceptor interceptor = new SqlStatementInterceptor();
+
+    @After
+    public void tearDown() {
+        SqlStatementCounter.stop();
+    }
+
+    @Test
+    public void shouldIgnoreStatementsOutsideAScope() {
+        assertEquals("select 1", interceptor.onPrepareStatement("select 1"));
+        assertNull(SqlStatementCounter.current());
+    }
+
+    @Test
+    public void shouldCountStatementsByShape() {
+        SqlStatementStatistics statistics = SqlStatementCounter.start();
+
+        interceptor.onPrepareStatement("select * from patient_appointment where uuid in (?, ?)");
+        interceptor.onPrepareStatement("select *\n  from patient_appointment where uuid in (?,?,?)");
+        interceptor.onPrepareStatement("select * from person where person_id=?");
+
+        assertSame(statistics, SqlStatementCounter.stop());
+        assertEquals(3, statistics.getStatementCount());
+        Map<String, Integer> countsByShape = statistics.getCountsByShape();
+        assertEquals(2, countsByShape.size());
+        assertEquals(Integer.valueOf(2), countsByShape.get("select * from patient_appointment where uuid in (?...)"));
+    }
+
+    @Test
+    public void shouldReportStatementsRepeatedMoreThanThreshold() {
+        SqlStatementStatistics statistics = SqlStatementCounter.start();
+        for (int i = 0; i < 5; i++) {
+            interceptor.onPrepareStatement("select * from person_name where person_id=?");
+        }
+        interceptor.onPrepareStatement("select * from patient_appointment");
+
+        Map<String, Integer> repeatedStatements = statistics.getRepeatedStatements(4);
+
+        assertEquals(1, repeatedStatements.size());
+        assertEquals(Integer.valueOf(5), repeatedStatements.get("select * from person_name where person_id=?"));
+        assertTrue(statistics.getRepeatedStatements(5).isEmpty());
+    }
+
+    @Test
+    public void shouldAccumulateExecutionTime() {
+        SqlStatementStatistics statistics = SqlStatementCounter.start();
+
+        SqlStatementCounter.statementExecuted(3000000);
+        SqlStatementCounter.statementExecuted(2000000);
+
+        assertEquals(5, statistics.getExecutionMillis());
+    }
+}
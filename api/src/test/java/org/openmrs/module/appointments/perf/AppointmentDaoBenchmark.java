@@ -0,0 +1,270 @@
+package org.openmrs.module.appointments.perf;
+
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Patient;
+import org.openmrs.module.appointments.BaseIntegrationTest;
+import org.openmrs.module.appointments.dao.AppointmentAuditDao;
+import org.openmrs.module.appointments.dao.AppointmentDao;
+import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentAudit;
+import org.openmrs.module.appointments.model.AppointmentKind;
+import org.openmrs.module.appointments.model.AppointmentSearch;
+import org.openmrs.module.appointments.model.AppointmentService;
+import org.openmrs.module.appointments.model.AppointmentServiceType;
+import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Times every {@link AppointmentDao} and {@link AppointmentAuditDao} method against the data set built by
+ * {@link SyntheticDataGenerator}. It is not picked up by the default build; run it explicitly with
+ * <pre>
+ * mvn -pl api test -Dtest=AppointmentDaoBenchmark -DargLine=-Xmx4g -Dappointments.perf.appointments=1000000
+ * </pre>
+ * {@code appointments.perf.warmup} and {@code appointments.perf.iterations} control the number of calls per method.
+ * {@link #timeReadOnlySearches} compares the same searches in read-write and read-only transactions.
+ */
+public class AppointmentDaoBenchmark extends BaseIntegrationTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @Autowired
+    AppointmentDao appointmentDao;
+
+    @Autowired
+    AppointmentAuditDao appointmentAuditDao;
+
+    @Autowired
+    SessionFactory sessionFactory;
+
+    private SyntheticDataGenerator generator;
+
+    private final int warmup = Integer.getInteger(SyntheticDataGenerator.PROPERTY_PREFIX + "warmup", 5);
+
+    private final int iterations = Integer.getInteger(SyntheticDataGenerator.PROPERTY_PREFIX + "iterations", 20);
+
+    private final Random random = new Random(1);
+
+    @Before
+    public void setUp() {
+        generator = SyntheticDataGenerator.fromSystemProperties();
+        long start = System.nanoTime();
+        generator.generate(sessionFactory.getCurrentSession());
+        System.out.println(String.format("Generated %s in %d ms", generator, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    @Test
+    public void timeDaoMethods() {
+        Date anchor = generator.getAnchorDate();
+        BenchmarkReport report = new BenchmarkReport("AppointmentDao / AppointmentAuditDao at " + generator);
+
+        time(report, "AppointmentDao.getAllAppointments(day)", i -> appointmentDao.getAllAppointments(new Date(anchor.getTime() - (i % 7) * DAY)));
+        time(report, "AppointmentDao.getAllAppointments(null)", i -> appointmentDao.getAllAppointments(null), 1);
+        time(report, "AppointmentDao.getAppointmentByUuid", i -> appointmentDao.getAppointmentByUuid(randomAppointmentUuid()));
+        time(report, "AppointmentDao.getAppointmentsByUuids(100)", i -> appointmentDao.getAppointmentsByUuids(randomAppointmentUuids(100)));
+        time(report, "AppointmentDao.getPatientsByUuids(100)", i -> appointmentDao.getPatientsByUuids(randomPatientUuids(100)));
+        time(report, "AppointmentDao.search(Appointment)", i -> appointmentDao.search(searchTemplate()));
+        time(report, "AppointmentDao.search(AppointmentSearch week)", i -> appointmentDao.search(weekSearch(anchor, i)));
+        time(report, "AppointmentDao.getAllAppointmentsInDateRange(week)", i -> appointmentDao.getAllAppointmentsInDateRange(
+                new Date(anchor.getTime() - (i % 4) * 7 * DAY), new Date(anchor.getTime() - ((i % 4) * 7 - 7) * DAY)));
+        time(report, "AppointmentDao.getAppointmentsForService(week)", i -> appointmentDao.getAppointmentsForService(
+                service(i), anchor, new Date(anchor.getTime() + 7 * DAY),
+                Arrays.asList(AppointmentStatus.Completed, AppointmentStatus.Scheduled, AppointmentStatus.CheckedIn, AppointmentStatus.Missed)));
+        time(report, "AppointmentDao.getAllFutureAppointmentsForService", i -> appointmentDao.getAllFutureAppointmentsForService(service(i)));
+        time(report, "AppointmentDao.getAllFutureAppointmentsForServiceType", i -> appointmentDao.getAllFutureAppointmentsForServiceType(serviceType(i)));
+        time(report, "AppointmentDao.save(Appointment)", i -> {
+            appointmentDao.save(newAppointment(i));
+            return null;
+        });
+        time(report, "AppointmentDao.save(List<Appointment> x100)", i -> {
+            List<Appointment> appointments = new ArrayList<>();
+            for (int j = 0; j < 100; j++) {
+                appointments.add(newAppointment(i * 100 + j));
+            }
+            appointmentDao.save(appointments);
+            return null;
+        });
+
+        time(report, "AppointmentAuditDao.getAppointmentHistoryForAppointment", i -> appointmentAuditDao.getAppointmentHistoryForAppointment(randomAppointment()));
+        time(report, "AppointmentAuditDao.getPriorStatusChangeEvent", i -> appointmentAuditDao.getPriorStatusChangeEvent(randomAppointment()));
+        time(report, "AppointmentAuditDao.save(AppointmentAudit)", i -> {
+            appointmentAuditDao.save(newAudit(randomAppointment()));
+            sessionFactory.getCurrentSession().flush();
+            return null;
+        });
+        time(report, "AppointmentAuditDao.save(List<AppointmentAudit> x100)", i -> {
+            List<AppointmentAudit> audits = new ArrayList<>();
+            for (int j = 0; j < 100; j++) {
+                audits.add(newAudit(randomAppointment()));
+            }
+            appointmentAuditDao.save(audits);
+            return null;
+        });
+
+        System.out.println(report);
+    }
+
+    @Test
+    public void timeReadOnlySearches() {
+        Date anchor = generator.getAnchorDate();
+        BenchmarkReport report = new BenchmarkReport("Searches of up to 10k rows, read-write vs read-only, at " + generator,
+                "rows", "retained KB");
+
+        for (boolean readOnly : new boolean[]{false, true}) {
+            String mode = readOnly ? " read-only" : " read-write";
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+            try {
+                timeWithMemory(report, "AppointmentDao.getAllAppointments(null)" + mode, i -> appointmentDao.getAllAppointments(null));
+                timeWithMemory(report, "AppointmentDao.search(AppointmentSearch year)" + mode, i -> {
+                    AppointmentSearch appointmentSearch = new AppointmentSearch();
+                    appointmentSearch.setStartDate(new Date(anchor.getTime() - 365 * DAY));
+                    appointmentSearch.setEndDate(anchor);
+                    return appointmentDao.search(appointmentSearch);
+                });
+            } finally {
+                TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+            }
+        }
+
+        System.out.println(report);
+    }
+
+    private void time(BenchmarkReport report, String name, IntFunction<Object> operation) {
+        time(report, name, operation, iterations);
+    }
+
+    private void time(BenchmarkReport report, String name, IntFunction<Object> operation, int measured) {
+        for (int i = 0; i < Math.min(warmup, measured); i++) {
+            operation.apply(i);
+            sessionFactory.getCurrentSession().flush();
+            sessionFactory.getCurrentSession().clear();
+        }
+        long[] nanos = new long[measured];
+        long rows = 0;
+        for (int i = 0; i < measured; i++) {
+            long start = System.nanoTime();
+            Object result = operation.apply(i);
+            sessionFactory.getCurrentSession().flush();
+            nanos[i] = System.nanoTime() - start;
+            rows += result instanceof Collection ? ((Collection) result).size() : result != null ? 1 : 0;
+            sessionFactory.getCurrentSession().clear();
+        }
+        report.add(name, nanos, rows / measured);
+    }
+
+    /**
+     * Like {@link #time}, flushing after each call as the end of the transaction would, and also reporting the heap
+     * held by the session after the call, which includes the dirty-checking snapshots of modifiable entities.
+     */
+    private void timeWithMemory(BenchmarkReport report, String name, IntFunction<Object> operation) {
+        int measured = Math.max(1, iterations / 4);
+        for (int i = 0; i < Math.min(warmup, measured); i++) {
+            operation.apply(i);
+            sessionFactory.getCurrentSession().flush();
+            sessionFactory.getCurrentSession().clear();
+        }
+        long[] nanos = new long[measured];
+        long rows = 0;
+        long retained = 0;
+        for (int i = 0; i < measured; i++) {
+            long before = usedHeap();
+            long start = System.nanoTime();
+            Object result = operation.apply(i);
+            sessionFactory.getCurrentSession().flush();
+            nanos[i] = System.nanoTime() - start;
+            retained += usedHeap() - before;
+            rows += result instanceof Collection ? ((Collection) result).size() : result != null ? 1 : 0;
+            sessionFactory.getCurrentSession().clear();
+        }
+        report.add(name, nanos, rows / measured, retained / measured / 1024);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private String randomAppointmentUuid() {
+        return generator.getAppointmentUuid(random.nextInt(generator.getAppointments()));
+    }
+
+    private List<String> randomAppointmentUuids(int count) {
+        List<String> uuids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            uuids.add(randomAppointmentUuid());
+        }
+        return uuids;
+    }
+
+    private List<String> randomPatientUuids(int count) {
+        List<String> uuids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            uuids.add(generator.getPatientUuid(random.nextInt(generator.getPatients())));
+        }
+        return uuids;
+    }
+
+    private Appointment randomAppointment() {
+        Appointment appointment = appointmentDao.getAppointmentByUuid(randomAppointmentUuid());
+        assertNotNull(appointment);
+        return appointment;
+    }
+
+    private AppointmentService service(int i) {
+        return (AppointmentService) sessionFactory.getCurrentSession().get(AppointmentService.class, generator.getServiceId(i % generator.getServices()));
+    }
+
+    private AppointmentServiceType serviceType(int i) {
+        return (AppointmentServiceType) sessionFactory.getCurrentSession().get(AppointmentServiceType.class,
+                generator.getServiceTypeId(i % generator.getServices(), 0));
+    }
+
+    private Appointment searchTemplate() {
+        Appointment appointment = new Appointment();
+        appointment.setService(service(random.nextInt(generator.getServices())));
+        appointment.setStatus(AppointmentStatus.Scheduled);
+        return appointment;
+    }
+
+    private AppointmentSearch weekSearch(Date anchor, int i) {
+        AppointmentSearch appointmentSearch = new AppointmentSearch();
+        appointmentSearch.setStartDate(new Date(anchor.getTime() - (i % 4) * 7 * DAY));
+        appointmentSearch.setEndDate(new Date(anchor.getTime() - ((i % 4) * 7 - 7) * DAY));
+        return appointmentSearch;
+    }
+
+    private Appointment newAppointment(int i) {
+        Date start = new Date(generator.getAnchorDate().getTime() + (i % 30) * DAY + TimeUnit.HOURS.toMillis(10));
+        Appointment appointment = new Appointment();
+        appointment.setPatient((Patient) sessionFactory.getCurrentSession().load(Patient.class, generator.getPatientId(i % generator.getPatients())));
+        appointment.setService(service(i));
+        appointment.setStartDateTime(start);
+        appointment.setEndDateTime(new Date(start.getTime() + TimeUnit.MINUTES.toMillis(15)));
+        appointment.setAppointmentKind(AppointmentKind.Scheduled);
+        appointment.setStatus(AppointmentStatus.Scheduled);
+        return appointment;
+    }
+
+    private AppointmentAudit newAudit(Appointment appointment) {
+        AppointmentAudit appointmentAudit = new AppointmentAudit();
+        appointmentAudit.setAppointment(appointment);
+        appointmentAudit.setStatus(appointment.getStatus());
+        return appointmentAudit;
+    }
+}
@@ -0,0 +1,68 @@
+package org.openmrs.module.appointments.perf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects latency samples per operation and renders them as a fixed-width table. Extra columns can be attached to
+ * each row, e.g. rows returned or SQL statements per call.
+ */
+public class BenchmarkReport {
+
+    private final String title;
+
+    private final List<String> extraColumns;
+
+    private final List<String> lines = new ArrayList<>();
+
+    public BenchmarkReport(String title, String... extraColumns) {
+        this.title = title;
+        this.extraColumns = extraColumns.length == 0 ? Arrays.asList("rows") : Arrays.asList(extraColumns);
+    }
+
+    public void add(String name, long[] nanos, Object... extraValues) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long sample : sorted) {
+            total += sample;
+        }
+        StringBuilder line = new StringBuilder(String.format("%-60s %8d %10.2f %10.2f %10.2f %10.2f %10.2f",
+                name, sorted.length, millis(sorted.length == 0 ? 0 : total / sorted.length),
+                millis(percentile(sorted, 50)), millis(percentile(sorted, 95)), millis(percentile(sorted, 99)),
+                millis(sorted.length == 0 ? 0 : sorted[sorted.length - 1])));
+        for (Object extraValue : extraValues) {
+            line.append(String.format(" %12s", extraValue instanceof Double ? String.format("%.1f", extraValue) : extraValue));
+        }
+        lines.add(line.toString());
+    }
+
+    public static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(title).append('\n');
+        report.append(String.format("%-60s %8s %10s %10s %10s %10s %10s", "operation", "calls", "mean ms", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        for (String extraColumn : extraColumns) {
+            report.append(String.format(" %12s", extraColumn));
+        }
+        report.append('\n');
+        for (String line : lines) {
+            report.append(line).append('\n');
+        }
+        return report.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
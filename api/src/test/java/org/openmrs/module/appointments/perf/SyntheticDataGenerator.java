@@ -0,0 +1,398 @@
+package org.openmrs.module.appointments.perf;
+
+import org.hibernate.Session;
+import org.openmrs.module.appointments.model.AppointmentKind;
+import org.openmrs.module.appointments.model.AppointmentStatus;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills the test database with a large, deterministic data set through plain JDBC batches. Volumes are read from
+ * {@code appointments.perf.*} system properties, for example
+ * {@code -Dappointments.perf.appointments=1000000 -Dappointments.perf.services=200 -Dappointments.perf.audits=5000000}.
+ * <p>
+ * Every row id and uuid is derived from its index, so callers can address generated data without querying for it.
+ * Appointment dates are spread over {@code appointments.perf.pastDays} before and
+ * {@code appointments.perf.futureDays} after the anchor date ({@code appointments.perf.anchorDate}, yyyy-MM-dd,
+ * today by default), skipping Sundays, with past appointments mostly Completed or Missed and future ones mostly
+ * Scheduled. Services are picked with a skew so that a few of them carry most of the load.
+ */
+public class SyntheticDataGenerator {
+
+    public static final String PROPERTY_PREFIX = "appointments.perf.";
+
+    public static final int ID_OFFSET = 1000000;
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int CREATOR = 1;
+    private static final int IDENTIFIER_TYPE = 1;
+    private static final int SERVICE_TYPES_PER_SERVICE = 3;
+    private static final int SLOTS_PER_DAY = 32;
+
+    private static final AppointmentStatus[] PAST_STATUSES = {AppointmentStatus.Completed, AppointmentStatus.Missed,
+            AppointmentStatus.Cancelled, AppointmentStatus.CheckedIn, AppointmentStatus.Scheduled};
+    private static final int[] PAST_STATUS_WEIGHTS = {60, 75, 90, 95, 100};
+    private static final AppointmentStatus[] FUTURE_STATUSES = {AppointmentStatus.Scheduled, AppointmentStatus.Cancelled};
+    private static final int[] FUTURE_STATUS_WEIGHTS = {90, 100};
+
+    private static final String INSERT_LOCATION = "INSERT INTO location (location_id, name, creator, date_created, retired, uuid) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_PROVIDER = "INSERT INTO provider (provider_id, name, identifier, creator, date_created, retired, uuid) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_PERSON = "INSERT INTO person (person_id, gender, birthdate, birthdate_estimated, dead, deathdate_estimated, creator, date_created, voided, uuid) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_PERSON_NAME = "INSERT INTO person_name (person_name_id, preferred, person_id, given_name, family_name, creator, date_created, voided, uuid) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_PATIENT = "INSERT INTO patient (patient_id, allergy_status, creator, date_created, voided) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_PATIENT_IDENTIFIER = "INSERT INTO patient_identifier (patient_identifier_id, patient_id, identifier, identifier_type, preferred, location_id, creator, date_created, voided, uuid) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SPECIALITY = "INSERT INTO appointment_speciality (speciality_id, name, creator, date_created, uuid) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_SERVICE = "INSERT INTO appointment_service (appointment_service_id, name, description, start_time, end_time, max_appointments_limit, duration_mins, color, location_id, speciality_id, creator, date_created, voided, uuid) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SERVICE_TYPE = "INSERT INTO appointment_service_type (appointment_service_type_id, appointment_service_id, name, duration_mins, creator, date_created, voided, uuid) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_APPOINTMENT = "INSERT INTO patient_appointment (patient_appointment_id, appointment_number, patient_id, appointment_service_id, appointment_service_type_id, provider_id, location_id, start_date_time, end_date_time, appointment_kind, status, comments, creator, date_created, voided, uuid) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_AUDIT = "INSERT INTO patient_appointment_audit (patient_appointment_audit_id, appointment_id, status, notes, creator, date_created, voided, uuid) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final long seed;
+    private final int locations;
+    private final int providers;
+    private final int patients;
+    private final int services;
+    private final int appointments;
+    private final int audits;
+    private final int pastDays;
+    private final int futureDays;
+    private final java.util.Date anchorDate;
+
+    public SyntheticDataGenerator(long seed, int locations, int providers, int patients, int services, int appointments,
+                                  int audits, int pastDays, int futureDays, java.util.Date anchorDate) {
+        this.seed = seed;
+        this.locations = locations;
+        this.providers = providers;
+        this.patients = patients;
+        this.services = services;
+        this.appointments = appointments;
+        this.audits = audits;
+        this.pastDays = pastDays;
+        this.futureDays = futureDays;
+        this.anchorDate = startOfDay(anchorDate);
+    }
+
+    public static SyntheticDataGenerator fromSystemProperties() {
+        return new SyntheticDataGenerator(
+                Long.getLong(PROPERTY_PREFIX + "seed", 20170315L),
+                Integer.getInteger(PROPERTY_PREFIX + "locations", 20),
+                Integer.getInteger(PROPERTY_PREFIX + "providers", 100),
+                Integer.getInteger(PROPERTY_PREFIX + "patients", 20000),
+                Integer.getInteger(PROPERTY_PREFIX + "services", 200),
+                Integer.getInteger(PROPERTY_PREFIX + "appointments", 100000),
+                Integer.getInteger(PROPERTY_PREFIX + "audits", 250000),
+                Integer.getInteger(PROPERTY_PREFIX + "pastDays", 300),
+                Integer.getInteger(PROPERTY_PREFIX + "futureDays", 60),
+                parseAnchorDate(System.getProperty(PROPERTY_PREFIX + "anchorDate")));
+    }
+
+    public void generate(Session session) {
+        session.flush();
+        session.doWork(this::generate);
+        session.clear();
+    }
+
+    public void generate(Connection connection) throws SQLException {
+        Timestamp created = new Timestamp(anchorDate.getTime() - TimeUnit.DAYS.toMillis(pastDays + 1));
+        Random random = new Random(seed);
+
+        insert(connection, INSERT_LOCATION, locations, (statement, i) -> {
+            statement.setInt(1, getLocationId(i));
+            statement.setString(2, "Location " + i);
+            statement.setInt(3, CREATOR);
+            statement.setTimestamp(4, created);
+            statement.setBoolean(5, false);
+            statement.setString(6, getLocationUuid(i));
+        });
+        insert(connection, INSERT_PROVIDER, providers, (statement, i) -> {
+            statement.setInt(1, getProviderId(i));
+            statement.setString(2, "Provider " + i);
+            statement.setString(3, "PRV" + i);
+            statement.setInt(4, CREATOR);
+            statement.setTimestamp(5, created);
+            statement.setBoolean(6, false);
+            statement.setString(7, getProviderUuid(i));
+        });
+        insert(connection, INSERT_PERSON, patients, (statement, i) -> {
+            statement.setInt(1, getPatientId(i));
+            statement.setString(2, random.nextBoolean() ? "M" : "F");
+            statement.setDate(3, new Date(created.getTime() - TimeUnit.DAYS.toMillis(random.nextInt(80 * 365))));
+            statement.setBoolean(4, false);
+            statement.setBoolean(5, false);
+            statement.setBoolean(6, false);
+            statement.setInt(7, CREATOR);
+            statement.setTimestamp(8, created);
+            statement.setBoolean(9, false);
+            statement.setString(10, getPatientUuid(i));
+        });
+        insert(connection, INSERT_PERSON_NAME, patients, (statement, i) -> {
+            statement.setInt(1, getPatientId(i));
+            statement.setBoolean(2, true);
+            statement.setInt(3, getPatientId(i));
+            statement.setString(4, "Given" + i);
+            statement.setString(5, "Family" + i);
+            statement.setInt(6, CREATOR);
+            statement.setTimestamp(7, created);
+            statement.setBoolean(8, false);
+            statement.setString(9, uuid(3, i));
+        });
+        insert(connection, INSERT_PATIENT, patients, (statement, i) -> {
+            statement.setInt(1, getPatientId(i));
+            statement.setString(2, "Unknown");
+            statement.setInt(3, CREATOR);
+            statement.setTimestamp(4, created);
+            statement.setBoolean(5, false);
+        });
+        insert(connection, INSERT_PATIENT_IDENTIFIER, patients, (statement, i) -> {
+            statement.setInt(1, getPatientId(i));
+            statement.setInt(2, getPatientId(i));
+            statement.setString(3, getPatientIdentifier(i));
+            statement.setInt(4, IDENTIFIER_TYPE);
+            statement.setBoolean(5, true);
+            statement.setInt(6, getLocationId(i % locations));
+            statement.setInt(7, CREATOR);
+            statement.setTimestamp(8, created);
+            statement.setBoolean(9, false);
+            statement.setString(10, uuid(4, i));
+        });
+        insert(connection, INSERT_SPECIALITY, services, (statement, i) -> {
+            statement.setInt(1, getServiceId(i));
+            statement.setString(2, "Speciality " + i);
+            statement.setInt(3, CREATOR);
+            statement.setTimestamp(4, created);
+            statement.setString(5, uuid(5, i));
+        });
+        insert(connection, INSERT_SERVICE, services, (statement, i) -> {
+            statement.setInt(1, getServiceId(i));
+            statement.setString(2, "Service " + i);
+            statement.setString(3, "Synthetic service " + i);
+            statement.setTime(4, Time.valueOf("09:00:00"));
+            statement.setTime(5, Time.valueOf("17:00:00"));
+            statement.setInt(6, 40);
+            statement.setInt(7, getServiceDuration(i));
+            statement.setString(8, "#0000ff");
+            statement.setInt(9, getLocationId(i % locations));
+            statement.setInt(10, getServiceId(i));
+            statement.setInt(11, CREATOR);
+            statement.setTimestamp(12, created);
+            statement.setBoolean(13, false);
+            statement.setString(14, getServiceUuid(i));
+        });
+        insert(connection, INSERT_SERVICE_TYPE, services * SERVICE_TYPES_PER_SERVICE, (statement, i) -> {
+            statement.setInt(1, ID_OFFSET + i);
+            statement.setInt(2, getServiceId(i / SERVICE_TYPES_PER_SERVICE));
+            statement.setString(3, "Service type " + i);
+            statement.setInt(4, 15 * (i % SERVICE_TYPES_PER_SERVICE + 1));
+            statement.setInt(5, CREATOR);
+            statement.setTimestamp(6, created);
+            statement.setBoolean(7, false);
+            statement.setString(8, uuid(7, i));
+        });
+
+        Calendar calendar = Calendar.getInstance();
+        insert(connection, INSERT_APPOINTMENT, appointments, (statement, i) -> {
+            int service = pickService(random);
+            int dayOffset = random.nextInt(pastDays + futureDays + 1) - pastDays;
+            calendar.setTime(anchorDate);
+            calendar.add(Calendar.DAY_OF_MONTH, dayOffset);
+            if (calendar.get(Calendar.DAY_OF_WEEK) == Calendar.SUNDAY) {
+                calendar.add(Calendar.DAY_OF_MONTH, 1);
+            }
+            calendar.set(Calendar.HOUR_OF_DAY, 9);
+            calendar.add(Calendar.MINUTE, 15 * random.nextInt(SLOTS_PER_DAY));
+            long start = calendar.getTimeInMillis();
+            boolean past = start < anchorDate.getTime();
+            boolean withServiceType = random.nextInt(3) > 0;
+
+            statement.setInt(1, getAppointmentId(i));
+            statement.setString(2, String.format("%06d", i));
+            statement.setInt(3, getPatientId(random.nextInt(patients)));
+            statement.setInt(4, getServiceId(service));
+            if (withServiceType) {
+                statement.setInt(5, ID_OFFSET + service * SERVICE_TYPES_PER_SERVICE + random.nextInt(SERVICE_TYPES_PER_SERVICE));
+            } else {
+                statement.setNull(5, java.sql.Types.INTEGER);
+            }
+            if (random.nextInt(5) > 0) {
+                statement.setInt(6, getProviderId(random.nextInt(providers)));
+            } else {
+                statement.setNull(6, java.sql.Types.INTEGER);
+            }
+            statement.setInt(7, getLocationId(service % locations));
+            statement.setTimestamp(8, new Timestamp(start));
+            statement.setTimestamp(9, new Timestamp(start + TimeUnit.MINUTES.toMillis(getServiceDuration(service))));
+            statement.setString(10, (random.nextInt(100) < 85 ? AppointmentKind.Scheduled : AppointmentKind.WalkIn).name());
+            statement.setString(11, past ? pick(random, PAST_STATUSES, PAST_STATUS_WEIGHTS).name()
+                    : pick(random, FUTURE_STATUSES, FUTURE_STATUS_WEIGHTS).name());
+            statement.setString(12, random.nextInt(10) == 0 ? "Synthetic comment " + i : null);
+            statement.setInt(13, CREATOR);
+            statement.setTimestamp(14, new Timestamp(Math.min(start, anchorDate.getTime()) - TimeUnit.DAYS.toMillis(random.nextInt(30) + 1)));
+            statement.setBoolean(15, random.nextInt(50) == 0);
+            statement.setString(16, getAppointmentUuid(i));
+        });
+        insert(connection, INSERT_AUDIT, audits, (statement, i) -> {
+            statement.setInt(1, ID_OFFSET + i);
+            statement.setInt(2, getAppointmentId(i < appointments ? i : random.nextInt(appointments)));
+            statement.setString(3, pick(random, PAST_STATUSES, PAST_STATUS_WEIGHTS).name());
+            statement.setString(4, random.nextInt(20) == 0 ? "Synthetic note " + i : null);
+            statement.setInt(5, CREATOR);
+            statement.setTimestamp(6, new Timestamp(anchorDate.getTime() - TimeUnit.MINUTES.toMillis(random.nextInt(pastDays * 24 * 60 + 1))));
+            statement.setBoolean(7, false);
+            statement.setString(8, uuid(9, i));
+        });
+    }
+
+    public int getLocationId(int index) {
+        return ID_OFFSET + index;
+    }
+
+    public String getLocationUuid(int index) {
+        return uuid(1, index);
+    }
+
+    public int getProviderId(int index) {
+        return ID_OFFSET + index;
+    }
+
+    public String getProviderUuid(int index) {
+        return uuid(2, index);
+    }
+
+    public int getPatientId(int index) {
+        return ID_OFFSET + index;
+    }
+
+    public String getPatientUuid(int index) {
+        return uuid(0, index);
+    }
+
+    public String getPatientIdentifier(int index) {
+        return "SYN" + (ID_OFFSET + index);
+    }
+
+    public int getServiceId(int index) {
+        return ID_OFFSET + index;
+    }
+
+    public String getServiceUuid(int index) {
+        return uuid(6, index);
+    }
+
+    public int getServiceTypeId(int serviceIndex, int typeIndex) {
+        return ID_OFFSET + serviceIndex * SERVICE_TYPES_PER_SERVICE + typeIndex;
+    }
+
+    public int getAppointmentId(int index) {
+        return ID_OFFSET + index;
+    }
+
+    public String getAppointmentUuid(int index) {
+        return uuid(8, index);
+    }
+
+    public int getLocations() {
+        return locations;
+    }
+
+    public int getProviders() {
+        return providers;
+    }
+
+    public int getPatients() {
+        return patients;
+    }
+
+    public int getServices() {
+        return services;
+    }
+
+    public int getAppointments() {
+        return appointments;
+    }
+
+    public int getAudits() {
+        return audits;
+    }
+
+    public java.util.Date getAnchorDate() {
+        return anchorDate;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("seed=%d, locations=%d, providers=%d, patients=%d, services=%d, appointments=%d, audits=%d, anchorDate=%tF",
+                seed, locations, providers, patients, services, appointments, audits, anchorDate);
+    }
+
+    private int getServiceDuration(int serviceIndex) {
+        return 15 * (serviceIndex % 3 + 1);
+    }
+
+    private int pickService(Random random) {
+        double skewed = random.nextDouble();
+        return (int) (services * skewed * skewed);
+    }
+
+    private String uuid(int entity, int index) {
+        return new UUID(seed * 31 + entity, index).toString();
+    }
+
+    private static <T> T pick(Random random, T[] values, int[] cumulativeWeights) {
+        int roll = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return values[i];
+            }
+        }
+        return values[values.length - 1];
+    }
+
+    private static void insert(Connection connection, String sql, int count, RowWriter rowWriter) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < count; i++) {
+                rowWriter.write(statement, i);
+                statement.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private static java.util.Date parseAnchorDate(String anchorDate) {
+        if (anchorDate == null) {
+            return new java.util.Date();
+        }
+        try {
+            return new SimpleDateFormat("yyyy-MM-dd").parse(anchorDate);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid " + PROPERTY_PREFIX + "anchorDate " + anchorDate, e);
+        }
+    }
+
+    private static java.util.Date startOfDay(java.util.Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTime();
+    }
+
+    private interface RowWriter {
+        void write(PreparedStatement statement, int index) throws SQLException;
+    }
+}
@@ -14,6 +14,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import java.text.ParseException;
+import java.util.Collections;
 import java.util.Date;
 
 import static org.junit.Assert.assertEquals;
@@ -99,6 +100,19 @@ public class AppointmentsServiceTest extends BaseModuleWebContextSensitiveTest {
         assertNotNull(appointmentsService.getAllAppointments(null));
     }
 
+    @Test
+    public void shouldSaveAppointmentsInBulkIfUserHasManagePrivilege() throws Exception {
+        Context.authenticate(manageUser, manageUserPassword);
+        Appointment appointment = getSampleAppointment();
+        assertEquals(1, appointmentsService.bulkValidateAndSave(Collections.singletonList(appointment)).size());
+    }
+
+    @Test(expected = APIAuthenticationException.class)
+    public void shouldNotSaveAppointmentsInBulkIfUserHasReadOnlyPrivilege() {
+        Context.authenticate(readOnlyUser, readOnlyUserPassword);
+        appointmentsService.bulkValidateAndSave(Collections.singletonList(new Appointment()));
+    }
+
     @Test(expected = APIAuthenticationException.class)
     public void shouldNotGetAllAppointmentsIfUserDoesNotHaveAnyPrivilege() {
         Context.authenticate(noPrivilegeUser, noPrivilegeUserPassword);
@@ -0,0 +1,143 @@
+package org.openmrs.module.appointments.service.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.openmrs.api.APIAuthenticationException;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.UserContext;
+import org.openmrs.module.appointments.model.AppointmentDayCounts;
+import org.openmrs.module.appointments.model.AppointmentService;
+import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.service.AppointmentsService;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+@PrepareForTest(Context.class)
+@RunWith(PowerMockRunner.class)
+public class AppointmentSummaryServiceImplTest {
+
+    @Mock
+    private AppointmentsService appointmentsService;
+
+    @Mock
+    private UserContext userContext;
+
+    private AppointmentSummaryServiceImpl appointmentSummaryService;
+
+    private final Date startDate = new Date(0);
+
+    private final Date endDate = new Date(86400000);
+
+    private final List<AppointmentStatus> statuses = Collections.singletonList(AppointmentStatus.Scheduled);
+
+    @Before
+    public void setUp() {
+        PowerMockito.mockStatic(Context.class);
+        when(Context.getUserContext()).thenReturn(userContext);
+        appointmentSummaryService = new AppointmentSummaryServiceImpl();
+        appointmentSummaryService.setAppointmentsService(appointmentsService);
+        appointmentSummaryService.setThreads(3);
+    }
+
+    @After
+    public void tearDown() {
+        appointmentSummaryService.shutdown();
+    }
+
+    @Test
+    public void shouldCountServicesOnPoolThreadsAsCallingUser() throws Exception {
+        List<AppointmentService> appointmentServices = new ArrayList<>();
+        List<AppointmentDayCounts> dayCounts = new ArrayList<>();
+        Set<Thread> countingThreads = ConcurrentHashMap.newKeySet();
+        for (int id = 1; id <= 5; id++) {
+            AppointmentService appointmentService = createAppointmentService(id);
+            AppointmentDayCounts serviceDayCounts = new AppointmentDayCounts(startDate, endDate);
+            appointmentServices.add(appointmentService);
+            dayCounts.add(serviceDayCounts);
+            when(appointmentsService.getAppointmentDayCounts(appointmentService, startDate, endDate, statuses)).then(invocation -> {
+                countingThreads.add(Thread.currentThread());
+                return serviceDayCounts;
+            });
+        }
+
+        Map<Integer, AppointmentDayCounts> dayCountsByService = appointmentSummaryService.getDayCountsByService(appointmentServices,
+                startDate, endDate, statuses);
+
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), new ArrayList<>(dayCountsByService.keySet()));
+        for (int index = 0; index < dayCounts.size(); index++) {
+            assertSame(dayCounts.get(index), dayCountsByService.get(index + 1));
+        }
+        assertFalse(countingThreads.contains(Thread.currentThread()));
+        PowerMockito.verifyStatic(atLeastOnce());
+        Context.setUserContext(userContext);
+        PowerMockito.verifyStatic(atLeastOnce());
+        Context.closeSession();
+    }
+
+    @Test
+    public void shouldCountSingleServiceOnCallingThread() {
+        AppointmentService appointmentService = createAppointmentService(1);
+        AppointmentDayCounts dayCounts = new AppointmentDayCounts(startDate, endDate);
+        when(appointmentsService.getAppointmentDayCounts(appointmentService, startDate, endDate, statuses)).thenReturn(dayCounts);
+
+        Map<Integer, AppointmentDayCounts> dayCountsByService = appointmentSummaryService.getDayCountsByService(
+                Collections.singletonList(appointmentService), startDate, endDate, statuses);
+
+        assertSame(dayCounts, dayCountsByService.get(1));
+        PowerMockito.verifyStatic(never());
+        Context.openSession();
+    }
+
+    @Test(expected = APIAuthenticationException.class)
+    public void shouldRethrowFailureOfPoolThread() {
+        when(appointmentsService.getAppointmentDayCounts(any(AppointmentService.class), eq(startDate), eq(endDate),
+                anyListOf(AppointmentStatus.class))).thenThrow(new APIAuthenticationException("Privileges required"));
+
+        appointmentSummaryService.getDayCountsByService(Arrays.asList(createAppointmentService(1), createAppointmentService(2)),
+                startDate, endDate, statuses);
+    }
+
+    @Test
+    public void shouldCountAppointmentsPerDayOfStart() {
+        AppointmentDayCounts dayCounts = new AppointmentDayCounts(startDate, endDate);
+        Date lastDay = dayCounts.getDay(dayCounts.getDays() - 1);
+
+        dayCounts.add(startDate, AppointmentStatus.Scheduled);
+        dayCounts.add(lastDay, AppointmentStatus.Missed);
+        dayCounts.add(new Date(lastDay.getTime() + 86400000L), AppointmentStatus.Scheduled);
+
+        assertEquals(1, dayCounts.getAppointmentCount(0));
+        assertEquals(0, dayCounts.getMissedAppointmentCount(0));
+        assertEquals(1, dayCounts.getAppointmentCount(dayCounts.getDays() - 1));
+        assertEquals(1, dayCounts.getMissedAppointmentCount(dayCounts.getDays() - 1));
+    }
+
+    private AppointmentService createAppointmentService(int id) {
+        AppointmentService appointmentService = new AppointmentService();
+        appointmentService.setAppointmentServiceId(id);
+        return appointmentService;
+    }
+}
@@ -16,17 +16,24 @@ import org.openmrs.Provider;
 import org.openmrs.User;
 import org.openmrs.api.APIAuthenticationException;
 import org.openmrs.api.APIException;
+import org.openmrs.api.AdministrationService;
 import org.openmrs.api.context.Context;
 import org.openmrs.messagesource.MessageSourceService;
 import org.openmrs.module.appointments.dao.AppointmentAuditDao;
+import org.openmrs.module.appointments.dao.AppointmentDailyCountDao;
 import org.openmrs.module.appointments.dao.AppointmentDao;
+import org.openmrs.module.appointments.event.AppointmentChange;
 import org.openmrs.module.appointments.model.Appointment;
 import org.openmrs.module.appointments.model.AppointmentAudit;
+import org.openmrs.module.appointments.model.AppointmentBatchItem;
 import org.openmrs.module.appointments.model.AppointmentKind;
 import org.openmrs.module.appointments.model.AppointmentSearch;
 import org.openmrs.module.appointments.model.AppointmentService;
 import org.openmrs.module.appointments.model.AppointmentServiceType;
 import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.model.AppointmentStatusChange;
+import org.openmrs.module.appointments.model.AppointmentTimeline;
+import org.openmrs.module.appointments.model.AppointmentTimelineEntry;
 import org.openmrs.module.appointments.util.DateUtil;
 import org.openmrs.module.appointments.validator.AppointmentStatusChangeValidator;
 import org.openmrs.module.appointments.validator.AppointmentValidator;
@@ -38,16 +45,23 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -78,9 +92,15 @@ public class AppointmentsServiceImplTest {
     @Spy
     private List<AppointmentValidator> appointmentValidators = new ArrayList<>();
 
+    @Spy
+    private PatientTimelineCache patientTimelineCache = new PatientTimelineCache();
+
     @Mock
     private AppointmentAuditDao appointmentAuditDao;
 
+    @Mock
+    private AppointmentDailyCountDao appointmentDailyCountDao;
+
     @Mock
     private User user;
 
@@ -93,6 +113,9 @@ public class AppointmentsServiceImplTest {
     @Mock
     private MessageSourceService messageSourceService;
 
+    @Mock
+    private AdministrationService administrationService;
+
     @InjectMocks
     private AppointmentsServiceImpl appointmentsService;
 
@@ -131,6 +154,70 @@ public class AppointmentsServiceImplTest {
         verify(appointmentDao, times(1)).save(appointment);
     }
 
+    @Test
+    public void shouldApplyDailyCountChangesOnSaveAppointment() {
+        Appointment appointment = new Appointment();
+        appointment.setPatient(new Patient());
+        appointment.setService(new AppointmentService());
+        appointment.setStartDateTime(new Date());
+        appointment.setEndDateTime(new Date());
+        appointment.setAppointmentKind(AppointmentKind.Scheduled);
+
+        appointmentsService.validateAndSave(appointment);
+
+        verify(appointmentDailyCountDao, times(1)).applyPendingChanges();
+    }
+
+    @Test
+    public void shouldGetDailyCountsFromDaoWhenEnabled() {
+        AppointmentService appointmentService = new AppointmentService();
+        Date startDate = new Date();
+        List<AppointmentStatus> statuses = Collections.singletonList(AppointmentStatus.Scheduled);
+        when(Context.getAdministrationService()).thenReturn(administrationService);
+        when(administrationService.getGlobalProperty("appointments.useDailyCounts", "false")).thenReturn("true");
+
+        appointmentsService.getDailyCounts(appointmentService, startDate, startDate, statuses);
+
+        verify(appointmentDailyCountDao, times(1)).getDailyCounts(appointmentService, startDate, startDate, statuses);
+        verify(appointmentDailyCountDao, never()).countAppointments(appointmentService, startDate, startDate, statuses);
+    }
+
+    @Test
+    public void shouldCountAppointmentsWhenDailyCountsAreNotEnabled() {
+        AppointmentService appointmentService = new AppointmentService();
+        Date startDate = new Date();
+        List<AppointmentStatus> statuses = Collections.singletonList(AppointmentStatus.Scheduled);
+        when(Context.getAdministrationService()).thenReturn(administrationService);
+        when(administrationService.getGlobalProperty("appointments.useDailyCounts", "false")).thenReturn("false");
+
+        appointmentsService.getDailyCounts(appointmentService, startDate, startDate, statuses);
+
+        verify(appointmentDailyCountDao, times(1)).countAppointments(appointmentService, startDate, startDate, statuses);
+        verify(appointmentDailyCountDao, never()).getDailyCounts(appointmentService, startDate, startDate, statuses);
+    }
+
+    @Test
+    public void shouldCountAppointmentsWhenDailyCountsAreStale() {
+        AppointmentService appointmentService = new AppointmentService();
+        Date startDate = new Date();
+        List<AppointmentStatus> statuses = Collections.singletonList(AppointmentStatus.Scheduled);
+        when(Context.getAdministrationService()).thenReturn(administrationService);
+        when(administrationService.getGlobalProperty("appointments.useDailyCounts", "false")).thenReturn("true");
+        when(appointmentDailyCountDao.isStale()).thenReturn(true);
+
+        appointmentsService.getDailyCounts(appointmentService, startDate, startDate, statuses);
+
+        verify(appointmentDailyCountDao, times(1)).countAppointments(appointmentService, startDate, startDate, statuses);
+        verify(appointmentDailyCountDao, never()).getDailyCounts(appointmentService, startDate, startDate, statuses);
+    }
+
+    @Test
+    public void shouldRebuildDailyCounts() {
+        appointmentsService.rebuildDailyCounts();
+
+        verify(appointmentDailyCountDao, times(1)).rebuild();
+    }
+
     @Test
     public void shouldCreateAuditEventOnSaveAppointment() throws ParseException {
         Appointment appointment = new Appointment();
@@ -163,43 +250,6 @@ public class AppointmentsServiceImplTest {
         verify(appointmentDao, times(1)).getAllAppointments(null);
     }
 
-    @Test
-    public void shouldNotGetAppointmentsWithVoidedService() {
-        List<Appointment> appointments = new ArrayList<>();
-        Appointment appointment1 = new Appointment();
-        AppointmentService appointmentService1 = new AppointmentService();
-        appointmentService1.setVoided(true);
-        appointment1.setService(appointmentService1);
-        Appointment appointment2 = new Appointment();
-        appointment2.setService(new AppointmentService());
-        appointments.add(appointment1);
-        appointments.add(appointment2);
-        when(appointmentDao.getAllAppointments(null)).thenReturn(appointments);
-        List<Appointment> appointmentList = appointmentsService.getAllAppointments(null);
-        verify(appointmentDao, times(1)).getAllAppointments(null);
-        assertEquals(appointmentList.size(), 1);
-    }
-
-    @Test
-    public void shouldNotGetAppointmentsWithVoidedServiceType() {
-        List<Appointment> appointments = new ArrayList<>();
-        Appointment appointment1 = new Appointment();
-        AppointmentService appointmentService1 = new AppointmentService();
-        AppointmentServiceType appointmentServiceType1 = new AppointmentServiceType();
-        appointmentServiceType1.setVoided(true);
-        appointmentService1.setServiceTypes(Collections.singleton(appointmentServiceType1));
-        appointment1.setService(appointmentService1);
-        appointment1.setServiceType(appointmentServiceType1);
-        appointments.add(appointment1);
-        Appointment appointment2 = new Appointment();
-        appointment2.setService(new AppointmentService());
-        appointments.add(appointment2);
-        when(appointmentDao.getAllAppointments(null)).thenReturn(appointments);
-        List<Appointment> appointmentList = appointmentsService.getAllAppointments(null);
-        verify(appointmentDao, times(1)).getAllAppointments(null);
-        assertEquals(appointmentList.size(), 1);
-    }
-
     @Test
     public void shouldGetAllFutureAppointmentsForTheGivenAppointmentService() {
         AppointmentService appointmentService = new AppointmentService();
@@ -507,4 +557,217 @@ public class AppointmentsServiceImplTest {
             Context.hasPrivilege(RESET_APPOINTMENT_STATUS_PRIVILEGE);
         }
     }
+
+    @Test
+    public void shouldSaveOnlyValidAppointmentsInBulkAndReportErrorsPerAppointment() throws ParseException {
+        Appointment validAppointment = createAppointmentForBulkSave();
+        Appointment invalidAppointment = createAppointmentForBulkSave();
+        String errorMessage = "Appointment cannot be created without Patient";
+        doAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            if (args[0] == invalidAppointment) {
+                ((List) args[1]).add(errorMessage);
+            }
+            return null;
+        }).when(appointmentValidator).validate(any(Appointment.class), anyListOf(String.class));
+
+        List<AppointmentBatchItem> batchItems = appointmentsService.bulkValidateAndSave(Arrays.asList(validAppointment, invalidAppointment));
+
+        assertEquals(2, batchItems.size());
+        assertTrue(batchItems.get(0).isSuccessful());
+        assertEquals(validAppointment, batchItems.get(0).getAppointment());
+        assertFalse(batchItems.get(1).isSuccessful());
+        assertEquals(Collections.singletonList(errorMessage), batchItems.get(1).getErrors());
+        ArgumentCaptor<List> appointmentsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(appointmentDao, times(1)).save(appointmentsCaptor.capture());
+        assertEquals(Collections.singletonList(validAppointment), appointmentsCaptor.getValue());
+        ArgumentCaptor<List> auditsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(appointmentAuditDao, times(1)).save(auditsCaptor.capture());
+        assertEquals(1, auditsCaptor.getValue().size());
+        assertEquals(validAppointment, ((AppointmentAudit) auditsCaptor.getValue().get(0)).getAppointment());
+    }
+
+    @Test
+    public void shouldReportMissingRequiredFieldsPerAppointmentInBulkSave() throws ParseException {
+        Appointment firstValidAppointment = createAppointmentForBulkSave();
+        Appointment appointmentWithoutDates = createAppointmentForBulkSave();
+        appointmentWithoutDates.setStartDateTime(null);
+        appointmentWithoutDates.setEndDateTime(null);
+        Appointment appointmentEndingBeforeStart = createAppointmentForBulkSave();
+        appointmentEndingBeforeStart.setEndDateTime(DateUtil.convertToDate("2108-08-15T09:30:00.0Z", DateUtil.DateFormatType.UTC));
+        Appointment appointmentWithoutKind = createAppointmentForBulkSave();
+        appointmentWithoutKind.setAppointmentKind(null);
+        Appointment appointmentWithoutPatientAndService = createAppointmentForBulkSave();
+        appointmentWithoutPatientAndService.setPatient(null);
+        appointmentWithoutPatientAndService.setService(null);
+        Appointment secondValidAppointment = createAppointmentForBulkSave();
+
+        List<AppointmentBatchItem> batchItems = appointmentsService.bulkValidateAndSave(Arrays.asList(firstValidAppointment,
+                appointmentWithoutDates, appointmentEndingBeforeStart, appointmentWithoutKind,
+                appointmentWithoutPatientAndService, secondValidAppointment));
+
+        assertTrue(batchItems.get(0).isSuccessful());
+        assertEquals(Arrays.asList("Appointment cannot be created without Start Date Time",
+                "Appointment cannot be created without End Date Time"), batchItems.get(1).getErrors());
+        assertEquals(Collections.singletonList("Appointment cannot be created with End Date Time before Start Date Time"),
+                batchItems.get(2).getErrors());
+        assertEquals(Collections.singletonList("Appointment cannot be created without Appointment Kind"), batchItems.get(3).getErrors());
+        assertEquals(Arrays.asList("Appointment cannot be created without Patient",
+                "Appointment cannot be created without Service"), batchItems.get(4).getErrors());
+        assertTrue(batchItems.get(5).isSuccessful());
+        verify(appointmentValidator, times(2)).validate(any(Appointment.class), anyListOf(String.class));
+        ArgumentCaptor<List> appointmentsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(appointmentDao, times(1)).save(appointmentsCaptor.capture());
+        assertEquals(Arrays.asList(firstValidAppointment, secondValidAppointment), appointmentsCaptor.getValue());
+        ArgumentCaptor<List> auditsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(appointmentAuditDao, times(1)).save(auditsCaptor.capture());
+        assertEquals(2, auditsCaptor.getValue().size());
+    }
+
+    @Test
+    public void shouldReportPrivilegeErrorPerAppointmentInBulkSave() throws ParseException {
+        String exceptionMessage = "exception message";
+        Appointment appointment = createAppointmentForBulkSave();
+        Person person = new Person();
+        when(provider.getPerson()).thenReturn(person);
+        appointment.setProvider(provider);
+        when(Context.getAuthenticatedUser()).thenReturn(user);
+        when(user.getPerson()).thenReturn(new Person());
+        when(Context.hasPrivilege("Manage Appointments")).thenReturn(false);
+        when(Context.getMessageSourceService()).thenReturn(messageSourceService);
+        when(messageSourceService.getMessage(any(), any(), any())).thenReturn(exceptionMessage);
+
+        List<AppointmentBatchItem> batchItems = appointmentsService.bulkValidateAndSave(Collections.singletonList(appointment));
+
+        assertEquals(Collections.singletonList(exceptionMessage), batchItems.get(0).getErrors());
+        verify(appointmentValidator, never()).validate(any(Appointment.class), anyListOf(String.class));
+        verify(appointmentDao, never()).save(anyListOf(Appointment.class));
+        verify(appointmentAuditDao, never()).save(anyListOf(AppointmentAudit.class));
+    }
+
+    @Test
+    public void shouldChangeStatusOfAppointmentsInBulkAndReportFailuresPerStatusChange() {
+        Appointment checkedInAppointment = new Appointment();
+        checkedInAppointment.setUuid("checkedInUuid");
+        checkedInAppointment.setStatus(AppointmentStatus.Scheduled);
+        Appointment invalidAppointment = new Appointment();
+        invalidAppointment.setUuid("invalidUuid");
+        invalidAppointment.setStatus(AppointmentStatus.Missed);
+        when(appointmentDao.getAppointmentsByUuids(anyCollectionOf(String.class))).thenReturn(Arrays.asList(checkedInAppointment, invalidAppointment));
+        String errorMessage = "Appointment status can not be changed from Missed to Completed";
+        doAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            if (args[0] == invalidAppointment) {
+                ((List) args[2]).add(errorMessage);
+            }
+            return null;
+        }).when(statusChangeValidator).validate(any(Appointment.class), any(AppointmentStatus.class), anyListOf(String.class));
+        Date onDate = new Date();
+
+        List<AppointmentBatchItem> batchItems = appointmentsService.bulkChangeStatus(Arrays.asList(
+                new AppointmentStatusChange("checkedInUuid", "CheckedIn", onDate),
+                new AppointmentStatusChange("invalidUuid", "Completed", null),
+                new AppointmentStatusChange("unknownUuid", "Completed", null),
+                new AppointmentStatusChange("checkedInUuid", "Unknown", null)));
+
+        assertEquals(4, batchItems.size());
+        assertTrue(batchItems.get(0).isSuccessful());
+        assertEquals(AppointmentStatus.CheckedIn, checkedInAppointment.getStatus());
+        assertEquals(Collections.singletonList(errorMessage), batchItems.get(1).getErrors());
+        assertEquals(AppointmentStatus.Missed, invalidAppointment.getStatus());
+        assertEquals(Collections.singletonList("Appointment does not exist"), batchItems.get(2).getErrors());
+        assertEquals(Collections.singletonList("Invalid appointment status Unknown"), batchItems.get(3).getErrors());
+        verify(appointmentDao, times(1)).getAppointmentsByUuids(anyCollectionOf(String.class));
+        verify(appointmentDao, times(1)).save(Collections.singletonList(checkedInAppointment));
+        ArgumentCaptor<List> auditsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(appointmentAuditDao, times(1)).save(auditsCaptor.capture());
+        AppointmentAudit appointmentAudit = (AppointmentAudit) auditsCaptor.getValue().get(0);
+        assertEquals(checkedInAppointment, appointmentAudit.getAppointment());
+        assertEquals(AppointmentStatus.CheckedIn, appointmentAudit.getStatus());
+        assertEquals(onDate.toInstant().toString(), appointmentAudit.getNotes());
+    }
+
+    @Test
+    public void shouldNotResetStatusInBulkWithoutResetPrivilege() {
+        String exceptionMessage = "exception message";
+        Appointment appointment = new Appointment();
+        appointment.setUuid("appointmentUuid");
+        appointment.setStatus(AppointmentStatus.Missed);
+        when(appointmentDao.getAppointmentsByUuids(anyCollectionOf(String.class))).thenReturn(Collections.singletonList(appointment));
+        when(Context.hasPrivilege(RESET_APPOINTMENT_STATUS_PRIVILEGE)).thenReturn(false);
+        when(Context.getMessageSourceService()).thenReturn(messageSourceService);
+        when(messageSourceService.getMessage(any(), any(), any())).thenReturn(exceptionMessage);
+
+        List<AppointmentBatchItem> batchItems = appointmentsService.bulkChangeStatus(
+                Collections.singletonList(new AppointmentStatusChange("appointmentUuid", "Scheduled", null)));
+
+        assertEquals(Collections.singletonList(exceptionMessage), batchItems.get(0).getErrors());
+        assertEquals(AppointmentStatus.Missed, appointment.getStatus());
+        verify(messageSourceService).getMessage(exceptionCode, new Object[]{RESET_APPOINTMENT_STATUS_PRIVILEGE}, null);
+        verify(appointmentDao, never()).save(anyListOf(Appointment.class));
+        verify(appointmentAuditDao, never()).save(anyListOf(AppointmentAudit.class));
+    }
+
+    @Test
+    public void shouldReadPatientTimelineOnceAndLimitIt() {
+        Patient patient = new Patient(1);
+        AppointmentTimelineEntry pastEntry = mock(AppointmentTimelineEntry.class);
+        AppointmentTimelineEntry firstUpcomingEntry = mock(AppointmentTimelineEntry.class);
+        AppointmentTimelineEntry secondUpcomingEntry = mock(AppointmentTimelineEntry.class);
+        when(appointmentDao.getPatientTimeline(any(Patient.class), any(Date.class), anyInt(), anyInt())).thenReturn(
+                new AppointmentTimeline(Collections.singletonList(pastEntry), Arrays.asList(firstUpcomingEntry, secondUpcomingEntry)));
+
+        AppointmentTimeline timeline = appointmentsService.getPatientTimeline(patient, 5, 1);
+        AppointmentTimeline cachedTimeline = appointmentsService.getPatientTimeline(patient, 0, 2);
+
+        assertEquals(Collections.singletonList(pastEntry), timeline.getPast());
+        assertEquals(Collections.singletonList(firstUpcomingEntry), timeline.getUpcoming());
+        assertTrue(cachedTimeline.getPast().isEmpty());
+        assertEquals(Arrays.asList(firstUpcomingEntry, secondUpcomingEntry), cachedTimeline.getUpcoming());
+        verify(appointmentDao, times(1)).getPatientTimeline(patient,
+                Date.from(LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant()),
+                AppointmentsServiceImpl.MAX_TIMELINE_LIMIT, AppointmentsServiceImpl.MAX_TIMELINE_LIMIT);
+    }
+
+    @Test
+    public void shouldReadPatientTimelineAgainAfterItsAppointmentsChanged() {
+        Patient patient = new Patient(1);
+        when(appointmentDao.getPatientTimeline(any(Patient.class), any(Date.class), anyInt(), anyInt())).thenReturn(
+                new AppointmentTimeline(Collections.emptyList(), Collections.emptyList()));
+
+        appointmentsService.getPatientTimeline(patient, 5, 50);
+        patientTimelineCache.appointmentsChanged(Collections.singletonList(new AppointmentChange("appointmentUuid", 1,
+                AppointmentStatus.Scheduled, null, null, false)));
+        appointmentsService.getPatientTimeline(patient, 5, 50);
+
+        verify(appointmentDao, times(2)).getPatientTimeline(any(Patient.class), any(Date.class), anyInt(), anyInt());
+    }
+
+    @Test
+    public void shouldGetAppointmentsChangedSinceFromDao() {
+        Date since = new Date(1000L);
+        Date until = new Date(2000L);
+        List<Appointment> appointments = Collections.singletonList(new Appointment());
+        when(appointmentDao.getAppointmentsChangedSince(since, 5, until, 10)).thenReturn(appointments);
+
+        assertEquals(appointments, appointmentsService.getAppointmentsChangedSince(since, 5, until, 10));
+    }
+
+    @Test
+    public void shouldGetAppointmentsByUuidsFromDao() {
+        List<Appointment> appointments = Collections.singletonList(new Appointment());
+        when(appointmentDao.getAppointmentsByUuids(Collections.singletonList("appointmentUuid"))).thenReturn(appointments);
+
+        assertEquals(appointments, appointmentsService.getAppointmentsByUuids(Collections.singletonList("appointmentUuid")));
+    }
+
+    private Appointment createAppointmentForBulkSave() throws ParseException {
+        Appointment appointment = new Appointment();
+        appointment.setPatient(new Patient());
+        appointment.setService(new AppointmentService());
+        appointment.setStartDateTime(DateUtil.convertToDate("2108-08-15T10:00:00.0Z", DateUtil.DateFormatType.UTC));
+        appointment.setEndDateTime(DateUtil.convertToDate("2108-08-15T10:30:00.0Z", DateUtil.DateFormatType.UTC));
+        appointment.setAppointmentKind(AppointmentKind.Scheduled);
+        return appointment;
+    }
 }
@@ -0,0 +1,68 @@
+package org.openmrs.module.appointments.service.impl;
+
+import org.junit.Test;
+import org.openmrs.module.appointments.event.AppointmentChange;
+import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.model.AppointmentTimeline;
+
+import java.time.LocalDate;
+import java.util.Collections;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class PatientTimelineCacheTest {
+
+    private final PatientTimelineCache patientTimelineCache = new PatientTimelineCache();
+
+    private final AppointmentTimeline timeline = new AppointmentTimeline(Collections.emptyList(), Collections.emptyList());
+
+    private final LocalDate today = LocalDate.of(2026, 10, 19);
+
+    @Test
+    public void shouldReturnCachedTimelineForTheSameDay() {
+        patientTimelineCache.put(1, today, timeline, patientTimelineCache.getVersion());
+
+        assertSame(timeline, patientTimelineCache.get(1, today));
+        assertNull(patientTimelineCache.get(2, today));
+    }
+
+    @Test
+    public void shouldNotReturnTimelineCachedOnAnotherDay() {
+        patientTimelineCache.put(1, today, timeline, patientTimelineCache.getVersion());
+
+        assertNull(patientTimelineCache.get(1, today.plusDays(1)));
+    }
+
+    @Test
+    public void shouldNotReturnExpiredTimeline() throws InterruptedException {
+        patientTimelineCache.setTimeToLiveSeconds(0);
+        patientTimelineCache.put(1, today, timeline, patientTimelineCache.getVersion());
+        Thread.sleep(5);
+
+        assertNull(patientTimelineCache.get(1, today));
+    }
+
+    @Test
+    public void shouldDropTimelineOfPatientWhoseAppointmentsChanged() {
+        patientTimelineCache.put(1, today, timeline, patientTimelineCache.getVersion());
+        patientTimelineCache.put(2, today, timeline, patientTimelineCache.getVersion());
+
+        patientTimelineCache.appointmentsChanged(Collections.singletonList(new AppointmentChange("appointmentUuid", 1,
+                AppointmentStatus.Scheduled, null, null, false)));
+
+        assertNull(patientTimelineCache.get(1, today));
+        assertSame(timeline, patientTimelineCache.get(2, today));
+    }
+
+    @Test
+    public void shouldNotCacheTimelineReadWhileAppointmentsChanged() {
+        long version = patientTimelineCache.getVersion();
+        patientTimelineCache.appointmentsChanged(Collections.singletonList(new AppointmentChange("appointmentUuid", 2,
+                AppointmentStatus.Scheduled, null, null, false)));
+
+        patientTimelineCache.put(1, today, timeline, version);
+
+        assertNull(patientTimelineCache.get(1, today));
+    }
+}
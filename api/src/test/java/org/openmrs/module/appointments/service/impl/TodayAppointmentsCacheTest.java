@@ -0,0 +1,235 @@
+package org.openmrs.module.appointments.service.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Location;
+import org.openmrs.module.appointments.event.AppointmentChange;
+import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentService;
+import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.model.ResultList;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TodayAppointmentsCacheTest {
+
+    private final TodayAppointmentsCache<String> todayAppointmentsCache = new TodayAppointmentsCache<>();
+
+    private final LocalDate today = LocalDate.of(2026, 10, 19);
+
+    private Appointment firstAppointment;
+
+    private Appointment secondAppointment;
+
+    @Before
+    public void setUp() {
+        firstAppointment = createAppointment("firstUuid", "locationUuid", today);
+        secondAppointment = createAppointment("secondUuid", "otherLocationUuid", today);
+        assertNull(todayAppointmentsCache.takeChangedUuids(today));
+        todayAppointmentsCache.load(today, Arrays.asList(firstAppointment, secondAppointment), Appointment::getUuid);
+    }
+
+    @Test
+    public void shouldReturnLoadedAppointmentsOfLocation() {
+        assertEquals(Arrays.asList("firstUuid", "secondUuid"), todayAppointmentsCache.getAppointments(today, null, null));
+        assertEquals(Collections.singletonList("secondUuid"),
+                todayAppointmentsCache.getAppointments(today, "otherLocationUuid", "serviceUuid"));
+        assertTrue(todayAppointmentsCache.getAppointments(today, null, "otherServiceUuid").isEmpty());
+    }
+
+    @Test
+    public void shouldReplaceChangedAppointmentsInPlace() {
+        Appointment newAppointment = createAppointment("newUuid", "locationUuid", today);
+        todayAppointmentsCache.appointmentsChanged(Arrays.asList(createChange("firstUuid"), createChange("newUuid")));
+
+        Collection<String> changedUuids = todayAppointmentsCache.takeChangedUuids(today);
+        todayAppointmentsCache.update(today, changedUuids, Arrays.asList(firstAppointment, newAppointment),
+                appointment -> appointment.getUuid() + "-changed");
+
+        assertEquals(Arrays.asList("firstUuid-changed", "secondUuid", "newUuid-changed"),
+                todayAppointmentsCache.getAppointments(today, null, null));
+        assertTrue(todayAppointmentsCache.takeChangedUuids(today).isEmpty());
+    }
+
+    @Test
+    public void shouldDropAppointmentsVoidedOrMovedToAnotherDay() {
+        firstAppointment.setVoided(true);
+        Appointment movedAppointment = createAppointment("secondUuid", "otherLocationUuid", today.plusDays(1));
+        todayAppointmentsCache.appointmentsChanged(Arrays.asList(createChange("firstUuid"), createChange("secondUuid")));
+
+        todayAppointmentsCache.update(today, todayAppointmentsCache.takeChangedUuids(today),
+                Arrays.asList(firstAppointment, movedAppointment), Appointment::getUuid);
+
+        assertTrue(todayAppointmentsCache.getAppointments(today, null, null).isEmpty());
+    }
+
+    @Test
+    public void shouldLoadAgainOnNextDay() {
+        LocalDate tomorrow = today.plusDays(1);
+
+        assertNull(todayAppointmentsCache.getAppointments(tomorrow, null, null));
+        assertNull(todayAppointmentsCache.takeChangedUuids(tomorrow));
+        assertNull(todayAppointmentsCache.getAppointments(today, null, null));
+    }
+
+    @Test
+    public void shouldNotUseLoadThatWasCleared() {
+        todayAppointmentsCache.clear();
+        assertNull(todayAppointmentsCache.takeChangedUuids(today));
+        todayAppointmentsCache.clear();
+
+        todayAppointmentsCache.load(today, Collections.singletonList(firstAppointment), Appointment::getUuid);
+
+        assertNull(todayAppointmentsCache.getAppointments(today, null, null));
+    }
+
+    @Test
+    public void shouldLoadOnceForReadersComingWhileItLoads() throws Exception {
+        LocalDate tomorrow = today.plusDays(1);
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch loadReleased = new CountDownLatch(1);
+        TestSource source = new TestSource(Collections.singletonList(createAppointment("firstUuid", "locationUuid", tomorrow))) {
+            @Override
+            public List<Appointment> getAppointments(LocalDate day) {
+                loadStarted.countDown();
+                try {
+                    loadReleased.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getAppointments(day);
+            }
+        };
+        ExecutorService readers = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<String>> firstRead = readers.submit(() -> todayAppointmentsCache.getAppointments(tomorrow, null, null, source));
+            assertTrue(loadStarted.await(10, TimeUnit.SECONDS));
+            Future<List<String>> secondRead = readers.submit(() -> todayAppointmentsCache.getAppointments(tomorrow, null, null, source));
+            loadReleased.countDown();
+
+            assertEquals(Collections.singletonList("firstUuid"), firstRead.get(10, TimeUnit.SECONDS));
+            assertEquals(Collections.singletonList("firstUuid"), secondRead.get(10, TimeUnit.SECONDS));
+        } finally {
+            readers.shutdownNow();
+        }
+        assertEquals(1, source.loads.get());
+    }
+
+    @Test
+    public void shouldReReadChangedAppointmentsFromSource() {
+        Appointment changedAppointment = createAppointment("firstUuid", "otherLocationUuid", today);
+        TestSource source = new TestSource(Collections.singletonList(changedAppointment));
+        todayAppointmentsCache.appointmentsChanged(Collections.singletonList(createChange("firstUuid")));
+
+        List<String> appointments = todayAppointmentsCache.getAppointments(today, "otherLocationUuid", null, source);
+
+        assertEquals(Arrays.asList("firstUuid", "secondUuid"), appointments);
+        assertEquals(0, source.loads.get());
+        assertEquals(Collections.singletonList("firstUuid"), source.readUuids);
+    }
+
+    @Test
+    public void shouldListLoadedAppointmentsOfLocationWithoutCachingTruncatedLoad() {
+        LocalDate tomorrow = today.plusDays(1);
+        TestSource source = new TestSource(new ResultList<>(Arrays.asList(createAppointment("firstUuid", "locationUuid", tomorrow),
+                createAppointment("secondUuid", "otherLocationUuid", tomorrow)), true));
+
+        List<String> appointments = todayAppointmentsCache.getAppointments(tomorrow, "locationUuid", null, source);
+
+        assertEquals(Collections.singletonList("firstUuid"), appointments);
+        assertTrue(ResultList.isTruncated(appointments));
+        assertNull(todayAppointmentsCache.getAppointments(tomorrow, null, null));
+        todayAppointmentsCache.getAppointments(tomorrow, "locationUuid", null, source);
+        assertEquals(2, source.loads.get());
+    }
+
+    @Test
+    public void shouldLoadAgainAfterChangedAppointmentsCouldNotBeRead() {
+        TestSource source = new TestSource(Collections.singletonList(firstAppointment)) {
+            @Override
+            public List<Appointment> getAppointmentsByUuids(Collection<String> uuids) {
+                throw new IllegalStateException("failed");
+            }
+        };
+        todayAppointmentsCache.appointmentsChanged(Collections.singletonList(createChange("firstUuid")));
+
+        try {
+            todayAppointmentsCache.getAppointments(today, null, null, source);
+            fail();
+        } catch (IllegalStateException e) {
+            assertNull(todayAppointmentsCache.getAppointments(today, null, null));
+        }
+        List<String> appointments = todayAppointmentsCache.getAppointments(today, null, null, source);
+
+        assertEquals(Collections.singletonList("firstUuid"), appointments);
+        assertFalse(ResultList.isTruncated(appointments));
+        assertEquals(1, source.loads.get());
+    }
+
+    private static class TestSource implements TodayAppointmentsCache.Source<String> {
+
+        private final List<Appointment> appointments;
+
+        private final AtomicInteger loads = new AtomicInteger();
+
+        private final List<String> readUuids = new ArrayList<>();
+
+        TestSource(List<Appointment> appointments) {
+            this.appointments = appointments;
+        }
+
+        @Override
+        public List<Appointment> getAppointments(LocalDate day) {
+            loads.incrementAndGet();
+            return appointments;
+        }
+
+        @Override
+        public List<Appointment> getAppointmentsByUuids(Collection<String> uuids) {
+            readUuids.addAll(uuids);
+            return appointments;
+        }
+
+        @Override
+        public Function<Appointment, String> mapperOf(List<Appointment> appointments) {
+            return Appointment::getUuid;
+        }
+    }
+
+    private Appointment createAppointment(String uuid, String locationUuid, LocalDate day) {
+        Appointment appointment = new Appointment();
+        appointment.setUuid(uuid);
+        Location location = new Location();
+        location.setUuid(locationUuid);
+        appointment.setLocation(location);
+        AppointmentService service = new AppointmentService();
+        service.setUuid("serviceUuid");
+        appointment.setService(service);
+        appointment.setStartDateTime(Date.from(day.atTime(10, 0).atZone(ZoneId.systemDefault()).toInstant()));
+        return appointment;
+    }
+
+    private AppointmentChange createChange(String appointmentUuid) {
+        return new AppointmentChange(appointmentUuid, 1, AppointmentStatus.Scheduled, null, null, false);
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.text.ParseException;
+import java.time.Instant;
 import java.util.Date;
 import java.util.Locale;
 import java.util.TimeZone;
@@ -50,4 +51,55 @@ public class DateUtilTest {
         assertNotNull(date);
         assertTrue(date.toString().contains(timeZoneShort));
     }
+
+    @Test
+    public void shouldParseMillisecondsAndIgnoreZoneDesignatorOfUTCDate() throws ParseException {
+        Date date = DateUtil.convertToLocalDateFromUTC("2017-03-15T16:57:09.123Z");
+        assertEquals(Instant.parse("2017-03-15T16:57:09.123Z"), date.toInstant());
+    }
+
+    @Test
+    public void shouldParseUTCDateWithoutFractionOfSecond() throws ParseException {
+        Date date = DateUtil.convertToLocalDateFromUTC("2017-03-15T16:57:09Z");
+        assertEquals(Instant.parse("2017-03-15T16:57:09Z"), date.toInstant());
+    }
+
+    @Test
+    public void shouldParseUTCDateWithSingleDigitFields() throws ParseException {
+        Date date = DateUtil.convertToLocalDateFromUTC("2017-3-5T6:57:09.5Z");
+        assertEquals(Instant.parse("2017-03-05T06:57:09.005Z"), date.toInstant());
+    }
+
+    @Test
+    public void shouldAddFractionDigitsBeyondThreeAsMillisecondsOfUTCDate() throws ParseException {
+        Date date = DateUtil.convertToLocalDateFromUTC("2017-03-15T16:57:09.1234Z");
+        assertEquals(Instant.parse("2017-03-15T16:57:10.234Z"), date.toInstant());
+    }
+
+    @Test(expected = ParseException.class)
+    public void shouldThrowParseExceptionForEmptyFractionOfSecond() throws ParseException {
+        DateUtil.convertToLocalDateFromUTC("2017-03-15T16:57:09.");
+    }
+
+    @Test(expected = ParseException.class)
+    public void shouldThrowParseExceptionForEmptyFractionOfSecondBeforeZoneDesignator() throws ParseException {
+        DateUtil.convertToLocalDateFromUTC("2017-03-15T16:57:09.Z");
+    }
+
+    @Test(expected = ParseException.class)
+    public void shouldThrowParseExceptionForDateInAnotherLayout() throws ParseException {
+        DateUtil.convertToLocalDateFromUTC("15/03/2017 16:57:09");
+    }
+
+    @Test(expected = ParseException.class)
+    public void shouldThrowParseExceptionForInvalidDate() throws ParseException {
+        DateUtil.convertToDate("2017-02-30T16:57:09.0Z", DateUtil.DateFormatType.UTC);
+    }
+
+    @Test
+    public void shouldFormatDateAsLocalDateString() throws ParseException {
+        Date date = DateUtil.convertToDate("2017-03-15T23:57:09.0Z", DateUtil.DateFormatType.UTC);
+        assertEquals("2017-03-15", DateUtil.convertToLocalDateString(date));
+        assertNull(DateUtil.convertToLocalDateString(null));
+    }
 }
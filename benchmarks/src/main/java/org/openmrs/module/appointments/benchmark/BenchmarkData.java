@@ -0,0 +1,161 @@
+package org.openmrs.module.appointments.benchmark;
+
+import org.openmrs.Location;
+import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.PersonName;
+import org.openmrs.Provider;
+import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentDayCounts;
+import org.openmrs.module.appointments.model.AppointmentKind;
+import org.openmrs.module.appointments.model.AppointmentService;
+import org.openmrs.module.appointments.model.AppointmentServiceType;
+import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.model.ServiceWeeklyAvailability;
+import org.openmrs.module.appointments.model.Speciality;
+
+import java.sql.Time;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds detached, fully populated model graphs for the benchmarks. The same seed always yields the same data,
+ * so runs are comparable across commits.
+ */
+public class BenchmarkData {
+
+    public static final long SEED = 20170315L;
+
+    private static final long START = 1489536000000L; // 2017-03-15T00:00:00Z
+
+    private static final AppointmentStatus[] STATUSES = AppointmentStatus.values();
+
+    private final Random random = new Random(SEED);
+
+    public List<AppointmentService> services(int count) {
+        List<AppointmentService> services = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            services.add(service(i));
+        }
+        return services;
+    }
+
+    public List<Appointment> appointments(int count, List<AppointmentService> services, int days) {
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            locations.add(location(i));
+        }
+        List<Provider> providers = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            providers.add(provider(i));
+        }
+        List<Appointment> appointments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            AppointmentService service = services.get(random.nextInt(services.size()));
+            long start = START + TimeUnit.DAYS.toMillis(random.nextInt(days)) + TimeUnit.MINUTES.toMillis(15 * random.nextInt(40));
+
+            Appointment appointment = new Appointment();
+            appointment.setAppointmentId(i + 1);
+            appointment.setAppointmentNumber(String.format("%04d", i));
+            appointment.setPatient(patient(i));
+            appointment.setService(service);
+            appointment.setServiceType(service.getServiceTypes().iterator().next());
+            appointment.setProvider(random.nextInt(4) == 0 ? null : providers.get(random.nextInt(providers.size())));
+            appointment.setLocation(locations.get(random.nextInt(locations.size())));
+            appointment.setStartDateTime(new Date(start));
+            appointment.setEndDateTime(new Date(start + TimeUnit.MINUTES.toMillis(15)));
+            appointment.setAppointmentKind(random.nextBoolean() ? AppointmentKind.Scheduled : AppointmentKind.WalkIn);
+            appointment.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+            appointment.setComments("comments " + i);
+            appointments.add(appointment);
+        }
+        return appointments;
+    }
+
+    /**
+     * Counts the appointments of each service per day, as the summary query does, over the days appointments were
+     * spread across.
+     */
+    public Map<AppointmentService, AppointmentDayCounts> dayCounts(List<Appointment> appointments, int days) {
+        Date firstDay = new Date(START);
+        Date lastDay = new Date(START + TimeUnit.DAYS.toMillis(days - 1));
+        Map<AppointmentService, AppointmentDayCounts> dayCounts = new LinkedHashMap<>();
+        for (Appointment appointment : appointments) {
+            dayCounts.computeIfAbsent(appointment.getService(), service -> new AppointmentDayCounts(firstDay, lastDay))
+                    .add(appointment.getStartDateTime(), appointment.getStatus());
+        }
+        return dayCounts;
+    }
+
+    private AppointmentService service(int index) {
+        AppointmentService service = new AppointmentService();
+        service.setAppointmentServiceId(index + 1);
+        service.setName("Service " + index);
+        service.setDescription("Description of service " + index);
+        service.setDurationMins(15);
+        service.setMaxAppointmentsLimit(30);
+        service.setStartTime(Time.valueOf("09:00:00"));
+        service.setEndTime(Time.valueOf("17:00:00"));
+        service.setColor("#00ff00");
+        service.setLocation(location(index));
+
+        Speciality speciality = new Speciality();
+        speciality.setSpecialityId(index + 1);
+        speciality.setName("Speciality " + index);
+        service.setSpeciality(speciality);
+
+        Set<ServiceWeeklyAvailability> availabilities = new HashSet<>();
+        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+            ServiceWeeklyAvailability availability = new ServiceWeeklyAvailability();
+            availability.setDayOfWeek(dayOfWeek);
+            availability.setStartTime(Time.valueOf("09:00:00"));
+            availability.setEndTime(Time.valueOf("13:00:00"));
+            availability.setMaxAppointmentsLimit(10);
+            availability.setService(service);
+            availabilities.add(availability);
+        }
+        service.setWeeklyAvailability(availabilities);
+
+        Set<AppointmentServiceType> serviceTypes = new LinkedHashSet<>();
+        for (int i = 0; i < 3; i++) {
+            AppointmentServiceType serviceType = new AppointmentServiceType();
+            serviceType.setName("Type " + i);
+            serviceType.setDuration(15 * (i + 1));
+            serviceType.setAppointmentService(service);
+            serviceTypes.add(serviceType);
+        }
+        service.setServiceTypes(serviceTypes);
+        return service;
+    }
+
+    private Patient patient(int index) {
+        Patient patient = new Patient(index + 1);
+        patient.addName(new PersonName("Given" + index, null, "Family" + index));
+        PatientIdentifier identifier = new PatientIdentifier();
+        identifier.setIdentifier("GAN" + (200000 + index));
+        identifier.setPreferred(true);
+        patient.addIdentifier(identifier);
+        return patient;
+    }
+
+    private Provider provider(int index) {
+        Provider provider = new Provider(index + 1);
+        provider.setName("Provider " + index);
+        return provider;
+    }
+
+    private Location location(int index) {
+        Location location = new Location(index + 1);
+        location.setName("Location " + index);
+        return location;
+    }
+}
@@ -0,0 +1,26 @@
+package org.openmrs.module.appointments.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks matching the given regular expressions (all of them by default) with the GC profiler
+ * attached, so every result carries gc.alloc.rate.norm (bytes allocated per operation) next to its throughput.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder optionsBuilder = new OptionsBuilder();
+        if (args.length == 0) {
+            optionsBuilder.include("org.openmrs.module.appointments.*");
+        }
+        for (String include : args) {
+            optionsBuilder.include(include);
+        }
+        Options options = optionsBuilder.addProfiler(GCProfiler.class).build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,50 @@
+package org.openmrs.module.appointments.service.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.module.appointments.benchmark.BenchmarkData;
+import org.openmrs.module.appointments.model.Appointment;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the audit payload serialisation done on every appointment save.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppointmentJsonBenchmark {
+
+    private AppointmentsServiceImpl appointmentsService;
+
+    private Method getAppointmentAsJsonString;
+
+    private Appointment appointment;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        BenchmarkData data = new BenchmarkData();
+        appointment = data.appointments(1, data.services(1), 1).get(0);
+        appointmentsService = new AppointmentsServiceImpl();
+        getAppointmentAsJsonString = AppointmentsServiceImpl.class.getDeclaredMethod("getAppointmentAsJsonString", Appointment.class);
+        getAppointmentAsJsonString.setAccessible(true);
+    }
+
+    @Benchmark
+    public Object getAppointmentAsJsonString() throws Exception {
+        return getAppointmentAsJsonString.invoke(appointmentsService, appointment);
+    }
+}
@@ -0,0 +1,91 @@
+package org.openmrs.module.appointments.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the shared {@link DateUtil} codec against the per-call {@link SimpleDateFormat} it replaced.
+ * The summary payload parses a date range and formats one key per day; the search payload parses a single
+ * start/end pair.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DateUtilBenchmark {
+
+    private static final String UTC_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSS";
+
+    private String summaryStart;
+    private String summaryEnd;
+    private String searchStart;
+    private String searchEnd;
+    private Date[] summaryKeys;
+
+    @Setup
+    public void setUp() throws ParseException {
+        summaryStart = "2017-03-12T18:30:00.000Z";
+        summaryEnd = "2017-03-19T18:29:59.999Z";
+        searchStart = "2017-03-15T04:30:00.0Z";
+        searchEnd = "2017-03-15T05:00:00.0Z";
+        summaryKeys = new Date[7];
+        Date start = DateUtil.convertToLocalDateFromUTC(summaryStart);
+        for (int i = 0; i < summaryKeys.length; i++) {
+            summaryKeys[i] = new Date(start.getTime() + TimeUnit.DAYS.toMillis(i));
+        }
+    }
+
+    @Benchmark
+    public void summaryPayload(Blackhole blackhole) throws ParseException {
+        blackhole.consume(DateUtil.convertToLocalDateFromUTC(summaryStart));
+        blackhole.consume(DateUtil.convertToLocalDateFromUTC(summaryEnd));
+        for (Date key : summaryKeys) {
+            blackhole.consume(DateUtil.convertToLocalDateString(key));
+        }
+    }
+
+    @Benchmark
+    public void summaryPayloadLegacy(Blackhole blackhole) throws ParseException {
+        blackhole.consume(legacyParseUTC(summaryStart));
+        blackhole.consume(legacyParseUTC(summaryEnd));
+        SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        for (Date key : summaryKeys) {
+            blackhole.consume(simpleDateFormat.format(key));
+        }
+    }
+
+    @Benchmark
+    public void searchPayload(Blackhole blackhole) throws ParseException {
+        blackhole.consume(DateUtil.convertToDate(searchStart, DateUtil.DateFormatType.UTC));
+        blackhole.consume(DateUtil.convertToDate(searchEnd, DateUtil.DateFormatType.UTC));
+    }
+
+    @Benchmark
+    public void searchPayloadLegacy(Blackhole blackhole) throws ParseException {
+        blackhole.consume(new SimpleDateFormat(UTC_PATTERN).parse(searchStart));
+        blackhole.consume(new SimpleDateFormat(UTC_PATTERN).parse(searchEnd));
+    }
+
+    private static Date legacyParseUTC(String dateString) throws ParseException {
+        SimpleDateFormat simpleDateFormat = new SimpleDateFormat(UTC_PATTERN);
+        simpleDateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return simpleDateFormat.parse(dateString);
+    }
+}
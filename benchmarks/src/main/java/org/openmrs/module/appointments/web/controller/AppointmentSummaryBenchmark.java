@@ -0,0 +1,57 @@
+package org.openmrs.module.appointments.web.controller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openmrs.module.appointments.benchmark.BenchmarkData;
+import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentDayCounts;
+import org.openmrs.module.appointments.model.AppointmentService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-service count maps built by {@link AppointmentController#getAllAppointmentsSummary} once the
+ * appointments of a week have been counted per day.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppointmentSummaryBenchmark {
+
+    @Param({"1000", "10000"})
+    private int appointmentCount;
+
+    private AppointmentController appointmentController;
+
+    private Map<AppointmentService, AppointmentDayCounts> dayCountsByService;
+
+    @Setup
+    public void setUp() {
+        BenchmarkData data = new BenchmarkData();
+        List<Appointment> appointments = data.appointments(appointmentCount, data.services(20), 7);
+        dayCountsByService = data.dayCounts(appointments, 7);
+        appointmentController = new AppointmentController();
+    }
+
+    @Benchmark
+    public void getAppointmentCountMapFromDayCounts(Blackhole blackhole) {
+        for (Map.Entry<AppointmentService, AppointmentDayCounts> entry : dayCountsByService.entrySet()) {
+            blackhole.consume(appointmentController.getAppointmentCountMapFromDayCounts(entry.getKey(), entry.getValue()));
+        }
+    }
+}
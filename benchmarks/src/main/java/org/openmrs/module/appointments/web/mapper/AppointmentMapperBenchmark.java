@@ -0,0 +1,48 @@
+package org.openmrs.module.appointments.web.mapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.module.appointments.benchmark.BenchmarkData;
+import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.web.contract.AppointmentDefaultResponse;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppointmentMapperBenchmark {
+
+    @Param({"1000", "10000"})
+    private int appointmentCount;
+
+    private AppointmentMapper appointmentMapper;
+
+    private List<Appointment> appointments;
+
+    @Setup
+    public void setUp() {
+        BenchmarkData data = new BenchmarkData();
+        appointments = data.appointments(appointmentCount, data.services(20), 7);
+        appointmentMapper = new AppointmentMapper();
+        appointmentMapper.appointmentServiceMapper = new AppointmentServiceMapper();
+    }
+
+    @Benchmark
+    public List<AppointmentDefaultResponse> constructResponse() {
+        return appointmentMapper.constructResponse(appointments);
+    }
+}
@@ -0,0 +1,46 @@
+package org.openmrs.module.appointments.web.mapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.module.appointments.benchmark.BenchmarkData;
+import org.openmrs.module.appointments.model.AppointmentService;
+import org.openmrs.module.appointments.web.contract.AppointmentServiceFullResponse;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppointmentServiceMapperBenchmark {
+
+    @Param({"10", "100"})
+    private int serviceCount;
+
+    private AppointmentServiceMapper appointmentServiceMapper;
+
+    private List<AppointmentService> services;
+
+    @Setup
+    public void setUp() {
+        services = new BenchmarkData().services(serviceCount);
+        appointmentServiceMapper = new AppointmentServiceMapper();
+    }
+
+    @Benchmark
+    public List<AppointmentServiceFullResponse> constructFullResponseForServiceList() {
+        return appointmentServiceMapper.constructFullResponseForServiceList(services);
+    }
+}
@@ -0,0 +1,72 @@
+package org.openmrs.module.appointments.web.admission;
+
+import org.openmrs.module.webservices.rest.web.RestUtil;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Limits the requests of each {@link EndpointClass} running at once. A request takes as many of its class' permits
+ * as it costs, waits up to the class' queue timeout for them and is rejected with an
+ * {@link AdmissionRejectedException} otherwise. Requests costing more wait for more permits to be free at once, so
+ * they are the first to be rejected when the class is busy.
+ */
+@Component
+public class AdmissionControl {
+
+    static final int DAYS_PER_COST_UNIT = 31;
+
+    private final Map<EndpointClass, Semaphore> permits = new EnumMap<>(EndpointClass.class);
+
+    public AdmissionControl() {
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            permits.put(endpointClass, new Semaphore(endpointClass.getCapacity()));
+        }
+    }
+
+    public <T> T admit(EndpointClass endpointClass, int cost, Supplier<T> request) {
+        int requiredPermits = Math.max(1, Math.min(cost, endpointClass.getCapacity()));
+        Semaphore semaphore = permits.get(endpointClass);
+        boolean admitted;
+        try {
+            admitted = semaphore.tryAcquire(requiredPermits, endpointClass.getQueueTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            throw new AdmissionRejectedException(endpointClass);
+        }
+        try {
+            return request.get();
+        } finally {
+            semaphore.release(requiredPermits);
+        }
+    }
+
+    /**
+     * @return one cost unit per started month of the range, or the highest cost when it is open ended
+     */
+    public static int costOfDateRange(Date startDate, Date endDate) {
+        if (startDate == null || endDate == null) {
+            return Integer.MAX_VALUE;
+        }
+        long days = Math.max(TimeUnit.MILLISECONDS.toDays(endDate.getTime() - startDate.getTime()), 0);
+        return (int) Math.min(days / DAYS_PER_COST_UNIT + 1, Integer.MAX_VALUE);
+    }
+
+    public static ResponseEntity<Object> rejectedResponse(AdmissionRejectedException exception) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Retry-After", String.valueOf(exception.getRetryAfterSeconds()));
+        return new ResponseEntity<>(RestUtil.wrapErrorResponse(exception, exception.getMessage()), headers,
+                HttpStatus.SERVICE_UNAVAILABLE);
+    }
+}
@@ -0,0 +1,15 @@
+package org.openmrs.module.appointments.web.admission;
+
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public AdmissionRejectedException(EndpointClass endpointClass) {
+        super("Too many " + endpointClass.name().toLowerCase() + " requests are in progress, please retry later");
+        this.retryAfterSeconds = endpointClass.getRetryAfterSeconds();
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
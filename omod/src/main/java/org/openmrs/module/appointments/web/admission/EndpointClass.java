@@ -0,0 +1,33 @@
+package org.openmrs.module.appointments.web.admission;
+
+/**
+ * Groups endpoints by the load they put on the database. Each class has its own capacity, so that a storm of
+ * expensive reads cannot delay cheap lookups or writes.
+ */
+public enum EndpointClass {
+    CHEAP(64, 500, 1),
+    EXPENSIVE(8, 2000, 5),
+    BULK(2, 1000, 10);
+
+    private final int capacity;
+    private final long queueTimeoutMillis;
+    private final int retryAfterSeconds;
+
+    EndpointClass(int capacity, long queueTimeoutMillis, int retryAfterSeconds) {
+        this.capacity = capacity;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getQueueTimeoutMillis() {
+        return queueTimeoutMillis;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
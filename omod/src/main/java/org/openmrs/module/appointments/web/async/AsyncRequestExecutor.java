@@ -0,0 +1,342 @@
+package org.openmrs.module.appointments.web.async;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.UserContext;
+import org.openmrs.module.appointments.metrics.SqlStatementCounter;
+import org.openmrs.module.appointments.metrics.SqlStatementStatistics;
+import org.openmrs.module.appointments.metrics.SqlStatementTimer;
+import org.openmrs.module.appointments.web.admission.AdmissionRejectedException;
+import org.openmrs.module.appointments.web.admission.EndpointClass;
+import org.openmrs.module.webservices.rest.web.RestUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.method.annotation.ExceptionHandlerMethodResolver;
+import org.springframework.web.servlet.mvc.annotation.AnnotationMethodHandlerAdapter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs expensive requests on a bounded pool of MAX_THREADS threads instead of the container's request thread, when
+ * the container supports asynchronous requests. The pool threads work with their own OpenMRS session as the user of
+ * the request, and write the response themselves, so {@link #execute} returns null to the request thread. Failures
+ * are answered by the @ExceptionHandler methods of the controller, as they are on the request thread, responses are
+ * written with the message converters of the handler adapter for the request's Accept header, and SQL statements are
+ * counted in the statistics of the request. When MAX_PENDING requests are already running or waiting for a thread,
+ * requests are rejected with an {@link AdmissionRejectedException}. A request still running after TIMEOUT_MILLIS is
+ * answered with 503 Service Unavailable, and its result is discarded.
+ * <p>
+ * Requests run on the request thread as before when the container, or one of its filters, does not support
+ * asynchronous requests. The OpenMRS 2.1 dispatcher servlet is not declared async-supported, so this is the case
+ * unless the web.xml declares it; a warning is logged once when it happens.
+ */
+@Component
+public class AsyncRequestExecutor {
+
+    static final int MAX_THREADS = 10;
+
+    static final int MAX_PENDING = 100;
+
+    static final long TIMEOUT_MILLIS = 120000;
+
+    private static final Log log = LogFactory.getLog(AsyncRequestExecutor.class);
+
+    private final Semaphore pending = new Semaphore(MAX_PENDING);
+
+    private final AtomicBoolean asyncUnsupportedLogged = new AtomicBoolean();
+
+    private final Map<Class<?>, ExceptionHandlerMethodResolver> exceptionHandlers = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor;
+
+    @Autowired
+    private AnnotationMethodHandlerAdapter handlerAdapter;
+
+    @Autowired(required = false)
+    private ServletContext servletContext;
+
+    public AsyncRequestExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "appointments-async-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        ((ThreadPoolExecutor) executor).allowCoreThreadTimeOut(true);
+    }
+
+    @PostConstruct
+    public void checkServletVersion() {
+        if (servletContext != null && servletContext.getEffectiveMajorVersion() < 3) {
+            logAsyncUnsupported();
+        }
+    }
+
+    /**
+     * @param controller the controller serving the request, whose exception handlers answer failures
+     * @param request computes the response, a value written as JSON or a ResponseEntity
+     * @return the response of request when it ran on the request thread, null when it is written asynchronously
+     */
+    public <T> T execute(Object controller, HttpServletRequest httpRequest, HttpServletResponse httpResponse, Supplier<T> request) {
+        if (!httpRequest.isAsyncSupported()) {
+            logAsyncUnsupported();
+            return request.get();
+        }
+        if (!pending.tryAcquire()) {
+            throw new AdmissionRejectedException(EndpointClass.EXPENSIVE);
+        }
+        UserContext userContext = Context.getUserContext();
+        SqlStatementStatistics statistics = SqlStatementCounter.current();
+        AsyncContext asyncContext = null;
+        try {
+            asyncContext = httpRequest.startAsync(httpRequest, httpResponse);
+            asyncContext.setTimeout(TIMEOUT_MILLIS);
+            AsyncResponse asyncResponse = new AsyncResponse(asyncContext);
+            asyncContext.addListener(asyncResponse);
+            executor.execute(() -> respond(asyncResponse, controller, userContext, statistics, request));
+        } catch (RuntimeException e) {
+            pending.release();
+            if (asyncContext != null) {
+                new AsyncResponse(asyncContext).respondUnavailable();
+                return null;
+            }
+            throw e;
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of requests running or waiting for a thread
+     */
+    int getPendingCount() {
+        return MAX_PENDING - pending.availablePermits();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void logAsyncUnsupported() {
+        if (asyncUnsupportedLogged.compareAndSet(false, true)) {
+            log.warn("The servlet container does not support asynchronous requests for OpenMRS, expensive appointment "
+                    + "requests run on the request threads");
+        }
+    }
+
+    private <T> void respond(AsyncResponse asyncResponse, Object controller, UserContext userContext,
+                             SqlStatementStatistics statistics, Supplier<T> request) {
+        AsyncContext asyncContext = asyncResponse.asyncContext;
+        HttpServletRequest httpRequest = (HttpServletRequest) asyncContext.getRequest();
+        HttpServletResponse httpResponse = (HttpServletResponse) asyncContext.getResponse();
+        if (statistics != null) {
+            SqlStatementCounter.resume(statistics);
+        }
+        try {
+            Context.openSession();
+            Context.setUserContext(userContext);
+            try {
+                if (statistics != null) {
+                    SqlStatementTimer.attachToCurrentSession();
+                }
+                ResponseEntity<?> response = responseOf(controller, httpRequest, httpResponse, request);
+                if (asyncResponse.finish()) {
+                    try {
+                        write(httpRequest, httpResponse, response);
+                    } finally {
+                        asyncResponse.complete();
+                    }
+                }
+            } finally {
+                Context.clearUserContext();
+                Context.closeSession();
+            }
+        } catch (Exception e) {
+            log.error("Could not respond to " + httpRequest.getRequestURI(), e);
+            if (asyncResponse.finish()) {
+                httpResponse.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+                asyncResponse.complete();
+            }
+        } finally {
+            SqlStatementCounter.stop();
+            pending.release();
+        }
+    }
+
+    private ResponseEntity<?> responseOf(Object controller, HttpServletRequest httpRequest, HttpServletResponse httpResponse,
+                                         Supplier<?> request) throws Exception {
+        try {
+            Object response = request.get();
+            return response instanceof ResponseEntity ? (ResponseEntity<?>) response : new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (RuntimeException e) {
+            return handle(controller, e, httpRequest, httpResponse);
+        }
+    }
+
+    /**
+     * Answers the failure with the controller's @ExceptionHandler method for it, passing the exception, request and
+     * response parameters that method declares.
+     */
+    private ResponseEntity<?> handle(Object controller, RuntimeException exception, HttpServletRequest httpRequest,
+                                     HttpServletResponse httpResponse) throws Exception {
+        Method handler = exceptionHandlers.computeIfAbsent(controller.getClass(), ExceptionHandlerMethodResolver::new)
+                .resolveMethod(exception);
+        if (handler == null) {
+            log.error("Asynchronous request failed", exception);
+            return new ResponseEntity<>(RestUtil.wrapErrorResponse(exception, exception.getMessage()), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        Class<?>[] parameterTypes = handler.getParameterTypes();
+        Object[] arguments = new Object[parameterTypes.length];
+        for (int index = 0; index < parameterTypes.length; index++) {
+            if (parameterTypes[index].isInstance(exception)) {
+                arguments[index] = exception;
+            } else if (parameterTypes[index].isInstance(httpRequest)) {
+                arguments[index] = httpRequest;
+            } else if (parameterTypes[index].isInstance(httpResponse)) {
+                arguments[index] = httpResponse;
+            }
+        }
+        Object response;
+        try {
+            response = handler.invoke(controller, arguments);
+        } catch (InvocationTargetException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        if (response instanceof ResponseEntity) {
+            return (ResponseEntity<?>) response;
+        }
+        ResponseStatus responseStatus = AnnotationUtils.findAnnotation(handler, ResponseStatus.class);
+        HttpStatus status = responseStatus != null ? responseStatus.value() : HttpStatus.valueOf(httpResponse.getStatus());
+        return new ResponseEntity<>(response, status);
+    }
+
+    /**
+     * Writes the response as the handler adapter writes the value of a @ResponseBody method: with the first of its
+     * message converters that can write the body as one of the media types the request accepts, most specific first,
+     * and 406 Not Acceptable when none of them can.
+     */
+    @SuppressWarnings("unchecked")
+    private void write(HttpServletRequest httpRequest, HttpServletResponse httpResponse, ResponseEntity<?> response)
+            throws IOException {
+        ServletServerHttpResponse outputMessage = new ServletServerHttpResponse(httpResponse);
+        outputMessage.setStatusCode(response.getStatusCode());
+        outputMessage.getHeaders().putAll(response.getHeaders());
+        Object body = response.getBody();
+        if (body == null) {
+            outputMessage.flush();
+            return;
+        }
+        for (MediaType acceptedType : getAcceptedMediaTypes(httpRequest)) {
+            for (HttpMessageConverter converter : handlerAdapter.getMessageConverters()) {
+                if (converter.canWrite(body.getClass(), acceptedType)) {
+                    MediaType contentType = acceptedType.isWildcardType() || acceptedType.isWildcardSubtype() ? null : acceptedType;
+                    converter.write(body, contentType, outputMessage);
+                    return;
+                }
+            }
+        }
+        httpResponse.setStatus(HttpStatus.NOT_ACCEPTABLE.value());
+    }
+
+    private List<MediaType> getAcceptedMediaTypes(HttpServletRequest httpRequest) {
+        String accept = httpRequest.getHeader("Accept");
+        List<MediaType> acceptedTypes;
+        try {
+            acceptedTypes = accept == null || accept.trim().isEmpty() ? Collections.singletonList(MediaType.ALL)
+                    : MediaType.parseMediaTypes(accept);
+        } catch (IllegalArgumentException e) {
+            acceptedTypes = Collections.singletonList(MediaType.ALL);
+        }
+        MediaType.sortBySpecificityAndQuality(acceptedTypes);
+        return acceptedTypes;
+    }
+
+    /**
+     * The response of an asynchronous request, written either by its pool thread or, when the request times out or
+     * fails, by the container thread telling so, whichever comes first.
+     */
+    private static class AsyncResponse implements AsyncListener {
+
+        private final AsyncContext asyncContext;
+
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        AsyncResponse(AsyncContext asyncContext) {
+            this.asyncContext = asyncContext;
+        }
+
+        /**
+         * @return whether the caller is the one to write the response
+         */
+        boolean finish() {
+            return finished.compareAndSet(false, true);
+        }
+
+        void complete() {
+            try {
+                asyncContext.complete();
+            } catch (IllegalStateException e) {
+                log.debug("Asynchronous request was already completed", e);
+            }
+        }
+
+        void respondUnavailable() {
+            if (finish()) {
+                ((HttpServletResponse) asyncContext.getResponse()).setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+                complete();
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            respondUnavailable();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            if (finish()) {
+                complete();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            finished.set(true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
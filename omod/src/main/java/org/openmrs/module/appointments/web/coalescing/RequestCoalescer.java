@@ -0,0 +1,113 @@
+package org.openmrs.module.appointments.web.coalescing;
+
+import org.openmrs.api.context.Context;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Shares the response of a read between identical requests: requests for the same method and arguments that arrive
+ * while it is computed, or up to TTL_MILLIS after it completed, get the same response instead of querying again.
+ * Responses are shared as they are, so they must not be modified by the callers. Failed computations are not shared
+ * with later requests.
+ */
+@Component
+public class RequestCoalescer {
+
+    static final long TTL_MILLIS = 1000;
+
+    private static final int MAX_FLIGHTS = 1000;
+
+    private final ConcurrentMap<List<Object>, Flight> flights = new ConcurrentHashMap<>();
+
+    /**
+     * @param arguments normalized arguments of the request, compared with equals
+     * @param requiredPrivileges checked for requests that get a response computed for another request
+     */
+    public <T> T coalesce(String method, List<?> arguments, Collection<String> requiredPrivileges, Supplier<T> computation) {
+        List<Object> key = new ArrayList<>(arguments.size() + 1);
+        key.add(method);
+        key.addAll(arguments);
+        while (true) {
+            Flight existingFlight = flights.get(key);
+            if (existingFlight != null && !existingFlight.isExpired(System.currentTimeMillis())) {
+                for (String privilege : requiredPrivileges) {
+                    Context.requirePrivilege(privilege);
+                }
+                return (T) existingFlight.join();
+            }
+            Flight flight = new Flight();
+            boolean started = existingFlight == null ? flights.putIfAbsent(key, flight) == null
+                    : flights.replace(key, existingFlight, flight);
+            if (started) {
+                removeExpiredFlights();
+                return fly(key, flight, computation);
+            }
+        }
+    }
+
+    /**
+     * Stops sharing the responses computed so far, so that requests after a write see it.
+     */
+    public void clear() {
+        flights.clear();
+    }
+
+    private <T> T fly(List<Object> key, Flight flight, Supplier<T> computation) {
+        try {
+            T response = computation.get();
+            flight.complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private void removeExpiredFlights() {
+        if (flights.size() > MAX_FLIGHTS) {
+            long now = System.currentTimeMillis();
+            flights.values().removeIf(flight -> flight.isExpired(now));
+        }
+    }
+
+    private static class Flight {
+        private final CompletableFuture<Object> response = new CompletableFuture<>();
+        private volatile long completedAt = Long.MAX_VALUE;
+
+        void complete(Object value) {
+            completedAt = System.currentTimeMillis();
+            response.complete(value);
+        }
+
+        void completeExceptionally(Throwable throwable) {
+            response.completeExceptionally(throwable);
+        }
+
+        boolean isExpired(long now) {
+            return completedAt != Long.MAX_VALUE && now - completedAt > TTL_MILLIS;
+        }
+
+        Object join() {
+            try {
+                return response.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.openmrs.module.appointments.web.contract;
+
+import java.util.List;
+
+/**
+ * Appointments created or changed since a watermark. Voided appointments are only listed by uuid. The returned
+ * watermark is passed as since on the next request; hasMore is true when that request will return more changes
+ * right away.
+ */
+public class AppointmentChanges {
+    private List<AppointmentDefaultResponse> appointments;
+    private List<String> voidedUuids;
+    private String watermark;
+    private boolean hasMore;
+
+    public AppointmentChanges(List<AppointmentDefaultResponse> appointments, List<String> voidedUuids, String watermark,
+                              boolean hasMore) {
+        this.appointments = appointments;
+        this.voidedUuids = voidedUuids;
+        this.watermark = watermark;
+        this.hasMore = hasMore;
+    }
+
+    public List<AppointmentDefaultResponse> getAppointments() {
+        return appointments;
+    }
+
+    public List<String> getVoidedUuids() {
+        return voidedUuids;
+    }
+
+    public String getWatermark() {
+        return watermark;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+}
@@ -0,0 +1,63 @@
+package org.openmrs.module.appointments.web.contract;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Properties of {@link AppointmentDefaultResponse} that a client asked for with the fields parameter. Apart from
+ * additionalInfo, each of them is read from the Appointment property of the same name.
+ */
+public class AppointmentFields {
+
+    public static final String ADDITIONAL_INFO = "additionalInfo";
+
+    private static final List<String> FIELDS = Arrays.asList("uuid", "appointmentNumber", "patient", "service", "serviceType",
+            "provider", "location", "startDateTime", "endDateTime", "appointmentKind", "status", "comments", ADDITIONAL_INFO);
+
+    private final List<String> fields;
+
+    private AppointmentFields(List<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * @param fields comma separated field names
+     * @throws IllegalArgumentException when a name is not a field or there is none
+     */
+    public static AppointmentFields parse(String fields) {
+        Set<String> parsedFields = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            field = field.trim();
+            if (field.isEmpty()) {
+                continue;
+            }
+            if (!FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown field " + field + ", fields are " + String.join(", ", FIELDS));
+            }
+            parsedFields.add(field);
+        }
+        if (parsedFields.isEmpty()) {
+            throw new IllegalArgumentException("No fields given, fields are " + String.join(", ", FIELDS));
+        }
+        return new AppointmentFields(Collections.unmodifiableList(new ArrayList<>(parsedFields)));
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    public boolean includes(String field) {
+        return fields.contains(field);
+    }
+
+    /**
+     * @return whether the fields can be read as Appointment properties, without loading the appointments
+     */
+    public boolean isProjectable() {
+        return !includes(ADDITIONAL_INFO);
+    }
+}
@@ -0,0 +1,44 @@
+package org.openmrs.module.appointments.web.contract;
+
+import java.util.List;
+
+/**
+ * Appointment counts of consecutive days for each service. The arrays in counts and missedCounts are in the order of
+ * services, and their elements are the counts of startDate plus the element index in days.
+ */
+public class AppointmentHeatmap {
+    private String startDate;
+    private int days;
+    private List<AppointmentServiceDefaultResponse> services;
+    private List<int[]> counts;
+    private List<int[]> missedCounts;
+
+    public AppointmentHeatmap(String startDate, int days, List<AppointmentServiceDefaultResponse> services,
+                              List<int[]> counts, List<int[]> missedCounts) {
+        this.startDate = startDate;
+        this.days = days;
+        this.services = services;
+        this.counts = counts;
+        this.missedCounts = missedCounts;
+    }
+
+    public String getStartDate() {
+        return startDate;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    public List<AppointmentServiceDefaultResponse> getServices() {
+        return services;
+    }
+
+    public List<int[]> getCounts() {
+        return counts;
+    }
+
+    public List<int[]> getMissedCounts() {
+        return missedCounts;
+    }
+}
@@ -0,0 +1,48 @@
+package org.openmrs.module.appointments.web.contract;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Normalized list of appointments. The appointments refer to their service, service type, provider and location by
+ * uuid, and each of those is listed once in the map of its kind, by uuid. truncated is true when the list was cut at
+ * the row cap of its query.
+ */
+public class AppointmentListResponse {
+    private List<AppointmentRowResponse> appointments = new ArrayList<>();
+    private Map<String, AppointmentServiceDefaultResponse> services = new LinkedHashMap<>();
+    private Map<String, Map> serviceTypes = new LinkedHashMap<>();
+    private Map<String, Map> providers = new LinkedHashMap<>();
+    private Map<String, Map> locations = new LinkedHashMap<>();
+    private boolean truncated;
+
+    public List<AppointmentRowResponse> getAppointments() {
+        return appointments;
+    }
+
+    public Map<String, AppointmentServiceDefaultResponse> getServices() {
+        return services;
+    }
+
+    public Map<String, Map> getServiceTypes() {
+        return serviceTypes;
+    }
+
+    public Map<String, Map> getProviders() {
+        return providers;
+    }
+
+    public Map<String, Map> getLocations() {
+        return locations;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+}
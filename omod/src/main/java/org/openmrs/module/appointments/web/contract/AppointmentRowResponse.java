@@ -0,0 +1,128 @@
+package org.openmrs.module.appointments.web.contract;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * An appointment of an {@link AppointmentListResponse}, referring to its service, service type, provider and location
+ * by uuid.
+ */
+public class AppointmentRowResponse {
+    private String uuid;
+    private String appointmentNumber;
+    private Map patient;
+    private String serviceUuid;
+    private String serviceTypeUuid;
+    private String providerUuid;
+    private String locationUuid;
+    private Date startDateTime;
+    private Date endDateTime;
+    private String appointmentKind;
+    private String status;
+    private String comments;
+    private Map additionalInfo;
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public void setUuid(String uuid) {
+        this.uuid = uuid;
+    }
+
+    public String getAppointmentNumber() {
+        return appointmentNumber;
+    }
+
+    public void setAppointmentNumber(String appointmentNumber) {
+        this.appointmentNumber = appointmentNumber;
+    }
+
+    public Map getPatient() {
+        return patient;
+    }
+
+    public void setPatient(Map patient) {
+        this.patient = patient;
+    }
+
+    public String getServiceUuid() {
+        return serviceUuid;
+    }
+
+    public void setServiceUuid(String serviceUuid) {
+        this.serviceUuid = serviceUuid;
+    }
+
+    public String getServiceTypeUuid() {
+        return serviceTypeUuid;
+    }
+
+    public void setServiceTypeUuid(String serviceTypeUuid) {
+        this.serviceTypeUuid = serviceTypeUuid;
+    }
+
+    public String getProviderUuid() {
+        return providerUuid;
+    }
+
+    public void setProviderUuid(String providerUuid) {
+        this.providerUuid = providerUuid;
+    }
+
+    public String getLocationUuid() {
+        return locationUuid;
+    }
+
+    public void setLocationUuid(String locationUuid) {
+        this.locationUuid = locationUuid;
+    }
+
+    public Date getStartDateTime() {
+        return startDateTime;
+    }
+
+    public void setStartDateTime(Date startDateTime) {
+        this.startDateTime = startDateTime;
+    }
+
+    public Date getEndDateTime() {
+        return endDateTime;
+    }
+
+    public void setEndDateTime(Date endDateTime) {
+        this.endDateTime = endDateTime;
+    }
+
+    public String getAppointmentKind() {
+        return appointmentKind;
+    }
+
+    public void setAppointmentKind(String appointmentKind) {
+        this.appointmentKind = appointmentKind;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getComments() {
+        return comments;
+    }
+
+    public void setComments(String comments) {
+        this.comments = comments;
+    }
+
+    public Map getAdditionalInfo() {
+        return additionalInfo;
+    }
+
+    public void setAdditionalInfo(Map additionalInfo) {
+        this.additionalInfo = additionalInfo;
+    }
+}
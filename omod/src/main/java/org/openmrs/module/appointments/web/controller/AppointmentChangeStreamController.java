@@ -0,0 +1,257 @@
+package org.openmrs.module.appointments.web.controller;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.appointments.event.AppointmentChange;
+import org.openmrs.module.appointments.event.AppointmentChangeBroadcaster;
+import org.openmrs.module.appointments.event.AppointmentChangeSubscription;
+import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.v1_0.controller.BaseRestController;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.openmrs.module.appointments.constants.PrivilegeConstants.VIEW_APPOINTMENTS;
+
+/**
+ * Server-sent events of committed appointment changes. Each stream is an asynchronous request with its own
+ * subscription to the {@link AppointmentChangeBroadcaster}; the changes pushed into it are written by a small pool of
+ * writer threads, so no request thread waits for changes. A stream ends after {@link #STREAM_TIMEOUT_MILLIS}, and
+ * EventSource clients reconnect after the retry interval with their Last-Event-ID. A "reset" event tells the client
+ * that it missed changes, because it read too slowly or reconnected too late, and has to reload its appointments;
+ * the stream then ends.
+ * <p>
+ * Beyond {@link #MAX_STREAMS} open streams, or when the container does not support asynchronous requests, a request
+ * gets the changes after its Last-Event-ID and ends right away.
+ */
+@Controller
+@RequestMapping(value = "/rest/" + RestConstants.VERSION_1 + "/appointment/stream")
+public class AppointmentChangeStreamController extends BaseRestController {
+
+    static final int MAX_STREAMS = 500;
+
+    static final int STREAM_BUFFER_SIZE = 256;
+
+    static final long STREAM_TIMEOUT_MILLIS = 300000;
+
+    private static final int WRITER_THREADS = 4;
+
+    private static final int RETRY_MILLIS = 1000;
+
+    private static final Log log = LogFactory.getLog(AppointmentChangeStreamController.class);
+
+    private final Semaphore openStreams = new Semaphore(MAX_STREAMS);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // a stream is queued at most once at a time, so the queue is bounded by MAX_STREAMS
+    private final ExecutorService writers;
+
+    @Autowired
+    private AppointmentChangeBroadcaster appointmentChangeBroadcaster;
+
+    public AppointmentChangeStreamController() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        writers = new ThreadPoolExecutor(WRITER_THREADS, WRITER_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "appointments-stream-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        ((ThreadPoolExecutor) writers).allowCoreThreadTimeOut(true);
+    }
+
+    @RequestMapping(method = RequestMethod.GET)
+    public void streamAppointmentChanges(@RequestParam(value = "locationUuid", required = false) String locationUuid,
+                                         @RequestParam(value = "serviceUuid", required = false) String serviceUuid,
+                                         @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Context.requirePrivilege(VIEW_APPOINTMENTS);
+        long lastEventSequence = NumberUtils.toLong(lastEventId, -1);
+        Long afterSequence = lastEventSequence >= 0 ? lastEventSequence : null;
+
+        response.setContentType("text/event-stream");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        PrintWriter writer = response.getWriter();
+        writer.write("retry: " + RETRY_MILLIS + "\n\n");
+
+        if (!request.isAsyncSupported() || !openStreams.tryAcquire()) {
+            AppointmentChangeSubscription subscription = appointmentChangeBroadcaster.subscribe(afterSequence,
+                    locationUuid, serviceUuid, STREAM_BUFFER_SIZE, () -> {});
+            appointmentChangeBroadcaster.unsubscribe(subscription);
+            AppointmentChangeSubscription.Changes changes = subscription.poll();
+            if (changes != null) {
+                write(writer, changes);
+            } else {
+                writer.write("id: " + subscription.getLastSequence() + "\n\n");
+            }
+            writer.flush();
+            return;
+        }
+
+        ChangeStream stream;
+        try {
+            AsyncContext asyncContext = request.startAsync(request, response);
+            asyncContext.setTimeout(STREAM_TIMEOUT_MILLIS);
+            stream = new ChangeStream(asyncContext, writer);
+            asyncContext.addListener(stream);
+        } catch (RuntimeException e) {
+            openStreams.release();
+            throw e;
+        }
+        stream.subscription = appointmentChangeBroadcaster.subscribe(afterSequence, locationUuid, serviceUuid,
+                STREAM_BUFFER_SIZE, stream::schedule);
+        if (stream.closed.get()) {
+            appointmentChangeBroadcaster.unsubscribe(stream.subscription);
+            return;
+        }
+        if (afterSequence == null) {
+            writer.write("id: " + stream.subscription.getLastSequence() + "\n\n");
+        }
+        stream.run();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writers.shutdown();
+    }
+
+    /**
+     * Writes the changes as events, or a reset event when changes were lost before them.
+     *
+     * @return whether the stream can go on
+     */
+    private boolean write(PrintWriter writer, AppointmentChangeSubscription.Changes changes) throws IOException {
+        if (changes.isLostChanges()) {
+            writer.write("id: " + changes.getLastSequence() + "\nevent: reset\ndata: {}\n\n");
+            return false;
+        }
+        long sequence = 0;
+        for (Map.Entry<Long, AppointmentChange> change : changes.getChangesBySequence().entrySet()) {
+            sequence = change.getKey();
+            writer.write("id: " + sequence + "\nevent: appointment\ndata: " + toJson(change.getValue()) + "\n\n");
+        }
+        if (sequence < changes.getLastSequence()) {
+            // moves the client's Last-Event-ID past the changes filtered out
+            writer.write("id: " + changes.getLastSequence() + "\n\n");
+        }
+        return true;
+    }
+
+    private String toJson(AppointmentChange change) throws IOException {
+        Map<String, Object> notification = new LinkedHashMap<>();
+        notification.put("uuid", change.getAppointmentUuid());
+        notification.put("status", change.getStatus());
+        notification.put("serviceUuid", change.getServiceUuid());
+        notification.put("locationUuid", change.getLocationUuid());
+        notification.put("voided", change.isVoided());
+        return objectMapper.writeValueAsString(notification);
+    }
+
+    /**
+     * An open stream. It is run by the request thread for the changes replayed to it and then by a writer thread
+     * each time its subscription is told about new changes, never by two threads at a time.
+     */
+    private class ChangeStream implements Runnable, AsyncListener {
+
+        private final AsyncContext asyncContext;
+
+        private final PrintWriter writer;
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private volatile AppointmentChangeSubscription subscription;
+
+        ChangeStream(AsyncContext asyncContext, PrintWriter writer) {
+            this.asyncContext = asyncContext;
+            this.writer = writer;
+        }
+
+        void schedule() {
+            try {
+                writers.execute(this);
+            } catch (RejectedExecutionException e) {
+                close(true);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                AppointmentChangeSubscription.Changes changes;
+                while (!closed.get() && (changes = subscription.poll()) != null) {
+                    boolean open = write(writer, changes);
+                    writer.flush();
+                    if (writer.checkError() || !open) {
+                        close(true);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Could not write appointment changes", e);
+                close(true);
+            }
+        }
+
+        private void close(boolean complete) {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            if (subscription != null) {
+                appointmentChangeBroadcaster.unsubscribe(subscription);
+            }
+            openStreams.release();
+            if (complete) {
+                try {
+                    asyncContext.complete();
+                } catch (IllegalStateException e) {
+                    log.debug("Appointment change stream was already completed", e);
+                }
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            close(false);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            close(true);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            close(true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
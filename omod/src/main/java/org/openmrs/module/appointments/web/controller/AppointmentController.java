@@ -1,12 +1,26 @@
 package org.openmrs.module.appointments.web.controller;
 
+import org.openmrs.Patient;
+import org.openmrs.api.PatientService;
+import org.openmrs.api.context.Context;
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentBatchItem;
+import org.openmrs.module.appointments.model.AppointmentDailyCount;
+import org.openmrs.module.appointments.model.AppointmentDayCounts;
 import org.openmrs.module.appointments.model.AppointmentService;
 import org.openmrs.module.appointments.model.AppointmentServiceType;
 import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.model.ResultList;
 import org.openmrs.module.appointments.service.AppointmentServiceService;
+import org.openmrs.module.appointments.service.AppointmentSummaryService;
 import org.openmrs.module.appointments.service.AppointmentsService;
+import org.openmrs.module.appointments.service.impl.TodayAppointmentsCache;
 import org.openmrs.module.appointments.util.DateUtil;
+import org.openmrs.module.appointments.web.admission.AdmissionControl;
+import org.openmrs.module.appointments.web.admission.AdmissionRejectedException;
+import org.openmrs.module.appointments.web.admission.EndpointClass;
+import org.openmrs.module.appointments.web.async.AsyncRequestExecutor;
+import org.openmrs.module.appointments.web.coalescing.RequestCoalescer;
 import org.openmrs.module.appointments.web.contract.*;
 import org.openmrs.module.appointments.web.mapper.AppointmentMapper;
 import org.openmrs.module.appointments.web.mapper.AppointmentServiceMapper;
@@ -19,44 +33,208 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import java.io.IOException;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import static org.openmrs.module.appointments.constants.PrivilegeConstants.VIEW_APPOINTMENTS;
+import static org.openmrs.module.appointments.constants.PrivilegeConstants.VIEW_APPOINTMENT_SERVICES;
+import static org.openmrs.module.appointments.web.controller.ResultHeaders.withTruncationHeader;
+
 @Controller
 @RequestMapping(value = "/rest/" + RestConstants.VERSION_1 + "/appointment")
 public class AppointmentController extends BaseRestController {
 
+    static final int MAX_BATCH_SIZE = 5000;
+
+    static final int MAX_HEATMAP_DAYS = 366;
+
+    static final int MAX_CHANGES = 500;
+
+    // changes younger than this are left to the next poll, so that transactions still committing are not skipped
+    static final long CHANGES_SETTLE_MILLIS = 5000;
+
+    private static final List<AppointmentStatus> SUMMARY_STATUSES = Arrays.asList(
+            AppointmentStatus.Completed,
+            AppointmentStatus.Scheduled,
+            AppointmentStatus.CheckedIn,
+            AppointmentStatus.Missed);
+
     @Autowired
     private AppointmentsService appointmentsService;
 
     @Autowired
     private AppointmentServiceService appointmentServiceService;
 
+    @Autowired
+    private AppointmentSummaryService appointmentSummaryService;
+
     @Autowired
     private AppointmentMapper appointmentMapper;
 
     @Autowired
     private AppointmentServiceMapper appointmentServiceMapper;
 
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private TodayAppointmentsCache<AppointmentDefaultResponse> todayAppointmentsCache;
+
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Autowired
+    private AsyncRequestExecutor asyncRequestExecutor;
+
+    private final TodayAppointmentsCache.Source<AppointmentDefaultResponse> todayAppointmentsSource =
+            new TodayAppointmentsCache.Source<AppointmentDefaultResponse>() {
+
+                @Override
+                public List<Appointment> getAppointments(LocalDate day) {
+                    return appointmentsService.getAllAppointments(Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+                }
+
+                @Override
+                public List<Appointment> getAppointmentsByUuids(Collection<String> uuids) {
+                    return appointmentsService.getAppointmentsByUuids(uuids);
+                }
+
+                @Override
+                public Function<Appointment, AppointmentDefaultResponse> mapperOf(List<Appointment> appointments) {
+                    return responsesOf(appointments);
+                }
+            };
+
     @RequestMapping(method = RequestMethod.GET, value = "all")
     @ResponseBody
-    public List<AppointmentDefaultResponse> getAllAppointments(@RequestParam(value = "forDate", required = false) String forDate) throws ParseException {
-        List<Appointment> appointments = appointmentsService.getAllAppointments(DateUtil.convertToLocalDateFromUTC(forDate));
-        return appointmentMapper.constructResponse(appointments);
+    public List<AppointmentDefaultResponse> getAllAppointments(@RequestParam(value = "forDate", required = false) String forDate,
+                                                               @RequestParam(value = "locationUuid", required = false) String locationUuid,
+                                                               @RequestParam(value = "serviceUuid", required = false) String serviceUuid,
+                                                               HttpServletRequest request, HttpServletResponse response) throws ParseException {
+        Date date = DateUtil.convertToLocalDateFromUTC(forDate);
+        return asyncRequestExecutor.execute(this, request, response, () -> withTruncationHeader(requestCoalescer.coalesce("appointment/all",
+                Arrays.asList(date, locationUuid, serviceUuid), Collections.singletonList(VIEW_APPOINTMENTS),
+                () -> admissionControl.admit(EndpointClass.EXPENSIVE, date == null ? EndpointClass.EXPENSIVE.getCapacity() : 1,
+                        () -> getAllAppointments(date, locationUuid, serviceUuid))), response));
     }
-    @RequestMapping( method = RequestMethod.POST, value = "search")
+
+    private List<AppointmentDefaultResponse> getAllAppointments(Date date, String locationUuid, String serviceUuid) {
+        LocalDate today = LocalDate.now();
+        if (date != null && date.equals(Date.from(today.atStartOfDay(ZoneId.systemDefault()).toInstant()))) {
+            return getTodaysAppointments(today, locationUuid, serviceUuid);
+        }
+        List<Appointment> appointments = appointmentsService.getAllAppointments(date);
+        return constructResponse(appointments, locationUuid, serviceUuid);
+    }
+
+    private List<AppointmentDefaultResponse> getTodaysAppointments(LocalDate today, String locationUuid, String serviceUuid) {
+        Context.requirePrivilege(VIEW_APPOINTMENTS);
+        return todayAppointmentsCache.getAppointments(today, locationUuid, serviceUuid, todayAppointmentsSource);
+    }
+
+    /**
+     * Maps the appointments together, so that a batch response extension runs once for all of them.
+     */
+    private Function<Appointment, AppointmentDefaultResponse> responsesOf(List<Appointment> appointments) {
+        Map<String, AppointmentDefaultResponse> responses = new HashMap<>();
+        for (AppointmentDefaultResponse response : appointmentMapper.constructResponse(appointments)) {
+            responses.put(response.getUuid(), response);
+        }
+        return appointment -> responses.get(appointment.getUuid());
+    }
+
+    private List<AppointmentDefaultResponse> constructResponse(List<Appointment> appointments, String locationUuid, String serviceUuid) {
+        List<Appointment> appointmentsOf = appointments.stream()
+                .filter(appointment -> isOf(appointment, locationUuid, serviceUuid)).collect(Collectors.toList());
+        return new ResultList<>(appointmentMapper.constructResponse(appointmentsOf), ResultList.isTruncated(appointments));
+    }
+
+    private boolean isOf(Appointment appointment, String locationUuid, String serviceUuid) {
+        return (locationUuid == null || (appointment.getLocation() != null && locationUuid.equals(appointment.getLocation().getUuid())))
+                && (serviceUuid == null || (appointment.getService() != null && serviceUuid.equals(appointment.getService().getUuid())));
+    }
+    @RequestMapping(method = RequestMethod.GET, value = "all", params = "normalized=true")
+    @ResponseBody
+    public AppointmentListResponse getAllAppointmentsNormalized(@RequestParam(value = "forDate", required = false) String forDate,
+                                                                @RequestParam(value = "locationUuid", required = false) String locationUuid,
+                                                                @RequestParam(value = "serviceUuid", required = false) String serviceUuid,
+                                                                HttpServletRequest request, HttpServletResponse response) throws ParseException {
+        Date date = DateUtil.convertToLocalDateFromUTC(forDate);
+        return asyncRequestExecutor.execute(this, request, response, () -> withTruncationHeader(requestCoalescer.coalesce("appointment/all?normalized",
+                Arrays.asList(date, locationUuid, serviceUuid), Collections.singletonList(VIEW_APPOINTMENTS),
+                () -> admissionControl.admit(EndpointClass.EXPENSIVE, date == null ? EndpointClass.EXPENSIVE.getCapacity() : 1, () -> {
+                    List<Appointment> appointments = appointmentsService.getAllAppointments(date);
+                    AppointmentListResponse listResponse = appointmentMapper.constructNormalizedResponse(appointments.stream()
+                            .filter(appointment -> isOf(appointment, locationUuid, serviceUuid)).collect(Collectors.toList()));
+                    listResponse.setTruncated(ResultList.isTruncated(appointments));
+                    return listResponse;
+                })), response));
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "all", params = {"fields", "normalized!=true"})
     @ResponseBody
-    public List<AppointmentDefaultResponse> searchAppointments( @Valid @RequestBody AppointmentQuery searchQuery) throws IOException {
-        Appointment appointment = appointmentMapper.mapQueryToAppointment(searchQuery);
-        if (searchQuery.getStatus() == null) {
-            appointment.setStatus(null);
+    public ResponseEntity<Object> getAllAppointmentFields(@RequestParam(value = "forDate", required = false) String forDate,
+                                                          @RequestParam(value = "locationUuid", required = false) String locationUuid,
+                                                          @RequestParam(value = "serviceUuid", required = false) String serviceUuid,
+                                                          @RequestParam(value = "fields") String fields,
+                                                          HttpServletRequest request, HttpServletResponse response) throws ParseException {
+        Date date = DateUtil.convertToLocalDateFromUTC(forDate);
+        AppointmentFields appointmentFields;
+        try {
+            appointmentFields = AppointmentFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(RestUtil.wrapErrorResponse(e, e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+        return asyncRequestExecutor.execute(this, request, response, () -> new ResponseEntity<>(withTruncationHeader(requestCoalescer.coalesce(
+                "appointment/all?fields", Arrays.asList(date, locationUuid, serviceUuid, appointmentFields.getFields()),
+                Collections.singletonList(VIEW_APPOINTMENTS),
+                () -> admissionControl.admit(EndpointClass.EXPENSIVE, date == null ? EndpointClass.EXPENSIVE.getCapacity() : 1,
+                        () -> getAllAppointmentFields(date, locationUuid, serviceUuid, appointmentFields))), response), HttpStatus.OK));
+    }
+
+    private List<Map<String, Object>> getAllAppointmentFields(Date date, String locationUuid, String serviceUuid, AppointmentFields fields) {
+        if (!fields.isProjectable()) {
+            List<Appointment> appointments = appointmentsService.getAllAppointments(date);
+            List<Appointment> appointmentsOf = appointments.stream()
+                    .filter(appointment -> isOf(appointment, locationUuid, serviceUuid)).collect(Collectors.toList());
+            return appointmentMapper.constructSparseResponse(new ResultList<>(appointmentsOf, ResultList.isTruncated(appointments)), fields);
         }
-        List<Appointment> appointments =  appointmentsService.search(appointment);
-        return appointmentMapper.constructResponse(appointments);
+        List<String> properties = new ArrayList<>(fields.getFields());
+        properties.add("location.uuid");
+        properties.add("service.uuid");
+        List<Object[]> rows = appointmentsService.getAllAppointmentProperties(date, properties);
+        int locationColumn = fields.getFields().size();
+        List<Object[]> rowsOf = rows.stream()
+                .filter(row -> (locationUuid == null || locationUuid.equals(row[locationColumn]))
+                        && (serviceUuid == null || serviceUuid.equals(row[locationColumn + 1])))
+                .collect(Collectors.toList());
+        return appointmentMapper.constructSparseResponseFromRows(new ResultList<>(rowsOf, ResultList.isTruncated(rows)), fields);
+    }
+
+    @RequestMapping( method = RequestMethod.POST, value = "search")
+    @ResponseBody
+    public List<AppointmentDefaultResponse> searchAppointments( @Valid @RequestBody AppointmentQuery searchQuery, HttpServletRequest request,
+                                                                HttpServletResponse response) throws IOException {
+        return asyncRequestExecutor.execute(this, request, response, () -> withTruncationHeader(admissionControl.admit(EndpointClass.EXPENSIVE, 1, () -> {
+            Appointment appointment = appointmentMapper.mapQueryToAppointment(searchQuery);
+            if (searchQuery.getStatus() == null) {
+                appointment.setStatus(null);
+            }
+            List<Appointment> appointments = appointmentsService.search(appointment);
+            return new ResultList<>(appointmentMapper.constructResponse(appointments), ResultList.isTruncated(appointments));
+        }), response));
     }
 
     @RequestMapping(method = RequestMethod.POST)
@@ -64,53 +242,214 @@ public class AppointmentController extends BaseRestController {
     public ResponseEntity<Object> createAppointment(@Valid @RequestBody AppointmentPayload appointmentPayload) throws IOException {
         Appointment appointment = appointmentMapper.getAppointmentFromPayload(appointmentPayload);
         appointmentsService.validateAndSave(appointment);
+        requestCoalescer.clear();
         return new ResponseEntity<>(appointmentMapper.constructResponse(appointment), HttpStatus.OK);
     }
 
+    @RequestMapping(method = RequestMethod.POST, value = "batch")
+    @ResponseBody
+    public ResponseEntity<Object> createAppointments(@RequestBody AppointmentPayload[] appointmentPayloads, HttpServletRequest request,
+                                                     HttpServletResponse response) {
+        if (appointmentPayloads.length > MAX_BATCH_SIZE) {
+            RuntimeException exception = new RuntimeException("A batch cannot have more than " + MAX_BATCH_SIZE + " appointments");
+            return new ResponseEntity<>(RestUtil.wrapErrorResponse(exception, exception.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+        return asyncRequestExecutor.execute(this, request, response, () -> admissionControl.admit(EndpointClass.BULK, 1, () -> {
+            List<AppointmentBatchItem> batchItems = appointmentMapper.getAppointmentsFromPayloads(Arrays.asList(appointmentPayloads));
+            List<Appointment> appointments = batchItems.stream().filter(AppointmentBatchItem::isSuccessful)
+                    .map(AppointmentBatchItem::getAppointment).collect(Collectors.toList());
+            Iterator<AppointmentBatchItem> savedItems = appointmentsService.bulkValidateAndSave(appointments).iterator();
+            requestCoalescer.clear();
+            for (int index = 0; index < batchItems.size(); index++) {
+                if (batchItems.get(index).isSuccessful()) {
+                    batchItems.set(index, savedItems.next());
+                }
+            }
+            return new ResponseEntity<>(appointmentMapper.constructBatchResponse(batchItems), HttpStatus.OK);
+        }));
+    }
+
     @RequestMapping( method = RequestMethod.GET, value = "futureAppointmentsForServiceType")
     @ResponseBody
-    public List<AppointmentDefaultResponse> getAllFututreAppointmentsForGivenServiceType(@RequestParam(value = "appointmentServiceTypeUuid", required = true) String serviceTypeUuid) {
-        AppointmentServiceType appointmentServiceType = appointmentServiceService.getAppointmentServiceTypeByUuid(serviceTypeUuid);
-        List<Appointment> appointments = appointmentsService.getAllFutureAppointmentsForServiceType(appointmentServiceType);
-        return appointmentMapper.constructResponse(appointments);
+    public List<AppointmentDefaultResponse> getAllFututreAppointmentsForGivenServiceType(@RequestParam(value = "appointmentServiceTypeUuid", required = true) String serviceTypeUuid,
+                                                                                         HttpServletResponse response) {
+        return withTruncationHeader(admissionControl.admit(EndpointClass.EXPENSIVE, 1, () -> {
+            AppointmentServiceType appointmentServiceType = appointmentServiceService.getAppointmentServiceTypeByUuid(serviceTypeUuid);
+            List<Appointment> appointments = appointmentsService.getAllFutureAppointmentsForServiceType(appointmentServiceType);
+            return new ResultList<>(appointmentMapper.constructResponse(appointments), ResultList.isTruncated(appointments));
+        }), response);
     }
 
     @RequestMapping(method = RequestMethod.GET, value = "appointmentSummary")
     @ResponseBody
-    public List<AppointmentsSummary> getAllAppointmentsSummary(@RequestParam(value = "startDate") String startDateString, @RequestParam(value = "endDate") String endDateString) throws ParseException {
-        List<AppointmentsSummary> appointmentsSummaryList = new ArrayList<>();
-        SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd");
+    public List<AppointmentsSummary> getAllAppointmentsSummary(@RequestParam(value = "startDate") String startDateString, @RequestParam(value = "endDate") String endDateString,
+                                                               HttpServletRequest request, HttpServletResponse response) throws ParseException {
         Date startDate = DateUtil.convertToLocalDateFromUTC(startDateString);
         Date endDate = DateUtil.convertToLocalDateFromUTC(endDateString);
+        return asyncRequestExecutor.execute(this, request, response, () -> requestCoalescer.coalesce("appointment/appointmentSummary",
+                Arrays.asList(startDate, endDate), Arrays.asList(VIEW_APPOINTMENTS, VIEW_APPOINTMENT_SERVICES),
+                () -> admissionControl.admit(EndpointClass.EXPENSIVE, AdmissionControl.costOfDateRange(startDate, endDate),
+                        () -> getAllAppointmentsSummary(startDate, endDate))));
+    }
+
+    private List<AppointmentsSummary> getAllAppointmentsSummary(Date startDate, Date endDate) {
+        List<AppointmentsSummary> appointmentsSummaryList = new ArrayList<>();
         List<AppointmentService> appointmentServices = appointmentServiceService.getAllAppointmentServices(false);
-        for (AppointmentService appointmentService : appointmentServices) {
-            List<Appointment> appointmentsForService =
-                    appointmentsService.getAppointmentsForService(
-                appointmentService, startDate, endDate,
-                            Arrays.asList(
-                                    AppointmentStatus.Completed,
-                                    AppointmentStatus.Scheduled,
-                                    AppointmentStatus.CheckedIn,
-                                    AppointmentStatus.Missed));
-
-            Map<Date, List<Appointment>> appointmentsGroupedByDate =
-                    appointmentsForService.stream().collect(Collectors.groupingBy(Appointment::getDateFromStartDateTime));
-
-            Map<String, AppointmentCount> appointmentCountMap = new LinkedHashMap<>();
-            for (Map.Entry<Date, List<Appointment>> appointmentDateMap : appointmentsGroupedByDate.entrySet()) {
-                List<Appointment> appointments = appointmentDateMap.getValue();
-                Long missedAppointmentsCount = appointments.stream().filter(s-> s.getStatus().equals(AppointmentStatus.Missed)).count();
-                AppointmentCount appointmentCount = new AppointmentCount(
-                        appointments.size(),Math.toIntExact(missedAppointmentsCount), appointmentDateMap.getKey(), appointmentService.getUuid());
-                appointmentCountMap.put(simpleDateFormat.format(appointmentDateMap.getKey()), appointmentCount);
+        if (appointmentsService.isDailyCountsEnabled()) {
+            Map<Integer, List<AppointmentDailyCount>> dailyCountsByService = appointmentsService
+                    .getDailyCounts(null, startDate, endDate, SUMMARY_STATUSES).stream()
+                    .collect(Collectors.groupingBy(AppointmentDailyCount::getServiceId));
+            for (AppointmentService appointmentService : appointmentServices) {
+                List<AppointmentDailyCount> dailyCounts = dailyCountsByService.getOrDefault(
+                        appointmentService.getAppointmentServiceId(), Collections.emptyList());
+                appointmentsSummaryList.add(new AppointmentsSummary(appointmentServiceMapper.constructDefaultResponse(appointmentService),
+                        getAppointmentCountMapFromDailyCounts(appointmentService, dailyCounts)));
             }
-
+            return appointmentsSummaryList;
+        }
+        Map<Integer, AppointmentDayCounts> dayCountsByService = appointmentSummaryService.getDayCountsByService(
+                appointmentServices, startDate, endDate, SUMMARY_STATUSES);
+        for (AppointmentService appointmentService : appointmentServices) {
+            Map<String, AppointmentCount> appointmentCountMap = getAppointmentCountMapFromDayCounts(appointmentService,
+                    dayCountsByService.get(appointmentService.getAppointmentServiceId()));
             AppointmentsSummary appointmentsSummary = new AppointmentsSummary(appointmentServiceMapper.constructDefaultResponse(appointmentService), appointmentCountMap);
             appointmentsSummaryList.add(appointmentsSummary);
         }
         return appointmentsSummaryList;
     }
 
+    @RequestMapping(method = RequestMethod.GET, value = "heatmap")
+    @ResponseBody
+    public ResponseEntity<Object> getAppointmentHeatmap(@RequestParam(value = "startDate") String startDateString, @RequestParam(value = "endDate") String endDateString) throws ParseException {
+        Date startDate = DateUtil.convertToLocalDateFromUTC(startDateString);
+        Date endDate = DateUtil.convertToLocalDateFromUTC(endDateString);
+        if (startDate == null || endDate == null) {
+            RuntimeException exception = new RuntimeException("A heatmap needs a start date and an end date");
+            return new ResponseEntity<>(RestUtil.wrapErrorResponse(exception, exception.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+        LocalDate firstDay = startDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        long days = ChronoUnit.DAYS.between(firstDay, endDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate()) + 1;
+        if (days < 1 || days > MAX_HEATMAP_DAYS) {
+            RuntimeException exception = new RuntimeException("A heatmap must cover between 1 and " + MAX_HEATMAP_DAYS + " days");
+            return new ResponseEntity<>(RestUtil.wrapErrorResponse(exception, exception.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+        return admissionControl.admit(EndpointClass.EXPENSIVE, AdmissionControl.costOfDateRange(startDate, endDate), () -> {
+            List<AppointmentService> appointmentServices = appointmentServiceService.getAllAppointmentServices(false);
+            List<AppointmentDailyCount> dailyCounts = appointmentsService.getDailyCounts(null, startDate, endDate, SUMMARY_STATUSES);
+            return new ResponseEntity<>(constructHeatmap(appointmentServices, dailyCounts, firstDay, (int) days), HttpStatus.OK);
+        });
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "patientTimeline")
+    @ResponseBody
+    public ResponseEntity<Object> getPatientTimeline(@RequestParam(value = "patientUuid") String patientUuid,
+                                                     @RequestParam(value = "pastLimit", defaultValue = "5") int pastLimit,
+                                                     @RequestParam(value = "upcomingLimit", defaultValue = "50") int upcomingLimit) {
+        Patient patient = patientService.getPatientByUuid(patientUuid);
+        if (patient == null) {
+            RuntimeException exception = new RuntimeException("Patient does not exist");
+            return new ResponseEntity<>(RestUtil.wrapErrorResponse(exception, exception.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+        return admissionControl.admit(EndpointClass.CHEAP, 1, () ->
+                new ResponseEntity<>(appointmentsService.getPatientTimeline(patient, pastLimit, upcomingLimit), HttpStatus.OK));
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "changes")
+    @ResponseBody
+    public ResponseEntity<Object> getAppointmentChanges(@RequestParam(value = "since", required = false) String watermark) {
+        Date until = new Date(System.currentTimeMillis() - CHANGES_SETTLE_MILLIS);
+        if (watermark == null) {
+            return new ResponseEntity<>(new AppointmentChanges(new ArrayList<>(), new ArrayList<>(),
+                    toWatermark(until, 0), false), HttpStatus.OK);
+        }
+        Date since;
+        int afterAppointmentId;
+        try {
+            String[] watermarkParts = watermark.split("\\.");
+            since = new Date(Long.parseLong(watermarkParts[0]));
+            afterAppointmentId = Integer.parseInt(watermarkParts[1]);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            RuntimeException exception = new RuntimeException("Invalid watermark " + watermark);
+            return new ResponseEntity<>(RestUtil.wrapErrorResponse(exception, exception.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+        return admissionControl.admit(EndpointClass.EXPENSIVE, 1, () -> getAppointmentChanges(watermark, since, afterAppointmentId, until));
+    }
+
+    private ResponseEntity<Object> getAppointmentChanges(String watermark, Date since, int afterAppointmentId, Date until) {
+        List<Appointment> changedAppointments = appointmentsService.getAppointmentsChangedSince(since, afterAppointmentId,
+                until, MAX_CHANGES + 1);
+        boolean hasMore = changedAppointments.size() > MAX_CHANGES;
+        String nextWatermark = watermark;
+        if (hasMore) {
+            changedAppointments = changedAppointments.subList(0, MAX_CHANGES);
+            Appointment lastAppointment = changedAppointments.get(MAX_CHANGES - 1);
+            Date lastChanged = lastAppointment.getDateChanged() != null ? lastAppointment.getDateChanged() : lastAppointment.getDateCreated();
+            nextWatermark = toWatermark(lastChanged, lastAppointment.getAppointmentId());
+        } else if (until.after(since)) {
+            nextWatermark = toWatermark(until, 0);
+        }
+        List<Appointment> appointments = changedAppointments.stream().filter(appointment -> !appointment.getVoided())
+                .collect(Collectors.toList());
+        List<String> voidedUuids = changedAppointments.stream().filter(Appointment::getVoided)
+                .map(Appointment::getUuid).collect(Collectors.toList());
+        return new ResponseEntity<>(new AppointmentChanges(appointmentMapper.constructResponse(appointments), voidedUuids,
+                nextWatermark, hasMore), HttpStatus.OK);
+    }
+
+    private String toWatermark(Date changed, int appointmentId) {
+        return changed.getTime() + "." + appointmentId;
+    }
+
+    AppointmentHeatmap constructHeatmap(List<AppointmentService> appointmentServices, List<AppointmentDailyCount> dailyCounts, LocalDate firstDay, int days) {
+        Map<Integer, Integer> serviceIndexes = new HashMap<>();
+        List<int[]> counts = new ArrayList<>();
+        List<int[]> missedCounts = new ArrayList<>();
+        for (AppointmentService appointmentService : appointmentServices) {
+            serviceIndexes.put(appointmentService.getAppointmentServiceId(), counts.size());
+            counts.add(new int[days]);
+            missedCounts.add(new int[days]);
+        }
+        for (AppointmentDailyCount dailyCount : dailyCounts) {
+            Integer serviceIndex = serviceIndexes.get(dailyCount.getServiceId());
+            long dayIndex = ChronoUnit.DAYS.between(firstDay, new java.sql.Date(dailyCount.getDay().getTime()).toLocalDate());
+            if (serviceIndex == null || dayIndex < 0 || dayIndex >= days) {
+                continue;
+            }
+            counts.get(serviceIndex)[(int) dayIndex] += dailyCount.getAppointmentCount();
+            if (dailyCount.getStatus() == AppointmentStatus.Missed) {
+                missedCounts.get(serviceIndex)[(int) dayIndex] += dailyCount.getAppointmentCount();
+            }
+        }
+        return new AppointmentHeatmap(firstDay.toString(), days,
+                appointmentServiceMapper.constructDefaultResponseForServiceList(appointmentServices), counts, missedCounts);
+    }
+
+    Map<String, AppointmentCount> getAppointmentCountMapFromDayCounts(AppointmentService appointmentService, AppointmentDayCounts dayCounts) {
+        Map<String, AppointmentCount> appointmentCountMap = new LinkedHashMap<>();
+        for (int day = 0; day < dayCounts.getDays(); day++) {
+            if (dayCounts.getAppointmentCount(day) > 0) {
+                Date appointmentDate = dayCounts.getDay(day);
+                appointmentCountMap.put(DateUtil.convertToLocalDateString(appointmentDate), new AppointmentCount(
+                        dayCounts.getAppointmentCount(day), dayCounts.getMissedAppointmentCount(day), appointmentDate, appointmentService.getUuid()));
+            }
+        }
+        return appointmentCountMap;
+    }
+
+    Map<String, AppointmentCount> getAppointmentCountMapFromDailyCounts(AppointmentService appointmentService, List<AppointmentDailyCount> dailyCounts) {
+        Map<String, AppointmentCount> appointmentCountMap = new LinkedHashMap<>();
+        for (AppointmentDailyCount dailyCount : dailyCounts) {
+            Date appointmentDate = new Date(dailyCount.getDay().getTime());
+            AppointmentCount appointmentCount = appointmentCountMap.computeIfAbsent(DateUtil.convertToLocalDateString(appointmentDate),
+                    date -> new AppointmentCount(0, 0, appointmentDate, appointmentService.getUuid()));
+            appointmentCount.setAllAppointmentsCount(appointmentCount.getAllAppointmentsCount() + dailyCount.getAppointmentCount());
+            if (dailyCount.getStatus() == AppointmentStatus.Missed) {
+                appointmentCount.setMissedAppointmentsCount(appointmentCount.getMissedAppointmentsCount() + dailyCount.getAppointmentCount());
+            }
+        }
+        return appointmentCountMap;
+    }
+
     @RequestMapping(method = RequestMethod.POST, value="/{appointmentUuid}/changeStatus")
     @ResponseBody
     public ResponseEntity<Object> transitionAppointment(@PathVariable("appointmentUuid")String appointmentUuid, @RequestBody Map<String, String> statusDetails) throws ParseException {
@@ -120,6 +459,7 @@ public class AppointmentController extends BaseRestController {
             Appointment appointment = appointmentsService.getAppointmentByUuid(appointmentUuid);
             if(appointment != null){
                 appointmentsService.changeStatus(appointment, toStatus, onDate);
+                requestCoalescer.clear();
                 return new ResponseEntity<>(appointmentMapper.constructResponse(appointment), HttpStatus.OK);
             }else
                 throw new RuntimeException("Appointment does not exist");
@@ -137,6 +477,7 @@ public class AppointmentController extends BaseRestController {
                 throw new RuntimeException("Appointment does not exist");
             }
             appointmentsService.undoStatusChange(appointment);
+            requestCoalescer.clear();
             return new ResponseEntity<>(appointmentMapper.constructResponse(appointment), HttpStatus.OK);
         }catch (RuntimeException e) {
             return new ResponseEntity<>(RestUtil.wrapErrorResponse(e, e.getMessage()), HttpStatus.BAD_REQUEST);
@@ -146,11 +487,19 @@ public class AppointmentController extends BaseRestController {
     @RequestMapping(method = RequestMethod.GET)
     @ResponseBody
     public AppointmentDefaultResponse getAppointmentByUuid(@RequestParam(value = "uuid") String uuid)  {
-        Appointment appointment = appointmentsService.getAppointmentByUuid(uuid);
-        if(appointment == null){
-            throw new RuntimeException("Appointment does not exist");
-        }
-        return appointmentMapper.constructResponse(appointment);
+        return admissionControl.admit(EndpointClass.CHEAP, 1, () -> {
+            Appointment appointment = appointmentsService.getAppointmentByUuid(uuid);
+            if (appointment == null) {
+                throw new RuntimeException("Appointment does not exist");
+            }
+            return appointmentMapper.constructResponse(appointment);
+        });
+    }
+
+    @ExceptionHandler(AdmissionRejectedException.class)
+    @ResponseBody
+    public ResponseEntity<Object> handleAdmissionRejected(AdmissionRejectedException exception) {
+        return AdmissionControl.rejectedResponse(exception);
     }
 
 }
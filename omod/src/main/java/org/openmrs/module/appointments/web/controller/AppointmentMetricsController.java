@@ -0,0 +1,42 @@
+package org.openmrs.module.appointments.web.controller;
+
+import org.openmrs.api.context.Context;
+import org.openmrs.module.appointments.metrics.MethodMetricsSnapshot;
+import org.openmrs.module.appointments.metrics.MetricsRegistry;
+import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.v1_0.controller.BaseRestController;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.List;
+
+import static org.openmrs.module.appointments.constants.PrivilegeConstants.MANAGE_APPOINTMENTS;
+import static org.openmrs.module.appointments.constants.PrivilegeConstants.VIEW_APPOINTMENTS;
+
+@Controller
+@RequestMapping(value = "/rest/" + RestConstants.VERSION_1 + "/appointment/metrics")
+public class AppointmentMetricsController extends BaseRestController {
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @RequestMapping(method = RequestMethod.GET)
+    @ResponseBody
+    public List<MethodMetricsSnapshot> getMetrics() {
+        Context.requirePrivilege(VIEW_APPOINTMENTS);
+        return metricsRegistry.snapshot();
+    }
+
+    @RequestMapping(method = RequestMethod.DELETE)
+    @ResponseBody
+    public ResponseEntity<Object> resetMetrics() {
+        Context.requirePrivilege(MANAGE_APPOINTMENTS);
+        metricsRegistry.reset();
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+}
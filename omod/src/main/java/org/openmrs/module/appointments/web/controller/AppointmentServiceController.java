@@ -3,6 +3,7 @@ package org.openmrs.module.appointments.web.controller;
 import org.openmrs.module.appointments.model.AppointmentService;
 import org.openmrs.module.appointments.service.AppointmentServiceService;
 import org.openmrs.module.appointments.util.DateUtil;
+import org.openmrs.module.appointments.web.coalescing.RequestCoalescer;
 import org.openmrs.module.appointments.web.contract.AppointmentServiceDefaultResponse;
 import org.openmrs.module.appointments.web.contract.AppointmentServicePayload;
 import org.openmrs.module.appointments.web.contract.AppointmentServiceFullResponse;
@@ -18,8 +19,11 @@ import org.springframework.web.bind.annotation.*;
 import javax.validation.Valid;
 import java.io.IOException;
 import java.text.ParseException;
+import java.util.Collections;
 import java.util.List;
 
+import static org.openmrs.module.appointments.constants.PrivilegeConstants.VIEW_APPOINTMENT_SERVICES;
+
 @Controller
 @RequestMapping(value = "/rest/" + RestConstants.VERSION_1 + "/appointmentService")
 public class AppointmentServiceController extends BaseRestController {
@@ -28,21 +32,27 @@ public class AppointmentServiceController extends BaseRestController {
     private AppointmentServiceService appointmentServiceService;
     @Autowired
     private AppointmentServiceMapper appointmentServiceMapper;
+    @Autowired
+    private RequestCoalescer requestCoalescer;
 
     @RequestMapping(method = RequestMethod.GET, value = "all/default")
     @ResponseBody
     public List<AppointmentServiceDefaultResponse> getAllAppointmentServices()  {
-        List<AppointmentService> appointmentServices = appointmentServiceService.getAllAppointmentServices(false);
-        List<AppointmentServiceDefaultResponse> response = appointmentServiceMapper.constructDefaultResponseForServiceList(appointmentServices);
-        return response;
+        return requestCoalescer.coalesce("appointmentService/all/default", Collections.emptyList(),
+                Collections.singletonList(VIEW_APPOINTMENT_SERVICES), () -> {
+                    List<AppointmentService> appointmentServices = appointmentServiceService.getAllAppointmentServices(false);
+                    return appointmentServiceMapper.constructDefaultResponseForServiceList(appointmentServices);
+                });
     }
 
     @RequestMapping(method = RequestMethod.GET, value = "all/full")
     @ResponseBody
     public List<AppointmentServiceFullResponse> getAllAppointmentServicesWithTypes() {
-        List<AppointmentService> appointmentServices = appointmentServiceService.getAllAppointmentServices(false);
-        List<AppointmentServiceFullResponse> response = appointmentServiceMapper.constructFullResponseForServiceList(appointmentServices);
-        return response;
+        return requestCoalescer.coalesce("appointmentService/all/full", Collections.emptyList(),
+                Collections.singletonList(VIEW_APPOINTMENT_SERVICES), () -> {
+                    List<AppointmentService> appointmentServices = appointmentServiceService.getAllAppointmentServices(false);
+                    return appointmentServiceMapper.constructFullResponseForServiceList(appointmentServices);
+                });
     }
 
     @RequestMapping(method = RequestMethod.GET)
@@ -64,6 +74,7 @@ public class AppointmentServiceController extends BaseRestController {
             throw new RuntimeException("Appointment Service name should not be null");
         AppointmentService appointmentService = appointmentServiceMapper.getAppointmentServiceFromPayload(appointmentServicePayload);
         AppointmentService savedAppointmentService = appointmentServiceService.save(appointmentService);
+        requestCoalescer.clear();
         AppointmentServiceFullResponse appointmentServiceFullResponse = appointmentServiceMapper.constructResponse(savedAppointmentService);
         return new ResponseEntity<>(appointmentServiceFullResponse, HttpStatus.OK);
     }
@@ -77,6 +88,7 @@ public class AppointmentServiceController extends BaseRestController {
             return new ResponseEntity<>(appointmentServiceFullResponse, HttpStatus.OK);
         }
         AppointmentService appointmentService1 = appointmentServiceService.voidAppointmentService(appointmentService, voidReason);
+        requestCoalescer.clear();
         AppointmentServiceFullResponse appointmentServiceFullResponse = appointmentServiceMapper.constructResponse(appointmentService1);
         return new ResponseEntity<>(appointmentServiceFullResponse, HttpStatus.OK);
     }
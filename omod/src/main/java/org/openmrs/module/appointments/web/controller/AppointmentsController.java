@@ -1,10 +1,19 @@
 package org.openmrs.module.appointments.web.controller;
 
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentBatchItem;
 import org.openmrs.module.appointments.model.AppointmentSearch;
+import org.openmrs.module.appointments.model.AppointmentStatusChange;
+import org.openmrs.module.appointments.model.ResultList;
 import org.openmrs.module.appointments.service.AppointmentsService;
 import org.openmrs.module.appointments.util.DateUtil;
+import org.openmrs.module.appointments.web.admission.AdmissionControl;
+import org.openmrs.module.appointments.web.admission.AdmissionRejectedException;
+import org.openmrs.module.appointments.web.admission.EndpointClass;
+import org.openmrs.module.appointments.web.coalescing.RequestCoalescer;
 import org.openmrs.module.appointments.web.contract.AppointmentDefaultResponse;
+import org.openmrs.module.appointments.web.contract.AppointmentFields;
+import org.openmrs.module.appointments.web.contract.AppointmentListResponse;
 import org.openmrs.module.appointments.web.mapper.AppointmentMapper;
 import org.openmrs.module.webservices.rest.web.RestConstants;
 import org.openmrs.module.webservices.rest.web.RestUtil;
@@ -13,19 +22,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import java.text.ParseException;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
 import static java.util.Objects.isNull;
+import static org.openmrs.module.appointments.web.controller.ResultHeaders.withTruncationHeader;
 
 @Controller
 @RequestMapping(value = "/rest/" + RestConstants.VERSION_1 + "/appointments")
@@ -34,25 +48,74 @@ public class AppointmentsController extends BaseRestController {
     private AppointmentsService appointmentsService;
     @Autowired
     private AppointmentMapper appointmentMapper;
+    @Autowired
+    private AdmissionControl admissionControl;
+    @Autowired
+    private RequestCoalescer requestCoalescer;
 
     @RequestMapping(method = RequestMethod.GET, value="/{uuid}")
     @ResponseBody
     public AppointmentDefaultResponse getAppointmentByUuid(@PathVariable(value = "uuid") String uuid)  {
-        Appointment appointment = appointmentsService.getAppointmentByUuid(uuid);
-        if (appointment == null) {
-            throw new RuntimeException("Appointment does not exist");
-        }
-        return appointmentMapper.constructResponse(appointment);
+        return admissionControl.admit(EndpointClass.CHEAP, 1, () -> {
+            Appointment appointment = appointmentsService.getAppointmentByUuid(uuid);
+            if (appointment == null) {
+                throw new RuntimeException("Appointment does not exist");
+            }
+            return appointmentMapper.constructResponse(appointment);
+        });
     }
 
     @RequestMapping(method = RequestMethod.POST, value = "search")
     @ResponseBody
-    public List<AppointmentDefaultResponse> search(@Valid @RequestBody AppointmentSearch appointmentSearch) {
-        List<Appointment> appointments = appointmentsService.search(appointmentSearch);
-        if(isNull(appointments)){
-            throw new RuntimeException("Either StartDate or EndDate not provided");
+    public List<AppointmentDefaultResponse> search(@Valid @RequestBody AppointmentSearch appointmentSearch, HttpServletResponse response) {
+        int cost = AdmissionControl.costOfDateRange(appointmentSearch.getStartDate(), appointmentSearch.getEndDate());
+        return withTruncationHeader(admissionControl.admit(EndpointClass.EXPENSIVE, cost, () -> {
+            List<Appointment> appointments = appointmentsService.search(appointmentSearch);
+            if(isNull(appointments)){
+                throw new RuntimeException("Either StartDate or EndDate not provided");
+            }
+            return new ResultList<>(appointmentMapper.constructResponse(appointments), ResultList.isTruncated(appointments));
+        }), response);
+    }
+
+    @RequestMapping(method = RequestMethod.POST, value = "search", params = "normalized=true")
+    @ResponseBody
+    public AppointmentListResponse searchNormalized(@Valid @RequestBody AppointmentSearch appointmentSearch, HttpServletResponse response) {
+        int cost = AdmissionControl.costOfDateRange(appointmentSearch.getStartDate(), appointmentSearch.getEndDate());
+        return withTruncationHeader(admissionControl.admit(EndpointClass.EXPENSIVE, cost, () -> {
+            List<Appointment> appointments = appointmentsService.search(appointmentSearch);
+            if(isNull(appointments)){
+                throw new RuntimeException("Either StartDate or EndDate not provided");
+            }
+            return appointmentMapper.constructNormalizedResponse(appointments);
+        }), response);
+    }
+
+    @RequestMapping(method = RequestMethod.POST, value = "search", params = {"fields", "normalized!=true"})
+    @ResponseBody
+    public ResponseEntity<Object> searchFields(@Valid @RequestBody AppointmentSearch appointmentSearch,
+                                               @RequestParam(value = "fields") String fields, HttpServletResponse response) {
+        AppointmentFields appointmentFields;
+        try {
+            appointmentFields = AppointmentFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(RestUtil.wrapErrorResponse(e, e.getMessage()), HttpStatus.BAD_REQUEST);
         }
-        return appointmentMapper.constructResponse(appointments);
+        int cost = AdmissionControl.costOfDateRange(appointmentSearch.getStartDate(), appointmentSearch.getEndDate());
+        return new ResponseEntity<>(withTruncationHeader(admissionControl.admit(EndpointClass.EXPENSIVE, cost, () -> {
+            if (!appointmentFields.isProjectable()) {
+                List<Appointment> appointments = appointmentsService.search(appointmentSearch);
+                if(isNull(appointments)){
+                    throw new RuntimeException("Either StartDate or EndDate not provided");
+                }
+                return appointmentMapper.constructSparseResponse(appointments, appointmentFields);
+            }
+            List<Object[]> rows = appointmentsService.searchProperties(appointmentSearch, appointmentFields.getFields());
+            if(isNull(rows)){
+                throw new RuntimeException("Either StartDate or EndDate not provided");
+            }
+            return appointmentMapper.constructSparseResponseFromRows(rows, appointmentFields);
+        }), response), HttpStatus.OK);
     }
 
     @RequestMapping(method = RequestMethod.POST, value = "/{appointmentUuid}/status-change")
@@ -63,8 +126,29 @@ public class AppointmentsController extends BaseRestController {
         Appointment appointment = appointmentsService.getAppointmentByUuid(appointmentUuid);
         if (appointment != null) {
             appointmentsService.changeStatus(appointment, toStatus, onDate);
+            requestCoalescer.clear();
             return new ResponseEntity<>(appointmentMapper.constructResponse(appointment), HttpStatus.OK);
         } else
             throw new RuntimeException("Appointment does not exist");
     }
+
+    @RequestMapping(method = RequestMethod.POST, value = "status-change")
+    @ResponseBody
+    public ResponseEntity<Object> transitionAppointments(@RequestBody AppointmentStatusChange[] statusChanges) {
+        if (statusChanges.length > AppointmentController.MAX_BATCH_SIZE) {
+            RuntimeException exception = new RuntimeException("A batch cannot have more than " + AppointmentController.MAX_BATCH_SIZE + " status changes");
+            return new ResponseEntity<>(RestUtil.wrapErrorResponse(exception, exception.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+        return admissionControl.admit(EndpointClass.BULK, 1, () -> {
+            List<AppointmentBatchItem> batchItems = appointmentsService.bulkChangeStatus(Arrays.asList(statusChanges));
+            requestCoalescer.clear();
+            return new ResponseEntity<>(appointmentMapper.constructBatchResponse(batchItems), HttpStatus.OK);
+        });
+    }
+
+    @ExceptionHandler(AdmissionRejectedException.class)
+    @ResponseBody
+    public ResponseEntity<Object> handleAdmissionRejected(AdmissionRejectedException exception) {
+        return AdmissionControl.rejectedResponse(exception);
+    }
 }
@@ -0,0 +1,32 @@
+package org.openmrs.module.appointments.web.controller;
+
+import org.openmrs.module.appointments.model.ResultList;
+import org.openmrs.module.appointments.web.contract.AppointmentListResponse;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+
+/**
+ * Tells clients that a list was cut at the row cap of its query, so that they can narrow the query.
+ */
+final class ResultHeaders {
+
+    static final String TRUNCATED_HEADER = "X-Results-Truncated";
+
+    private ResultHeaders() {
+    }
+
+    static <T> List<T> withTruncationHeader(List<T> results, HttpServletResponse response) {
+        if (ResultList.isTruncated(results)) {
+            response.setHeader(TRUNCATED_HEADER, "true");
+        }
+        return results;
+    }
+
+    static AppointmentListResponse withTruncationHeader(AppointmentListResponse listResponse, HttpServletResponse response) {
+        if (listResponse.isTruncated()) {
+            response.setHeader(TRUNCATED_HEADER, "true");
+        }
+        return listResponse;
+    }
+}
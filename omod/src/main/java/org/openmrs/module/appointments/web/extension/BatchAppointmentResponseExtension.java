@@ -0,0 +1,24 @@
+package org.openmrs.module.appointments.web.extension;
+
+import org.openmrs.module.appointments.model.Appointment;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An {@link AppointmentResponseExtension} that finds the additional info of all the appointments of a response at once,
+ * for example with one query for all their patients.
+ */
+public interface BatchAppointmentResponseExtension extends AppointmentResponseExtension {
+
+	/**
+	 * @return the additional info of the appointments by appointment uuid
+	 */
+	Map<String, Map<String, String>> run(List<Appointment> appointments);
+
+	@Override
+	default Map<String, String> run(Appointment appointment) {
+		return run(Collections.singletonList(appointment)).get(appointment.getUuid());
+	}
+}
@@ -0,0 +1,175 @@
+package org.openmrs.module.appointments.web.filter;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.appointments.metrics.SqlStatementCounter;
+import org.openmrs.module.appointments.metrics.SqlStatementStatistics;
+import org.openmrs.module.appointments.metrics.SqlStatementTimer;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the SQL statements issued while serving each appointment REST request. When the
+ * {@code appointments.debug.sqlStatementHeaders} global property is true, the count and the cumulative JDBC time are
+ * returned in the {@code X-SQL-Statement-Count} and {@code X-SQL-Time-Millis} headers. Statements repeated more than
+ * {@code appointments.debug.repeatedStatementThreshold} times within one request are logged as likely N+1 queries.
+ */
+public class SqlStatementCounterFilter implements Filter {
+
+    static final String STATEMENT_COUNT_HEADER = "X-SQL-Statement-Count";
+    static final String SQL_TIME_HEADER = "X-SQL-Time-Millis";
+    static final String DEBUG_HEADERS_PROPERTY = "appointments.debug.sqlStatementHeaders";
+    static final String REPEATED_STATEMENT_THRESHOLD_PROPERTY = "appointments.debug.repeatedStatementThreshold";
+    private static final int DEFAULT_REPEATED_STATEMENT_THRESHOLD = 10;
+    private static final long SETTINGS_TTL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private static final Log log = LogFactory.getLog(SqlStatementCounterFilter.class);
+
+    private volatile boolean debugHeaders;
+    private volatile int repeatedStatementThreshold = DEFAULT_REPEATED_STATEMENT_THRESHOLD;
+    private volatile long settingsReadAt;
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        refreshSettings();
+        SqlStatementStatistics statistics = SqlStatementCounter.start();
+        SqlStatementTimer.attachToCurrentSession();
+        SqlStatementHeaderResponse headerResponse = debugHeaders ? new SqlStatementHeaderResponse((HttpServletResponse) response, statistics) : null;
+        boolean asyncStarted = false;
+        try {
+            chain.doFilter(request, headerResponse != null ? headerResponse : response);
+            asyncStarted = request.isAsyncStarted();
+            if (asyncStarted) {
+                request.getAsyncContext().addListener(new RepeatedStatementLogger((HttpServletRequest) request, statistics));
+            } else if (headerResponse != null) {
+                headerResponse.addSqlStatementHeaders();
+            }
+        } finally {
+            SqlStatementCounter.stop();
+            if (!asyncStarted) {
+                logRepeatedStatements((HttpServletRequest) request, statistics);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    private void logRepeatedStatements(HttpServletRequest request, SqlStatementStatistics statistics) {
+        Map<String, Integer> repeatedStatements = statistics.getRepeatedStatements(repeatedStatementThreshold);
+        for (Map.Entry<String, Integer> repeatedStatement : repeatedStatements.entrySet()) {
+            log.warn(String.format("Possible N+1 query: statement executed %d times while serving %s %s: %s",
+                    repeatedStatement.getValue(), request.getMethod(), request.getRequestURI(), repeatedStatement.getKey()));
+        }
+    }
+
+    private void refreshSettings() {
+        long now = System.currentTimeMillis();
+        if (now - settingsReadAt < SETTINGS_TTL_MILLIS) {
+            return;
+        }
+        settingsReadAt = now;
+        try {
+            debugHeaders = Boolean.parseBoolean(Context.getAdministrationService().getGlobalProperty(DEBUG_HEADERS_PROPERTY, "false"));
+            repeatedStatementThreshold = Integer.parseInt(Context.getAdministrationService().getGlobalProperty(
+                    REPEATED_STATEMENT_THRESHOLD_PROPERTY, String.valueOf(DEFAULT_REPEATED_STATEMENT_THRESHOLD)));
+        } catch (RuntimeException e) {
+            log.debug("Could not read SQL statement debug settings, keeping the previous ones", e);
+        }
+    }
+
+    /**
+     * Logs the repeated statements of a request that another thread answers asynchronously, once it has answered.
+     */
+    private class RepeatedStatementLogger implements AsyncListener {
+
+        private final HttpServletRequest request;
+
+        private final SqlStatementStatistics statistics;
+
+        RepeatedStatementLogger(HttpServletRequest request, SqlStatementStatistics statistics) {
+            this.request = request;
+            this.statistics = statistics;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            logRepeatedStatements(request, statistics);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    /**
+     * Adds the SQL headers right before the body is written, since the response is committed by then.
+     */
+    static class SqlStatementHeaderResponse extends HttpServletResponseWrapper {
+
+        private final SqlStatementStatistics statistics;
+
+        private boolean headersAdded;
+
+        SqlStatementHeaderResponse(HttpServletResponse response, SqlStatementStatistics statistics) {
+            super(response);
+            this.statistics = statistics;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addSqlStatementHeaders();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addSqlStatementHeaders();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addSqlStatementHeaders();
+            super.flushBuffer();
+        }
+
+        void addSqlStatementHeaders() {
+            if (headersAdded || isCommitted()) {
+                return;
+            }
+            headersAdded = true;
+            setHeader(STATEMENT_COUNT_HEADER, String.valueOf(statistics.getStatementCount()));
+            setHeader(SQL_TIME_HEADER, String.valueOf(statistics.getExecutionMillis()));
+        }
+    }
+}
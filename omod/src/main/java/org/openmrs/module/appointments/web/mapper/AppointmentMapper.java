@@ -1,11 +1,16 @@
 package org.openmrs.module.appointments.web.mapper;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import org.apache.commons.lang.StringUtils;
 import org.openmrs.Location;
+import org.openmrs.OpenmrsObject;
 import org.openmrs.Patient;
 import org.openmrs.Provider;
 import org.openmrs.api.LocationService;
@@ -14,10 +19,15 @@ import org.openmrs.api.ProviderService;
 import org.openmrs.module.appointments.model.*;
 import org.openmrs.module.appointments.service.AppointmentServiceService;
 import org.openmrs.module.appointments.service.AppointmentsService;
+import org.openmrs.module.appointments.web.contract.AppointmentBatchItemResponse;
 import org.openmrs.module.appointments.web.contract.AppointmentDefaultResponse;
+import org.openmrs.module.appointments.web.contract.AppointmentFields;
+import org.openmrs.module.appointments.web.contract.AppointmentListResponse;
 import org.openmrs.module.appointments.web.contract.AppointmentPayload;
 import org.openmrs.module.appointments.web.contract.AppointmentQuery;
+import org.openmrs.module.appointments.web.contract.AppointmentRowResponse;
 import org.openmrs.module.appointments.web.extension.AppointmentResponseExtension;
+import org.openmrs.module.appointments.web.extension.BatchAppointmentResponseExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -47,11 +57,43 @@ public class AppointmentMapper {
     AppointmentResponseExtension appointmentResponseExtension;
 
     public List<AppointmentDefaultResponse> constructResponse(List<Appointment> appointments) {
-        return appointments.stream().map(as -> this.mapToDefaultResponse(as, new AppointmentDefaultResponse())).collect(Collectors.toList());
+        Map<String, Map<String, String>> additionalInfo = runExtension(appointments);
+        return appointments.stream().map(as -> this.mapToDefaultResponse(as, new AppointmentDefaultResponse(), additionalInfo))
+                .collect(Collectors.toList());
     }
 
     public AppointmentDefaultResponse constructResponse(Appointment appointment) {
-        return this.mapToDefaultResponse(appointment, new AppointmentDefaultResponse());
+        return this.mapToDefaultResponse(appointment, new AppointmentDefaultResponse(),
+                runExtension(Collections.singletonList(appointment)));
+    }
+
+    /**
+     * Maps the appointments to an {@link AppointmentListResponse}, mapping each distinct service, service type,
+     * provider and location only once.
+     */
+    public AppointmentListResponse constructNormalizedResponse(List<Appointment> appointments) {
+        AppointmentListResponse listResponse = new AppointmentListResponse();
+        listResponse.setTruncated(ResultList.isTruncated(appointments));
+        Map<String, Map<String, String>> additionalInfo = runExtension(appointments);
+        for (Appointment a : appointments) {
+            AppointmentRowResponse response = new AppointmentRowResponse();
+            response.setUuid(a.getUuid());
+            response.setAppointmentNumber(a.getAppointmentNumber());
+            response.setPatient(createPatientMap(a.getPatient()));
+            response.setServiceUuid(reference(listResponse.getServices(), a.getService(), appointmentServiceMapper::constructDefaultResponse));
+            response.setServiceTypeUuid(reference(listResponse.getServiceTypes(), a.getServiceType(), this::createServiceTypeMap));
+            response.setProviderUuid(reference(listResponse.getProviders(), a.getProvider(), this::createProviderMap));
+            response.setLocationUuid(reference(listResponse.getLocations(), a.getLocation(), this::createLocationMap));
+            response.setStartDateTime(a.getStartDateTime());
+            response.setEndDateTime(a.getEndDateTime());
+            response.setAppointmentKind(a.getAppointmentKind().name());
+            response.setStatus(a.getStatus().name());
+            response.setComments(a.getComments());
+            if (additionalInfo != null)
+                response.setAdditionalInfo(additionalInfo.get(a.getUuid()));
+            listResponse.getAppointments().add(response);
+        }
+        return listResponse;
     }
 
     public Appointment getAppointmentFromPayload(AppointmentPayload appointmentPayload) {
@@ -79,6 +121,163 @@ public class AppointmentMapper {
         return appointment;
     }
 
+    /**
+     * Maps a batch of new appointments, looking up every distinct uuid only once. Payloads that cannot be mapped
+     * are returned as failed items so the rest of the batch can still be saved.
+     */
+    public List<AppointmentBatchItem> getAppointmentsFromPayloads(List<AppointmentPayload> appointmentPayloads) {
+        Map<String, Patient> patients = appointmentsService.getPatientsByUuids(appointmentPayloads.stream()
+                .map(AppointmentPayload::getPatientUuid).filter(StringUtils::isNotBlank).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(Patient::getUuid, Function.identity(), (first, second) -> first));
+        Map<String, AppointmentService> appointmentServices = new HashMap<>();
+        Map<String, Provider> providers = new HashMap<>();
+        Map<String, Location> locations = new HashMap<>();
+
+        List<AppointmentBatchItem> batchItems = new ArrayList<>();
+        for (AppointmentPayload appointmentPayload : appointmentPayloads) {
+            AppointmentBatchItem batchItem = new AppointmentBatchItem(null);
+            batchItems.add(batchItem);
+            if (!StringUtils.isBlank(appointmentPayload.getUuid())) {
+                batchItem.getErrors().add("Existing appointments cannot be updated in a batch");
+                continue;
+            }
+            Appointment appointment = new Appointment();
+            appointment.setPatient(patients.get(appointmentPayload.getPatientUuid()));
+            AppointmentService appointmentService = lookup(appointmentServices, appointmentPayload.getServiceUuid(),
+                    appointmentServiceService::getAppointmentServiceByUuid);
+            if (appointmentPayload.getServiceTypeUuid() != null) {
+                AppointmentServiceType appointmentServiceType = appointmentService == null ? null : appointmentService
+                        .getServiceTypes(true).stream().filter(type -> type.getUuid().equals(appointmentPayload.getServiceTypeUuid()))
+                        .findAny().orElse(null);
+                if (appointmentServiceType == null) {
+                    batchItem.getErrors().add("Appointment Service Type does not exist");
+                    continue;
+                }
+                appointment.setServiceType(appointmentServiceType);
+            }
+            appointment.setService(appointmentService);
+            appointment.setProvider(lookup(providers, appointmentPayload.getProviderUuid(), providerService::getProviderByUuid));
+            appointment.setLocation(lookup(locations, appointmentPayload.getLocationUuid(), locationService::getLocationByUuid));
+            appointment.setStartDateTime(appointmentPayload.getStartDateTime());
+            appointment.setEndDateTime(appointmentPayload.getEndDateTime());
+            try {
+                appointment.setAppointmentKind(AppointmentKind.valueOf(appointmentPayload.getAppointmentKind()));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                batchItem.getErrors().add("Invalid appointment kind " + appointmentPayload.getAppointmentKind());
+                continue;
+            }
+            appointment.setComments(appointmentPayload.getComments());
+            batchItem.setAppointment(appointment);
+        }
+        return batchItems;
+    }
+
+    public List<AppointmentBatchItemResponse> constructBatchResponse(List<AppointmentBatchItem> batchItems) {
+        List<AppointmentBatchItemResponse> responses = new ArrayList<>();
+        for (int index = 0; index < batchItems.size(); index++) {
+            AppointmentBatchItem batchItem = batchItems.get(index);
+            AppointmentBatchItemResponse response = new AppointmentBatchItemResponse();
+            response.setIndex(index);
+            response.setSuccessful(batchItem.isSuccessful());
+            response.setErrors(batchItem.getErrors());
+            if (batchItem.getAppointment() != null) {
+                response.setUuid(batchItem.getAppointment().getUuid());
+                response.setAppointmentNumber(batchItem.getAppointment().getAppointmentNumber());
+                response.setStatus(batchItem.getAppointment().getStatus().name());
+            }
+            responses.add(response);
+        }
+        return responses;
+    }
+
+    private <T> T lookup(Map<String, T> resolved, String uuid, Function<String, T> loader) {
+        if (uuid == null) {
+            return null;
+        }
+        if (!resolved.containsKey(uuid)) {
+            resolved.put(uuid, loader.apply(uuid));
+        }
+        return resolved.get(uuid);
+    }
+
+    /**
+     * Maps the appointments to only the requested fields. The response extension only runs when additionalInfo is
+     * one of them.
+     */
+    public List<Map<String, Object>> constructSparseResponse(List<Appointment> appointments, AppointmentFields fields) {
+        Map<String, Map<String, String>> additionalInfo = fields.includes(AppointmentFields.ADDITIONAL_INFO)
+                ? runExtension(appointments) : null;
+        List<Map<String, Object>> responses = new ArrayList<>(appointments.size());
+        for (Appointment a : appointments) {
+            Map<String, Object> response = new LinkedHashMap<>();
+            for (String field : fields.getFields()) {
+                if (AppointmentFields.ADDITIONAL_INFO.equals(field)) {
+                    response.put(field, additionalInfo != null ? additionalInfo.get(a.getUuid()) : null);
+                } else {
+                    response.put(field, mapField(field, getProperty(a, field)));
+                }
+            }
+            responses.add(response);
+        }
+        return new ResultList<>(responses, ResultList.isTruncated(appointments));
+    }
+
+    /**
+     * Maps rows read with AppointmentsService#getAllAppointmentProperties, or searchProperties, for projectable fields.
+     * The rows start with the values of the fields, in their order.
+     */
+    public List<Map<String, Object>> constructSparseResponseFromRows(List<Object[]> rows, AppointmentFields fields) {
+        List<String> fieldNames = fields.getFields();
+        List<Map<String, Object>> responses = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Map<String, Object> response = new LinkedHashMap<>();
+            for (int index = 0; index < fieldNames.size(); index++) {
+                response.put(fieldNames.get(index), mapField(fieldNames.get(index), row[index]));
+            }
+            responses.add(response);
+        }
+        return new ResultList<>(responses, ResultList.isTruncated(rows));
+    }
+
+    private Object getProperty(Appointment a, String field) {
+        switch (field) {
+            case "uuid": return a.getUuid();
+            case "appointmentNumber": return a.getAppointmentNumber();
+            case "patient": return a.getPatient();
+            case "service": return a.getService();
+            case "serviceType": return a.getServiceType();
+            case "provider": return a.getProvider();
+            case "location": return a.getLocation();
+            case "startDateTime": return a.getStartDateTime();
+            case "endDateTime": return a.getEndDateTime();
+            case "appointmentKind": return a.getAppointmentKind();
+            case "status": return a.getStatus();
+            case "comments": return a.getComments();
+            default: throw new IllegalArgumentException("Unknown field " + field);
+        }
+    }
+
+    private Object mapField(String field, Object value) {
+        switch (field) {
+            case "patient": return createPatientMap((Patient) value);
+            case "service": return appointmentServiceMapper.constructDefaultResponse((AppointmentService) value);
+            case "serviceType": return createServiceTypeMap((AppointmentServiceType) value);
+            case "provider": return createProviderMap((Provider) value);
+            case "location": return createLocationMap((Location) value);
+            case "appointmentKind":
+            case "status": return value != null ? ((Enum<?>) value).name() : null;
+            default: return value;
+        }
+    }
+
+    private <T extends OpenmrsObject, R> String reference(Map<String, R> objects, T object, Function<T, R> mapper) {
+        if (object == null) {
+            return null;
+        }
+        objects.computeIfAbsent(object.getUuid(), uuid -> mapper.apply(object));
+        return object.getUuid();
+    }
+
     private AppointmentServiceType getServiceTypeByUuid(Set<AppointmentServiceType> serviceTypes, String serviceTypeUuid) {
         return serviceTypes.stream()
                 .filter(avb -> avb.getUuid().equals(serviceTypeUuid)).findAny().get();
@@ -97,7 +296,26 @@ public class AppointmentMapper {
         return appointment;
     }
 
-    private AppointmentDefaultResponse mapToDefaultResponse(Appointment a, AppointmentDefaultResponse response) {
+    /**
+     * @return the additional info of the appointments by uuid, found at once by a batch extension, or null when there
+     * is no extension
+     */
+    private Map<String, Map<String, String>> runExtension(List<Appointment> appointments) {
+        if (appointmentResponseExtension == null) {
+            return null;
+        }
+        if (appointmentResponseExtension instanceof BatchAppointmentResponseExtension && !appointments.isEmpty()) {
+            return ((BatchAppointmentResponseExtension) appointmentResponseExtension).run(appointments);
+        }
+        Map<String, Map<String, String>> additionalInfo = new HashMap<>();
+        for (Appointment a : appointments) {
+            additionalInfo.put(a.getUuid(), appointmentResponseExtension.run(a));
+        }
+        return additionalInfo;
+    }
+
+    private AppointmentDefaultResponse mapToDefaultResponse(Appointment a, AppointmentDefaultResponse response,
+                                                            Map<String, Map<String, String>> additionalInfo) {
         response.setUuid(a.getUuid());
         response.setAppointmentNumber(a.getAppointmentNumber());
         response.setPatient(createPatientMap(a.getPatient()));
@@ -110,8 +328,8 @@ public class AppointmentMapper {
         response.setAppointmentKind(a.getAppointmentKind().name());
         response.setStatus(a.getStatus().name());
         response.setComments(a.getComments());
-        if(appointmentResponseExtension!=null)
-            response.setAdditionalInfo(appointmentResponseExtension.run(a));
+        if(additionalInfo!=null)
+            response.setAdditionalInfo(additionalInfo.get(a.getUuid()));
         return response;
     }
     
@@ -1,5 +1,17 @@
 package org.openmrs.module.appointments.web;
 
+import org.junit.Before;
+import org.openmrs.module.appointments.web.coalescing.RequestCoalescer;
+import org.springframework.beans.factory.annotation.Autowired;
+
 @org.springframework.test.context.ContextConfiguration(locations = {"classpath:TestingApplicationContext.xml"}, inheritLocations = true)
 public class BaseIntegrationTest extends BaseWebControllerTest {
+
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
+    @Before
+    public void clearCoalescedResponses() {
+        requestCoalescer.clear();
+    }
 }
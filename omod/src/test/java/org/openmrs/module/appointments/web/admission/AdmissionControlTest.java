@@ -0,0 +1,86 @@
+package org.openmrs.module.appointments.web.admission;
+
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class AdmissionControlTest {
+
+    private final AdmissionControl admissionControl = new AdmissionControl();
+
+    @Test
+    public void shouldRunAdmittedRequest() {
+        assertEquals("response", admissionControl.admit(EndpointClass.EXPENSIVE, 1, () -> "response"));
+    }
+
+    @Test
+    public void shouldReleasePermitsWhenRequestFails() {
+        for (int attempt = 0; attempt <= EndpointClass.BULK.getCapacity(); attempt++) {
+            try {
+                admissionControl.admit(EndpointClass.BULK, 1, () -> {
+                    throw new IllegalStateException("failed");
+                });
+            } catch (IllegalStateException e) {
+                assertEquals("failed", e.getMessage());
+            }
+        }
+
+        assertEquals("response", admissionControl.admit(EndpointClass.BULK, EndpointClass.BULK.getCapacity(), () -> "response"));
+    }
+
+    @Test
+    public void shouldRejectRequestWhenClassIsSaturated() throws Exception {
+        CountDownLatch admitted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            executorService.submit(() -> admissionControl.admit(EndpointClass.BULK, EndpointClass.BULK.getCapacity(), () -> {
+                admitted.countDown();
+                try {
+                    return release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+            admitted.await(10, TimeUnit.SECONDS);
+
+            try {
+                admissionControl.admit(EndpointClass.BULK, 1, () -> "response");
+                fail("Request should have been rejected");
+            } catch (AdmissionRejectedException e) {
+                assertEquals(EndpointClass.BULK.getRetryAfterSeconds(), e.getRetryAfterSeconds());
+            }
+            assertEquals("response", admissionControl.admit(EndpointClass.CHEAP, 1, () -> "response"));
+        } finally {
+            release.countDown();
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldCostOneUnitPerStartedMonthOfDateRange() {
+        Date startDate = new Date(0);
+
+        assertEquals(1, AdmissionControl.costOfDateRange(startDate, new Date(TimeUnit.DAYS.toMillis(1))));
+        assertEquals(2, AdmissionControl.costOfDateRange(startDate, new Date(TimeUnit.DAYS.toMillis(31))));
+        assertEquals(12, AdmissionControl.costOfDateRange(startDate, new Date(TimeUnit.DAYS.toMillis(365))));
+        assertEquals(Integer.MAX_VALUE, AdmissionControl.costOfDateRange(startDate, null));
+    }
+
+    @Test
+    public void shouldRespondServiceUnavailableWithRetryAfter() {
+        ResponseEntity<Object> response = AdmissionControl.rejectedResponse(new AdmissionRejectedException(EndpointClass.EXPENSIVE));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("5", response.getHeaders().getFirst("Retry-After"));
+    }
+}
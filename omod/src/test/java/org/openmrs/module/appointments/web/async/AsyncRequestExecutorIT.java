@@ -0,0 +1,190 @@
+package org.openmrs.module.appointments.web.async;
+
+import org.junit.Test;
+import org.openmrs.api.APIAuthenticationException;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.appointments.metrics.SqlStatementCounter;
+import org.openmrs.module.appointments.metrics.SqlStatementStatistics;
+import org.openmrs.module.appointments.web.BaseIntegrationTest;
+import org.openmrs.module.appointments.web.controller.AppointmentController;
+import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncRequestExecutorIT extends BaseIntegrationTest {
+
+    @Autowired
+    private AsyncRequestExecutor asyncRequestExecutor;
+
+    @Autowired
+    private AppointmentController appointmentController;
+
+    @Test
+    public void shouldRunOnRequestThreadWhenAsyncRequestsAreNotSupported() {
+        Thread requestThread = Thread.currentThread();
+
+        Thread thread = asyncRequestExecutor.execute(appointmentController, new MockHttpServletRequest(), new MockHttpServletResponse(), Thread::currentThread);
+
+        assertEquals(requestThread, thread);
+    }
+
+    @Test
+    public void shouldWriteResponseFromPoolThreadAsUserOfRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Thread requestThread = Thread.currentThread();
+
+        Map<String, String> result = asyncRequestExecutor.execute(appointmentController, request, response, () -> {
+            assertNotEquals(requestThread, Thread.currentThread());
+            return Collections.singletonMap("user", Context.getAuthenticatedUser().getUsername());
+        });
+        awaitCompletion(request);
+
+        assertNull(result);
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals("{\"user\":\"admin\"}", response.getContentAsString());
+    }
+
+    @Test
+    public void shouldWriteStatusAndHeadersOfResponseEntity() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        asyncRequestExecutor.execute(appointmentController, request, response, () -> new ResponseEntity<>("conflict", HttpStatus.CONFLICT));
+        awaitCompletion(request);
+
+        assertEquals(HttpStatus.CONFLICT.value(), response.getStatus());
+        assertEquals("conflict", response.getContentAsString());
+    }
+
+    @Test
+    public void shouldWriteResponseAsMediaTypeTheRequestAccepts() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        request.addHeader("Accept", "application/json");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        asyncRequestExecutor.execute(appointmentController, request, response, () -> Collections.singletonMap("status", "Scheduled"));
+        awaitCompletion(request);
+
+        assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(response.getContentType())));
+        assertEquals("{\"status\":\"Scheduled\"}", response.getContentAsString());
+    }
+
+    @Test
+    public void shouldRespondWithServiceUnavailableOnceWhenRequestTimesOut() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        CountDownLatch timedOut = new CountDownLatch(1);
+
+        asyncRequestExecutor.execute(appointmentController, request, response, () -> {
+            try {
+                timedOut.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "late";
+        });
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+        timedOut.countDown();
+        awaitCompletion(request);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (asyncRequestExecutor.getPendingCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(0, asyncRequestExecutor.getPendingCount());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), response.getStatus());
+        assertEquals("", response.getContentAsString());
+    }
+
+    @Test
+    public void shouldRespondWithForbiddenWhenPrivilegesAreMissing() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        asyncRequestExecutor.execute(appointmentController, request, response, () -> {
+            throw new APIAuthenticationException("Privileges required");
+        });
+        awaitCompletion(request);
+
+        assertEquals(HttpStatus.FORBIDDEN.value(), response.getStatus());
+        assertTrue(response.getContentAsString().contains("error"));
+    }
+
+    @Test
+    public void shouldRespondWithBadRequestWhenRequestIsIllegal() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        asyncRequestExecutor.execute(appointmentController, request, response, () -> {
+            throw new IllegalRequestException("Bad request");
+        });
+        awaitCompletion(request);
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    }
+
+    @Test
+    public void shouldCountSqlStatementsOfPoolThreadInStatisticsOfRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        SqlStatementStatistics statistics = SqlStatementCounter.start();
+        try {
+            asyncRequestExecutor.execute(appointmentController, request, new MockHttpServletResponse(),
+                    () -> Context.getPatientService().getAllPatients().size());
+        } finally {
+            SqlStatementCounter.stop();
+        }
+        awaitCompletion(request);
+
+        assertTrue(statistics.getStatementCount() > 0);
+    }
+
+    @Test
+    public void shouldRespondWithServerErrorWhenRequestFails() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        asyncRequestExecutor.execute(appointmentController, request, response, () -> {
+            throw new IllegalStateException("failed");
+        });
+        awaitCompletion(request);
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR.value(), response.getStatus());
+    }
+
+    private void awaitCompletion(MockHttpServletRequest request) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (request.isAsyncStarted() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(request.isAsyncStarted());
+    }
+}
@@ -0,0 +1,96 @@
+package org.openmrs.module.appointments.web.coalescing;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class RequestCoalescerTest {
+
+    private final RequestCoalescer requestCoalescer = new RequestCoalescer();
+
+    private final AtomicInteger computations = new AtomicInteger();
+
+    @Test
+    public void shouldComputeOnceForConcurrentIdenticalRequests() throws Exception {
+        CountDownLatch computing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<Object> slowComputation = () -> {
+            computations.incrementAndGet();
+            computing.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new Object();
+        };
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> first = executorService.submit(() -> coalesce("2108-08-15", slowComputation));
+            computing.await(10, TimeUnit.SECONDS);
+            Future<Object> second = executorService.submit(() -> coalesce("2108-08-15", slowComputation));
+            release.countDown();
+
+            assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+            assertEquals(1, computations.get());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldComputeSeparatelyForDifferentArguments() {
+        Object first = coalesce("2108-08-15", this::compute);
+        Object second = coalesce("2108-08-16", this::compute);
+
+        assertEquals(2, computations.get());
+        assertNotSame(first, second);
+    }
+
+    @Test
+    public void shouldComputeAgainAfterClear() {
+        coalesce("2108-08-15", this::compute);
+        requestCoalescer.clear();
+        coalesce("2108-08-15", this::compute);
+
+        assertEquals(2, computations.get());
+    }
+
+    @Test
+    public void shouldComputeAgainAfterFailure() {
+        try {
+            coalesce("2108-08-15", () -> {
+                throw new IllegalStateException("failed");
+            });
+        } catch (IllegalStateException e) {
+            assertEquals("failed", e.getMessage());
+        }
+
+        coalesce("2108-08-15", this::compute);
+
+        assertEquals(1, computations.get());
+    }
+
+    private Object compute() {
+        computations.incrementAndGet();
+        return new Object();
+    }
+
+    private Object coalesce(String date, Supplier<Object> computation) {
+        List<Object> arguments = Arrays.asList(date, null);
+        return requestCoalescer.coalesce("appointment/all", arguments, Collections.emptyList(), computation);
+    }
+}
@@ -0,0 +1,73 @@
+package org.openmrs.module.appointments.web.controller;
+
+import org.junit.Test;
+import org.openmrs.module.appointments.event.AppointmentChange;
+import org.openmrs.module.appointments.event.AppointmentChangeBroadcaster;
+import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.web.BaseIntegrationTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AppointmentChangeStreamControllerIT extends BaseIntegrationTest {
+
+    @Autowired
+    AppointmentChangeBroadcaster appointmentChangeBroadcaster;
+
+    @Test
+    public void shouldStreamChangesAfterLastEventIdForLocation() throws Exception {
+        long lastEventId = appointmentChangeBroadcaster.getLastSequence();
+        appointmentChangeBroadcaster.appointmentsChanged(Arrays.asList(
+                new AppointmentChange("firstUuid", 1, AppointmentStatus.CheckedIn, "serviceUuid", "locationUuid", false),
+                new AppointmentChange("secondUuid", 1, AppointmentStatus.Scheduled, "serviceUuid", "otherLocationUuid", false)));
+
+        MockHttpServletResponse response = handle(newGetRequest("/rest/v1/appointment/stream",
+                Collections.singletonMap("Last-Event-ID", String.valueOf(lastEventId)),
+                new Parameter("locationUuid", "locationUuid")));
+
+        String events = response.getContentAsString();
+        assertEquals("text/event-stream", response.getContentType().split(";")[0]);
+        assertTrue(events.contains("id: " + (lastEventId + 1) + "\nevent: appointment\ndata: {\"uuid\":\"firstUuid\",\"status\":\"CheckedIn\""));
+        assertFalse(events.contains("secondUuid"));
+        assertTrue(events.endsWith("id: " + (lastEventId + 2) + "\n\n"));
+    }
+
+    @Test
+    public void shouldResetClientsThatMissedChanges() throws Exception {
+        long lastEventId = appointmentChangeBroadcaster.getLastSequence() + 1000;
+
+        MockHttpServletResponse response = handle(newGetRequest("/rest/v1/appointment/stream",
+                Collections.singletonMap("Last-Event-ID", String.valueOf(lastEventId))));
+
+        assertTrue(response.getContentAsString().contains("event: reset"));
+    }
+
+    @Test
+    public void shouldPushChangesToOpenStreamUntilItCompletes() throws Exception {
+        int subscriptionCount = appointmentChangeBroadcaster.getSubscriptionCount();
+        MockHttpServletRequest request = newGetRequest("/rest/v1/appointment/stream", new Parameter("serviceUuid", "serviceUuid"));
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = handle(request);
+        assertTrue(request.isAsyncStarted());
+        assertEquals(subscriptionCount + 1, appointmentChangeBroadcaster.getSubscriptionCount());
+
+        appointmentChangeBroadcaster.appointmentsChanged(Collections.singletonList(
+                new AppointmentChange("pushedUuid", 1, AppointmentStatus.Completed, "serviceUuid", "locationUuid", false)));
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!response.getContentAsString().contains("pushedUuid") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(response.getContentAsString().contains("event: appointment\ndata: {\"uuid\":\"pushedUuid\",\"status\":\"Completed\""));
+
+        request.getAsyncContext().complete();
+        assertEquals(subscriptionCount, appointmentChangeBroadcaster.getSubscriptionCount());
+    }
+}
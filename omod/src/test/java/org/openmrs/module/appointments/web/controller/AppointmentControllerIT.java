@@ -13,6 +13,7 @@ import org.openmrs.module.appointments.model.AppointmentAudit;
 import org.openmrs.module.appointments.service.AppointmentsService;
 import org.openmrs.module.appointments.util.DateUtil;
 import org.openmrs.module.appointments.web.BaseIntegrationTest;
+import org.openmrs.module.appointments.web.contract.AppointmentBatchItemResponse;
 import org.openmrs.module.appointments.web.contract.AppointmentCount;
 import org.openmrs.module.appointments.web.contract.AppointmentDefaultResponse;
 import org.openmrs.module.appointments.web.contract.AppointmentsSummary;
@@ -21,6 +22,8 @@ import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -65,6 +68,42 @@ public class AppointmentControllerIT extends BaseIntegrationTest {
         assertEquals(4, asResponses.size());
     }
 
+    @Test
+    public void shouldGetOnlyRequestedFieldsOfAppointmentsForDate() throws Exception {
+        List<Map<String, Object>> appointments = deserialize(handle(newGetRequest("/rest/v1/appointment/all",
+                new Parameter("forDate", "2108-08-15T00:00:00.0Z"), new Parameter("fields", "uuid,status"))),
+                new TypeReference<List<Map<String, Object>>>() {
+                });
+        assertEquals(4, appointments.size());
+        for (Map<String, Object> appointment : appointments) {
+            assertEquals(Arrays.asList("uuid", "status"), new ArrayList<>(appointment.keySet()));
+            assertNotNull(appointment.get("uuid"));
+        }
+    }
+
+    @Test
+    public void shouldNotGetAppointmentsWithUnknownField() throws Exception {
+        MockHttpServletResponse response = handle(newGetRequest("/rest/v1/appointment/all",
+                new Parameter("fields", "uuid,unknown")));
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    public void shouldGetNormalizedAppointmentsForDate() throws Exception {
+        Map<String, Object> listResponse = deserialize(handle(newGetRequest("/rest/v1/appointment/all",
+                new Parameter("forDate", "2108-08-15T00:00:00.0Z"), new Parameter("normalized", "true"))),
+                new TypeReference<Map<String, Object>>() {
+                });
+        List<Map<String, Object>> appointments = (List<Map<String, Object>>) listResponse.get("appointments");
+        Map<String, Object> services = (Map<String, Object>) listResponse.get("services");
+        assertEquals(4, appointments.size());
+        for (Map<String, Object> appointment : appointments) {
+            assertTrue(services.containsKey(appointment.get("serviceUuid")));
+        }
+        assertTrue(services.size() < appointments.size());
+        assertEquals(false, listResponse.get("truncated"));
+    }
+
     @Test
     public void should_SaveNewAppointment() throws Exception {
         String content = "{ \"providerUuid\": \"823fdcd7-3f10-11e4-adec-0800271c1b75\", " +
@@ -80,6 +119,35 @@ public class AppointmentControllerIT extends BaseIntegrationTest {
         assertEquals(200, response.getStatus());
     }
 
+    @Test
+    public void shouldSaveValidAppointmentsInBatchAndReportInvalidOnes() throws Exception {
+        String validAppointment = "{ \"providerUuid\": \"823fdcd7-3f10-11e4-adec-0800271c1b75\", " +
+                "\"patientUuid\": \"2c33920f-7aa6-48d6-998a-60412d8ff7d5\", " +
+                "\"serviceUuid\": \"c36006d4-9fbb-4f20-866b-0ece245615c1\", " +
+                "\"startDateTime\": \"2017-07-20\", " +
+                "\"endDateTime\": \"2017-07-20\",  " +
+                "\"appointmentKind\": \"WalkIn\"}";
+        String appointmentWithoutPatient = "{ \"serviceUuid\": \"c36006d4-9fbb-4f20-866b-0ece245615c1\", " +
+                "\"startDateTime\": \"2017-07-20\", " +
+                "\"endDateTime\": \"2017-07-20\",  " +
+                "\"appointmentKind\": \"WalkIn\"}";
+        String content = "[" + validAppointment + ", " + appointmentWithoutPatient + ", " + validAppointment + "]";
+
+        List<AppointmentBatchItemResponse> responses = deserialize(handle(newPostRequest("/rest/v1/appointment/batch", content)),
+                new TypeReference<List<AppointmentBatchItemResponse>>() {
+                });
+
+        assertEquals(3, responses.size());
+        assertTrue(responses.get(0).isSuccessful());
+        assertFalse(responses.get(1).isSuccessful());
+        assertEquals("Appointment cannot be created without Patient", responses.get(1).getErrors().get(0));
+        assertTrue(responses.get(2).isSuccessful());
+        Appointment savedAppointment = appointmentsService.getAppointmentByUuid(responses.get(2).getUuid());
+        assertNotNull(savedAppointment);
+        List<AppointmentAudit> history = appointmentAuditDao.getAppointmentHistoryForAppointment(savedAppointment);
+        assertEquals(1, history.size());
+    }
+
     @Test
     public void shouldGetAllNonVoidedNonCancelledFutureAppointmentsforaServiceType() throws Exception {
         String requestURI = "/rest/v1/appointment/futureAppointmentsForServiceType";
@@ -115,6 +183,86 @@ public class AppointmentControllerIT extends BaseIntegrationTest {
         assertEquals("c36006e5-9fbb-4f20-866b-0ece245615a6", appointmentCount.get("appointmentServiceUuid"));
     }
 
+    @Test
+    public void shouldGetHeatmapOfAppointmentCountsForAllServices() throws Exception {
+        MockHttpServletRequest getRequest = newGetRequest("/rest/v1/appointment/heatmap", new Parameter("startDate", "2108-08-15T00:00:00.0Z"),
+                new Parameter("endDate", "2108-08-22T00:00:00.0Z"));
+
+        Map<String, Object> heatmap = deserialize(handle(getRequest), new TypeReference<Map<String, Object>>() {
+        });
+
+        assertEquals("2108-08-15", heatmap.get("startDate"));
+        assertEquals(8, heatmap.get("days"));
+        List<Map<String, Object>> services = (List<Map<String, Object>>) heatmap.get("services");
+        List<List<Integer>> counts = (List<List<Integer>>) heatmap.get("counts");
+        List<List<Integer>> missedCounts = (List<List<Integer>>) heatmap.get("missedCounts");
+        assertEquals(2, services.size());
+        assertEquals(services.size(), counts.size());
+        int serviceIndex = "c36006e5-9fbb-4f20-866b-0ece245615a6".equals(services.get(0).get("uuid")) ? 0 : 1;
+        assertEquals(8, counts.get(serviceIndex).size());
+        assertEquals(4, counts.get(serviceIndex).get(0), 0);
+        assertEquals(1, missedCounts.get(serviceIndex).get(0), 0);
+        assertEquals(0, counts.get(serviceIndex).get(1), 0);
+    }
+
+    @Test
+    public void shouldNotGetHeatmapOfMoreThanAYear() throws Exception {
+        MockHttpServletRequest getRequest = newGetRequest("/rest/v1/appointment/heatmap", new Parameter("startDate", "2108-01-01T00:00:00.0Z"),
+                new Parameter("endDate", "2109-08-22T00:00:00.0Z"));
+
+        MockHttpServletResponse response = handle(getRequest);
+
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    public void shouldNotGetHeatmapWithoutStartDate() throws Exception {
+        MockHttpServletRequest getRequest = newGetRequest("/rest/v1/appointment/heatmap", new Parameter("startDate", ""),
+                new Parameter("endDate", "2108-08-22T00:00:00.0Z"));
+
+        MockHttpServletResponse response = handle(getRequest);
+
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    public void shouldGetPatientTimeline() throws Exception {
+        MockHttpServletRequest getRequest = newGetRequest("/rest/v1/appointment/patientTimeline",
+                new Parameter("patientUuid", "2c33920f-7aa6-48d6-998a-60412d8ff7d5"), new Parameter("upcomingLimit", "2"));
+
+        Map<String, List<Map<String, Object>>> timeline = deserialize(handle(getRequest), new TypeReference<Map<String, List<Map<String, Object>>>>() {
+        });
+
+        assertEquals(0, timeline.get("past").size());
+        assertEquals(2, timeline.get("upcoming").size());
+        assertEquals("c36006e5-9fbb-4f20-866b-0ece245615a7", timeline.get("upcoming").get(0).get("uuid"));
+        assertEquals("Cardiology", timeline.get("upcoming").get(0).get("serviceName"));
+    }
+
+    @Test
+    public void shouldNotGetPatientTimelineOfUnknownPatient() throws Exception {
+        MockHttpServletRequest getRequest = newGetRequest("/rest/v1/appointment/patientTimeline",
+                new Parameter("patientUuid", "unknownPatientUuid"));
+
+        MockHttpServletResponse response = handle(getRequest);
+
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    public void shouldGetAppointmentsChangedSinceWatermark() throws Exception {
+        MockHttpServletRequest getRequest = newGetRequest("/rest/v1/appointment/changes", new Parameter("since", "0.0"));
+
+        Map<String, Object> changes = deserialize(handle(getRequest), new TypeReference<Map<String, Object>>() {
+        });
+
+        List<Map<String, Object>> appointments = (List<Map<String, Object>>) changes.get("appointments");
+        assertEquals(1, appointments.size());
+        assertEquals("75504r42-3ca8-11e3-bf2b-0800271c1b77", appointments.get(0).get("uuid"));
+        assertEquals(false, changes.get("hasMore"));
+        assertNotNull(changes.get("watermark"));
+    }
+
     @Test
     public void shouldThrowErrorWhenAppointmentDoesNotHavePatientInIT() throws Exception {
         String content = "{ \"providerUuid\": \"823fdcd7-3f10-11e4-adec-0800271c1b75\", " +
@@ -6,30 +6,48 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.Mockito;
 import static org.mockito.Matchers.any;
+import org.openmrs.Location;
 import org.openmrs.Patient;
 import org.openmrs.api.APIException;
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentBatchItem;
+import org.openmrs.module.appointments.model.AppointmentDailyCount;
+import org.openmrs.module.appointments.model.AppointmentDayCounts;
 import org.openmrs.module.appointments.model.AppointmentService;
 import org.openmrs.module.appointments.model.AppointmentServiceType;
 import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.model.ResultList;
 import org.openmrs.module.appointments.service.AppointmentServiceService;
+import org.openmrs.module.appointments.service.AppointmentSummaryService;
 import org.openmrs.module.appointments.service.AppointmentsService;
 import org.openmrs.module.appointments.util.DateUtil;
+import org.openmrs.module.appointments.web.admission.AdmissionControl;
+import org.openmrs.module.appointments.web.async.AsyncRequestExecutor;
+import org.openmrs.module.appointments.web.coalescing.RequestCoalescer;
 import org.openmrs.module.appointments.web.contract.*;
 import org.openmrs.module.appointments.web.mapper.AppointmentMapper;
 import org.openmrs.module.appointments.web.mapper.AppointmentServiceMapper;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -45,12 +63,24 @@ public class AppointmentControllerTest {
     @Mock
     private AppointmentServiceService appointmentServiceService;
 
+    @Mock
+    private AppointmentSummaryService appointmentSummaryService;
+
     @Mock
     private AppointmentMapper appointmentMapper;
 
     @Mock
     private AppointmentServiceMapper appointmentServiceMapper;
 
+    @Spy
+    private RequestCoalescer requestCoalescer = new RequestCoalescer();
+
+    @Spy
+    private AdmissionControl admissionControl = new AdmissionControl();
+
+    @Spy
+    private AsyncRequestExecutor asyncRequestExecutor = new AsyncRequestExecutor();
+
     @InjectMocks
     private AppointmentController appointmentController;
 
@@ -82,7 +112,7 @@ public class AppointmentControllerTest {
         responses.add(defaultResponse);
         when(appointmentMapper.constructResponse(appointments)).thenReturn(responses);
 
-        List<AppointmentDefaultResponse> appointmentDefaultResponses = appointmentController.getAllFututreAppointmentsForGivenServiceType(serviceTypeUuid);
+        List<AppointmentDefaultResponse> appointmentDefaultResponses = appointmentController.getAllFututreAppointmentsForGivenServiceType(serviceTypeUuid, new MockHttpServletResponse());
 
         verify(appointmentServiceService, times(1)).getAppointmentServiceTypeByUuid(serviceTypeUuid);
         verify(appointmentsService, times(1)).getAllFutureAppointmentsForServiceType(appointmentServiceType);
@@ -98,7 +128,7 @@ public class AppointmentControllerTest {
         appointmentList.add(appointment);
         when(appointmentsService.getAllAppointments(null)).thenReturn(appointmentList);
         
-        appointmentController.getAllAppointments(null);
+        appointmentController.getAllAppointments(null, null, null, new MockHttpServletRequest(), new MockHttpServletResponse());
         verify(appointmentsService, times(1)).getAllAppointments(null);
         verify(appointmentMapper, times(1)).constructResponse(appointmentList);
     }
@@ -113,11 +143,53 @@ public class AppointmentControllerTest {
         
         when(appointmentsService.getAllAppointments(forDate)).thenReturn(appointmentList);
         
-        appointmentController.getAllAppointments(dateString);
+        appointmentController.getAllAppointments(dateString, null, null, new MockHttpServletRequest(), new MockHttpServletResponse());
         verify(appointmentsService, times(1)).getAllAppointments(forDate);
         verify(appointmentMapper, times(1)).constructResponse(appointmentList);
     }
 
+    @Test
+    public void shouldGetAllAppointmentsForDateAndLocation() throws Exception {
+        Location location = new Location();
+        location.setUuid("locationUuid");
+        Appointment appointment = new Appointment();
+        appointment.setLocation(location);
+        Appointment otherAppointment = new Appointment();
+        String dateString = "2017-08-15T00:00:00.0Z";
+        Date forDate = DateUtil.convertToLocalDateFromUTC(dateString);
+        when(appointmentsService.getAllAppointments(forDate)).thenReturn(Arrays.asList(appointment, otherAppointment));
+
+        appointmentController.getAllAppointments(dateString, "locationUuid", null, new MockHttpServletRequest(), new MockHttpServletResponse());
+
+        verify(appointmentMapper, times(1)).constructResponse(Collections.singletonList(appointment));
+    }
+
+    @Test
+    public void shouldTellWhenAppointmentsAreTruncated() throws Exception {
+        String dateString = "2017-08-15T00:00:00.0Z";
+        Date forDate = DateUtil.convertToLocalDateFromUTC(dateString);
+        when(appointmentsService.getAllAppointments(forDate))
+                .thenReturn(new ResultList<>(Collections.singletonList(new Appointment()), true));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        appointmentController.getAllAppointments(dateString, null, null, new MockHttpServletRequest(), response);
+
+        assertEquals("true", response.getHeader("X-Results-Truncated"));
+    }
+
+    @Test
+    public void shouldNotTellWhenAppointmentsAreComplete() throws Exception {
+        String dateString = "2017-08-15T00:00:00.0Z";
+        Date forDate = DateUtil.convertToLocalDateFromUTC(dateString);
+        when(appointmentsService.getAllAppointments(forDate))
+                .thenReturn(new ResultList<>(Collections.singletonList(new Appointment()), false));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        appointmentController.getAllAppointments(dateString, null, null, new MockHttpServletRequest(), response);
+
+        assertNull(response.getHeader("X-Results-Truncated"));
+    }
+
     @Test
     public void shouldGetAllAppointmentsSummary() throws ParseException {
         String startDateString = "2017-08-15T00:00:00.000Z";
@@ -126,17 +198,13 @@ public class AppointmentControllerTest {
         Date startDate = DateUtil.convertToLocalDateFromUTC(startDateString);
         Date endDate = DateUtil.convertToLocalDateFromUTC(endDateString);
         AppointmentService appointmentService = new AppointmentService();
+        appointmentService.setAppointmentServiceId(1);
         appointmentService.setName("Ortho");
         appointmentService.setUuid("someUuid");
         List<AppointmentService> appointmentServices = new ArrayList<>();
         appointmentServices.add(appointmentService);
-        Appointment appointment = new Appointment();
-        appointment.setUuid("apptUuid");
-        appointment.setService(appointmentService);
-        appointment.setStartDateTime(startDate);
-        appointment.setStatus(AppointmentStatus.Scheduled);
-        List<Appointment> appointmentList = new ArrayList<>();
-        appointmentList.add(appointment);
+        AppointmentDayCounts dayCounts = new AppointmentDayCounts(startDate, endDate);
+        dayCounts.add(startDate, AppointmentStatus.Scheduled);
         List<AppointmentStatus> appointmentStatuses = Arrays.asList(
                 AppointmentStatus.Completed,
                 AppointmentStatus.Scheduled,
@@ -146,12 +214,13 @@ public class AppointmentControllerTest {
         appointmentServiceDefaultResponse.setUuid("someUuid");
 
         when(appointmentServiceService.getAllAppointmentServices(false)).thenReturn(appointmentServices);
-        when(appointmentsService.getAppointmentsForService(appointmentService, startDate, endDate, appointmentStatuses)).thenReturn(appointmentList);
+        when(appointmentSummaryService.getDayCountsByService(appointmentServices, startDate, endDate, appointmentStatuses))
+                .thenReturn(Collections.singletonMap(1, dayCounts));
         when(appointmentServiceMapper.constructDefaultResponse(appointmentService)).thenReturn(appointmentServiceDefaultResponse);
 
-        List<AppointmentsSummary> allAppointmentsSummary = appointmentController.getAllAppointmentsSummary(startDateString, endDateString);
+        List<AppointmentsSummary> allAppointmentsSummary = appointmentController.getAllAppointmentsSummary(startDateString, endDateString, new MockHttpServletRequest(), new MockHttpServletResponse());
         verify(appointmentServiceService, times(1)).getAllAppointmentServices(false);
-        verify(appointmentsService, times(1)).getAppointmentsForService(appointmentService, startDate, endDate, appointmentStatuses);
+        verify(appointmentSummaryService, times(1)).getDayCountsByService(appointmentServices, startDate, endDate, appointmentStatuses);
         assertEquals(1, allAppointmentsSummary.size());
         assertEquals("someUuid", allAppointmentsSummary.get(0).getAppointmentService().getUuid());
         assertEquals(1, allAppointmentsSummary.get(0).getAppointmentCountMap().size());
@@ -162,6 +231,84 @@ public class AppointmentControllerTest {
         assertEquals("someUuid", appointmentCount.getAppointmentServiceUuid());
     }
 
+    @Test
+    public void shouldGetAllAppointmentsSummaryFromDailyCountsWhenEnabled() throws ParseException {
+        String startDateString = "2017-08-15T00:00:00.000Z";
+        String endDateString = "2017-08-22T00:00:00.000Z";
+        SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        Date startDate = DateUtil.convertToLocalDateFromUTC(startDateString);
+        Date endDate = DateUtil.convertToLocalDateFromUTC(endDateString);
+        AppointmentService appointmentService = new AppointmentService();
+        appointmentService.setAppointmentServiceId(1);
+        appointmentService.setUuid("someUuid");
+        AppointmentServiceDefaultResponse appointmentServiceDefaultResponse = new AppointmentServiceDefaultResponse();
+        appointmentServiceDefaultResponse.setUuid("someUuid");
+        List<AppointmentStatus> appointmentStatuses = Arrays.asList(
+                AppointmentStatus.Completed,
+                AppointmentStatus.Scheduled,
+                AppointmentStatus.CheckedIn,
+                AppointmentStatus.Missed);
+        List<AppointmentDailyCount> dailyCounts = Arrays.asList(
+                createDailyCount(1, new java.sql.Date(simpleDateFormat.parse("2017-08-15").getTime()), AppointmentStatus.Scheduled, 3),
+                createDailyCount(1, new java.sql.Date(simpleDateFormat.parse("2017-08-15").getTime()), AppointmentStatus.Missed, 2),
+                createDailyCount(2, new java.sql.Date(simpleDateFormat.parse("2017-08-15").getTime()), AppointmentStatus.Scheduled, 7));
+
+        when(appointmentsService.isDailyCountsEnabled()).thenReturn(true);
+        when(appointmentServiceService.getAllAppointmentServices(false)).thenReturn(Collections.singletonList(appointmentService));
+        when(appointmentsService.getDailyCounts(null, startDate, endDate, appointmentStatuses)).thenReturn(dailyCounts);
+        when(appointmentServiceMapper.constructDefaultResponse(appointmentService)).thenReturn(appointmentServiceDefaultResponse);
+
+        List<AppointmentsSummary> allAppointmentsSummary = appointmentController.getAllAppointmentsSummary(startDateString, endDateString, new MockHttpServletRequest(), new MockHttpServletResponse());
+
+        verify(appointmentsService, never()).getAppointmentsForService(any(AppointmentService.class), any(Date.class), any(Date.class), any(List.class));
+        verify(appointmentSummaryService, never()).getDayCountsByService(any(List.class), any(Date.class), any(Date.class), any(List.class));
+        assertEquals(1, allAppointmentsSummary.size());
+        assertEquals(1, allAppointmentsSummary.get(0).getAppointmentCountMap().size());
+        AppointmentCount appointmentCount = (AppointmentCount) allAppointmentsSummary.get(0).getAppointmentCountMap().get("2017-08-15");
+        assertEquals(5, appointmentCount.getAllAppointmentsCount(), 0);
+        assertEquals(2, appointmentCount.getMissedAppointmentsCount(), 0);
+        assertEquals(simpleDateFormat.parse("2017-08-15"), appointmentCount.getAppointmentDate());
+        assertEquals("someUuid", appointmentCount.getAppointmentServiceUuid());
+    }
+
+    @Test
+    public void shouldPackDailyCountsByServiceAndDayOffset() throws ParseException {
+        SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        AppointmentService firstService = new AppointmentService();
+        firstService.setAppointmentServiceId(1);
+        AppointmentService secondService = new AppointmentService();
+        secondService.setAppointmentServiceId(2);
+        List<AppointmentService> appointmentServices = Arrays.asList(firstService, secondService);
+        List<AppointmentDailyCount> dailyCounts = Arrays.asList(
+                createDailyCount(1, new java.sql.Date(simpleDateFormat.parse("2017-08-15").getTime()), AppointmentStatus.Scheduled, 3),
+                createDailyCount(1, new java.sql.Date(simpleDateFormat.parse("2017-08-15").getTime()), AppointmentStatus.Missed, 2),
+                createDailyCount(2, new java.sql.Date(simpleDateFormat.parse("2017-08-17").getTime()), AppointmentStatus.CheckedIn, 4),
+                createDailyCount(3, new java.sql.Date(simpleDateFormat.parse("2017-08-17").getTime()), AppointmentStatus.CheckedIn, 9),
+                createDailyCount(2, new java.sql.Date(simpleDateFormat.parse("2017-08-18").getTime()), AppointmentStatus.CheckedIn, 1));
+        List<AppointmentServiceDefaultResponse> serviceResponses = Arrays.asList(new AppointmentServiceDefaultResponse(), new AppointmentServiceDefaultResponse());
+        when(appointmentServiceMapper.constructDefaultResponseForServiceList(appointmentServices)).thenReturn(serviceResponses);
+
+        AppointmentHeatmap heatmap = appointmentController.constructHeatmap(appointmentServices, dailyCounts,
+                java.time.LocalDate.of(2017, 8, 15), 3);
+
+        assertEquals("2017-08-15", heatmap.getStartDate());
+        assertEquals(3, heatmap.getDays());
+        assertEquals(serviceResponses, heatmap.getServices());
+        assertArrayEquals(new int[]{5, 0, 0}, heatmap.getCounts().get(0));
+        assertArrayEquals(new int[]{2, 0, 0}, heatmap.getMissedCounts().get(0));
+        assertArrayEquals(new int[]{0, 0, 4}, heatmap.getCounts().get(1));
+        assertArrayEquals(new int[]{0, 0, 0}, heatmap.getMissedCounts().get(1));
+    }
+
+    private AppointmentDailyCount createDailyCount(Integer serviceId, Date day, AppointmentStatus status, Integer count) {
+        AppointmentDailyCount dailyCount = new AppointmentDailyCount();
+        dailyCount.setServiceId(serviceId);
+        dailyCount.setDay(day);
+        dailyCount.setStatus(status);
+        dailyCount.setAppointmentCount(count);
+        return dailyCount;
+    }
+
     @Test
     public void shouldThrowExceptionIfPatientUuidIsBlankWhileCreatingAppointment() throws Exception {
         String exceptionMsg = "Exception Msg";
@@ -261,7 +408,7 @@ public class AppointmentControllerTest {
         when(appointmentMapper.mapQueryToAppointment(appointmentQuery)).thenReturn(appointment);
         when(appointmentsService.search(appointment)).thenReturn(appointments);
         when(appointmentMapper.constructResponse(appointments)).thenReturn(appointmentDefaultResponses);
-        List<AppointmentDefaultResponse> appointmentResponses = appointmentController.searchAppointments(appointmentQuery);
+        List<AppointmentDefaultResponse> appointmentResponses = appointmentController.searchAppointments(appointmentQuery, new MockHttpServletRequest(), new MockHttpServletResponse());
         AppointmentDefaultResponse appointmentResponse = appointmentDefaultResponses.get(0);
         assertEquals("appointmentUuid1", appointmentResponse.getUuid());
     }
@@ -283,4 +430,93 @@ public class AppointmentControllerTest {
         Mockito.verify(appointmentMapper, times(1)).getAppointmentFromPayload(appointmentPayload);
         Mockito.verify(appointmentsService, times(1)).validateAndSave(appointment);
     }
+
+    @Test
+    public void shouldSaveOnlyMappedAppointmentsInBatchAndKeepRequestOrder() throws Exception {
+        AppointmentPayload firstPayload = new AppointmentPayload();
+        AppointmentPayload secondPayload = new AppointmentPayload();
+        Appointment appointment = new Appointment();
+        AppointmentBatchItem unmappedItem = new AppointmentBatchItem(null);
+        unmappedItem.getErrors().add("Invalid appointment kind");
+        AppointmentBatchItem mappedItem = new AppointmentBatchItem(appointment);
+        AppointmentBatchItem savedItem = new AppointmentBatchItem(appointment);
+        when(appointmentMapper.getAppointmentsFromPayloads(Arrays.asList(firstPayload, secondPayload)))
+                .thenReturn(new ArrayList<>(Arrays.asList(unmappedItem, mappedItem)));
+        when(appointmentsService.bulkValidateAndSave(Collections.singletonList(appointment)))
+                .thenReturn(Collections.singletonList(savedItem));
+
+        ResponseEntity<Object> responseEntity = appointmentController.createAppointments(new AppointmentPayload[]{firstPayload, secondPayload}, new MockHttpServletRequest(), new MockHttpServletResponse());
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        verify(appointmentsService, times(1)).bulkValidateAndSave(Collections.singletonList(appointment));
+        verify(appointmentMapper, times(1)).constructBatchResponse(Arrays.asList(unmappedItem, savedItem));
+    }
+
+    @Test
+    public void shouldRejectBatchLargerThanMaximumBatchSize() throws Exception {
+        AppointmentPayload[] appointmentPayloads = new AppointmentPayload[AppointmentController.MAX_BATCH_SIZE + 1];
+
+        ResponseEntity<Object> responseEntity = appointmentController.createAppointments(appointmentPayloads, new MockHttpServletRequest(), new MockHttpServletResponse());
+
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        verify(appointmentsService, never()).bulkValidateAndSave(any());
+    }
+
+    @Test
+    public void shouldReturnCurrentWatermarkWithoutChangesWhenSinceIsMissing() {
+        ResponseEntity<Object> responseEntity = appointmentController.getAppointmentChanges(null);
+
+        AppointmentChanges changes = (AppointmentChanges) responseEntity.getBody();
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(0, changes.getAppointments().size());
+        assertTrue(changes.getWatermark().endsWith(".0"));
+        verify(appointmentsService, never()).getAppointmentsChangedSince(any(Date.class), any(Integer.class), any(Date.class), anyInt());
+    }
+
+    @Test
+    public void shouldRejectInvalidWatermark() {
+        ResponseEntity<Object> responseEntity = appointmentController.getAppointmentChanges("yesterday");
+
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+    }
+
+    @Test
+    public void shouldSplitVoidedAppointmentsFromChangedAppointments() {
+        Appointment changedAppointment = new Appointment();
+        Appointment voidedAppointment = new Appointment();
+        voidedAppointment.setUuid("voidedUuid");
+        voidedAppointment.setVoided(true);
+        when(appointmentsService.getAppointmentsChangedSince(any(Date.class), any(Integer.class), any(Date.class), anyInt()))
+                .thenReturn(Arrays.asList(changedAppointment, voidedAppointment));
+
+        ResponseEntity<Object> responseEntity = appointmentController.getAppointmentChanges("1000.5");
+
+        AppointmentChanges changes = (AppointmentChanges) responseEntity.getBody();
+        assertEquals(Collections.singletonList("voidedUuid"), changes.getVoidedUuids());
+        assertFalse(changes.isHasMore());
+        assertTrue(changes.getWatermark().endsWith(".0"));
+        verify(appointmentMapper, times(1)).constructResponse(Collections.singletonList(changedAppointment));
+        verify(appointmentsService, times(1)).getAppointmentsChangedSince(eq(new Date(1000L)), eq(5), any(Date.class),
+                eq(AppointmentController.MAX_CHANGES + 1));
+    }
+
+    @Test
+    public void shouldContinueFromLastReturnedAppointmentWhenThereAreMoreChanges() {
+        List<Appointment> changedAppointments = new ArrayList<>();
+        for (int index = 0; index <= AppointmentController.MAX_CHANGES; index++) {
+            Appointment appointment = new Appointment();
+            appointment.setAppointmentId(index + 1);
+            appointment.setDateCreated(new Date(2000L));
+            changedAppointments.add(appointment);
+        }
+        when(appointmentsService.getAppointmentsChangedSince(any(Date.class), any(Integer.class), any(Date.class), anyInt()))
+                .thenReturn(changedAppointments);
+
+        ResponseEntity<Object> responseEntity = appointmentController.getAppointmentChanges("1000.0");
+
+        AppointmentChanges changes = (AppointmentChanges) responseEntity.getBody();
+        assertTrue(changes.isHasMore());
+        assertEquals("2000." + AppointmentController.MAX_CHANGES, changes.getWatermark());
+        verify(appointmentMapper, times(1)).constructResponse(changedAppointments.subList(0, AppointmentController.MAX_CHANGES));
+    }
 }
@@ -0,0 +1,52 @@
+package org.openmrs.module.appointments.web.controller;
+
+import org.codehaus.jackson.type.TypeReference;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.appointments.metrics.MethodMetricsSnapshot;
+import org.openmrs.module.appointments.metrics.MetricsRegistry;
+import org.openmrs.module.appointments.web.BaseIntegrationTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class AppointmentMetricsControllerIT extends BaseIntegrationTest {
+
+    @Autowired
+    MetricsRegistry metricsRegistry;
+
+    @Before
+    public void setUp() {
+        metricsRegistry.reset();
+    }
+
+    @Test
+    public void shouldReturnRecordedMetrics() throws Exception {
+        metricsRegistry.record("AppointmentsService.search(Appointment)", TimeUnit.MILLISECONDS.toNanos(20), false);
+        metricsRegistry.record("AppointmentsService.search(Appointment)", TimeUnit.MILLISECONDS.toNanos(40), true);
+
+        List<MethodMetricsSnapshot> snapshots = deserialize(handle(newGetRequest("/rest/v1/appointment/metrics")),
+                new TypeReference<List<MethodMetricsSnapshot>>() {
+                });
+
+        MethodMetricsSnapshot snapshot = snapshots.stream()
+                .filter(s -> s.getName().equals("AppointmentsService.search(Appointment)")).findFirst().get();
+        assertEquals(2, snapshot.getCalls());
+        assertEquals(1, snapshot.getErrors());
+        assertEquals(40, snapshot.getMax(), 0.1);
+    }
+
+    @Test
+    public void shouldResetMetrics() throws Exception {
+        metricsRegistry.record("AppointmentsService.search(Appointment)", TimeUnit.MILLISECONDS.toNanos(20), false);
+
+        MockHttpServletResponse response = handle(newDeleteRequest("/rest/v1/appointment/metrics"));
+
+        assertEquals(200, response.getStatus());
+        assertEquals(0, metricsRegistry.getMethodMetrics("AppointmentsService.search(Appointment)").snapshot().getCalls());
+    }
+}
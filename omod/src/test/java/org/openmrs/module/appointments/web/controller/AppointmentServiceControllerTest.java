@@ -6,9 +6,11 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.openmrs.module.appointments.model.AppointmentService;
 import org.openmrs.module.appointments.service.AppointmentServiceService;
 import org.openmrs.module.appointments.util.DateUtil;
+import org.openmrs.module.appointments.web.coalescing.RequestCoalescer;
 import org.openmrs.module.appointments.web.contract.AppointmentServiceFullResponse;
 import org.openmrs.module.appointments.web.contract.AppointmentServicePayload;
 import org.openmrs.module.appointments.web.mapper.AppointmentServiceMapper;
@@ -35,6 +37,9 @@ public class AppointmentServiceControllerTest {
     @Mock
     private AppointmentServiceMapper appointmentServiceMapper;
 
+    @Spy
+    private RequestCoalescer requestCoalescer = new RequestCoalescer();
+
     @InjectMocks
     private AppointmentServiceController appointmentServiceController;
 
@@ -7,21 +7,29 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.appointments.SqlStatementBudget;
 import org.openmrs.module.appointments.dao.AppointmentAuditDao;
 import org.openmrs.module.appointments.model.Appointment;
 import org.openmrs.module.appointments.model.AppointmentAudit;
 import org.openmrs.module.appointments.service.AppointmentsService;
 import org.openmrs.module.appointments.util.DateUtil;
 import org.openmrs.module.appointments.web.BaseIntegrationTest;
+import org.openmrs.module.appointments.web.contract.AppointmentBatchItemResponse;
 import org.openmrs.module.appointments.web.contract.AppointmentDefaultResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class AppointmentsControllerIT extends BaseIntegrationTest {
 
@@ -34,6 +42,9 @@ public class AppointmentsControllerIT extends BaseIntegrationTest {
     @Rule
     public ExpectedException expectedException = ExpectedException.none();
 
+    @Rule
+    public SqlStatementBudget sqlStatementBudget = new SqlStatementBudget();
+
     @Before
     public void setUp() throws Exception {
         executeDataSet("appointmentTestData.xml");
@@ -49,6 +60,14 @@ public class AppointmentsControllerIT extends BaseIntegrationTest {
         assertEquals("GAN200000", response.getPatient().get("identifier"));
     }
 
+    @Test
+    public void shouldGetASpecificAppointmentWithinStatementBudget() throws Exception {
+        MockHttpServletResponse response = sqlStatementBudget.expectAtMost(20,
+                () -> handle(newGetRequest("/rest/v1/appointments/75504r42-3ca8-11e3-bf2b-0800271c13346")));
+
+        assertEquals(200, response.getStatus());
+    }
+
     @Test
     public void shouldGetAllAppointmentsInGivenDateRange() throws Exception {
         String responseBodyJson = "{\"startDate\":\"2108-08-13T18:30:00.000Z\"," +
@@ -63,6 +82,21 @@ public class AppointmentsControllerIT extends BaseIntegrationTest {
         assertEquals(5, response.size());
     }
 
+    @Test
+    public void shouldGetOnlyRequestedFieldsOfAppointmentsInGivenDateRange() throws Exception {
+        String responseBodyJson = "{\"startDate\":\"2108-08-13T18:30:00.000Z\"," +
+                "\"endDate\":\"2108-08-15T18:29:59.000Z\"}";
+        MockHttpServletRequest request = newPostRequest("/rest/v1/appointments/search", responseBodyJson);
+        request.addParameter("fields", "uuid,patient,startDateTime");
+
+        List<Map<String, Object>> response = deserialize(handle(request), new TypeReference<List<Map<String, Object>>>() {
+        });
+
+        assertEquals(5, response.size());
+        assertEquals(Arrays.asList("uuid", "patient", "startDateTime"), new ArrayList<>(response.get(0).keySet()));
+        assertNotNull(((Map) response.get(0).get("patient")).get("identifier"));
+    }
+
     @Test
     public void should_changeAppointmentStatusWithDate() throws Exception {
         String onDate = "2108-08-22T10:30:00.0Z";
@@ -122,6 +156,32 @@ public class AppointmentsControllerIT extends BaseIntegrationTest {
         MockHttpServletResponse response = handle(newPostRequest("/rest/v1/appointments/c36006e5-9fbb-4f20-866b-0ece245615a8/status-change", content));
     }
 
+    @Test
+    public void shouldChangeStatusOfAppointmentsInBatchAndReportFailuresPerAppointment() throws Exception {
+        String onDate = "2108-08-22T10:30:00.000Z";
+        String content = "[{ \"appointmentUuid\": \"c36006e5-9fbb-4f20-866b-0ece245615a7\", \"toStatus\": \"CheckedIn\", \"onDate\":\"" + onDate + "\"}, " +
+                "{ \"appointmentUuid\": \"75504r42-3ca8-11e3-bf2b-0800271c13555\", \"toStatus\": \"Completed\"}, " +
+                "{ \"appointmentUuid\": \"c36006e5-9fbb-4f20-866b-0ece245615a8\", \"toStatus\": \"Completed\"}]";
+
+        List<AppointmentBatchItemResponse> responses = deserialize(
+                handle(newPostRequest("/rest/v1/appointments/status-change", content)),
+                new TypeReference<List<AppointmentBatchItemResponse>>() {
+                });
+
+        assertEquals(3, responses.size());
+        assertTrue(responses.get(0).isSuccessful());
+        assertEquals("CheckedIn", responses.get(0).getStatus());
+        assertFalse(responses.get(1).isSuccessful());
+        assertEquals("Appointment status can not be changed from Missed to Completed", responses.get(1).getErrors().get(0));
+        assertEquals("Missed", responses.get(1).getStatus());
+        assertFalse(responses.get(2).isSuccessful());
+        assertEquals("Appointment does not exist", responses.get(2).getErrors().get(0));
+        Appointment appointment = appointmentsService.getAppointmentByUuid("c36006e5-9fbb-4f20-866b-0ece245615a7");
+        List<AppointmentAudit> historyForAppointment = appointmentAuditDao.getAppointmentHistoryForAppointment(appointment);
+        assertEquals(1, historyForAppointment.size());
+        assertEquals(DateUtil.convertToLocalDateFromUTC(onDate).toInstant().toString(), historyForAppointment.get(0).getNotes());
+    }
+
     @Test
     public void shouldUndoCheckedInAppointment() throws Exception {
         String content = "{ \"providerUuid\": \"823fdcd7-3f10-11e4-adec-0800271c1b75\", " +
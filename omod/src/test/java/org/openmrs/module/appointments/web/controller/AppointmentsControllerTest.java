@@ -7,14 +7,24 @@ import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentBatchItem;
 import org.openmrs.module.appointments.model.AppointmentSearch;
+import org.openmrs.module.appointments.model.AppointmentStatusChange;
 import org.openmrs.module.appointments.service.AppointmentsService;
+import org.openmrs.module.appointments.web.admission.AdmissionControl;
+import org.openmrs.module.appointments.web.coalescing.RequestCoalescer;
 import org.openmrs.module.appointments.web.contract.AppointmentDefaultResponse;
 import org.openmrs.module.appointments.web.mapper.AppointmentMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +47,12 @@ public class AppointmentsControllerTest {
     @Mock
     private AppointmentMapper appointmentMapper;
 
+    @Spy
+    private AdmissionControl admissionControl = new AdmissionControl();
+
+    @Spy
+    private RequestCoalescer requestCoalescer = new RequestCoalescer();
+
     @InjectMocks
     private AppointmentsController appointmentsController;
 
@@ -62,7 +78,7 @@ public class AppointmentsControllerTest {
         when(appointmentsService.search(appointmentSearch)).thenReturn(appointments);
         when(appointmentMapper.constructResponse(appointments)).thenReturn(expectedResponse);
 
-        List<AppointmentDefaultResponse> actualResponse = appointmentsController.search(appointmentSearch);
+        List<AppointmentDefaultResponse> actualResponse = appointmentsController.search(appointmentSearch, new MockHttpServletResponse());
 
         verify(appointmentsService, times(1)).search(appointmentSearch);
         verify(appointmentMapper, times(1)).constructResponse(appointments);
@@ -74,7 +90,7 @@ public class AppointmentsControllerTest {
         AppointmentSearch appointmentSearch = new AppointmentSearch();
         when(appointmentsService.search(appointmentSearch)).thenReturn(null);
 
-        appointmentsController.search(appointmentSearch);
+        appointmentsController.search(appointmentSearch, new MockHttpServletResponse());
 
         verify(appointmentsService, times(1)).search(appointmentSearch);
         verify(appointmentMapper, never()).constructResponse(anyListOf(Appointment.class));
@@ -91,6 +107,7 @@ public class AppointmentsControllerTest {
 
         verify(appointmentsService, times(1)).getAppointmentByUuid("appointmentUuid");
         verify(appointmentsService, times(1)).changeStatus(appointment, "Completed", null);
+        verify(requestCoalescer, times(1)).clear();
     }
 
     @Test
@@ -105,4 +122,28 @@ public class AppointmentsControllerTest {
         appointmentsController.transitionAppointment("appointmentUuid", statusDetails);
 
     }
+
+    @Test
+    public void shouldChangeStatusOfAppointmentsInBatch() throws Exception {
+        AppointmentStatusChange firstStatusChange = new AppointmentStatusChange("firstUuid", "Completed", null);
+        AppointmentStatusChange secondStatusChange = new AppointmentStatusChange("secondUuid", "Missed", null);
+        List<AppointmentBatchItem> batchItems = Collections.singletonList(new AppointmentBatchItem(new Appointment()));
+        when(appointmentsService.bulkChangeStatus(Arrays.asList(firstStatusChange, secondStatusChange))).thenReturn(batchItems);
+
+        appointmentsController.transitionAppointments(new AppointmentStatusChange[]{firstStatusChange, secondStatusChange});
+
+        verify(appointmentsService, times(1)).bulkChangeStatus(Arrays.asList(firstStatusChange, secondStatusChange));
+        verify(appointmentMapper, times(1)).constructBatchResponse(batchItems);
+        verify(requestCoalescer, times(1)).clear();
+    }
+
+    @Test
+    public void shouldRejectStatusChangesLargerThanMaximumBatchSize() throws Exception {
+        AppointmentStatusChange[] statusChanges = new AppointmentStatusChange[AppointmentController.MAX_BATCH_SIZE + 1];
+
+        ResponseEntity<Object> responseEntity = appointmentsController.transitionAppointments(statusChanges);
+
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        verify(appointmentsService, never()).bulkChangeStatus(any());
+    }
 }
@@ -3,8 +3,10 @@ package org.openmrs.module.appointments.web.mapper;
 import java.text.ParseException;
 import java.util.*;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -18,18 +20,25 @@ import org.openmrs.api.LocationService;
 import org.openmrs.api.PatientService;
 import org.openmrs.api.ProviderService;
 import org.openmrs.module.appointments.model.Appointment;
+import org.openmrs.module.appointments.model.AppointmentBatchItem;
 import org.openmrs.module.appointments.model.AppointmentKind;
 import org.openmrs.module.appointments.model.AppointmentService;
 import org.openmrs.module.appointments.model.AppointmentServiceType;
 import org.openmrs.module.appointments.model.AppointmentStatus;
+import org.openmrs.module.appointments.model.ResultList;
 import org.openmrs.module.appointments.model.Speciality;
 import org.openmrs.module.appointments.service.AppointmentServiceService;
 import org.openmrs.module.appointments.service.AppointmentsService;
 import org.openmrs.module.appointments.util.DateUtil;
+import org.openmrs.module.appointments.web.contract.AppointmentBatchItemResponse;
 import org.openmrs.module.appointments.web.contract.AppointmentDefaultResponse;
+import org.openmrs.module.appointments.web.contract.AppointmentFields;
+import org.openmrs.module.appointments.web.contract.AppointmentListResponse;
 import org.openmrs.module.appointments.web.contract.AppointmentPayload;
+import org.openmrs.module.appointments.web.contract.AppointmentRowResponse;
 
 import static org.junit.Assume.assumeTrue;
+import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -39,6 +48,7 @@ import static org.powermock.api.mockito.PowerMockito.when;
 import org.openmrs.module.appointments.web.contract.AppointmentQuery;
 import org.openmrs.module.appointments.web.contract.AppointmentServiceDefaultResponse;
 import org.openmrs.module.appointments.web.extension.AppointmentResponseExtension;
+import org.openmrs.module.appointments.web.extension.BatchAppointmentResponseExtension;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import static org.junit.Assert.assertEquals;
@@ -295,6 +305,27 @@ public class AppointmentMapperTest {
         assertNull(response.getAdditionalInfo());
     }
     
+    @Test
+    public void shouldRunBatchExtensionOnceForAllAppointments() throws Exception {
+        Appointment appointment = createAppointment();
+        Appointment otherAppointment = createAppointment();
+        otherAppointment.setUuid("otherAppointmentUuid");
+        List<Appointment> appointments = Arrays.asList(appointment, otherAppointment);
+        BatchAppointmentResponseExtension batchExtension = Mockito.mock(BatchAppointmentResponseExtension.class);
+        Map<String, Map<String, String>> additionalInfo = new HashMap<>();
+        additionalInfo.put("appointmentUuid", Collections.singletonMap("Program Name", "Tuberculosis"));
+        additionalInfo.put("otherAppointmentUuid", Collections.singletonMap("Program Name", "HIV"));
+        when(batchExtension.run(appointments)).thenReturn(additionalInfo);
+        appointmentMapper.appointmentResponseExtension = batchExtension;
+
+        List<AppointmentDefaultResponse> responses = appointmentMapper.constructResponse(appointments);
+
+        assertEquals("Tuberculosis", responses.get(0).getAdditionalInfo().get("Program Name"));
+        assertEquals("HIV", responses.get(1).getAdditionalInfo().get("Program Name"));
+        verify(batchExtension, times(1)).run(appointments);
+        verify(batchExtension, never()).run(appointment);
+    }
+
     @Test
     public void shouldReturnNullIfNoProviderInDefaultResponse() throws Exception {
         Appointment appointment = createAppointment();
@@ -327,6 +358,86 @@ public class AppointmentMapperTest {
         assertEquals(appointment.getComments(), response.getComments());
     }
     
+    @Test
+    public void shouldCreateNormalizedResponseListingSharedObjectsOnce() throws Exception {
+        Appointment appointment = createAppointment();
+        Appointment otherAppointment = createAppointment();
+        otherAppointment.setUuid("otherAppointmentUuid");
+        otherAppointment.setProvider(null);
+        AppointmentServiceDefaultResponse serviceDefaultResponse = new AppointmentServiceDefaultResponse();
+        when(appointmentServiceMapper.constructDefaultResponse(service)).thenReturn(serviceDefaultResponse);
+
+        AppointmentListResponse listResponse = appointmentMapper.constructNormalizedResponse(
+                new ResultList<>(Arrays.asList(appointment, otherAppointment), true));
+
+        assertEquals(2, listResponse.getAppointments().size());
+        AppointmentRowResponse row = listResponse.getAppointments().get(0);
+        assertEquals("appointmentUuid", row.getUuid());
+        assertEquals(appointment.getPatient().getPersonName().getFullName(), row.getPatient().get("name"));
+        assertEquals("serviceUuid", row.getServiceUuid());
+        assertEquals("serviceTypeUuid", row.getServiceTypeUuid());
+        assertEquals("providerUuid", row.getProviderUuid());
+        assertEquals("locationUuid", row.getLocationUuid());
+        assertEquals(AppointmentStatus.Scheduled.name(), row.getStatus());
+        assertNull(listResponse.getAppointments().get(1).getProviderUuid());
+        assertEquals(Collections.singletonMap("serviceUuid", serviceDefaultResponse), listResponse.getServices());
+        assertEquals(1, listResponse.getServiceTypes().size());
+        assertEquals("Type1", listResponse.getServiceTypes().get("serviceTypeUuid").get("name"));
+        assertEquals(1, listResponse.getProviders().size());
+        assertEquals(1, listResponse.getLocations().size());
+        assertTrue(listResponse.isTruncated());
+        verify(appointmentServiceMapper, times(1)).constructDefaultResponse(service);
+    }
+
+    @Test
+    public void shouldCreateSparseResponseWithoutRunningExtension() throws Exception {
+        Appointment appointment = createAppointment();
+
+        List<Map<String, Object>> responses = appointmentMapper.constructSparseResponse(Collections.singletonList(appointment),
+                AppointmentFields.parse("uuid, status,patient"));
+
+        Map<String, Object> response = responses.get(0);
+        assertEquals(Arrays.asList("uuid", "status", "patient"), new ArrayList<>(response.keySet()));
+        assertEquals("appointmentUuid", response.get("uuid"));
+        assertEquals("Scheduled", response.get("status"));
+        assertEquals("GAN230901", ((Map) response.get("patient")).get("identifier"));
+        verify(extension, never()).run(appointment);
+        verify(appointmentServiceMapper, never()).constructDefaultResponse(service);
+    }
+
+    @Test
+    public void shouldRunExtensionWhenAdditionalInfoIsRequested() throws Exception {
+        Appointment appointment = createAppointment();
+        Map<String, String> additionalInfo = Collections.singletonMap("Program Name", "Tuberculosis");
+        when(extension.run(appointment)).thenReturn(additionalInfo);
+
+        List<Map<String, Object>> responses = appointmentMapper.constructSparseResponse(Collections.singletonList(appointment),
+                AppointmentFields.parse("uuid,additionalInfo"));
+
+        assertEquals(additionalInfo, responses.get(0).get("additionalInfo"));
+    }
+
+    @Test
+    public void shouldCreateSparseResponseFromRows() throws Exception {
+        Date startDateTime = new Date();
+        List<Object[]> rows = new ResultList<>(Collections.singletonList(
+                new Object[]{"appointmentUuid", AppointmentKind.Scheduled, startDateTime, "locationUuid"}), true);
+
+        List<Map<String, Object>> responses = appointmentMapper.constructSparseResponseFromRows(rows,
+                AppointmentFields.parse("uuid,appointmentKind,startDateTime"));
+
+        Map<String, Object> response = responses.get(0);
+        assertEquals(Arrays.asList("uuid", "appointmentKind", "startDateTime"), new ArrayList<>(response.keySet()));
+        assertEquals("Scheduled", response.get("appointmentKind"));
+        assertEquals(startDateTime, response.get("startDateTime"));
+        assertTrue(ResultList.isTruncated(responses));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotParseUnknownField() {
+        AppointmentFields.parse("uuid,unknown");
+    }
+
     private AppointmentPayload createAppointmentPayload() throws ParseException {
         AppointmentPayload appointmentPayload = new AppointmentPayload();
         appointmentPayload.setPatientUuid("patientUuid");
@@ -407,4 +518,66 @@ public class AppointmentMapperTest {
         assertEquals("providerUuid", appointment.getProvider().getUuid());
         assertEquals("Completed", appointment.getStatus().toString());
     }
+
+    @Test
+    public void shouldLookUpEachReferenceOnceWhenMappingBatchOfPayloads() throws Exception {
+        when(appointmentsService.getPatientsByUuids(anyCollectionOf(String.class))).thenReturn(Collections.singletonList(patient));
+
+        List<AppointmentBatchItem> batchItems = appointmentMapper.getAppointmentsFromPayloads(
+                Arrays.asList(createAppointmentPayload(), createAppointmentPayload(), createAppointmentPayload()));
+
+        assertEquals(3, batchItems.size());
+        for (AppointmentBatchItem batchItem : batchItems) {
+            assertTrue(batchItem.isSuccessful());
+            assertEquals(patient, batchItem.getAppointment().getPatient());
+            assertEquals(service, batchItem.getAppointment().getService());
+            assertEquals(serviceType, batchItem.getAppointment().getServiceType());
+            assertEquals(provider, batchItem.getAppointment().getProvider());
+            assertEquals(location, batchItem.getAppointment().getLocation());
+        }
+        verify(appointmentsService, times(1)).getPatientsByUuids(Collections.singleton("patientUuid"));
+        verify(patientService, never()).getPatientByUuid(anyString());
+        verify(appointmentServiceService, times(1)).getAppointmentServiceByUuid("serviceUuid");
+        verify(providerService, times(1)).getProviderByUuid("providerUuid");
+        verify(locationService, times(1)).getLocationByUuid("locationUuid");
+    }
+
+    @Test
+    public void shouldMarkPayloadsThatCannotBeMappedAsFailedInBatch() throws Exception {
+        AppointmentPayload existingAppointmentPayload = createAppointmentPayload();
+        existingAppointmentPayload.setUuid("appointmentUuid");
+        AppointmentPayload unknownServiceTypePayload = createAppointmentPayload();
+        unknownServiceTypePayload.setServiceTypeUuid("unknownServiceTypeUuid");
+        AppointmentPayload invalidKindPayload = createAppointmentPayload();
+        invalidKindPayload.setAppointmentKind("Unknown");
+
+        List<AppointmentBatchItem> batchItems = appointmentMapper.getAppointmentsFromPayloads(
+                Arrays.asList(existingAppointmentPayload, unknownServiceTypePayload, invalidKindPayload));
+
+        for (AppointmentBatchItem batchItem : batchItems) {
+            assertFalse(batchItem.isSuccessful());
+            assertNull(batchItem.getAppointment());
+            assertEquals(1, batchItem.getErrors().size());
+        }
+        verify(appointmentsService, never()).getAppointmentByUuid(anyString());
+    }
+
+    @Test
+    public void shouldConstructBatchResponseInRequestOrder() throws Exception {
+        Appointment appointment = createAppointment();
+        AppointmentBatchItem failedBatchItem = new AppointmentBatchItem(null);
+        failedBatchItem.getErrors().add("error");
+
+        List<AppointmentBatchItemResponse> responses = appointmentMapper.constructBatchResponse(
+                Arrays.asList(failedBatchItem, new AppointmentBatchItem(appointment)));
+
+        assertEquals(0, responses.get(0).getIndex());
+        assertFalse(responses.get(0).isSuccessful());
+        assertNull(responses.get(0).getUuid());
+        assertEquals(Collections.singletonList("error"), responses.get(0).getErrors());
+        assertEquals(1, responses.get(1).getIndex());
+        assertTrue(responses.get(1).isSuccessful());
+        assertEquals(appointment.getUuid(), responses.get(1).getUuid());
+        assertEquals(appointment.getAppointmentNumber(), responses.get(1).getAppointmentNumber());
+    }
 }
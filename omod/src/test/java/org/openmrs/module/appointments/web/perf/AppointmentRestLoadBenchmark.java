@@ -0,0 +1,169 @@
+package org.openmrs.module.appointments.web.perf;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.appointments.perf.BenchmarkReport;
+import org.openmrs.module.appointments.perf.SyntheticDataGenerator;
+import org.openmrs.module.appointments.web.BaseIntegrationTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Drives the appointment REST endpoints in-process from many threads against the data set built by
+ * {@link SyntheticDataGenerator}, and reports latency percentiles, requests per second, SQL statements per request
+ * and bytes allocated per request for each endpoint. It is not picked up by the default build; run it with
+ * <pre>
+ * mvn -pl omod test -Dtest=AppointmentRestLoadBenchmark -DargLine=-Xmx4g -Dappointments.perf.threads=16
+ * </pre>
+ * The synthetic data is committed so that every worker thread, which runs in its own OpenMRS session, can see it.
+ */
+public class AppointmentRestLoadBenchmark extends BaseIntegrationTest {
+
+    private static final String USERNAME = "admin";
+
+    private static final String PASSWORD = "test";
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private static SyntheticDataGenerator generator;
+
+    @Autowired
+    SessionFactory sessionFactory;
+
+    private final int threads = Integer.getInteger(SyntheticDataGenerator.PROPERTY_PREFIX + "threads", 8);
+
+    private final int requests = Integer.getInteger(SyntheticDataGenerator.PROPERTY_PREFIX + "requests", 400);
+
+    private final int warmup = Integer.getInteger(SyntheticDataGenerator.PROPERTY_PREFIX + "warmup", 50);
+
+    @Before
+    public void setUp() {
+        if (generator != null) {
+            return;
+        }
+        generator = SyntheticDataGenerator.fromSystemProperties();
+        Session session = sessionFactory.openSession();
+        try {
+            Transaction transaction = session.beginTransaction();
+            generator.generate(session);
+            transaction.commit();
+        } finally {
+            session.close();
+        }
+    }
+
+    @Test
+    public void driveEndpoints() throws Exception {
+        Date anchor = generator.getAnchorDate();
+        BenchmarkReport report = new BenchmarkReport(String.format("REST endpoints with %d threads at %s", threads, generator),
+                "req/s", "sql/req", "KB/req", "errors");
+
+        run(report, "GET /appointment/all?forDate", i -> newGetRequest("/rest/v1/appointment/all",
+                new Parameter("forDate", utc(anchor, -(i % 7)))));
+        run(report, "GET /appointment/appointmentSummary (week)", i -> newGetRequest("/rest/v1/appointment/appointmentSummary",
+                new Parameter("startDate", utc(anchor, -7 * (i % 4))), new Parameter("endDate", utc(anchor, 7 - 7 * (i % 4)))));
+        run(report, "POST /appointments/search (day)", i -> newPostRequest("/rest/v1/appointments/search",
+                String.format("{\"startDate\":\"%s\",\"endDate\":\"%s\"}", utc(anchor, -(i % 7)), utc(anchor, 1 - (i % 7)))));
+        run(report, "GET /appointments/{uuid}", i -> newGetRequest("/rest/v1/appointments/" + appointmentUuid(i)));
+        run(report, "GET /appointmentService/all/full", i -> newGetRequest("/rest/v1/appointmentService/all/full"));
+        run(report, "GET /appointmentService/load (day)", i -> newGetRequest("/rest/v1/appointmentService/load",
+                new Parameter("uuid", generator.getServiceUuid(i % generator.getServices())),
+                new Parameter("startDateTime", utc(anchor, i % 7)), new Parameter("endDateTime", utc(anchor, i % 7 + 1))));
+        run(report, "POST /appointments/{uuid}/status-change", i -> newPostRequest(
+                "/rest/v1/appointments/" + appointmentUuid(i) + "/status-change", "{\"toStatus\":\"CheckedIn\"}"));
+
+        System.out.println(report);
+    }
+
+    private void run(BenchmarkReport report, String name, IntFunction<MockHttpServletRequest> requestFactory) throws Exception {
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.setStatisticsEnabled(true);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            execute(executor, requestFactory, new long[warmup], new AtomicLong(), new AtomicInteger());
+
+            long[] nanos = new long[requests];
+            AtomicLong allocated = new AtomicLong();
+            AtomicInteger errors = new AtomicInteger();
+            statistics.clear();
+            long start = System.nanoTime();
+            execute(executor, requestFactory, nanos, allocated, errors);
+            long elapsed = System.nanoTime() - start;
+
+            report.add(name, nanos,
+                    requests / (elapsed / (double) TimeUnit.SECONDS.toNanos(1)),
+                    statistics.getPrepareStatementCount() / (double) requests,
+                    allocated.get() / 1024.0 / requests,
+                    errors.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void execute(ExecutorService executor, IntFunction<MockHttpServletRequest> requestFactory, long[] nanos,
+                         AtomicLong allocated, AtomicInteger errors) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        List<Future<Object>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                Context.openSession();
+                try {
+                    Context.authenticate(USERNAME, PASSWORD);
+                    int i;
+                    while ((i = next.getAndIncrement()) < nanos.length) {
+                        MockHttpServletRequest request = requestFactory.apply(i);
+                        long allocatedBefore = allocatedBytes();
+                        long start = System.nanoTime();
+                        try {
+                            MockHttpServletResponse response = handle(request);
+                            if (response.getStatus() >= 400) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        nanos[i] = System.nanoTime() - start;
+                        allocated.addAndGet(allocatedBytes() - allocatedBefore);
+                    }
+                } finally {
+                    Context.closeSession();
+                }
+                return null;
+            }));
+        }
+        for (Future<Object> future : futures) {
+            future.get();
+        }
+    }
+
+    private String appointmentUuid(int i) {
+        return generator.getAppointmentUuid(new Random(i).nextInt(generator.getAppointments()));
+    }
+
+    private static String utc(Date anchor, int dayOffset) {
+        return new Date(anchor.getTime() + dayOffset * DAY).toInstant().toString();
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}